@@ -130,6 +130,11 @@ android {
             isReturnDefaultValues = true
         }
     }
+
+    // The bundled tracks are fixtures of the unit tests too, loaded from the classpath
+    sourceSets {
+        getByName("test").resources.srcDir("src/main/res/raw")
+    }
 }
 
 dependencies {
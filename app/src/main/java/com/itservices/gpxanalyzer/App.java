@@ -1,6 +1,11 @@
 package com.itservices.gpxanalyzer;
 
 import androidx.multidex.MultiDexApplication;
+
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.RecentTrackCache;
+
+import javax.inject.Inject;
+
 import dagger.hilt.android.HiltAndroidApp;
 
 /**
@@ -13,6 +18,10 @@ import dagger.hilt.android.HiltAndroidApp;
  */
 @HiltAndroidApp
 public class App extends MultiDexApplication {
+
+	@Inject
+	RecentTrackCache recentTrackCache;
+
 	/**
 	 * Called when the application is being terminated.
 	 * This is the last callback that the application will receive.
@@ -30,4 +39,16 @@ public class App extends MultiDexApplication {
 	public void onCreate() {
 		super.onCreate();
 	}
+
+	/**
+	 * Called when the system asks the application to release memory.
+	 * The recently opened tracks kept in memory are released first.
+	 *
+	 * @param level The context of the trim, giving a hint of the amount of trimming to perform
+	 */
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		recentTrackCache.onTrimMemory(level);
+	}
 }
\ No newline at end of file
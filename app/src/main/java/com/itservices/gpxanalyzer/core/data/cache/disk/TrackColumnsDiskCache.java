@@ -0,0 +1,309 @@
+package com.itservices.gpxanalyzer.core.data.cache.disk;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * On-disk cache of parsed {@link TrackColumns}, so reopening a GPX file does not parse its XML again.
+ * <p>
+ * Every source has one cache file, named after its key, in a versioned little-endian binary format:
+ * <pre>
+ *   int    magic, int version
+ *   long   source size, long source modification time, long source content hash
+ *   int    point count, int segment count, int key length, byte[] key (UTF-8), padding to 8 bytes
+ *   int[]  segment starts, padding to 8 bytes
+ *   long[] time, double[] latitude, double[] longitude, double[] elevation, double[] speed
+ *   long   end marker
+ * </pre>
+ * Columns are stored contiguously and 8-byte aligned, so loading memory-maps the file and copies
+ * every column with a single bulk transfer. Entries are written to a temporary file and renamed,
+ * so readers never see a partially written entry. A cache file whose fingerprint does not match
+ * the source is stale and ignored; a file that cannot be read back is deleted.
+ */
+@Singleton
+public class TrackColumnsDiskCache {
+    private static final String TAG = TrackColumnsDiskCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "track_columns";
+    private static final String FILE_PREFIX = "track-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static final int MAGIC = 0x43585047; // "GPXC" in little-endian order
+    static final int VERSION = 1;
+    private static final long END_MARKER = 0x444E45434350584FL;
+
+    private static final int MAX_ENTRIES = 8;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+
+    @Inject
+    TrackColumnsDiskCache(@ApplicationContext Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY));
+    }
+
+    TrackColumnsDiskCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the columns cached for the fingerprinted source.
+     *
+     * @return the cached columns, or null if there are none, they are stale or cannot be read
+     */
+    @Nullable
+    public TrackColumns load(@NonNull TrackFingerprint fingerprint) {
+        File file = fileFor(fingerprint.key());
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (FileInputStream inputStream = new FileInputStream(file);
+             FileChannel channel = inputStream.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, fingerprint);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Dropping unreadable cache file " + file.getName(), e);
+            if (!file.delete()) {
+                Log.w(TAG, "Cannot delete " + file.getName());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the columns of the fingerprinted source, replacing a previous entry of the same key.
+     * Failures are logged only, the cache is an optimization.
+     */
+    public synchronized void store(@NonNull TrackFingerprint fingerprint, @NonNull TrackColumns columns) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create cache directory " + directory);
+            return;
+        }
+
+        File target = fileFor(fingerprint.key());
+        File temp = new File(directory, target.getName() + TEMP_SUFFIX);
+        try (FileOutputStream outputStream = new FileOutputStream(temp);
+             FileChannel channel = outputStream.getChannel()) {
+            write(channel, fingerprint, columns);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write cache file " + temp.getName(), e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "Cannot replace cache file " + target.getName());
+            temp.delete();
+            return;
+        }
+
+        trimToMaxEntries();
+    }
+
+    private void trimToMaxEntries() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = MAX_ENTRIES; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    private File fileFor(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes, 0, keyBytes.length);
+        return new File(directory,
+                FILE_PREFIX + Long.toHexString(crc.getValue()) + Integer.toHexString(key.hashCode()) + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the columns stored in the buffer, or null if they belong to a different source state
+     * @throws IllegalArgumentException  if the buffer is not a valid cache file of this version
+     * @throws BufferUnderflowException if the buffer is truncated
+     */
+    @Nullable
+    static TrackColumns read(ByteBuffer buffer, TrackFingerprint fingerprint) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a track columns cache file");
+        }
+        if (buffer.getInt() != VERSION) {
+            // written by another app version, treated like a corrupt file to get it replaced
+            throw new IllegalArgumentException("Unsupported cache version");
+        }
+
+        long size = buffer.getLong();
+        long modifiedTime = buffer.getLong();
+        long contentHash = buffer.getLong();
+        int pointCount = buffer.getInt();
+        int segmentCount = buffer.getInt();
+        int keyLength = buffer.getInt();
+        if (pointCount < 0 || segmentCount < 0 || keyLength < 0 || keyLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid cache header");
+        }
+        byte[] keyBytes = new byte[keyLength];
+        buffer.get(keyBytes);
+        align(buffer);
+
+        TrackFingerprint stored = new TrackFingerprint(
+                new String(keyBytes, StandardCharsets.UTF_8), size, modifiedTime, contentHash);
+        if (!stored.equals(fingerprint)) {
+            return null;
+        }
+
+        // checked before allocating the columns, a corrupt header must not cause huge allocations
+        long segmentsEnd = (buffer.position() + 4L * segmentCount + 7) & ~7L;
+        if (segmentsEnd + 40L * pointCount + 8 != buffer.limit()) {
+            throw new IllegalArgumentException("Unexpected cache file length");
+        }
+
+        int[] segmentStarts = new int[segmentCount];
+        buffer.asIntBuffer().get(segmentStarts);
+        buffer.position(buffer.position() + 4 * segmentCount);
+        align(buffer);
+
+        long[] timeMillis = new long[pointCount];
+        double[] latitude = new double[pointCount];
+        double[] longitude = new double[pointCount];
+        double[] elevation = new double[pointCount];
+        double[] speed = new double[pointCount];
+
+        buffer.asLongBuffer().get(timeMillis);
+        buffer.position(buffer.position() + 8 * pointCount);
+        readDoubles(buffer, latitude);
+        readDoubles(buffer, longitude);
+        readDoubles(buffer, elevation);
+        readDoubles(buffer, speed);
+
+        if (buffer.getLong() != END_MARKER) {
+            throw new IllegalArgumentException("Missing end marker");
+        }
+
+        return TrackColumns.of(timeMillis, latitude, longitude, elevation, speed, segmentStarts);
+    }
+
+    private static void readDoubles(ByteBuffer buffer, double[] column) {
+        buffer.asDoubleBuffer().get(column);
+        buffer.position(buffer.position() + 8 * column.length);
+    }
+
+    private static void align(ByteBuffer buffer) {
+        buffer.position((buffer.position() + 7) & ~7);
+    }
+
+    static void write(FileChannel channel, TrackFingerprint fingerprint, TrackColumns columns) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] keyBytes = fingerprint.key().getBytes(StandardCharsets.UTF_8);
+        int pointCount = columns.size();
+        int segmentCount = columns.getSegmentCount();
+        long written = 0;
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(fingerprint.size());
+        buffer.putLong(fingerprint.modifiedTime());
+        buffer.putLong(fingerprint.contentHash());
+        buffer.putInt(pointCount);
+        buffer.putInt(segmentCount);
+        buffer.putInt(keyBytes.length);
+        for (byte b : keyBytes) {
+            written += ensureRemaining(channel, buffer, 1);
+            buffer.put(b);
+        }
+        written += pad(channel, buffer, written);
+
+        for (int s = 0; s < segmentCount; s++) {
+            written += ensureRemaining(channel, buffer, 4);
+            buffer.putInt(columns.getSegmentStartIndex(s));
+        }
+        written += pad(channel, buffer, written);
+
+        for (int i = 0; i < pointCount; i++) {
+            written += ensureRemaining(channel, buffer, 8);
+            buffer.putLong(columns.getTimeMillis(i));
+        }
+        for (int i = 0; i < pointCount; i++) {
+            written += ensureRemaining(channel, buffer, 8);
+            buffer.putDouble(columns.getLatitude(i));
+        }
+        for (int i = 0; i < pointCount; i++) {
+            written += ensureRemaining(channel, buffer, 8);
+            buffer.putDouble(columns.getLongitude(i));
+        }
+        for (int i = 0; i < pointCount; i++) {
+            written += ensureRemaining(channel, buffer, 8);
+            buffer.putDouble(columns.getElevation(i));
+        }
+        for (int i = 0; i < pointCount; i++) {
+            written += ensureRemaining(channel, buffer, 8);
+            buffer.putDouble(columns.getSpeed(i));
+        }
+
+        ensureRemaining(channel, buffer, 8);
+        buffer.putLong(END_MARKER);
+        flush(channel, buffer);
+    }
+
+    /**
+     * Pads the output with zeros to the next multiple of 8 bytes.
+     *
+     * @param written bytes already flushed to the channel
+     * @return bytes flushed by this call
+     */
+    private static long pad(FileChannel channel, ByteBuffer buffer, long written) throws IOException {
+        long flushed = ensureRemaining(channel, buffer, 8);
+        while (((written + flushed + buffer.position()) & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+        return flushed;
+    }
+
+    /**
+     * @return bytes flushed to make room for {@code bytes} more bytes
+     */
+    private static long ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return 0;
+        }
+        return flush(channel, buffer);
+    }
+
+    private static long flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long flushed = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return flushed;
+    }
+}
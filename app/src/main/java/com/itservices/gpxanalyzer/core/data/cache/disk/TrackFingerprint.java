@@ -0,0 +1,51 @@
+package com.itservices.gpxanalyzer.core.data.cache.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies the content of a GPX source for the {@link TrackColumnsDiskCache}.
+ * <p>
+ * Besides the source key, size and modification time, a CRC32 of the first and last
+ * {@value #HASHED_BYTES} bytes is included, so files that are rewritten in place with the same
+ * size and timestamp are still recognized as changed, without reading whole multi-MB documents.
+ *
+ * @param key          Absolute path of a file, or a key of a bundled raw resource.
+ * @param size         Size of the source in bytes.
+ * @param modifiedTime Last modification time of a file, or the app update time for raw resources.
+ * @param contentHash  CRC32 of the head and tail of the source.
+ */
+public record TrackFingerprint(String key, long size, long modifiedTime, long contentHash) {
+
+    static final int HASHED_BYTES = 64 * 1024;
+
+    /**
+     * Computes the fingerprint of {@code length} bytes of the channel starting at {@code offset}.
+     * The channel position is not changed.
+     */
+    public static TrackFingerprint of(String key, FileChannel channel, long offset, long length, long modifiedTime) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(HASHED_BYTES);
+
+        update(crc, buffer, channel, offset, Math.min(length, HASHED_BYTES));
+        if (length > HASHED_BYTES) {
+            long tailLength = Math.min(length - HASHED_BYTES, HASHED_BYTES);
+            update(crc, buffer, channel, offset + length - tailLength, tailLength);
+        }
+
+        return new TrackFingerprint(key, length, modifiedTime, crc.getValue());
+    }
+
+    private static void update(CRC32 crc, ByteBuffer buffer, FileChannel channel, long position, long length) throws IOException {
+        buffer.clear();
+        buffer.limit((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of source");
+            }
+        }
+        crc.update(buffer.array(), 0, buffer.position());
+    }
+}
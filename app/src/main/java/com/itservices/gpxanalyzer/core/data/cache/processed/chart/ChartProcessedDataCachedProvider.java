@@ -7,6 +7,7 @@ import android.util.Log;
 
 import com.github.mikephil.charting.data.LineData;
 import com.itservices.gpxanalyzer.core.data.cache.processed.rawdata.RawDataProcessed;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.RecentTrackCache;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntityWrapper;
 import com.itservices.gpxanalyzer.core.ui.components.chart.settings.LineChartSettings;
 import com.itservices.gpxanalyzer.feature.gpxchart.ui.viewmode.GpxViewMode;
@@ -29,11 +30,18 @@ public class ChartProcessedDataCachedProvider {
                     new AtomicReference<>(new EntryCacheMap()),
                     new AtomicReference<>(new LineData(new ArrayList<>()))
             );
-    private final ConcurrentMap<ChartSlot, ConcurrentMap<GpxViewMode, AtomicReference<ChartProcessedData>>> chartSlotProcessedDataMap =
-            new ConcurrentHashMap<>(ChartSlot.values().length);
+    /**
+     * Chart data by the fingerprint of its input data, see {@link DataEntityWrapper#getDataHash()},
+     * so the chart data of the recently opened tracks kept by the {@link RecentTrackCache} is kept as well.
+     */
+    private final ConcurrentMap<Long, ConcurrentMap<ChartSlot, ConcurrentMap<GpxViewMode, ChartProcessedData>>> chartSlotProcessedDataMap =
+            new ConcurrentHashMap<>();
+    private final RecentTrackCache recentTrackCache;
 
     @Inject
-    public ChartProcessedDataCachedProvider() {
+    public ChartProcessedDataCachedProvider(RecentTrackCache recentTrackCache) {
+        this.recentTrackCache = recentTrackCache;
+        recentTrackCache.addEvictionListener(this::remove);
     }
 
     public ChartProcessedData provide(RawDataProcessed rawDataProcessed, LineChartSettings settings) {
@@ -59,27 +67,23 @@ public class ChartProcessedDataCachedProvider {
 
         clearOldCachedData(currentWrapper);
 
-        ConcurrentMap<GpxViewMode, AtomicReference<ChartProcessedData>> chartSlotMap =
-                chartSlotProcessedDataMap.get(chartSlot);
+        ConcurrentMap<ChartSlot, ConcurrentMap<GpxViewMode, ChartProcessedData>> dataMap =
+                chartSlotProcessedDataMap.get(currentWrapper.getDataHash());
+        ConcurrentMap<GpxViewMode, ChartProcessedData> chartSlotMap = dataMap != null ? dataMap.get(chartSlot) : null;
 
         if (chartSlotMap == null) {
             return null;
         }
 
         GpxViewMode gpxViewMode = null;
-        AtomicReference<ChartProcessedData> chartProcessedDataAtomic = null;
+        ChartProcessedData chartProcessedData = null;
         try {
             gpxViewMode = GpxViewMode.from(currentWrapper.getPrimaryDataIndex());
-            chartProcessedDataAtomic = chartSlotMap.get(gpxViewMode);
+            chartProcessedData = chartSlotMap.get(gpxViewMode);
         } catch (IndexOutOfBoundsException e) {
             Log.e(TAG, "provide: ", e);
         }
 
-        if (chartProcessedDataAtomic == null) {
-            return null;
-        }
-
-        ChartProcessedData chartProcessedData = chartProcessedDataAtomic.get();
         if (chartProcessedData == null) {
             return null;
         }
@@ -96,36 +100,33 @@ public class ChartProcessedDataCachedProvider {
         );
     }
 
+    /**
+     * Removes the chart data of everything but the current data and the recently opened tracks.
+     */
     private void clearOldCachedData(DataEntityWrapper currentDataEntityWrapper) {
         if (currentDataEntityWrapper == null || currentDataEntityWrapper.getData() == null) {
             return;
         }
 
-        chartSlotProcessedDataMap.forEach((chartSlot, dataMap) -> {
-            if (dataMap != null) {
-                dataMap.keySet().forEach(gpxViewMode -> {
-
-                    AtomicReference<ChartProcessedData> chartProcessedDataAtomic = dataMap.get(gpxViewMode);
-
-                    if (chartProcessedDataAtomic != null && chartProcessedDataAtomic.get() != null
-                            && chartProcessedDataAtomic.get().inputDataEntityWrapperHash() != null) {
-                        long inputDataWrapperHash = chartProcessedDataAtomic.get().inputDataEntityWrapperHash().get();
+        chartSlotProcessedDataMap.keySet().removeIf(inputDataWrapperHash -> {
+            boolean toRemove = isNotEqualByDataHash(inputDataWrapperHash, currentDataEntityWrapper)
+                    && !recentTrackCache.isRetained(inputDataWrapperHash);
 
-                        boolean toRemove = isNotEqualByDataHash(inputDataWrapperHash, currentDataEntityWrapper);
-
-                        if (toRemove) {
-                            Log.i(TAG, "clearOldCachedData() remove old inputDataWrapperHash: hash1 = ["
-                                    + inputDataWrapperHash + "], currentDataEntityWrapper = ["
-                                    + currentDataEntityWrapper.getDataHash() + "]");
-
-                            chartProcessedDataAtomic.set(null);
-                        }
-                    }
-                });
+            if (toRemove) {
+                Log.i(TAG, "clearOldCachedData() remove old inputDataWrapperHash: hash1 = ["
+                        + inputDataWrapperHash + "], currentDataEntityWrapper = ["
+                        + currentDataEntityWrapper.getDataHash() + "]");
             }
+            return toRemove;
         });
     }
 
+    private void remove(long inputDataWrapperHash) {
+        Log.i(TAG, "remove() evicted inputDataWrapperHash = [" + inputDataWrapperHash + "]");
+
+        chartSlotProcessedDataMap.remove(inputDataWrapperHash);
+    }
+
     public void add(ChartSlot chartSlot, RawDataProcessed rawDataProcessed, ChartProcessedData chartProcessedData) {
         if (chartSlot == null || rawDataProcessed == null || chartProcessedData == null) {
             return;
@@ -142,33 +143,10 @@ public class ChartProcessedDataCachedProvider {
         DataEntityWrapper dataEntityWrapper = rawDataProcessed.dataEntityWrapperAtomic().get();
 
         GpxViewMode gpxViewMode = GpxViewMode.from(dataEntityWrapper.getPrimaryDataIndex());
-        ConcurrentMap<GpxViewMode, AtomicReference<ChartProcessedData>> chartSlotMap;
-
-        if (chartSlotProcessedDataMap.containsKey(chartSlot)) {
-            chartSlotMap = chartSlotProcessedDataMap.get(chartSlot);
-
-            if (chartSlotMap == null) {
-                chartSlotMap = new ConcurrentHashMap<>(GpxViewMode.values().length);
-                chartSlotProcessedDataMap.put(chartSlot, chartSlotMap);
-            }
 
-            if (chartSlotMap.containsKey(gpxViewMode)) {
-                AtomicReference<ChartProcessedData> ref = chartSlotMap.get(gpxViewMode);
-                if (ref != null) {
-                    ref.set(chartProcessedData);
-                } else {
-                    chartSlotMap.put(gpxViewMode, new AtomicReference<>(chartProcessedData));  // Put defensive copy
-                }
-
-            } else {
-                chartSlotMap.put(gpxViewMode, new AtomicReference<>(chartProcessedData));
-            }
-        } else {
-            // Create new map if it doesn't exist
-            chartSlotMap = new ConcurrentHashMap<>(GpxViewMode.values().length);
-            chartSlotMap.put(gpxViewMode, new AtomicReference<>(chartProcessedData));
-
-            chartSlotProcessedDataMap.put(chartSlot, chartSlotMap);
-        }
+        chartSlotProcessedDataMap
+                .computeIfAbsent(dataEntityWrapper.getDataHash(), hash -> new ConcurrentHashMap<>(ChartSlot.values().length))
+                .computeIfAbsent(chartSlot, slot -> new ConcurrentHashMap<>(GpxViewMode.values().length))
+                .put(gpxViewMode, chartProcessedData);
     }
 }
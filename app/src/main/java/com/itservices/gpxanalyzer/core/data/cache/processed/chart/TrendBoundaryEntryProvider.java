@@ -10,7 +10,6 @@ import com.itservices.gpxanalyzer.domain.cumulative.TrendBoundaryDataEntity;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector;
 
 import javax.inject.Inject;
 
@@ -54,7 +53,7 @@ public class TrendBoundaryEntryProvider {
             trendBoundaryList.forEach(trendBoundaryDataEntity -> {
                 List<Entry> entries = new ArrayList<>();
 
-                Vector<DataEntity> dataEntityVector = trendBoundaryDataEntity.dataEntityVector();
+                List<DataEntity> dataEntityVector = trendBoundaryDataEntity.dataEntityVector();
 
                 // Create the label for this trend boundary
                 String label = formatTrendBoundaryLabel(trendBoundaryDataEntity);
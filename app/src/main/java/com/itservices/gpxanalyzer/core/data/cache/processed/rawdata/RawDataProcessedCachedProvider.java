@@ -4,6 +4,7 @@ import static com.itservices.gpxanalyzer.core.data.model.entity.DataEntityWrappe
 
 import android.util.Log;
 
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.RecentTrackCache;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntityWrapper;
 import com.itservices.gpxanalyzer.feature.gpxchart.ui.viewmode.GpxViewMode;
 
@@ -26,11 +27,18 @@ public class RawDataProcessedCachedProvider {
                     new AtomicReference<>(new DataEntityWrapper(0, null)),
                     new AtomicReference<>(new ArrayList<>())
             );
-    private final ConcurrentMap<GpxViewMode, AtomicReference<RawDataProcessed>> rawDataProcessedDataMap =
-            new ConcurrentHashMap<>(GpxViewMode.values().length);
+    /**
+     * Processed data by the fingerprint of its input data, see {@link DataEntityWrapper#getDataHash()},
+     * so the processed data of the recently opened tracks kept by the {@link RecentTrackCache} is kept as well.
+     */
+    private final ConcurrentMap<Long, ConcurrentMap<GpxViewMode, RawDataProcessed>> rawDataProcessedDataMap =
+            new ConcurrentHashMap<>();
+    private final RecentTrackCache recentTrackCache;
 
     @Inject
-    public RawDataProcessedCachedProvider() {
+    public RawDataProcessedCachedProvider(RecentTrackCache recentTrackCache) {
+        this.recentTrackCache = recentTrackCache;
+        recentTrackCache.addEvictionListener(this::remove);
     }
 
     public RawDataProcessed provide(DataEntityWrapper currentWrapper) {
@@ -41,19 +49,15 @@ public class RawDataProcessedCachedProvider {
         clearOldCachedData(currentWrapper);
 
         GpxViewMode gpxViewMode = null;
-        AtomicReference<RawDataProcessed> rawDataProcessedAtomic = null;
+        RawDataProcessed rawDataProcessed = null;
         try {
             gpxViewMode = GpxViewMode.from(currentWrapper.getPrimaryDataIndex());
-            rawDataProcessedAtomic = rawDataProcessedDataMap.get(gpxViewMode);
+            ConcurrentMap<GpxViewMode, RawDataProcessed> viewModeMap = rawDataProcessedDataMap.get(currentWrapper.getDataHash());
+            rawDataProcessed = viewModeMap != null ? viewModeMap.get(gpxViewMode) : null;
         } catch (IndexOutOfBoundsException e) {
             Log.e(TAG, "provide: ", e);
         }
 
-        if (rawDataProcessedAtomic == null) {
-            return null;
-        }
-
-        RawDataProcessed rawDataProcessed = rawDataProcessedAtomic.get();
         if (rawDataProcessed == null) {
             return null;
         }
@@ -69,31 +73,31 @@ public class RawDataProcessedCachedProvider {
         );
     }
 
+    /**
+     * Removes the processed data of everything but the current data and the recently opened tracks.
+     */
     private void clearOldCachedData(DataEntityWrapper currentDataEntityWrapper) {
         if (currentDataEntityWrapper == null || currentDataEntityWrapper.getData() == null) {
             return;
         }
 
-                rawDataProcessedDataMap.keySet().forEach(gpxViewMode -> {
-
-                    AtomicReference<RawDataProcessed> rawDataProcessedDataAtomic = rawDataProcessedDataMap.get(gpxViewMode);
-
-                    if (rawDataProcessedDataAtomic != null && rawDataProcessedDataAtomic.get() != null
-                            && rawDataProcessedDataAtomic.get().inputDataEntityWrapperHash() != null) {
-                        long inputDataWrapperHash = rawDataProcessedDataAtomic.get().inputDataEntityWrapperHash().get();
-
-                        boolean toRemove = isNotEqualByDataHash(inputDataWrapperHash, currentDataEntityWrapper);
+        rawDataProcessedDataMap.keySet().removeIf(inputDataWrapperHash -> {
+            boolean toRemove = isNotEqualByDataHash(inputDataWrapperHash, currentDataEntityWrapper)
+                    && !recentTrackCache.isRetained(inputDataWrapperHash);
 
-                        if (toRemove) {
-                            Log.i(TAG, "clearOldCachedData() remove old inputDataWrapperHash: hash1 = ["
-                                    + inputDataWrapperHash + "], currentDataEntityWrapper = ["
-                                    + currentDataEntityWrapper.getDataHash() + "]");
+            if (toRemove) {
+                Log.i(TAG, "clearOldCachedData() remove old inputDataWrapperHash: hash1 = ["
+                        + inputDataWrapperHash + "], currentDataEntityWrapper = ["
+                        + currentDataEntityWrapper.getDataHash() + "]");
+            }
+            return toRemove;
+        });
+    }
 
-                            rawDataProcessedDataAtomic.set(null);
-                        }
-                    }
-                });
+    private void remove(long inputDataWrapperHash) {
+        Log.i(TAG, "remove() evicted inputDataWrapperHash = [" + inputDataWrapperHash + "]");
 
+        rawDataProcessedDataMap.remove(inputDataWrapperHash);
     }
 
     public void add(DataEntityWrapper dataEntityWrapper, RawDataProcessed rawDataProcessed) {
@@ -103,21 +107,8 @@ public class RawDataProcessedCachedProvider {
 
         GpxViewMode gpxViewMode = GpxViewMode.from(dataEntityWrapper.getPrimaryDataIndex());
 
-        if (rawDataProcessedDataMap.containsKey(gpxViewMode)) {
-            AtomicReference<RawDataProcessed> rawDataProcessedAtomic = rawDataProcessedDataMap.get(gpxViewMode);
-            if (rawDataProcessedAtomic != null) {
-                rawDataProcessedAtomic.set(rawDataProcessed);
-            } else {
-                rawDataProcessedDataMap.put(
-                        gpxViewMode,
-                        new AtomicReference<>(rawDataProcessed)
-                );
-            }
-        } else {
-            rawDataProcessedDataMap.put(
-                    gpxViewMode,
-                    new AtomicReference<>(rawDataProcessed)
-            );
-        }
+        rawDataProcessedDataMap
+                .computeIfAbsent(dataEntityWrapper.getDataHash(), hash -> new ConcurrentHashMap<>(GpxViewMode.values().length))
+                .put(gpxViewMode, rawDataProcessed);
     }
 }
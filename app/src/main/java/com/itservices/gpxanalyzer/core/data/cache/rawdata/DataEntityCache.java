@@ -1,91 +1,167 @@
 package com.itservices.gpxanalyzer.core.data.cache.rawdata;
 
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntityUtils;
 import com.itservices.gpxanalyzer.core.data.model.statistics.DataEntityStatistics;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
  * A singleton provider class that manages cached DataEntity objects and their statistics.
- * This class maintains a thread-safe collection of DataEntity objects and provides
- * methods for adding, retrieving, and analyzing the data.
  * <p>
- * The class uses AtomicReference for thread-safe access to the data collection and
- * maintains running statistics for the data entities. It is designed to be used with
- * dependency injection and provides a centralized cache for data entities.
+ * Data entities are accepted into a staging area that readers do not see, and become visible
+ * together when {@link #publish()} replaces the current {@link DataEntitySnapshot} atomically.
+ * Readers work on an immutable snapshot without locking and always see a consistent set of
+ * data entities, columns and statistics, even while the next part of a track is being loaded.
+ * <p>
+ * The points are kept in a columnar {@link TrackStore} only, which serves index, value and timestamp
+ * lookups from primitive arrays. Accepted data entities are copied into its columns and not kept;
+ * the data entities read from the cache are created from the columns on access.
  */
 @Singleton
 public class DataEntityCache {
 
-    private final ConcurrentMap<Long, DataEntity> dataEntityMap = new ConcurrentHashMap<>();
+    private final AtomicReference<DataEntitySnapshot> snapshot = new AtomicReference<>(DataEntitySnapshot.EMPTY);
 
-    private final AtomicReference<Vector<DataEntity>> dataEntityVector = new AtomicReference<>(new Vector<>());
-    private DataEntityStatistics dataEntityStatistics;
+    private long version = 0;
+    private TrackStore.Builder trackStoreBuilder = new TrackStore.Builder();
+    private DataEntityStatistics stagedStatistics = new DataEntityStatistics(1);
+    private long sourceHash = DataEntityUtils.UNKNOWN_SOURCE_HASH;
 
     /**
-     * Creates a new DataEntityCachedProvider with initial statistics for one measure.
+     * Creates a new, empty DataEntityCache.
      */
     @Inject
     public DataEntityCache() {
-        dataEntityStatistics = new DataEntityStatistics(1);
     }
 
     /**
-     * Initializes the provider with the specified number of measures and clears any existing data.
+     * Initializes the cache with the specified number of measures and publishes an empty snapshot.
+     *
+     * @param nPrimaryIndexes The number of different measures to track
+     */
+    public synchronized void init(int nPrimaryIndexes) {
+        init(nPrimaryIndexes, null);
+    }
+
+    /**
+     * Initializes the cache for data loaded from the given source and publishes an empty snapshot.
      *
      * @param nPrimaryIndexes The number of different measures to track
+     * @param sourceKey       The identity of the source, e.g. the absolute path of a file, or null if unknown.
+     *                        It becomes part of the fingerprint of the published data.
      */
-    public void init(int nPrimaryIndexes) {
-        dataEntityStatistics = new DataEntityStatistics(nPrimaryIndexes);
-        dataEntityVector.get().clear();
-        dataEntityMap.clear();
+    public synchronized void init(int nPrimaryIndexes, String sourceKey) {
+        clearStaged(nPrimaryIndexes);
+        sourceHash = DataEntityUtils.calculateSourceHash(sourceKey);
+        publish();
     }
 
     /**
-     * Adds a single DataEntity to the cache and updates the statistics.
+     * Adds a single DataEntity to the staging area and updates the staged statistics.
+     * It becomes visible to readers with the next {@link #publish()}.
      *
      * @param dataEntity The DataEntity to add
      */
-    public void accept(DataEntity dataEntity) {
-        dataEntityVector.get().add(dataEntity);
-        dataEntityMap.put(dataEntity.timestampMillis(), dataEntity);
+    public synchronized void accept(DataEntity dataEntity) {
+        trackStoreBuilder.append(dataEntity);
+        stagedStatistics.accept(dataEntity);
+    }
 
-        dataEntityStatistics.accept(dataEntity);
+    /**
+     * Adds all points of a store, e.g. a block of a loaded track, to the staging area and updates the
+     * staged statistics, without creating any data entity. They become visible to readers with the next
+     * {@link #publish()}.
+     *
+     * @param points The points to add
+     */
+    public synchronized void appendAll(TrackStore points) {
+        trackStoreBuilder.appendAll(points);
+        for (int i = 0; i < points.size(); i++) {
+            stagedStatistics.accept(points, i);
+        }
     }
 
     /**
-     * Adds multiple DataEntity objects to the cache and updates the statistics.
-     * This method clears any existing data before adding the new entities.
+     * Replaces the cached data with the given DataEntity objects and publishes them.
      *
      * @param dataEntityList The list of DataEntity objects to add
      */
-    public void acceptAll(List<DataEntity> dataEntityList) {
+    public synchronized void acceptAll(List<DataEntity> dataEntityList) {
         if (dataEntityList.isEmpty()) {
             return;
         }
-        this.dataEntityVector.get().clear();
-        this.dataEntityVector.get().addAll(dataEntityList);
+        clearStaged(dataEntityList.get(0).getSchema().getChannelCount());
+        sourceHash = DataEntityUtils.UNKNOWN_SOURCE_HASH;
+        dataEntityList.forEach(this::accept);
+        publish();
+    }
 
-        dataEntityStatistics = new DataEntityStatistics(dataEntityList.get(0).getMeasures().size());
-        dataEntityStatistics.acceptAll(dataEntityList);
+    /**
+     * Makes a snapshot published earlier, e.g. of a recently opened track, the current data again.
+     * The snapshot is published with a new version and can be continued with {@link #accept(DataEntity)}.
+     *
+     * @param dataEntitySnapshot The snapshot to restore
+     */
+    public synchronized void restore(DataEntitySnapshot dataEntitySnapshot) {
+        trackStoreBuilder = new TrackStore.Builder(dataEntitySnapshot.getTrackStore());
+        stagedStatistics = dataEntitySnapshot.getDataEntityStatistics().copy();
+        sourceHash = dataEntitySnapshot.getSourceHash();
+        publish();
+    }
+
+    /**
+     * Publishes all data entities accepted so far as a new snapshot with a higher version.
+     * The columns are never copied; the snapshot shares the staged columns up to the current size.
+     */
+    public synchronized void publish() {
+        snapshot.set(new DataEntitySnapshot(
+                ++version,
+                trackStoreBuilder.build(),
+                stagedStatistics.copy(),
+                sourceHash));
     }
 
     /**
      * Resets the cache and statistics to their initial state.
      */
-    public void reset() {
-        this.dataEntityVector.get().clear();
-        dataEntityStatistics.reset();
-        dataEntityMap.clear();
+    public synchronized void reset() {
+        clearStaged(stagedStatistics.getMeasureCount());
+        publish();
+    }
+
+    private void clearStaged(int nPrimaryIndexes) {
+        trackStoreBuilder = new TrackStore.Builder();
+        stagedStatistics = new DataEntityStatistics(nPrimaryIndexes);
+    }
+
+    /**
+     * @return The currently published snapshot
+     */
+    public DataEntitySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return The fingerprint of the currently published data, see {@link DataEntitySnapshot#getDataFingerprint()}
+     */
+    public long getDataFingerprint() {
+        return snapshot.get().getDataFingerprint();
+    }
+
+    /**
+     * @return The version of the currently published snapshot
+     */
+    public long getVersion() {
+        return snapshot.get().getVersion();
     }
 
     /**
@@ -94,49 +170,97 @@ public class DataEntityCache {
      * @return true if no data entities are cached, false otherwise
      */
     public boolean isEmpty() {
-        return dataEntityStatistics.isEmpty();
+        return snapshot.get().isEmpty();
     }
 
     /**
      * Returns the statistics for the cached data entities.
      *
-     * @return The DataEntityStatistics object
+     * @return The DataEntityStatistics object of the current snapshot
      */
     public DataEntityStatistics getDataEntityStatistics() {
-        return dataEntityStatistics;
+        return snapshot.get().getDataEntityStatistics();
+    }
+
+    /**
+     * Returns the cached data entities of the current snapshot.
+     *
+     * @return The unmodifiable list of DataEntity objects, created on access
+     */
+    public List<DataEntity> getDataEntitityVector() {
+        return snapshot.get().getDataEntityList();
     }
 
     /**
-     * Returns the vector of cached data entities.
+     * Returns the columnar store holding the cached points in the same order as
+     * {@link #getDataEntitityVector()}.
      *
-     * @return The vector of DataEntity objects
+     * @return The track store of the current snapshot
      */
-    public Vector<DataEntity> getDataEntitityVector() {
-        return dataEntityVector.get();
+    public TrackStore getTrackStore() {
+        return snapshot.get().getTrackStore();
     }
 
+    /**
+     * Returns the data entity recorded exactly at the given time.
+     *
+     * @param timestampMillis The timestamp to look for
+     * @return The last data entity with this timestamp, or null if there is none
+     */
     public DataEntity getDataEntityForTime(long timestampMillis) {
-        return dataEntityMap.get(timestampMillis);
+        TrackStore trackStore = snapshot.get().getTrackStore();
+        int index = trackStore.lastIndexOfTimestamp(timestampMillis);
+        return index >= 0 ? trackStore.getDataEntity(index) : null;
+    }
+
+    /**
+     * Returns the data entity recorded closest to the given time.
+     *
+     * @param timestampMillis The timestamp to look for
+     * @return The closest data entity, or null if the cache is empty
+     */
+    public DataEntity getDataEntityNearestTime(long timestampMillis) {
+        TrackStore trackStore = snapshot.get().getTrackStore();
+        int index = trackStore.nearestIndexOf(timestampMillis);
+        return index >= 0 ? trackStore.getDataEntity(index) : null;
     }
 
-    public Vector<DataEntity> get(long timestampMillisStart, long timestampMillisEnd) {
+    /**
+     * Returns the data entities recorded within the given time range.
+     * <p>
+     * For data in time order the range is found by binary search and returned as a view of
+     * the current snapshot without copying.
+     *
+     * @param timestampMillisStart The start of the time range, inclusive
+     * @param timestampMillisEnd   The end of the time range, inclusive
+     * @return The data entities in time order, empty if none lies in the range
+     */
+    public List<DataEntity> get(long timestampMillisStart, long timestampMillisEnd) {
         if (timestampMillisEnd < timestampMillisStart) {
-            return new Vector<>();
+            return Collections.emptyList();
         }
 
-        Vector<DataEntity> allDataEntity = getDataEntitityVector();
+        DataEntitySnapshot current = snapshot.get();
+        List<DataEntity> allDataEntity = current.getDataEntityList();
+        TrackStore trackStore = current.getTrackStore();
 
-        if (allDataEntity.firstElement().timestampMillis() == timestampMillisStart
-                &&
-                allDataEntity.lastElement().timestampMillis() == timestampMillisEnd
-        ) {
-            return allDataEntity;
+        if (trackStore.isSortedByTime()) {
+            int from = trackStore.firstIndexNotBefore(timestampMillisStart);
+            int to = trackStore.firstIndexAfter(timestampMillisEnd);
+            if (from >= to) {
+                return Collections.emptyList();
+            }
+            return allDataEntity.subList(from, to);
         }
 
-        return dataEntityMap.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey() >= timestampMillisStart && entry.getKey() <= timestampMillisEnd)
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toCollection(Vector::new));
+        List<DataEntity> dataEntityInRange = new ArrayList<>();
+        for (int i = 0; i < trackStore.size(); i++) {
+            long timestampMillis = trackStore.getTimestamp(i);
+            if (timestampMillis >= timestampMillisStart && timestampMillis <= timestampMillisEnd) {
+                dataEntityInRange.add(allDataEntity.get(i));
+            }
+        }
+        dataEntityInRange.sort(Comparator.comparingLong(DataEntity::timestampMillis));
+        return dataEntityInRange;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package com.itservices.gpxanalyzer.core.data.cache.rawdata;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntityUtils;
+import com.itservices.gpxanalyzer.core.data.model.statistics.DataEntityStatistics;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+
+import java.util.List;
+
+/**
+ * Immutable state of the {@link DataEntityCache} as published at one point of a load.
+ * <p>
+ * The points are kept in a columnar {@link TrackStore} only; the data entities of the snapshot are
+ * created from its columns on access, see {@link TrackStore#getDataEntity(int)}, and the statistics
+ * describe the same points. A snapshot can be read from any thread without locking. Its version grows with every
+ * publication of the cache, so a computation can tell whether it still works on the current data.
+ * <p>
+ * The data fingerprint identifies the content independently of the version: it combines the source
+ * the data was loaded from with the running hash of the columns, so loading the same track again
+ * gives the same fingerprint, while any changed point gives a different one.
+ */
+public final class DataEntitySnapshot {
+
+    /**
+     * Snapshot of a cache that has never been filled.
+     */
+    public static final DataEntitySnapshot EMPTY =
+            new DataEntitySnapshot(0, TrackStore.EMPTY, new DataEntityStatistics(1), DataEntityUtils.UNKNOWN_SOURCE_HASH);
+
+    private final long version;
+    private final List<DataEntity> dataEntityList;
+    private final TrackStore trackStore;
+    private final DataEntityStatistics dataEntityStatistics;
+    private final long sourceHash;
+    private final long dataFingerprint;
+
+    DataEntitySnapshot(long version, TrackStore trackStore, DataEntityStatistics dataEntityStatistics, long sourceHash) {
+        this.version = version;
+        this.dataEntityList = trackStore.asDataEntityList();
+        this.trackStore = trackStore;
+        this.dataEntityStatistics = dataEntityStatistics;
+        this.sourceHash = sourceHash;
+        this.dataFingerprint = DataEntityUtils.calculateDataFingerprint(sourceHash, trackStore);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The non-negative fingerprint of the source and content of the data
+     */
+    public long getDataFingerprint() {
+        return dataFingerprint;
+    }
+
+    long getSourceHash() {
+        return sourceHash;
+    }
+
+    public int size() {
+        return trackStore.size();
+    }
+
+    public boolean isEmpty() {
+        return trackStore.isEmpty();
+    }
+
+    /**
+     * @return The data entities in load order, unmodifiable and created on access, see {@link TrackStore#asDataEntityList()}
+     */
+    public List<DataEntity> getDataEntityList() {
+        return dataEntityList;
+    }
+
+    /**
+     * @return The columns of the data entities, in the same order as {@link #getDataEntityList()}
+     */
+    public TrackStore getTrackStore() {
+        return trackStore;
+    }
+
+    /**
+     * @return The statistics of the data entities, to be treated as read-only
+     */
+    public DataEntityStatistics getDataEntityStatistics() {
+        return dataEntityStatistics;
+    }
+}
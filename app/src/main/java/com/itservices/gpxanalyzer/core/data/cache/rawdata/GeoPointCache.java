@@ -2,86 +2,232 @@ package com.itservices.gpxanalyzer.core.data.cache.rawdata;
 
 import com.itservices.gpxanalyzer.core.data.model.entity.GeoPointEntity;
 import com.itservices.gpxanalyzer.core.data.model.statistics.GeoPointStatistics;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+import com.itservices.gpxanalyzer.core.utils.common.TimestampSearchUtil;
 
 import org.osmdroid.util.GeoPoint;
 
-import java.util.Comparator;
-import java.util.Map;
-import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Caches the geo points of the loaded track together with their statistics.
+ * <p>
+ * The geo points are read from the columns of the {@link TrackStore} published by the {@link DataEntityCache},
+ * so the cache keeps no point objects; a {@link GeoPointEntity} is created on access, see
+ * {@link TrackStore#getGeoPointEntity(int)}. Like {@link DataEntityCache}, accepted coordinates update staged
+ * statistics and become visible to readers with {@link #publish(TrackStore)}, which replaces an immutable
+ * snapshot atomically. Time lookups and time range queries are answered by binary search, for a store not
+ * in time order over a sort order of its points computed when it is published.
+ */
 @Singleton
 public class GeoPointCache {
 
-    private final ConcurrentMap<Long, GeoPointEntity> geoPointMap = new ConcurrentHashMap<>();
+    /**
+     * Published state. The time order is null if the store is sorted by time, otherwise it holds the
+     * indexes of the points sorted by their timestamps, which are kept in the same order.
+     */
+    record Snapshot(long version,
+                    TrackStore trackStore,
+                    int[] timeOrder,
+                    long[] sortedTimestamps,
+                    GeoPointStatistics geoPointStatistics) {
+
+        int size() {
+            return trackStore.size();
+        }
+
+        GeoPointEntity getGeoPointInTimeOrder(int position) {
+            return trackStore.getGeoPointEntity(timeOrder != null ? timeOrder[position] : position);
+        }
+    }
 
-    private final Vector<GeoPoint> geoPointVector = new Vector<>();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
+            new Snapshot(0, TrackStore.EMPTY, null, null, new GeoPointStatistics()));
 
-    GeoPointStatistics geoPointStatistics = new GeoPointStatistics();
+    private long version = 0;
+    private GeoPointStatistics stagedStatistics = new GeoPointStatistics();
 
     @Inject
     public GeoPointCache() {
     }
 
-    public void init() {
-        geoPointStatistics = new GeoPointStatistics();
-        geoPointVector.clear();
-        geoPointMap.clear();
+    public synchronized void init() {
+        stagedStatistics = new GeoPointStatistics();
+        publish(TrackStore.EMPTY);
+    }
+
+    /**
+     * Adds the coordinates of the points to the staged statistics. Points without coordinates are skipped.
+     *
+     * @param points The points to add, to be published as part of the store given to {@link #publish(TrackStore)}
+     */
+    public synchronized void appendAll(TrackStore points) {
+        for (int i = 0; i < points.size(); i++) {
+            double latitude = points.getLatitude(i);
+            double longitude = points.getLongitude(i);
+            if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+                stagedStatistics.accept(latitude, longitude);
+            }
+        }
+    }
+
+    /**
+     * Publishes the geo points of the store and the statistics accepted so far as a new snapshot with a higher version.
+     *
+     * @param trackStore The points published by the {@link DataEntityCache}
+     */
+    public synchronized void publish(TrackStore trackStore) {
+        int[] timeOrder = null;
+        long[] sortedTimestamps = null;
+        if (!trackStore.isSortedByTime()) {
+            timeOrder = IntStream.range(0, trackStore.size()).boxed()
+                    .sorted((first, second) -> Long.compare(trackStore.getTimestamp(first), trackStore.getTimestamp(second)))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            sortedTimestamps = new long[timeOrder.length];
+            for (int i = 0; i < timeOrder.length; i++) {
+                sortedTimestamps[i] = trackStore.getTimestamp(timeOrder[i]);
+            }
+        }
+        snapshot.set(new Snapshot(++version, trackStore, timeOrder, sortedTimestamps, stagedStatistics.copy()));
+    }
+
+    /**
+     * Makes a snapshot published earlier the current one again, with a new version.
+     *
+     * @param geoPointSnapshot The snapshot to restore
+     */
+    synchronized void restore(Snapshot geoPointSnapshot) {
+        stagedStatistics = geoPointSnapshot.geoPointStatistics().copy();
+        snapshot.set(new Snapshot(++version,
+                geoPointSnapshot.trackStore(), geoPointSnapshot.timeOrder(), geoPointSnapshot.sortedTimestamps(),
+                geoPointSnapshot.geoPointStatistics()));
     }
 
-    public void accept(GeoPointEntity geoPointEntity) {
-        geoPointMap.put(geoPointEntity.getDataEntity().timestampMillis(), geoPointEntity);
-        geoPointVector.add(geoPointEntity);
-        geoPointStatistics.accept(geoPointEntity);
+    public synchronized void reset() {
+        init();
     }
 
-    public void reset() {
-        this.geoPointVector.clear();
-        geoPointStatistics.reset();
+    Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return The version of the currently published snapshot
+     */
+    public long getVersion() {
+        return snapshot.get().version();
     }
 
     public boolean isEmpty() {
-        return geoPointStatistics.isEmpty();
+        return snapshot.get().size() == 0;
     }
 
+    /**
+     * @return The statistics of the published geo points, to be treated as read-only
+     */
     public GeoPointStatistics getGeoPointStatistics() {
-        return geoPointStatistics;
+        return snapshot.get().geoPointStatistics();
     }
 
-    public Vector<GeoPoint> getGeoPointVector() {
-        return geoPointVector;
+    /**
+     * @return The published geo points in load order, unmodifiable and created on access
+     */
+    public List<GeoPoint> getGeoPointList() {
+        TrackStore trackStore = snapshot.get().trackStore();
+        return new GeoPointList(trackStore.size()) {
+            @Override
+            public GeoPoint get(int index) {
+                return trackStore.getGeoPointEntity(index);
+            }
+        };
     }
 
+    /**
+     * Returns the geo point recorded exactly at the given time.
+     *
+     * @param timestampMillis The timestamp to look for
+     * @return The last geo point with this timestamp, or null if there is none
+     */
     public GeoPointEntity getGeoPointForTime(long timestampMillis) {
-        return geoPointMap.get(timestampMillis);
+        Snapshot current = snapshot.get();
+        if (current.timeOrder() == null) {
+            int index = current.trackStore().lastIndexOfTimestamp(timestampMillis);
+            return index >= 0 ? current.trackStore().getGeoPointEntity(index) : null;
+        }
+        int position = TimestampSearchUtil.upperBound(current.sortedTimestamps(), current.size(), timestampMillis) - 1;
+
+        return position >= 0 && current.sortedTimestamps()[position] == timestampMillis ? current.getGeoPointInTimeOrder(position) : null;
+    }
+
+    /**
+     * Returns the geo point recorded closest to the given time.
+     *
+     * @param timestampMillis The timestamp to look for
+     * @return The closest geo point, or null if the cache is empty
+     */
+    public GeoPointEntity getGeoPointNearestTime(long timestampMillis) {
+        Snapshot current = snapshot.get();
+        int position = current.timeOrder() == null ?
+                current.trackStore().nearestIndexOf(timestampMillis)
+                :
+                TimestampSearchUtil.nearestIndex(current.sortedTimestamps(), current.size(), timestampMillis);
+
+        return position >= 0 ? current.getGeoPointInTimeOrder(position) : null;
     }
 
-    public Vector<GeoPoint> get(long timestampMillisStart, long timestampMillisEnd) {
+    /**
+     * Returns the geo points recorded within the given time range, found by binary search.
+     *
+     * @param timestampMillisStart The start of the time range, inclusive
+     * @param timestampMillisEnd   The end of the time range, inclusive
+     * @return An unmodifiable view of the geo points in time order, empty if none lies in the range
+     */
+    public List<GeoPoint> get(long timestampMillisStart, long timestampMillisEnd) {
         if (timestampMillisEnd < timestampMillisStart) {
-            return new Vector<>();
+            return Collections.emptyList();
         }
 
-        Vector<GeoPoint> allGeoPoint = getGeoPointVector();
-            GeoPointEntity first = (GeoPointEntity)(allGeoPoint.firstElement());
-            GeoPointEntity last = (GeoPointEntity)(allGeoPoint.lastElement());
+        Snapshot current = snapshot.get();
+        int from;
+        int to;
+        if (current.timeOrder() == null) {
+            from = current.trackStore().firstIndexNotBefore(timestampMillisStart);
+            to = current.trackStore().firstIndexAfter(timestampMillisEnd);
+        } else {
+            from = TimestampSearchUtil.lowerBound(current.sortedTimestamps(), current.size(), timestampMillisStart);
+            to = TimestampSearchUtil.upperBound(current.sortedTimestamps(), current.size(), timestampMillisEnd);
+        }
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+
+        return new GeoPointList(to - from) {
+            @Override
+            public GeoPoint get(int index) {
+                return current.getGeoPointInTimeOrder(from + index);
+            }
+        };
+    }
+
+    private abstract static class GeoPointList extends AbstractList<GeoPoint> implements RandomAccess {
+        private final int size;
 
-        if ( first.getDataEntity().timestampMillis() == timestampMillisStart
-                &&
-             last.getDataEntity().timestampMillis() == timestampMillisEnd
-        ) {
-            return allGeoPoint;
+        GeoPointList(int size) {
+            this.size = size;
         }
 
-        return geoPointMap.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey() >= timestampMillisStart && entry.getKey() <= timestampMillisEnd)
-                .map(Map.Entry::getValue)
-                .sorted(Comparator.comparingLong( geopoint -> geopoint.getDataEntity().timestampMillis()))
-                .collect(Collectors.toCollection(Vector::new));
+        @Override
+        public int size() {
+            return size;
+        }
     }
 }
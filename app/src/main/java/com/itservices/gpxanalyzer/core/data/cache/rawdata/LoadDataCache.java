@@ -1,10 +1,11 @@
 package com.itservices.gpxanalyzer.core.data.cache.rawdata;
 
-import android.location.Location;
-
-import com.itservices.gpxanalyzer.core.data.mapper.GeoPointEntityMapper;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
-import com.itservices.gpxanalyzer.core.data.model.entity.GeoPointEntity;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackSchema;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+
+import java.io.File;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -18,31 +19,78 @@ public class LoadDataCache {
     @Inject
     GeoPointCache geoPointCache;
 
+    @Inject
+    RecentTrackCache recentTrackCache;
+
 
     @Inject
     public LoadDataCache() {
     }
 
-    public void init(int nPrimaryIndexes) {
-        dataEntityCache.init(nPrimaryIndexes);
+    /**
+     * @param schema    The channels of the data to load, statistics are kept for each of them
+     * @param sourceKey The identity of the loaded source, see {@link DataEntityCache#init(int, String)}
+     */
+    public void init(TrackSchema schema, String sourceKey) {
+        dataEntityCache.init(schema.getChannelCount(), sourceKey);
         geoPointCache.init();
     }
 
-    public void accept(DataEntity dataEntity) {
-        dataEntityCache.accept(dataEntity);
-        if (dataEntity.getExtraData() instanceof Location) {
+    /**
+     * Adds loaded points to both caches, as columns only, see {@link DataEntityCache#appendAll(TrackStore)}.
+     *
+     * @param points The points of the schema given to {@link #init(TrackSchema, String)}
+     */
+    public void appendAll(TrackStore points) {
+        dataEntityCache.appendAll(points);
+        geoPointCache.appendAll(points);
+    }
 
-            GeoPointEntity geoPointEntity = GeoPointEntityMapper.mapFrom(dataEntity);
+    /**
+     * Makes all data accepted so far visible to readers of both caches.
+     */
+    public void publish() {
+        dataEntityCache.publish();
+        geoPointCache.publish(dataEntityCache.getTrackStore());
+    }
 
-            dataEntity.setExtraData(geoPointEntity);
+    /**
+     * @return The version of the currently published data, see {@link DataEntityCache#getVersion()}
+     */
+    public long getVersion() {
+        return dataEntityCache.getVersion();
+    }
+
+    /**
+     * @return The data entities of the currently published data, created on access
+     */
+    public List<DataEntity> getDataEntityList() {
+        return dataEntityCache.getDataEntitityVector();
+    }
+
+    /**
+     * Keeps the currently published data in the {@link RecentTrackCache}, to be restored when the
+     * file is opened again. To be called once the file is loaded completely.
+     *
+     * @param file The file the current data was loaded from
+     */
+    public void rememberLoaded(File file) {
+        recentTrackCache.put(file, dataEntityCache.getSnapshot(), geoPointCache.getSnapshot());
+    }
 
-            geoPointCache.accept(
-                    geoPointEntity
-            );
-        } else if(dataEntity.getExtraData() instanceof GeoPointEntity) {
-            geoPointCache.accept(
-                    (GeoPointEntity)dataEntity.getExtraData()
-            );
+    /**
+     * Publishes the data of a recently opened file again instead of loading it.
+     *
+     * @param file The file to open
+     * @return true if the file was restored, false if it is not kept or has changed since and must be loaded
+     */
+    public boolean restoreRecent(File file) {
+        RecentTrackCache.RecentTrack recentTrack = recentTrackCache.get(file);
+        if (recentTrack == null) {
+            return false;
         }
+        dataEntityCache.restore(recentTrack.dataEntitySnapshot());
+        geoPointCache.restore(recentTrack.geoPointSnapshot());
+        return true;
     }
 }
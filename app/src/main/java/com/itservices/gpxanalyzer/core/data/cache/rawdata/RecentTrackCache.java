@@ -0,0 +1,190 @@
+package com.itservices.gpxanalyzer.core.data.cache.rawdata;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the most recently opened tracks in memory, so switching back to one of them needs neither
+ * parsing nor processing.
+ * <p>
+ * A track is kept as the immutable snapshots of the {@link DataEntityCache} and {@link GeoPointCache}
+ * it was loaded into, which costs no copy. The processed data of a track stays in the processed-data
+ * caches as long as its data fingerprint is retained here, see {@link #isRetained(long)}; they are
+ * told about evicted fingerprints by {@link #addEvictionListener(LongConsumer)}.
+ * <p>
+ * Tracks are evicted in LRU order when more than {@link #MAX_TRACKS} are kept or their estimated size
+ * exceeds the memory budget. The most recently opened track is never evicted, as it is the one shown.
+ */
+@Singleton
+public class RecentTrackCache {
+    private static final String TAG = RecentTrackCache.class.getSimpleName();
+
+    static final int MAX_TRACKS = 3;
+
+    /**
+     * Estimated memory of one point: the columns of its track store and the chart entries of the processed
+     * data, which hold the data entities created for them.
+     */
+    static final long ESTIMATED_BYTES_PER_POINT = 384;
+
+    /**
+     * A kept track, valid as long as its file keeps the size and modification time it was loaded with.
+     */
+    record RecentTrack(long fileSize,
+                       long fileModifiedTime,
+                       DataEntitySnapshot dataEntitySnapshot,
+                       GeoPointCache.Snapshot geoPointSnapshot) {
+
+        long estimateBytes() {
+            return dataEntitySnapshot.size() * ESTIMATED_BYTES_PER_POINT;
+        }
+
+        boolean isValidFor(File file) {
+            return file.length() == fileSize && file.lastModified() == fileModifiedTime;
+        }
+    }
+
+    private final LinkedHashMap<String, RecentTrack> recentTracks = new LinkedHashMap<>(MAX_TRACKS + 1, 0.75f, true);
+    private final List<LongConsumer> evictionListeners = new CopyOnWriteArrayList<>();
+    private final long maxBytes;
+    private long bytes = 0;
+
+    /**
+     * Creates a cache with a budget of a quarter of the heap available to the app.
+     */
+    @Inject
+    public RecentTrackCache() {
+        this(Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    RecentTrackCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param listener Called with the data fingerprint of every evicted track, whose processed data can be dropped
+     */
+    public void addEvictionListener(LongConsumer listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Keeps a completely loaded track as the most recent one, replacing an older version of the same file.
+     *
+     * @param file               The file the track was loaded from
+     * @param dataEntitySnapshot The data entities of the track
+     * @param geoPointSnapshot   The geo points of the track
+     */
+    void put(File file, DataEntitySnapshot dataEntitySnapshot, GeoPointCache.Snapshot geoPointSnapshot) {
+        List<RecentTrack> evicted = new ArrayList<>();
+        synchronized (this) {
+            RecentTrack recentTrack = new RecentTrack(file.length(), file.lastModified(), dataEntitySnapshot, geoPointSnapshot);
+            RecentTrack replaced = recentTracks.put(file.getAbsolutePath(), recentTrack);
+            bytes += recentTrack.estimateBytes();
+            if (replaced != null) {
+                bytes -= replaced.estimateBytes();
+                evicted.add(replaced);
+            }
+            evictEldest(MAX_TRACKS, maxBytes, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Returns the kept track of the file and marks it as the most recent one.
+     *
+     * @param file The file to look for
+     * @return The kept track, or null if the file is not kept or has changed since
+     */
+    RecentTrack get(File file) {
+        List<RecentTrack> evicted = new ArrayList<>();
+        RecentTrack recentTrack;
+        synchronized (this) {
+            recentTrack = recentTracks.get(file.getAbsolutePath());
+            if (recentTrack != null && !recentTrack.isValidFor(file)) {
+                recentTracks.remove(file.getAbsolutePath());
+                bytes -= recentTrack.estimateBytes();
+                evicted.add(recentTrack);
+                recentTrack = null;
+            }
+        }
+        notifyEvicted(evicted);
+        return recentTrack;
+    }
+
+    /**
+     * @param dataFingerprint A fingerprint of data, see {@link DataEntitySnapshot#getDataFingerprint()}
+     * @return true if a kept track has this data, so its processed data should be kept as well
+     */
+    public synchronized boolean isRetained(long dataFingerprint) {
+        for (RecentTrack recentTrack : recentTracks.values()) {
+            if (recentTrack.dataEntitySnapshot().getDataFingerprint() == dataFingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Shrinks the cache according to the memory level reported by
+     * {@link android.app.Application#onTrimMemory(int)}.
+     *
+     * @param level The trim memory level
+     */
+    public void onTrimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            trimTo(1, 0);
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(MAX_TRACKS, maxBytes / 2);
+        }
+    }
+
+    /**
+     * Evicts tracks in LRU order until at most {@code maxTracks} tracks are kept and they fit into
+     * {@code maxBytes}. The most recent track is always kept.
+     */
+    void trimTo(int maxTracks, long maxBytes) {
+        List<RecentTrack> evicted = new ArrayList<>();
+        synchronized (this) {
+            evictEldest(maxTracks, maxBytes, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    synchronized int size() {
+        return recentTracks.size();
+    }
+
+    private void evictEldest(int maxTracks, long maxBytes, List<RecentTrack> evicted) {
+        Iterator<Map.Entry<String, RecentTrack>> eldest = recentTracks.entrySet().iterator();
+        while (recentTracks.size() > 1 && (recentTracks.size() > maxTracks || bytes > maxBytes)) {
+            Map.Entry<String, RecentTrack> entry = eldest.next();
+            Log.i(TAG, "evict " + entry.getKey());
+
+            bytes -= entry.getValue().estimateBytes();
+            evicted.add(entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    private void notifyEvicted(List<RecentTrack> evicted) {
+        for (RecentTrack recentTrack : evicted) {
+            long dataFingerprint = recentTrack.dataEntitySnapshot().getDataFingerprint();
+            if (!isRetained(dataFingerprint)) {
+                evictionListeners.forEach(listener -> listener.accept(dataFingerprint));
+            }
+        }
+    }
+}
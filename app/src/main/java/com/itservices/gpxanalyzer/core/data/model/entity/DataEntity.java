@@ -1,70 +1,127 @@
 package com.itservices.gpxanalyzer.core.data.model.entity;
 
-import com.itservices.gpxanalyzer.domain.cumulative.CumulativeProcessedDataType;
-import com.itservices.gpxanalyzer.domain.cumulative.CumulativeStatistics;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackSchema;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
  * Represents a single data point in the GPX analyzer application.
- * This class encapsulates all measurements and statistics associated with a single
- * point in time, including various data measures and cumulative statistics.
+ * This class encapsulates all measurements associated with a single point in time.
+ * <p>
+ * A point keeps only the values of its measures. Their names, units and accuracies are kept once per
+ * track in the shared {@link TrackSchema}, whose channels are looked up by index.
  *
- * The class is immutable except for the extraData field and cumulative statistics,
- * which can be modified after construction. It supports multiple data measures and
- * maintains cumulative statistics for each measure.
+ * The class is immutable except for the extraData field, which can be modified after
+ * construction. Cumulative statistics of the measures are kept per processed result,
+ * see {@link DataEntityWrapper#getCumulativeColumns()}.
  */
 public final class DataEntity {
     private final int id;
     private final long timestampMillis;
 
-    private final List<DataMeasure> dataMeasureList;
+    private final TrackSchema schema;
+    private final float[] values;
 
     private Object extraData;
-    private final List<Map<CumulativeProcessedDataType, CumulativeStatistics>>
-            cumulativeStatisticsMapList
-            = new ArrayList<>(
-            Arrays.asList(
-                    new HashMap<>(CumulativeProcessedDataType.values().length),
-                    new HashMap<>(CumulativeProcessedDataType.values().length)
-            )
-    );
 
     /**
      * Creates a new DataEntity with the specified parameters.
      *
      * @param id The unique identifier for this data point
      * @param timestampMillis The timestamp in milliseconds when this data was recorded
-     * @param dataMeasureList The list of measurements associated with this data point
+     * @param schema The channels of the values, shared by all points of the track
+     * @param values The value of every channel of the schema, used without copying
      * @param extraData Additional data that can be associated with this entity
+     * @throws IllegalArgumentException if the number of values differs from the number of channels
      */
     public DataEntity(
             int id,
             long timestampMillis,
-            List<DataMeasure> dataMeasureList,
+            TrackSchema schema,
+            float[] values,
             Object extraData) {
+        if (values.length != schema.getChannelCount()) {
+            throw new IllegalArgumentException("Expected " + schema.getChannelCount() + " values, got " + values.length);
+        }
         this.id = id;
         this.timestampMillis = timestampMillis;
-        this.dataMeasureList = dataMeasureList;
+        this.schema = schema;
+        this.values = values;
         this.extraData = extraData;
     }
 
     /**
-     * Returns the list of measurements associated with this data point.
+     * Creates a new DataEntity from measures, whose metadata becomes the interned schema
+     * {@link TrackSchema#ofMeasures(List)}. A missing value is stored as {@link Float#NaN}.
+     *
+     * @param id The unique identifier for this data point
+     * @param timestampMillis The timestamp in milliseconds when this data was recorded
+     * @param dataMeasureList The list of measurements associated with this data point
+     * @param extraData Additional data that can be associated with this entity
+     */
+    public DataEntity(
+            int id,
+            long timestampMillis,
+            List<DataMeasure> dataMeasureList,
+            Object extraData) {
+        this(id, timestampMillis, TrackSchema.ofMeasures(dataMeasureList), valuesOf(dataMeasureList), extraData);
+    }
+
+    private static float[] valuesOf(List<DataMeasure> dataMeasureList) {
+        float[] values = new float[dataMeasureList.size()];
+        for (int i = 0; i < values.length; i++) {
+            Float value = dataMeasureList.get(i).value();
+            values[i] = value != null ? value : Float.NaN;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the schema describing the channels of the values of this data point.
      *
-     * @return The list of DataMeasure objects
+     * @return The shared schema
+     */
+    public TrackSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the value of a channel of the schema.
+     *
+     * @param channel The index of the channel
+     * @return The value
+     */
+    public float getValue(int channel) {
+        return values[channel];
+    }
+
+    /**
+     * Returns the measurements associated with this data point, combining the values with the schema.
+     * The measures are created on access; {@link #getValue(int)} and {@link #getSchema()} read the same
+     * data without allocating.
+     *
+     * @return The unmodifiable list of DataMeasure objects
      */
     public List<DataMeasure> getMeasures() {
-        return dataMeasureList;
+        return new AbstractList<>() {
+            @Override
+            public DataMeasure get(int channel) {
+                return new DataMeasure(values[channel], schema.getAccuracy(channel), schema.getName(channel), schema.getUnit(channel));
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
     }
 
     /**
-     * Returns the unique identifier of this data point.
+     * Returns the unique identifier of this data point. The entities read from a cache are identified
+     * by their index in the track, see {@link com.itservices.gpxanalyzer.core.data.model.track.TrackStore#getDataEntity(int)}.
      *
      * @return The ID value
      */
@@ -99,36 +156,15 @@ public final class DataEntity {
         this.extraData = extraData;
     }
 
-    /**
-     * Returns the cumulative statistics for a specific measure and type.
-     * If the statistics don't exist, they will be created.
-     *
-     * @param index The index of the measure to get statistics for
-     * @param type The type of cumulative statistics to retrieve
-     * @return The cumulative statistics for the specified measure and type
-     */
-    public CumulativeStatistics get(int index, CumulativeProcessedDataType type) {
-        if (cumulativeStatisticsMapList.get(index).containsKey(type)) {
-            return cumulativeStatisticsMapList.get(index).get(type);
-        }
-        cumulativeStatisticsMapList.get(index).put(type, new CumulativeStatistics());
-
-        return cumulativeStatisticsMapList.get(index).get(type);
-    }
-
-    public void put(int index, CumulativeProcessedDataType type, CumulativeStatistics statistics) {
-        cumulativeStatisticsMapList.get(index).put(type, statistics);
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof DataEntity that)) return false;
-        return id == that.id && timestampMillis == that.timestampMillis && Objects.equals(dataMeasureList, that.dataMeasureList);
+        return id == that.id && timestampMillis == that.timestampMillis && schema == that.schema && Arrays.equals(values, that.values);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, timestampMillis, dataMeasureList);
+        return 31 * Objects.hash(id, timestampMillis, schema) + Arrays.hashCode(values);
     }
 }
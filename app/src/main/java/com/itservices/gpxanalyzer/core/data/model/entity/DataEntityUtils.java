@@ -1,39 +1,44 @@
 package com.itservices.gpxanalyzer.core.data.model.entity;
 
-import java.util.Vector;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
 
 public class DataEntityUtils {
-    public static long calculateDataFingerprint(Vector<DataEntity> data) {
-        if (data == null || data.isEmpty()) {
-            return 0;
-        }
-
-        // For very large datasets, we sample rather than check everything
-        int dataSize = data.size();
-
-        // Use sample size based on data size, max 10 samples
-        int sampleSize = Math.min(10, dataSize);
 
-        // Include data size as part of fingerprint
-        long fingerprint = dataSize;
-
-        // Sample distributed points throughout the data
-        for (int i = 0; i < sampleSize; i++) {
-            int index = (int) (((float) i / sampleSize) * dataSize);
-            if (index < dataSize) {
-                DataEntity entity = data.get(index);
-                // Combine timestamp and first value if available
-                fingerprint = 31 * fingerprint + entity.timestampMillis();
-                if (!entity.getMeasures().isEmpty()) {
-                    fingerprint = 31 * fingerprint + Float.floatToIntBits(entity.getMeasures().get(0).value());
-                }
-            }
+    /**
+     * Source hash of data without a known origin.
+     */
+    public static final long UNKNOWN_SOURCE_HASH = 0;
+
+    /**
+     * Hashes the identity of the source the data is loaded from, e.g. the absolute path of a file.
+     *
+     * @param sourceKey The key of the source, or null if unknown
+     * @return A 64-bit hash of the key, {@link #UNKNOWN_SOURCE_HASH} for null
+     */
+    public static long calculateSourceHash(String sourceKey) {
+        if (sourceKey == null) {
+            return UNKNOWN_SOURCE_HASH;
         }
 
-        // Also include first and last entries for better comparison
-        fingerprint = 31 * fingerprint + data.firstElement().timestampMillis();
-        fingerprint = 31 * fingerprint + data.lastElement().timestampMillis();
+        long hash = 1125899906842597L;
+        for (int i = 0; i < sourceKey.length(); i++) {
+            hash = 31 * hash + sourceKey.charAt(i);
+        }
+        return hash;
+    }
 
-        return fingerprint;
+    /**
+     * Combines the source hash with the content hash the {@link TrackStore} computed while the points
+     * were appended, so the fingerprint costs O(1) however long the track is.
+     *
+     * @param sourceHash The hash of the source, see {@link #calculateSourceHash(String)}
+     * @param trackStore The columns of the data
+     * @return A non-negative fingerprint of the data
+     */
+    public static long calculateDataFingerprint(long sourceHash, TrackStore trackStore) {
+        long fingerprint = 31 * sourceHash + trackStore.getContentHash();
+        fingerprint = 31 * fingerprint + trackStore.size();
+
+        return fingerprint & Long.MAX_VALUE;
     }
 }
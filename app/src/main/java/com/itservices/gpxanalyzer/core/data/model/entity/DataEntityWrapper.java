@@ -3,10 +3,14 @@ package com.itservices.gpxanalyzer.core.data.model.entity;
 import android.util.Log;
 
 import com.itservices.gpxanalyzer.core.data.cache.rawdata.DataEntityCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.DataEntitySnapshot;
+import com.itservices.gpxanalyzer.core.data.model.statistics.DataEntityStatistics;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+import com.itservices.gpxanalyzer.domain.cumulative.CumulativeColumns;
 import com.itservices.gpxanalyzer.domain.cumulative.CumulativeProcessedDataType;
 import com.itservices.gpxanalyzer.domain.cumulative.CumulativeStatistics;
 
-import java.util.Vector;
+import java.util.List;
 
 /**
  * A wrapper class that provides a simplified interface for accessing and analyzing
@@ -16,6 +20,10 @@ import java.util.Vector;
  * The wrapper maintains a primary data index that determines which measure is used
  * for statistical calculations and value retrievals. It also provides methods for
  * accessing accuracy, names, units, and values for specific measures.
+ * <p>
+ * The wrapper reads the {@link DataEntitySnapshot} published by the cache when it was created,
+ * so data, columns and statistics stay consistent while a later load publishes new data.
+ * {@link #isStale()} tells whether the cache has moved on since.
  */
 public final class DataEntityWrapper {
     /** Default index for the primary data measure */
@@ -24,7 +32,9 @@ public final class DataEntityWrapper {
 
     private int primaryDataIndex = DEFAULT_PRIMARY_DATA_INDEX;
     private DataEntityCache dataEntityCache;
+    private DataEntitySnapshot snapshot = DataEntitySnapshot.EMPTY;
     private long dataHash = -1;
+    private volatile CumulativeColumns cumulativeColumns = CumulativeColumns.EMPTY;
     private int hashCode = -1;
 
     /**
@@ -42,51 +52,48 @@ public final class DataEntityWrapper {
     public DataEntityWrapper(int primaryDataIndex, DataEntityCache dataEntityCache) {
         this.primaryDataIndex = primaryDataIndex;
         this.dataEntityCache = dataEntityCache;
-        dataHash = computeDataHash();
+        if (dataEntityCache != null) {
+            DataEntitySnapshot current = dataEntityCache.getSnapshot();
+            if (current != null) {
+                this.snapshot = current;
+            }
+            dataHash = snapshot.getDataFingerprint();
+        }
     }
 
     /**
-     * Computes a hash value based on the primary data index and the sum of timestamps
-     * of all data entities.
+     * Returns the fingerprint of the data this wrapper reads, computed once while the data was loaded,
+     * see {@link DataEntitySnapshot#getDataFingerprint()}.
      *
-     * @return The computed hash value
+     * @return The fingerprint, or -1 if the wrapper reads no cache
      */
-    private long computeDataHash() {
-        if (dataEntityCache == null) {
-            return dataHash;
-        }
-
-        return dataEntityCache.getDataEntitityVector()
-                        .stream()
-                        .mapToLong(DataEntity::timestampMillis)
-                        .sum();
+    public long getDataHash() {
+        return dataHash;
     }
 
     /**
-     * Returns a hash value that uniquely identifies the current state of the data.
-     * If the hash hasn't been computed yet, it will be computed and cached.
+     * Returns the data entities managed by this wrapper.
      *
-     * @return The hash value
+     * @return The unmodifiable list of DataEntity objects
      */
-    public long getDataHash() {
-        if (dataHash > 0)
-            return dataHash;
-        else {
-            dataHash = computeDataHash();
-        }
-        return dataHash;
+    public List<DataEntity> getData() {
+        return snapshot.getDataEntityList();
+    }
+
+    /**
+     * @return The version of the cache snapshot this wrapper reads, 0 if it reads no cache
+     */
+    public long getSnapshotVersion() {
+        return snapshot.getVersion();
     }
 
     /**
-     * Returns the vector of data entities managed by this wrapper.
+     * Checks whether the cache has published other data since this wrapper was created.
      *
-     * @return The vector of DataEntity objects
+     * @return true if the data of this wrapper is no longer the current data of the cache
      */
-    public Vector<DataEntity> getData() {
-        if (dataEntityCache == null) {
-            return new Vector<>();
-        }
-        return dataEntityCache.getDataEntitityVector();
+    public boolean isStale() {
+        return dataEntityCache != null && dataEntityCache.getVersion() != snapshot.getVersion();
     }
 
     /**
@@ -106,7 +113,7 @@ public final class DataEntityWrapper {
     public double getMaxValue() {
         if (dataEntityCache == null)
             return 0.0;
-        return dataEntityCache.getDataEntityStatistics().getMax(primaryDataIndex);
+        return snapshot.getDataEntityStatistics().getMax(primaryDataIndex);
     }
 
     /**
@@ -117,17 +124,41 @@ public final class DataEntityWrapper {
     public double getMinValue() {
         if (dataEntityCache == null)
             return 0.0;
-        return dataEntityCache.getDataEntityStatistics().getMin(primaryDataIndex);
+        return snapshot.getDataEntityStatistics().getMin(primaryDataIndex);
+    }
+
+    /**
+     * Returns the population standard deviation of the primary data measure, kept while the data was loaded.
+     *
+     * @return The standard deviation, or 0.0 if no data is available
+     */
+    public double getStandardDeviation() {
+        if (dataEntityCache == null)
+            return 0.0;
+        return snapshot.getDataEntityStatistics().getStandardDeviation(primaryDataIndex);
+    }
+
+    /**
+     * Returns the estimated quantile of the primary data measure, kept while the data was loaded.
+     *
+     * @param probability One of the quantiles tracked by {@link DataEntityStatistics}, e.g. {@link DataEntityStatistics#MEDIAN}
+     * @return The estimated quantile, or {@link Double#NaN} if no data is available
+     */
+    public double getQuantile(double probability) {
+        if (dataEntityCache == null)
+            return Double.NaN;
+        return snapshot.getDataEntityStatistics().getQuantile(primaryDataIndex, probability);
     }
 
     /**
      * Returns the accuracy of the measure at the specified index.
+     * The accuracy is shared by all points of a measure, see {@link TrackStore#getSchema()}.
      *
      * @param index The index of the data entity
      * @return The accuracy value
      */
     public float getAccuracy(int index) {
-        return dataEntityCache.getDataEntitityVector().get(index).getMeasures().get(primaryDataIndex).valueAccuracy();
+        return snapshot.getTrackStore().getSchema().getAccuracy(primaryDataIndex);
     }
 
     /**
@@ -137,7 +168,7 @@ public final class DataEntityWrapper {
      * @return The accuracy value
      */
     public float getAccuracy(DataEntity dataEntity) {
-        return dataEntity.getMeasures().get(primaryDataIndex).valueAccuracy();
+        return dataEntity.getSchema().getAccuracy(primaryDataIndex);
     }
 
     /**
@@ -147,7 +178,7 @@ public final class DataEntityWrapper {
      * @return The measure name
      */
     public String getName(int index) {
-        return dataEntityCache.getDataEntitityVector().get(index).getMeasures().get(primaryDataIndex).name();
+        return snapshot.getTrackStore().getSchema().getName(primaryDataIndex);
     }
 
     /**
@@ -157,7 +188,7 @@ public final class DataEntityWrapper {
      * @return The measure name
      */
     public String getName(DataEntity dataEntity) {
-        return dataEntity.getMeasures().get(primaryDataIndex).name();
+        return dataEntity.getSchema().getName(primaryDataIndex);
     }
 
     /**
@@ -167,7 +198,7 @@ public final class DataEntityWrapper {
      * @return The measure unit
      */
     public String getUnit(int index) {
-        return dataEntityCache.getDataEntitityVector().get(index).getMeasures().get(primaryDataIndex).unit();
+        return snapshot.getTrackStore().getSchema().getUnit(primaryDataIndex);
     }
 
     /**
@@ -177,7 +208,7 @@ public final class DataEntityWrapper {
      * @return The measure unit
      */
     public String getUnit(DataEntity dataEntity) {
-        return dataEntity.getMeasures().get(primaryDataIndex).unit();
+        return dataEntity.getSchema().getUnit(primaryDataIndex);
     }
 
     /**
@@ -187,7 +218,7 @@ public final class DataEntityWrapper {
      * @return The measure value
      */
     public float getValue(int index) {
-        return dataEntityCache.getDataEntitityVector().get(index).getMeasures().get(primaryDataIndex).value();
+        return snapshot.getTrackStore().getValue(primaryDataIndex, index);
     }
 
     /**
@@ -197,7 +228,7 @@ public final class DataEntityWrapper {
      * @return The measure value
      */
     public float getValue(DataEntity dataEntity) {
-        return dataEntity.getMeasures().get(primaryDataIndex).value();
+        return dataEntity.getValue(primaryDataIndex);
     }
 
     /**
@@ -205,14 +236,50 @@ public final class DataEntityWrapper {
      *
      * @param dataEntity The data entity to get statistics for
      * @param type The type of cumulative statistics to retrieve
-     * @return The cumulative statistics
+     * @return The cumulative statistics, with default values if the data has not been processed yet
      */
     public CumulativeStatistics getCumulativeStatistics(DataEntity dataEntity, CumulativeProcessedDataType type) {
-        return dataEntity.get(primaryDataIndex, type);
+        return cumulativeColumns.getStatistics(type, indexOf(dataEntity));
     }
 
-    public void putCumulativeStatistics(DataEntity dataEntity, CumulativeProcessedDataType type, CumulativeStatistics statistics) {
-        dataEntity.put(primaryDataIndex, type, statistics);
+    /**
+     * Returns the cumulative value of the data entity at the specified index.
+     *
+     * @param index The index of the data entity
+     * @param type The type of cumulative value to retrieve
+     * @return The cumulative value, or 0 if the data has not been processed yet
+     */
+    public float getCumulativeValue(int index, CumulativeProcessedDataType type) {
+        return cumulativeColumns.getValue(type, index);
+    }
+
+    /**
+     * Returns the cumulative values of the primary measure computed by the last processing of this data.
+     *
+     * @return The cumulative columns, {@link CumulativeColumns#EMPTY} if not processed yet
+     */
+    public CumulativeColumns getCumulativeColumns() {
+        return cumulativeColumns;
+    }
+
+    public void setCumulativeColumns(CumulativeColumns cumulativeColumns) {
+        this.cumulativeColumns = cumulativeColumns;
+    }
+
+    /**
+     * Returns the index of the data entity, which is its id for the entities read from the cache,
+     * see {@link TrackStore#getDataEntity(int)}.
+     *
+     * @param dataEntity The data entity to find
+     * @return The index of the data entity, or -1 if it is not a point of this data
+     */
+    private int indexOf(DataEntity dataEntity) {
+        TrackStore trackStore = snapshot.getTrackStore();
+        int index = dataEntity.id();
+        if (index >= 0 && index < trackStore.size() && trackStore.getTimestamp(index) == dataEntity.timestampMillis()) {
+            return index;
+        }
+        return -1;
     }
 
     public static boolean isNotEqualByData(DataEntityWrapper firstWrapper, DataEntityWrapper secondWrapper) {
@@ -1,8 +1,7 @@
 package com.itservices.gpxanalyzer.core.data.model.statistics;
 
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
-
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
 
 import java.util.Arrays;
 import java.util.List;
@@ -11,6 +10,11 @@ import java.util.List;
  * Implementation of {@link DataEntityStatisticsOperations} that provides statistical analysis
  * for a collection of DataEntity objects. This class maintains running statistics including
  * minimum, maximum, and average values for multiple measures within each DataEntity.
+ * <p>
+ * The variance of every measure is kept with Welford's algorithm and the quantiles
+ * {@link #LOWER_QUANTILE}, {@link #MEDIAN} and {@link #UPPER_QUANTILE} are estimated with
+ * {@link P2QuantileEstimator}, so both are read in constant time without another pass over the data.
+ * {@link Double#NaN} values are left out of the variance and the quantiles.
  *
  * The class is designed to be used with the GPX analyzer application for processing track data
  * and providing statistical analysis for various measurements such as speed, elevation, etc.
@@ -19,6 +23,11 @@ import java.util.List;
  * synchronization should be provided by the caller.
  */
 public class DataEntityStatistics implements DataEntityStatisticsOperations {
+    public static final double LOWER_QUANTILE = 0.05;
+    public static final double MEDIAN = 0.5;
+    public static final double UPPER_QUANTILE = 0.95;
+
+    private static final double[] TRACKED_QUANTILES = {LOWER_QUANTILE, MEDIAN, UPPER_QUANTILE};
 
     private double[] min;
     private double[] max;
@@ -26,6 +35,11 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
     private double[] sum;
     private long count;
 
+    private long[] valueCount;
+    private double[] mean;
+    private double[] squaredDeviationSum;
+    private P2QuantileEstimator[][] quantiles;
+
     /**
      * Private constructor to prevent instantiation without specifying the number of measures.
      */
@@ -40,26 +54,66 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
         min = new double[nPrimaryIndexes];
         max = new double[nPrimaryIndexes];
         sum = new double[nPrimaryIndexes];
+        valueCount = new long[nPrimaryIndexes];
+        mean = new double[nPrimaryIndexes];
+        squaredDeviationSum = new double[nPrimaryIndexes];
+        quantiles = new P2QuantileEstimator[nPrimaryIndexes][];
 
         resetValues();
     }
 
     /**
-     * Calculates the standard deviation for a specific measure across a list of DataEntity objects.
+     * Calculates the population standard deviation for a specific measure across a list of DataEntity objects
+     * in a single pass. Statistics that already accepted the entities give the same value by
+     * {@link #getStandardDeviation(int)}.
      *
      * @param primaryDataIndex The index of the measure to calculate standard deviation for
      * @param dataEntityList The list of DataEntity objects to analyze
      * @return The standard deviation of the specified measure
      */
     public static double getStdDev(int primaryDataIndex, List<DataEntity> dataEntityList) {
-        double[] values = new double[dataEntityList.size()];
+        long n = 0;
+        double mean = 0.0;
+        double squaredDeviationSum = 0.0;
+        for (DataEntity dataEntity : dataEntityList) {
+            double value = dataEntity.getValue(primaryDataIndex);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            double delta = value - mean;
+            mean += delta / ++n;
+            squaredDeviationSum += delta * (value - mean);
+        }
+        return n > 0 ? Math.sqrt(squaredDeviationSum / n) : 0.0;
+    }
 
-        // Extract values into an array
-        Arrays.setAll(values, i -> dataEntityList.get(i).getMeasures().get(primaryDataIndex).value());
+    /**
+     * @return The number of measures the statistics are kept for
+     */
+    public int getMeasureCount() {
+        return min.length;
+    }
 
-        // Use Apache Commons Math StandardDeviation class
-        StandardDeviation stdDev = new StandardDeviation(false); // 'false' means population std dev
-        return stdDev.evaluate(values);
+    /**
+     * @return An independent copy of the current statistics
+     */
+    public DataEntityStatistics copy() {
+        DataEntityStatistics copy = new DataEntityStatistics();
+        copy.min = min.clone();
+        copy.max = max.clone();
+        copy.sum = sum.clone();
+        copy.count = count;
+        copy.valueCount = valueCount.clone();
+        copy.mean = mean.clone();
+        copy.squaredDeviationSum = squaredDeviationSum.clone();
+        copy.quantiles = new P2QuantileEstimator[quantiles.length][];
+        for (int i = 0; i < quantiles.length; i++) {
+            copy.quantiles[i] = new P2QuantileEstimator[quantiles[i].length];
+            for (int q = 0; q < quantiles[i].length; q++) {
+                copy.quantiles[i][q] = quantiles[i][q].copy();
+            }
+        }
+        return copy;
     }
 
     /**
@@ -70,6 +124,10 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
         min = new double[min.length];
         max = new double[min.length];
         sum = new double[min.length];
+        valueCount = new long[min.length];
+        mean = new double[min.length];
+        squaredDeviationSum = new double[min.length];
+        quantiles = new P2QuantileEstimator[min.length][];
 
         resetValues();
     }
@@ -82,6 +140,15 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
         Arrays.fill(max, Double.MIN_VALUE);
         Arrays.fill(sum, 0.0);
         count = 0;
+        Arrays.fill(valueCount, 0L);
+        Arrays.fill(mean, 0.0);
+        Arrays.fill(squaredDeviationSum, 0.0);
+        for (int i = 0; i < quantiles.length; i++) {
+            quantiles[i] = new P2QuantileEstimator[TRACKED_QUANTILES.length];
+            for (int q = 0; q < TRACKED_QUANTILES.length; q++) {
+                quantiles[i][q] = new P2QuantileEstimator(TRACKED_QUANTILES[q]);
+            }
+        }
     }
 
     /**
@@ -96,16 +163,42 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
             return;
         }
 
-        for (int i = 0; i < dataEntity.getMeasures().size(); i++) {
-            double value = dataEntity.getMeasures().get(i).value();
-            min[i] = Math.min(min[i], value);
-            max[i] = Math.max(max[i], value);
-            sum[i] += value;
+        for (int i = 0; i < dataEntity.getSchema().getChannelCount(); i++) {
+            acceptValue(i, dataEntity.getValue(i));
         }
 
         count++;
     }
 
+    /**
+     * Accepts a point of a track store, reading its values from the columns without creating its DataEntity.
+     *
+     * @param trackStore The store holding the point
+     * @param index      The index of the point in the store
+     */
+    public void accept(TrackStore trackStore, int index) {
+        for (int i = 0; i < trackStore.getSchema().getChannelCount(); i++) {
+            acceptValue(i, trackStore.getValue(i, index));
+        }
+
+        count++;
+    }
+
+    private void acceptValue(int i, double value) {
+        min[i] = Math.min(min[i], value);
+        max[i] = Math.max(max[i], value);
+        sum[i] += value;
+
+        if (!Double.isNaN(value)) {
+            double delta = value - mean[i];
+            mean[i] += delta / ++valueCount[i];
+            squaredDeviationSum[i] += delta * (value - mean[i]);
+            for (P2QuantileEstimator quantile : quantiles[i]) {
+                quantile.accept(value);
+            }
+        }
+    }
+
     public void acceptAll(List<DataEntity> points) {
         if (points == null) {
             return;
@@ -154,6 +247,52 @@ public class DataEntityStatistics implements DataEntityStatisticsOperations {
         return count > 0 ? sum[index] / count : 0.0;
     }
 
+    /**
+     * Returns the population variance for the specified measure index, kept by Welford's algorithm.
+     *
+     * @param index The index of the measure to get statistics for
+     * @return The variance of the specified measure, or 0.0 if no value has been processed
+     */
+    @Override
+    public double getVariance(int index) {
+        if (index >= valueCount.length || valueCount[index] == 0) {
+            return 0.0;
+        }
+        return squaredDeviationSum[index] / valueCount[index];
+    }
+
+    /**
+     * Returns the population standard deviation for the specified measure index.
+     *
+     * @param index The index of the measure to get statistics for
+     * @return The standard deviation of the specified measure, or 0.0 if no value has been processed
+     */
+    @Override
+    public double getStandardDeviation(int index) {
+        return Math.sqrt(getVariance(index));
+    }
+
+    /**
+     * Returns the estimated quantile for the specified measure index.
+     *
+     * @param index       The index of the measure to get statistics for
+     * @param probability One of {@link #LOWER_QUANTILE}, {@link #MEDIAN} or {@link #UPPER_QUANTILE}
+     * @return The estimated quantile, or {@link Double#NaN} if no value has been processed
+     * @throws IllegalArgumentException if the quantile is not tracked
+     */
+    @Override
+    public double getQuantile(int index, double probability) {
+        if (index >= quantiles.length) {
+            return Double.NaN;
+        }
+        for (P2QuantileEstimator quantile : quantiles[index]) {
+            if (quantile.getProbability() == probability) {
+                return quantile.getValue();
+            }
+        }
+        throw new IllegalArgumentException("Quantile " + probability + " is not tracked");
+    }
+
     /**
      * Returns the total number of data entities that have been processed.
      *
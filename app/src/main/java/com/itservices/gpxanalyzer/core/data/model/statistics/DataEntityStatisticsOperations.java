@@ -6,7 +6,7 @@ import java.util.List;
 
 /**
  * Interface defining operations for collecting and analyzing statistics from DataEntity objects.
- * This interface provides methods for tracking minimum, maximum, and average values
+ * This interface provides methods for tracking minimum, maximum, average, spread and quantile values
  * for different data measures within DataEntity objects.
  *
  * The interface is designed to be used in conjunction with the GPX analyzer application
@@ -62,4 +62,29 @@ public interface DataEntityStatisticsOperations {
      * @return The average value for the specified measure, or 0.0 if no data has been processed
      */
     double getAverage(int index);
+
+    /**
+     * Returns the population variance for the specified measure index.
+     *
+     * @param index The index of the measure to get statistics for
+     * @return The variance of the specified measure, or 0.0 if no data has been processed
+     */
+    double getVariance(int index);
+
+    /**
+     * Returns the population standard deviation for the specified measure index.
+     *
+     * @param index The index of the measure to get statistics for
+     * @return The standard deviation of the specified measure, or 0.0 if no data has been processed
+     */
+    double getStandardDeviation(int index);
+
+    /**
+     * Returns the estimated quantile for the specified measure index.
+     *
+     * @param index       The index of the measure to get statistics for
+     * @param probability The probability of the quantile, e.g. 0.5 for the median
+     * @return The estimated quantile, or {@link Double#NaN} if no data has been processed
+     */
+    double getQuantile(int index, double probability);
 }
\ No newline at end of file
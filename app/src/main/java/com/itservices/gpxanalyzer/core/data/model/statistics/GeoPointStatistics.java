@@ -40,6 +40,26 @@ public class GeoPointStatistics implements GeoPointStatisticsOperations {
         reset();
     }
 
+    /**
+     * Creates an independent copy of the current statistics.
+     *
+     * @return The copy
+     */
+    public GeoPointStatistics copy() {
+        GeoPointStatistics copy = new GeoPointStatistics();
+        copy.minLatitude = minLatitude;
+        copy.maxLatitude = maxLatitude;
+        copy.minLongitude = minLongitude;
+        copy.maxLongitude = maxLongitude;
+        copy.sumLatitude = sumLatitude;
+        copy.sumLongitude = sumLongitude;
+        copy.count = count;
+        copy.center = center;
+        copy.southwestCorner = southwestCorner;
+        copy.northeastCorner = northeastCorner;
+        return copy;
+    }
+
     /**
      * Resets all statistics to their initial state. This method should be called
      * when starting to process a new set of points.
@@ -69,10 +89,16 @@ public class GeoPointStatistics implements GeoPointStatisticsOperations {
         if (point == null) {
             return;
         }
+        accept(point.getLatitude(), point.getLongitude());
+    }
 
-        double lat = point.getLatitude();
-        double lon = point.getLongitude();
-
+    /**
+     * Accepts the coordinates of a geographical point without creating it.
+     *
+     * @param lat The latitude of the point
+     * @param lon The longitude of the point
+     */
+    public void accept(double lat, double lon) {
         minLatitude = Math.min(minLatitude, lat);
         maxLatitude = Math.max(maxLatitude, lat);
         minLongitude = Math.min(minLongitude, lon);
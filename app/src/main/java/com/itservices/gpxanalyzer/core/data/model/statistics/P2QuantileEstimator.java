@@ -0,0 +1,132 @@
+package com.itservices.gpxanalyzer.core.data.model.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Estimates one quantile of a stream of values in constant memory with the P² algorithm
+ * (Jain and Chlamtac, 1985), keeping five markers whose heights are adjusted by piecewise
+ * parabolic interpolation as values arrive.
+ * <p>
+ * The estimate is exact for up to five values. For more values it converges to the quantile of the
+ * distribution without keeping the values; on smooth distributions it is typically within a fraction of
+ * the interquartile range.
+ * <p>
+ * Thread safety: This class is not thread-safe.
+ */
+final class P2QuantileEstimator {
+    private static final int MARKERS = 5;
+
+    private final double probability;
+    private final double[] heights = new double[MARKERS];
+    private final int[] positions = new int[MARKERS];
+    private final double[] desiredPositions = new double[MARKERS];
+    private final double[] increments;
+    private int count = 0;
+
+    /**
+     * @param probability The quantile to estimate, in [0, 1]
+     */
+    P2QuantileEstimator(double probability) {
+        this.probability = probability;
+        this.increments = new double[]{0.0, probability / 2.0, probability, (1.0 + probability) / 2.0, 1.0};
+    }
+
+    double getProbability() {
+        return probability;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    void accept(double value) {
+        if (count < MARKERS) {
+            heights[count++] = value;
+            if (count == MARKERS) {
+                Arrays.sort(heights);
+                for (int i = 0; i < MARKERS; i++) {
+                    positions[i] = i;
+                }
+                desiredPositions[0] = 0.0;
+                desiredPositions[1] = 2.0 * probability;
+                desiredPositions[2] = 4.0 * probability;
+                desiredPositions[3] = 2.0 + 2.0 * probability;
+                desiredPositions[4] = 4.0;
+            }
+            return;
+        }
+        count++;
+
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[MARKERS - 1]) {
+            heights[MARKERS - 1] = value;
+            cell = MARKERS - 2;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+
+        for (int i = cell + 1; i < MARKERS; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < MARKERS; i++) {
+            desiredPositions[i] += increments[i];
+        }
+
+        for (int i = 1; i < MARKERS - 1; i++) {
+            double offset = desiredPositions[i] - positions[i];
+            if ((offset >= 1.0 && positions[i + 1] - positions[i] > 1)
+                    || (offset <= -1.0 && positions[i - 1] - positions[i] < -1)) {
+                int step = offset > 0 ? 1 : -1;
+                double height = parabolic(i, step);
+                if (heights[i - 1] < height && height < heights[i + 1]) {
+                    heights[i] = height;
+                } else {
+                    heights[i] = linear(i, step);
+                }
+                positions[i] += step;
+            }
+        }
+    }
+
+    /**
+     * @return The estimated quantile, or {@link Double#NaN} if no value was accepted
+     */
+    double getValue() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count <= MARKERS) {
+            double[] sorted = Arrays.copyOf(heights, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.round(probability * (count - 1))];
+        }
+        return heights[2];
+    }
+
+    P2QuantileEstimator copy() {
+        P2QuantileEstimator copy = new P2QuantileEstimator(probability);
+        System.arraycopy(heights, 0, copy.heights, 0, MARKERS);
+        System.arraycopy(positions, 0, copy.positions, 0, MARKERS);
+        System.arraycopy(desiredPositions, 0, copy.desiredPositions, 0, MARKERS);
+        copy.count = count;
+        return copy;
+    }
+
+    private double parabolic(int i, int step) {
+        double spanBelow = positions[i] - positions[i - 1];
+        double spanAbove = positions[i + 1] - positions[i];
+        return heights[i] + step / (double) (positions[i + 1] - positions[i - 1])
+                * ((spanBelow + step) * (heights[i + 1] - heights[i]) / spanAbove
+                + (spanAbove - step) * (heights[i] - heights[i - 1]) / spanBelow);
+    }
+
+    private double linear(int i, int step) {
+        return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+    }
+}
@@ -0,0 +1,24 @@
+package com.itservices.gpxanalyzer.core.data.model.track;
+
+/**
+ * Describes one measure channel of a track, shared by all of its points, see {@link TrackSchema}.
+ *
+ * @param id        Stable identifier of the channel, independent of its position in the schema
+ * @param name      Display name of the measure
+ * @param unit      Unit of the values
+ * @param accuracy  Accuracy of the values, in the unit of the channel
+ * @param valueType How the values were obtained
+ */
+public record TrackChannel(int id,
+                           String name,
+                           String unit,
+                           float accuracy,
+                           ValueType valueType) {
+
+    public enum ValueType {
+        /** Read from the source, e.g. the elevation of a track point. */
+        MEASURED,
+        /** Computed from other values, e.g. the speed between two track points. */
+        DERIVED
+    }
+}
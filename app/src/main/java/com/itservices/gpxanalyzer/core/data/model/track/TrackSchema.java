@@ -0,0 +1,106 @@
+package com.itservices.gpxanalyzer.core.data.model.track;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataMeasure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes the measure channels of a track: the {@link TrackChannel} with name, unit, accuracy and
+ * value type shared by all points of a channel. Points keep only their values and a reference to the
+ * schema, see {@link DataEntity}; keeping the metadata once per track instead of once per point is also
+ * what makes the columnar {@link TrackStore} small.
+ * <p>
+ * Schemas are interned: schemas of equal channels are the same instance, so points created with an
+ * equal schema share it, and schemas can be compared by reference.
+ */
+public final class TrackSchema {
+
+    private static final ConcurrentHashMap<List<TrackChannel>, TrackSchema> INTERNED = new ConcurrentHashMap<>();
+
+    /**
+     * Schema without channels.
+     */
+    public static final TrackSchema EMPTY = of(List.of());
+
+    private final List<TrackChannel> channels;
+    private final String[] names;
+    private final String[] units;
+    private final float[] accuracies;
+
+    private TrackSchema(List<TrackChannel> channels) {
+        this.channels = channels;
+        int channelCount = channels.size();
+        names = new String[channelCount];
+        units = new String[channelCount];
+        accuracies = new float[channelCount];
+        for (int channel = 0; channel < channelCount; channel++) {
+            names[channel] = channels.get(channel).name();
+            units[channel] = channels.get(channel).unit();
+            accuracies[channel] = channels.get(channel).accuracy();
+        }
+    }
+
+    /**
+     * Returns the interned schema of the channels.
+     *
+     * @param channels The channels in the order of the values of the points.
+     * @return The schema, the same instance for equal channels.
+     */
+    public static TrackSchema of(List<TrackChannel> channels) {
+        List<TrackChannel> key = List.copyOf(channels);
+        return INTERNED.computeIfAbsent(key, TrackSchema::new);
+    }
+
+    /**
+     * Returns the interned schema of points given as measures, with one measured channel per measure
+     * identified by its position. A missing accuracy is taken as 0.
+     *
+     * @param measures The measures of a point.
+     * @return The schema, the same instance for equal measure metadata.
+     */
+    public static TrackSchema ofMeasures(List<DataMeasure> measures) {
+        List<TrackChannel> channels = new ArrayList<>(measures.size());
+        for (int channel = 0; channel < measures.size(); channel++) {
+            DataMeasure measure = measures.get(channel);
+            channels.add(new TrackChannel(channel, measure.name(), measure.unit(),
+                    measure.valueAccuracy() != null ? measure.valueAccuracy() : 0.0f,
+                    TrackChannel.ValueType.MEASURED));
+        }
+        return of(channels);
+    }
+
+    /**
+     * @param dataEntity A point of a track, usually the first one.
+     * @return The schema of the point.
+     */
+    public static TrackSchema of(DataEntity dataEntity) {
+        return dataEntity.getSchema();
+    }
+
+    public int getChannelCount() {
+        return names.length;
+    }
+
+    public TrackChannel getChannel(int channel) {
+        return channels.get(channel);
+    }
+
+    public List<TrackChannel> getChannels() {
+        return channels;
+    }
+
+    public String getName(int channel) {
+        return names[channel];
+    }
+
+    public String getUnit(int channel) {
+        return units[channel];
+    }
+
+    public float getAccuracy(int channel) {
+        return accuracies[channel];
+    }
+}
@@ -0,0 +1,449 @@
+package com.itservices.gpxanalyzer.core.data.model.track;
+
+import android.location.Location;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.GeoPointEntity;
+import com.itservices.gpxanalyzer.core.utils.common.TimestampSearchUtil;
+
+import org.osmdroid.api.IGeoPoint;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar in-memory model of a track: one primitive array per field instead of one object graph per point.
+ * <p>
+ * A point takes 8 bytes for its timestamp, 16 bytes for its coordinates and 4 bytes per measure channel,
+ * i.e. 32 bytes for the usual two channels. Names, units and accuracies are kept once per channel in the
+ * {@link TrackSchema} taken from the first appended point.
+ * <p>
+ * The store is the only copy of the points the caches keep. A {@link DataEntity}, with a {@link GeoPointEntity}
+ * as its extra data, is created from the columns on every access, see {@link #getDataEntity(int)}, and costs
+ * memory only as long as its reader holds on to it, e.g. the chart entries of the track on display do.
+ * <p>
+ * A store is immutable and created by a {@link Builder}. Stores built one after another share their columns,
+ * as the builder only writes behind the size of the stores it has built or into grown copies of the columns.
+ * <p>
+ * While appending, the builder keeps a 64-bit running hash over all stored columns in order, see
+ * {@link #getContentHash()}, so the identity of the points is known without scanning them again.
+ */
+public final class TrackStore {
+
+    /**
+     * Store without points.
+     */
+    public static final TrackStore EMPTY = new Builder().build();
+
+    private final TrackSchema schema;
+    private final long[] timestamps;
+    private final float[][] values;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int size;
+    private final boolean sortedByTime;
+    private final long contentHash;
+
+    private TrackStore(Builder builder) {
+        this.schema = builder.schema;
+        this.timestamps = builder.timestamps;
+        this.values = builder.values;
+        this.latitudes = builder.latitudes;
+        this.longitudes = builder.longitudes;
+        this.size = builder.size;
+        this.sortedByTime = builder.sortedByTime;
+        this.contentHash = builder.contentHash;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The schema of the stored channels, or null if the store is empty
+     */
+    public TrackSchema getSchema() {
+        return schema;
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public float getValue(int channel, int index) {
+        checkIndex(index);
+        return values[channel][index];
+    }
+
+    public double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    /**
+     * Returns the running hash of timestamps, values and coordinates of all points in order. Unlike the
+     * sum of timestamps it also changes when values change or points are reordered.
+     *
+     * @return The content hash, {@link Builder#EMPTY_CONTENT_HASH} for a store without points
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return true if the points were appended in time order, which enables the binary searches
+     */
+    public boolean isSortedByTime() {
+        return sortedByTime;
+    }
+
+    /**
+     * Finds the last point recorded at the given time. Uses a binary search as long as the points were
+     * appended in time order and falls back to a linear scan otherwise.
+     *
+     * @param timestampMillis The timestamp to look for.
+     * @return The index of the last point with this timestamp, or -1 if there is none
+     */
+    public int lastIndexOfTimestamp(long timestampMillis) {
+        if (!sortedByTime) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (timestamps[i] == timestampMillis) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int index = TimestampSearchUtil.upperBound(timestamps, size, timestampMillis) - 1;
+        return index >= 0 && timestamps[index] == timestampMillis ? index : -1;
+    }
+
+    /**
+     * Requires {@link #isSortedByTime()}.
+     *
+     * @return The index of the first point recorded at or after the given time, {@link #size()} if there is none
+     */
+    public int firstIndexNotBefore(long timestampMillis) {
+        return TimestampSearchUtil.lowerBound(timestamps, size, timestampMillis);
+    }
+
+    /**
+     * Requires {@link #isSortedByTime()}.
+     *
+     * @return The index of the first point recorded after the given time, {@link #size()} if there is none
+     */
+    public int firstIndexAfter(long timestampMillis) {
+        return TimestampSearchUtil.upperBound(timestamps, size, timestampMillis);
+    }
+
+    /**
+     * Finds the point recorded closest to the given time.
+     *
+     * @param timestampMillis The timestamp to look for.
+     * @return The index of the closest point, or -1 if the store is empty
+     */
+    public int nearestIndexOf(long timestampMillis) {
+        if (sortedByTime) {
+            return TimestampSearchUtil.nearestIndex(timestamps, size, timestampMillis);
+        }
+
+        int nearest = -1;
+        long nearestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            long distance = Math.abs(timestamps[i] - timestampMillis);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Creates the data entity of a point. Its id is the index of the point, its values are a copy of the
+     * columns and its extra data is a {@link GeoPointEntity} of the coordinates, or null if it has none.
+     * Every call creates new objects; equal points compare equal, but not identical.
+     *
+     * @param index The index of the point.
+     * @return A new data entity of the point
+     */
+    public DataEntity getDataEntity(int index) {
+        checkIndex(index);
+        float[] pointValues = new float[values.length];
+        for (int channel = 0; channel < pointValues.length; channel++) {
+            pointValues[channel] = values[channel][index];
+        }
+
+        DataEntity dataEntity = new DataEntity(index, timestamps[index], schema, pointValues, null);
+        if (!Double.isNaN(latitudes[index]) && !Double.isNaN(longitudes[index])) {
+            dataEntity.setExtraData(new GeoPointEntity(latitudes[index], longitudes[index], dataEntity));
+        }
+        return dataEntity;
+    }
+
+    /**
+     * @return The geo point of the point at the index, created by {@link #getDataEntity(int)}, or null if it has no coordinates
+     */
+    public GeoPointEntity getGeoPointEntity(int index) {
+        return getDataEntity(index).getExtraData() instanceof GeoPointEntity geoPointEntity ? geoPointEntity : null;
+    }
+
+    /**
+     * @return An unmodifiable list of the points, creating their data entities on access, see {@link #getDataEntity(int)}
+     */
+    public List<DataEntity> asDataEntityList() {
+        return new DataEntityList();
+    }
+
+    private final class DataEntityList extends AbstractList<DataEntity> implements RandomAccess {
+        @Override
+        public DataEntity get(int index) {
+            return getDataEntity(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Appends points to the columns of a track. Not thread-safe; the built stores may be read by any thread.
+     */
+    public static final class Builder {
+
+        /**
+         * Content hash of a store without points.
+         */
+        public static final long EMPTY_CONTENT_HASH = 0x6A09E667F3BCC909L;
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+        private TrackSchema schema;
+        private long[] timestamps = new long[0];
+        private float[][] values = new float[0][];
+        private double[] latitudes = new double[0];
+        private double[] longitudes = new double[0];
+        private int size;
+        private boolean sortedByTime = true;
+        private long contentHash = EMPTY_CONTENT_HASH;
+
+        public Builder() {
+        }
+
+        /**
+         * Creates a builder for points of the given schema, to be appended with
+         * {@link #append(long, float[], double, double)}.
+         *
+         * @param schema The channels of the points.
+         */
+        public Builder(TrackSchema schema) {
+            setSchema(schema);
+        }
+
+        /**
+         * Creates a builder continuing the given store. The columns are copied, so stores built from
+         * several builders continuing the same store never share the slots behind its size.
+         *
+         * @param trackStore The store to continue.
+         */
+        public Builder(TrackStore trackStore) {
+            schema = trackStore.schema;
+            size = trackStore.size;
+            sortedByTime = trackStore.sortedByTime;
+            contentHash = trackStore.contentHash;
+            timestamps = Arrays.copyOf(trackStore.timestamps, size);
+            latitudes = Arrays.copyOf(trackStore.latitudes, size);
+            longitudes = Arrays.copyOf(trackStore.longitudes, size);
+            values = new float[trackStore.values.length][];
+            for (int channel = 0; channel < values.length; channel++) {
+                values[channel] = Arrays.copyOf(trackStore.values[channel], size);
+            }
+        }
+
+        /**
+         * Appends a point. Coordinates are read from the extra data if it is a {@link Location} or an
+         * {@link IGeoPoint}, otherwise they are stored as NaN.
+         *
+         * @param dataEntity The point to append. Its measures must match the schema of the first point.
+         * @return This builder.
+         */
+        public Builder append(DataEntity dataEntity) {
+            if (size == 0) {
+                setSchema(dataEntity.getSchema());
+            }
+            int index = appendTimestamp(dataEntity.timestampMillis());
+
+            int channelCount = dataEntity.getSchema().getChannelCount();
+            for (int channel = 0; channel < values.length; channel++) {
+                values[channel][index] = channel < channelCount ? dataEntity.getValue(channel) : Float.NaN;
+            }
+
+            Object extraData = dataEntity.getExtraData();
+            if (extraData instanceof Location location) {
+                return appendCoordinates(index, location.getLatitude(), location.getLongitude());
+            } else if (extraData instanceof IGeoPoint geoPoint) {
+                return appendCoordinates(index, geoPoint.getLatitude(), geoPoint.getLongitude());
+            }
+            return appendCoordinates(index, Double.NaN, Double.NaN);
+        }
+
+        /**
+         * Appends a point of the schema of this builder without creating any object.
+         *
+         * @param timestampMillis The time of the point.
+         * @param pointValues     The value of every channel of the schema, read and not kept.
+         * @param latitude        The latitude, NaN if unknown.
+         * @param longitude       The longitude, NaN if unknown.
+         * @return This builder.
+         * @throws IllegalStateException If the schema is not known yet.
+         */
+        public Builder append(long timestampMillis, float[] pointValues, double latitude, double longitude) {
+            if (schema == null) {
+                throw new IllegalStateException("The schema of the points is not known");
+            }
+            int index = appendTimestamp(timestampMillis);
+            for (int channel = 0; channel < values.length; channel++) {
+                values[channel][index] = channel < pointValues.length ? pointValues[channel] : Float.NaN;
+            }
+            return appendCoordinates(index, latitude, longitude);
+        }
+
+        /**
+         * Appends all points of a store in order, copying its columns.
+         *
+         * @param trackStore The points to append. Their schema must match the one of the first point.
+         * @return This builder.
+         */
+        public Builder appendAll(TrackStore trackStore) {
+            if (trackStore.isEmpty()) {
+                return this;
+            }
+            if (size == 0) {
+                setSchema(trackStore.schema);
+            }
+            ensureCapacity(size + trackStore.size);
+            for (int i = 0; i < trackStore.size; i++) {
+                int index = appendTimestamp(trackStore.timestamps[i]);
+                for (int channel = 0; channel < values.length; channel++) {
+                    values[channel][index] = channel < trackStore.values.length ? trackStore.values[channel][i] : Float.NaN;
+                }
+                appendCoordinates(index, trackStore.latitudes[i], trackStore.longitudes[i]);
+            }
+            return this;
+        }
+
+        /**
+         * Appends all points of the list in order.
+         *
+         * @param dataEntityList The points to append.
+         * @return This builder.
+         */
+        public Builder appendAll(List<DataEntity> dataEntityList) {
+            if (size > 0) {
+                ensureCapacity(size + dataEntityList.size());
+            }
+            for (DataEntity dataEntity : dataEntityList) {
+                append(dataEntity);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return An immutable store of the points appended so far
+         */
+        public TrackStore build() {
+            return new TrackStore(this);
+        }
+
+        private void setSchema(TrackSchema trackSchema) {
+            schema = trackSchema;
+            values = new float[schema.getChannelCount()][timestamps.length];
+        }
+
+        /**
+         * Starts a point with its timestamp; the values must be written before {@link #appendCoordinates} ends it.
+         *
+         * @return The index of the point
+         */
+        private int appendTimestamp(long timestampMillis) {
+            int index = size;
+            ensureCapacity(index + 1);
+            if (index > 0 && timestampMillis < timestamps[index - 1]) {
+                sortedByTime = false;
+            }
+            timestamps[index] = timestampMillis;
+            return index;
+        }
+
+        /**
+         * Ends the point started by {@link #appendTimestamp(long)} and adds it to the content hash.
+         */
+        private Builder appendCoordinates(int index, double latitude, double longitude) {
+            latitudes[index] = latitude;
+            longitudes[index] = longitude;
+
+            long hash = hash(contentHash, timestamps[index]);
+            for (float[] channelValues : values) {
+                hash = hash(hash, Float.floatToIntBits(channelValues[index]));
+            }
+            hash = hash(hash, Double.doubleToLongBits(latitude));
+            contentHash = hash(hash, Double.doubleToLongBits(longitude));
+
+            size = index + 1;
+            return this;
+        }
+
+        /**
+         * Adds a word to the hash, mixed like a step of SplitMix64 so that neighbouring values
+         * differ in about half of the bits.
+         */
+        private static long hash(long hash, long word) {
+            long mixed = word + HASH_MULTIPLIER;
+            mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+            mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+            mixed ^= mixed >>> 31;
+            return Long.rotateLeft(hash ^ mixed, 27) * HASH_MULTIPLIER + 0x52DCE729L;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= timestamps.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, timestamps.length * 2));
+
+            float[][] newValues = new float[values.length][];
+            for (int channel = 0; channel < newValues.length; channel++) {
+                newValues[channel] = Arrays.copyOf(values[channel], newCapacity);
+            }
+
+            values = newValues;
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            latitudes = Arrays.copyOf(latitudes, newCapacity);
+            longitudes = Arrays.copyOf(longitudes, newCapacity);
+        }
+    }
+}
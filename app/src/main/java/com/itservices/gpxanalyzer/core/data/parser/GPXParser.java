@@ -14,6 +14,8 @@ import com.itservices.gpxanalyzer.core.data.parser.domain.Point;
 import com.itservices.gpxanalyzer.core.data.parser.domain.Route;
 import com.itservices.gpxanalyzer.core.data.parser.domain.RoutePoint;
 import com.itservices.gpxanalyzer.core.data.parser.domain.Track;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
 import com.itservices.gpxanalyzer.core.data.parser.domain.TrackPoint;
 import com.itservices.gpxanalyzer.core.data.parser.domain.TrackSegment;
 import com.itservices.gpxanalyzer.core.data.parser.domain.WayPoint;
@@ -26,10 +28,15 @@ import org.xmlpull.v1.XmlPullParserException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+
 public final class GPXParser {
 
     static private final String TAG_GPX = "gpx";
@@ -76,24 +83,157 @@ public final class GPXParser {
 
     static private final String namespace = null;
 
+    // depths of the elements read into track columns, the root element being at depth 1
+    static private final int TRACK_DEPTH = 2;
+    static private final int SEGMENT_DEPTH = 3;
+
+    // text of the element being read into track columns, one per parsing thread
+    static private final ThreadLocal<TextBuffer> TEXT_BUFFER = ThreadLocal.withInitial(TextBuffer::new);
+
     @Inject
     GPXParser() {
 
     }
 
     public Gpx parse(InputStream in) throws XmlPullParserException, IOException {
+        return parse(in, GpxProjection.ALL);
+    }
+
+    /**
+     * Parses the document, reading only the parts contained in the projection.
+     * Everything else is skipped without being read or allocated.
+     *
+     * @param in         The GPX input stream, closed when parsing finishes.
+     * @param projection The parts of the document to read, e.g. {@link GpxProjection#TRACK_POINTS}.
+     * @return The parsed document, with empty lists and null fields for parts outside the projection.
+     */
+    public Gpx parse(InputStream in, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
         try {
             XmlPullParser parser = Xml.newPullParser();
             parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
             parser.setInput(in, null);
             parser.nextTag();
-            return readGpx(parser);
+            return readGpx(parser, projection);
         } finally {
             in.close();
         }
     }
 
-    private Gpx readGpx(XmlPullParser parser) throws XmlPullParserException, IOException {
+    /**
+     * Streaming parse mode for the track-point-only use case.
+     * <p>
+     * Reads all {@code <trk>/<trkseg>/<trkpt>} elements straight into primitive
+     * {@link TrackColumns} while the document is being read. No {@link Gpx} tree,
+     * {@link Point.Builder}, boxed values or per-point {@link DateTime} are created.
+     * Metadata, waypoints and routes are skipped.
+     *
+     * @param in The GPX input stream, closed when parsing finishes.
+     * @return Columns holding every track point of every track, in document order.
+     */
+    public TrackColumns parseTrackColumns(InputStream in) throws XmlPullParserException, IOException {
+        return parseTrackColumns(in, GpxProjection.ALL);
+    }
+
+    /**
+     * Streaming parse mode reading only the point fields contained in the projection.
+     * Elevation, time and speed outside the projection are skipped and left as missing values.
+     *
+     * @param in         The GPX input stream, closed when parsing finishes.
+     * @param projection The point fields to read, e.g. {@link GpxProjection#TRACK_POINTS}.
+     * @return Columns holding every track point of every track, in document order.
+     */
+    public TrackColumns parseTrackColumns(InputStream in, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
+        try {
+            TrackColumns columns = new TrackColumns();
+            new TrackColumnsReader(in, projection).read(columns, Integer.MAX_VALUE);
+            columns.trimToSize();
+            return columns;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Progressive variant of {@link #parseTrackColumns(InputStream, Set)}.
+     * <p>
+     * Track points are emitted in blocks while the document is still being read, so consumers can
+     * show the beginning of a long track before the parse has finished. The first block holds
+     * {@code firstBlockSize} points and every following block is twice as large as the previous one,
+     * which keeps the number of blocks logarithmic in the track length. Appending all blocks yields
+     * the columns of {@link #parseTrackColumns(InputStream, Set)}.
+     * <p>
+     * The document is read on demand: a block is parsed only when it is requested, on the requesting
+     * thread, so a slow consumer holds back the parse instead of buffering the blocks. The stream is
+     * closed when the parse finishes or fails or the subscription is cancelled.
+     *
+     * @param in             The GPX input stream.
+     * @param projection     The point fields to read, e.g. {@link GpxProjection#TRACK_POINTS}.
+     * @param firstBlockSize Number of points in the first block.
+     * @return A {@link Flowable} emitting the blocks in document order.
+     */
+    public Flowable<TrackColumnsBlock> parseTrackColumnBlocks(InputStream in, Set<GpxProjection> projection, int firstBlockSize) {
+        return Flowable.generate(
+                () -> new TrackColumnsBlockReader(new TrackColumnsReader(in, projection), in, firstBlockSize),
+                TrackColumnsBlockReader::readNext,
+                TrackColumnsBlockReader::close);
+    }
+
+    private void readTrackPointColumns(XmlPullParser parser, TrackColumns columns, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
+        parser.require(XmlPullParser.START_TAG, namespace, TAG_TRACK_POINT);
+
+        double lat = Double.parseDouble(parser.getAttributeValue(namespace, TAG_LAT));
+        double lon = Double.parseDouble(parser.getAttributeValue(namespace, TAG_LON));
+        double ele = Double.NaN;
+        long time = TrackColumns.NO_TIME;
+        double speed = Double.NaN;
+
+        while (loopMustContinue(parser.next())) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            String name = parser.getName();
+            if (!isPointFieldProjected(name, projection)) {
+                skip(parser);
+                continue;
+            }
+            switch (name) {
+                case TAG_ELEVATION:
+                    ele = Double.parseDouble(readText(parser));
+                    break;
+                case TAG_TIME:
+                    time = readTimeMillis(parser);
+                    break;
+                case TAG_EXTENSIONS:
+                    speed = readExtensionsSpeed(parser);
+                    break;
+                default:
+                    skip(parser);
+                    break;
+            }
+        }
+
+        parser.require(XmlPullParser.END_TAG, namespace, TAG_TRACK_POINT);
+        columns.addPoint(lat, lon, ele, time, speed);
+    }
+
+    private double readExtensionsSpeed(XmlPullParser parser) throws XmlPullParserException, IOException {
+        double speed = Double.NaN;
+        parser.require(XmlPullParser.START_TAG, namespace, TAG_EXTENSIONS);
+        while (loopMustContinue(parser.next())) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            if (TAG_SPEED.equals(parser.getName())) {
+                speed = readSpeed(parser);
+            } else {
+                skip(parser);
+            }
+        }
+        parser.require(XmlPullParser.END_TAG, namespace, TAG_EXTENSIONS);
+        return speed;
+    }
+
+    private Gpx readGpx(XmlPullParser parser, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
         List<WayPoint> wayPoints = new ArrayList<>();
         List<Track> tracks = new ArrayList<>();
         List<Route> routes = new ArrayList<>();
@@ -109,19 +249,23 @@ public final class GPXParser {
                 continue;
             }
             String name = parser.getName();
+            if (!isElementProjected(name, projection)) {
+                skip(parser);
+                continue;
+            }
             // Starts by looking for the entry tag
             switch (name) {
                 case TAG_METADATA:
                     builder.setMetadata(readMetadata(parser));
                     break;
                 case TAG_WAY_POINT:
-                    wayPoints.add(readWayPoint(parser));
+                    wayPoints.add(readWayPoint(parser, projection));
                     break;
                 case TAG_ROUTE:
-                    routes.add(readRoute(parser));
+                    routes.add(readRoute(parser, projection));
                     break;
                 case TAG_TRACK:
-                    tracks.add(readTrack(parser));
+                    tracks.add(readTrack(parser, projection));
                     break;
                 default:
                     skip(parser);
@@ -138,7 +282,7 @@ public final class GPXParser {
 
     // Parses the contents of an entry. If it encounters a title, summary, or link tag, hands them off
     // to their respective "read" methods for processing. Otherwise, skips the tag.
-    private Track readTrack(XmlPullParser parser) throws XmlPullParserException, IOException {
+    private Track readTrack(XmlPullParser parser, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
         Track.Builder trackBuilder = new Track.Builder();
 
         List<TrackSegment> segments = new ArrayList<>();
@@ -148,12 +292,16 @@ public final class GPXParser {
                 continue;
             }
             String name = parser.getName();
+            if (!TAG_SEGMENT.equals(name) && !projection.contains(GpxProjection.TEXT)) {
+                skip(parser);
+                continue;
+            }
             switch (name) {
                 case TAG_NAME:
                     trackBuilder.setTrackName(readName(parser));
                     break;
                 case TAG_SEGMENT:
-                    segments.add(readSegment(parser));
+                    segments.add(readSegment(parser, projection));
                     break;
                 case TAG_DESC:
                     trackBuilder.setTrackDesc(readDesc(parser));
@@ -228,7 +376,7 @@ public final class GPXParser {
     }
 
     // Processes summary tags in the feed.
-    private TrackSegment readSegment(XmlPullParser parser) throws IOException, XmlPullParserException {
+    private TrackSegment readSegment(XmlPullParser parser, Set<GpxProjection> projection) throws IOException, XmlPullParserException {
         List<TrackPoint> points = new ArrayList<>();
         parser.require(XmlPullParser.START_TAG, namespace, TAG_SEGMENT);
         while (loopMustContinue(parser.next())) {
@@ -237,7 +385,7 @@ public final class GPXParser {
             }
             String name = parser.getName();
             if (TAG_TRACK_POINT.equals(name)) {
-                points.add(readTrackPoint(parser));
+                points.add(readTrackPoint(parser, projection));
             } else {
                 skip(parser);
             }
@@ -248,7 +396,7 @@ public final class GPXParser {
                 .build();
     }
 
-    private Route readRoute(XmlPullParser parser) throws IOException, XmlPullParserException {
+    private Route readRoute(XmlPullParser parser, Set<GpxProjection> projection) throws IOException, XmlPullParserException {
         List<RoutePoint> points = new ArrayList<>();
         parser.require(XmlPullParser.START_TAG, namespace, TAG_ROUTE);
         Route.Builder routeBuilder = new Route.Builder();
@@ -258,9 +406,13 @@ public final class GPXParser {
                 continue;
             }
             String name = parser.getName();
+            if (!TAG_ROUTE_POINT.equals(name) && !projection.contains(GpxProjection.TEXT)) {
+                skip(parser);
+                continue;
+            }
             switch (name) {
                 case TAG_ROUTE_POINT:
-                    points.add(readRoutePoint(parser));
+                    points.add(readRoutePoint(parser, projection));
                     break;
                 case TAG_NAME:
                     routeBuilder.setRouteName(readName(parser));
@@ -300,8 +452,9 @@ public final class GPXParser {
      * @param builder The prepared builder, one of {@link TrackPoint.Builder}, {@link RoutePoint.Builder} or {@link WayPoint.Builder}.
      * @param parser  Parser
      * @param tagName Tag name, e.g. trkpt, rtept, wpt
+     * @param projection Point fields to read, others are skipped
      */
-    private Point readPoint(Point.Builder builder, XmlPullParser parser, String tagName) throws XmlPullParserException, IOException {
+    private Point readPoint(Point.Builder builder, XmlPullParser parser, String tagName, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
         parser.require(XmlPullParser.START_TAG, namespace, tagName);
 
         builder.setLatitude(Double.valueOf(parser.getAttributeValue(namespace, TAG_LAT)));
@@ -312,6 +465,10 @@ public final class GPXParser {
                 continue;
             }
             String name = parser.getName();
+            if (!isPointFieldProjected(name, projection)) {
+                skip(parser);
+                continue;
+            }
             switch (name) {
                 case TAG_NAME:
                     builder.setName(readName(parser));
@@ -460,16 +617,16 @@ public final class GPXParser {
         return copyrightBuilder.build();
     }
 
-    private WayPoint readWayPoint(XmlPullParser parser) throws XmlPullParserException, IOException {
-        return (WayPoint) readPoint(new WayPoint.Builder(), parser, TAG_WAY_POINT);
+    private WayPoint readWayPoint(XmlPullParser parser, Set<GpxProjection> projection) throws XmlPullParserException, IOException {
+        return (WayPoint) readPoint(new WayPoint.Builder(), parser, TAG_WAY_POINT, projection);
     }
 
-    private TrackPoint readTrackPoint(XmlPullParser parser) throws IOException, XmlPullParserException {
-        return (TrackPoint) readPoint(new TrackPoint.Builder(), parser, TAG_TRACK_POINT);
+    private TrackPoint readTrackPoint(XmlPullParser parser, Set<GpxProjection> projection) throws IOException, XmlPullParserException {
+        return (TrackPoint) readPoint(new TrackPoint.Builder(), parser, TAG_TRACK_POINT, projection);
     }
 
-    private RoutePoint readRoutePoint(XmlPullParser parser) throws IOException, XmlPullParserException {
-        return (RoutePoint) readPoint(new RoutePoint.Builder(), parser, TAG_ROUTE_POINT);
+    private RoutePoint readRoutePoint(XmlPullParser parser, Set<GpxProjection> projection) throws IOException, XmlPullParserException {
+        return (RoutePoint) readPoint(new RoutePoint.Builder(), parser, TAG_ROUTE_POINT, projection);
     }
 
     private String readName(XmlPullParser parser) throws IOException, XmlPullParserException {
@@ -508,6 +665,26 @@ public final class GPXParser {
         parser.require(XmlPullParser.END_TAG, namespace, TAG_TIME);
         return time;
     }
+
+    /**
+     * Reads the {@code <time>} element as epoch milliseconds, decoding it from a per-thread
+     * character buffer without creating a {@link String} or {@link DateTime}. Text split into
+     * several events is joined, as by {@link #readText(XmlPullParser)}.
+     */
+    private long readTimeMillis(XmlPullParser parser) throws IOException, XmlPullParserException {
+        parser.require(XmlPullParser.START_TAG, namespace, TAG_TIME);
+        long time = TrackColumns.NO_TIME;
+        TextBuffer text = TEXT_BUFFER.get();
+        text.length = 0;
+        while (parser.next() == XmlPullParser.TEXT) {
+            text.append(parser);
+        }
+        if (text.length > 0) {
+            time = GpxTimeDecoder.parseMillis(text.chars, 0, text.length);
+        }
+        parser.require(XmlPullParser.END_TAG, namespace, TAG_TIME);
+        return time;
+    }
     private String readSym(XmlPullParser parser) throws IOException, XmlPullParserException {
         parser.require(XmlPullParser.START_TAG, namespace, TAG_SYM);
         String value = readText(parser);
@@ -515,11 +692,14 @@ public final class GPXParser {
         return value;
     }
 
+    /**
+     * Reads the text of the current element up to its end tag, joining the text events
+     * it may be split into.
+     */
     private String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
         String result = "";
-        if (parser.next() == XmlPullParser.TEXT) {
-            result = parser.getText();
-            parser.nextTag();
+        while (parser.next() == XmlPullParser.TEXT) {
+            result = result.isEmpty() ? parser.getText() : result + parser.getText();
         }
         return result;
     }
@@ -581,6 +761,34 @@ public final class GPXParser {
         return extensionsBuilder.build();
     }
 
+    private static boolean isElementProjected(String gpxChildTag, Set<GpxProjection> projection) {
+        switch (gpxChildTag) {
+            case TAG_METADATA:
+                return projection.contains(GpxProjection.METADATA);
+            case TAG_WAY_POINT:
+                return projection.contains(GpxProjection.WAY_POINTS);
+            case TAG_ROUTE:
+                return projection.contains(GpxProjection.ROUTES);
+            case TAG_TRACK:
+                return projection.contains(GpxProjection.TRACKS);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPointFieldProjected(String pointChildTag, Set<GpxProjection> projection) {
+        switch (pointChildTag) {
+            case TAG_ELEVATION:
+                return projection.contains(GpxProjection.POINT_ELEVATION);
+            case TAG_TIME:
+                return projection.contains(GpxProjection.POINT_TIME);
+            case TAG_EXTENSIONS:
+                return projection.contains(GpxProjection.POINT_EXTENSIONS);
+            default:
+                return projection.contains(GpxProjection.TEXT);
+        }
+    }
+
     private void skip(XmlPullParser parser) throws XmlPullParserException, IOException {
         if (parser.getEventType() != XmlPullParser.START_TAG) {
             throw new IllegalStateException();
@@ -601,4 +809,151 @@ public final class GPXParser {
     private boolean loopMustContinue(int next) {
         return next != XmlPullParser.END_TAG && next != XmlPullParser.END_DOCUMENT;
     }
+
+    /**
+     * Reads the track points of a document into columns and can pause after any point, so the document
+     * can be read block by block. Tracks, segments and points are found by their depth below the root
+     * element, everything else is skipped.
+     */
+    private final class TrackColumnsReader {
+        private final InputStream in;
+        private final Set<GpxProjection> projection;
+        private XmlPullParser parser = null;
+        // a segment was begun in columns filled before, so the next point continues it
+        private boolean segmentOpen = false;
+        private boolean finished = false;
+
+        TrackColumnsReader(InputStream in, Set<GpxProjection> projection) {
+            this.in = in;
+            this.projection = projection;
+        }
+
+        /**
+         * Reads the next points into the columns, until they hold {@code maxSize} points or the document ends.
+         *
+         * @return true if the first point read continues the segment of the points read before
+         */
+        boolean read(TrackColumns columns, int maxSize) throws XmlPullParserException, IOException {
+            if (parser == null) {
+                parser = Xml.newPullParser();
+                parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+                parser.setInput(in, null);
+                parser.nextTag();
+                parser.require(XmlPullParser.START_TAG, namespace, TAG_GPX);
+            }
+            boolean continuesSegment = segmentOpen;
+            while (!finished && columns.size() < maxSize) {
+                switch (parser.next()) {
+                    case XmlPullParser.START_TAG:
+                        if (readElement(columns) && columns.size() == 0) {
+                            continuesSegment = false;
+                        }
+                        break;
+                    case XmlPullParser.END_TAG:
+                        if (parser.getDepth() == 1) {
+                            parser.require(XmlPullParser.END_TAG, namespace, TAG_GPX);
+                            finished = true;
+                        }
+                        break;
+                    case XmlPullParser.END_DOCUMENT:
+                        throw new XmlPullParserException("Unexpected end of document", parser, null);
+                }
+            }
+            return continuesSegment;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * @return true if the element begins a segment
+         */
+        private boolean readElement(TrackColumns columns) throws XmlPullParserException, IOException {
+            String name = parser.getName();
+            switch (parser.getDepth()) {
+                case TRACK_DEPTH:
+                    if (!TAG_TRACK.equals(name)) {
+                        skip(parser);
+                    }
+                    return false;
+                case SEGMENT_DEPTH:
+                    if (!TAG_SEGMENT.equals(name)) {
+                        skip(parser);
+                        return false;
+                    }
+                    columns.beginSegment();
+                    segmentOpen = true;
+                    return true;
+                default:
+                    if (TAG_TRACK_POINT.equals(name)) {
+                        readTrackPointColumns(parser, columns, projection);
+                    } else {
+                        skip(parser);
+                    }
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Generator state of {@link #parseTrackColumnBlocks(InputStream, Set, int)}, reading one block per
+     * request and doubling the size of the next block.
+     */
+    private static final class TrackColumnsBlockReader {
+        // later blocks grow on demand instead of reserving the doubled size upfront
+        private static final int MAX_INITIAL_BLOCK_CAPACITY = 64 * 1024;
+
+        private final TrackColumnsReader reader;
+        private final InputStream in;
+        private int blockSize;
+
+        TrackColumnsBlockReader(TrackColumnsReader reader, InputStream in, int firstBlockSize) {
+            this.reader = reader;
+            this.in = in;
+            this.blockSize = Math.max(1, firstBlockSize);
+        }
+
+        void readNext(Emitter<TrackColumnsBlock> emitter) throws XmlPullParserException, IOException {
+            TrackColumns columns = new TrackColumns(Math.min(blockSize, MAX_INITIAL_BLOCK_CAPACITY));
+            boolean continuesSegment = reader.read(columns, blockSize);
+            blockSize = blockSize <= Integer.MAX_VALUE / 2 ? blockSize * 2 : Integer.MAX_VALUE;
+
+            if (!columns.isEmpty() || columns.getSegmentCount() > 0) {
+                columns.trimToSize();
+                emitter.onNext(new TrackColumnsBlock(columns, continuesSegment));
+            }
+            if (reader.isFinished()) {
+                emitter.onComplete();
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // nothing is read from the stream anymore
+            }
+        }
+    }
+
+    /**
+     * Growable character buffer collecting the text events of one element.
+     */
+    private static final class TextBuffer {
+        // start/length holder for XmlPullParser.getTextCharacters()
+        private final int[] range = new int[2];
+        private char[] chars = new char[64];
+        private int length = 0;
+
+        void append(XmlPullParser parser) {
+            char[] text = parser.getTextCharacters(range);
+            int count = range[1];
+            if (length + count > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + count));
+            }
+            System.arraycopy(text, range[0], chars, length, count);
+            length += count;
+        }
+    }
 }
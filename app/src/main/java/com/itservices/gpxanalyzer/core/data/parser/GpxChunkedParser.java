@@ -0,0 +1,312 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import android.util.Log;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Parallel variant of {@link GPXParser#parseTrackColumns(InputStream)} for large files.
+ * <p>
+ * The raw file bytes are pre-scanned for {@code <trkseg>} and {@code <trkpt>} boundaries and the
+ * points of every segment are split into chunks of roughly equal size. Every chunk is wrapped into
+ * a minimal standalone document, which reuses the original prolog and root {@code <gpx>} start tag
+ * so that namespace declarations stay valid, and is parsed by {@link GPXParser} on the bounded
+ * {@link Schedulers#computation()} pool.
+ * <p>
+ * The chunk results are stitched back in document order, which is the order {@link GPXParser}
+ * produces, so the resulting {@link TrackColumns} are identical to a sequential parse.
+ * Files the pre-scan does not understand (prefixed GPX elements, comments or CDATA sections,
+ * unbalanced segments), as well as any chunk failure, fall back to the sequential parse.
+ * <p>
+ * The whole file is held in memory while it is split and parsed, so files larger than
+ * {@link #PARALLEL_PARSE_MAX_FILE_SIZE} are parsed sequentially from a stream instead.
+ * <p>
+ * Plain files are read by the {@link GpxTrackPointScanner} first; this parser is only used for large
+ * plain files the scanner returns null for, e.g. files with character references or other XML the
+ * scanner leaves to {@link GPXParser}.
+ */
+public final class GpxChunkedParser {
+    private static final String TAG = GpxChunkedParser.class.getSimpleName();
+
+    /**
+     * Files below this size are parsed sequentially, splitting them costs more than it gains.
+     */
+    public static final long PARALLEL_PARSE_MIN_FILE_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * Files above this size are parsed sequentially from a stream, holding them in memory costs more than
+     * the parallel parse gains.
+     */
+    public static final long PARALLEL_PARSE_MAX_FILE_SIZE = 64L * 1024 * 1024;
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int CHUNKS_PER_CORE = 4;
+
+    private static final byte[] GPX_START = bytes("<gpx");
+    private static final byte[] SEGMENT_START = bytes("<trkseg");
+    private static final byte[] SEGMENT_END = bytes("</trkseg>");
+    private static final byte[] TRACK_POINT_START = bytes("<trkpt");
+    private static final byte[] COMMENT_START = bytes("<!--");
+    private static final byte[] CDATA_START = bytes("<![CDATA[");
+    private static final byte[] CHUNK_PREFIX = bytes("<trk><trkseg>");
+    private static final byte[] CHUNK_SUFFIX = bytes("</trkseg></trk></gpx>");
+
+    private final GPXParser parser;
+
+    @Inject
+    GpxChunkedParser(GPXParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Reads the file and parses its track points in parallel chunks, or sequentially from a stream if
+     * it is larger than {@link #PARALLEL_PARSE_MAX_FILE_SIZE}.
+     *
+     * @param file The GPX file.
+     * @return A {@link Single} emitting the track columns in document order.
+     */
+    public Single<TrackColumns> parseTrackColumns(File file) {
+        return Single.defer(() -> {
+            if (file.length() > PARALLEL_PARSE_MAX_FILE_SIZE) {
+                return Single.fromCallable(() -> {
+                    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+                        return parser.parseTrackColumns(inputStream);
+                    }
+                });
+            }
+            return Single.fromCallable(() -> readAllBytes(file))
+                    .flatMap(this::parseTrackColumns);
+        });
+    }
+
+    /**
+     * Parses the track points of a whole GPX document held in memory in parallel chunks.
+     *
+     * @param data The complete GPX document.
+     * @return A {@link Single} emitting the track columns in document order.
+     */
+    public Single<TrackColumns> parseTrackColumns(byte[] data) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        List<Chunk> chunks = split(data, Math.max(MIN_CHUNK_SIZE, data.length / (parallelism * CHUNKS_PER_CORE)));
+        if (chunks == null || chunks.size() < 2) {
+            return parseSequential(data);
+        }
+
+        int headerEnd = rootStartTagEnd(data);
+
+        return Flowable.fromIterable(chunks)
+                .concatMapEager(chunk ->
+                        Single.fromCallable(() -> parseChunk(data, headerEnd, chunk))
+                                .subscribeOn(Schedulers.computation())
+                                .toFlowable(),
+                        parallelism, 1)
+                .reduceWith(() -> new TrackColumns(estimatePointCount(chunks)), (columns, block) -> {
+                    columns.append(block.columns(), block.continuesSegment());
+                    return columns;
+                })
+                .map(columns -> {
+                    columns.trimToSize();
+                    return columns;
+                })
+                .onErrorResumeNext(throwable -> {
+                    Log.w(TAG, "Parallel parse failed, falling back to sequential parse", throwable);
+                    return parseSequential(data);
+                });
+    }
+
+    private Single<TrackColumns> parseSequential(byte[] data) {
+        return Single.fromCallable(() -> parser.parseTrackColumns(new ByteArrayInputStream(data)));
+    }
+
+    private TrackColumnsBlock parseChunk(byte[] data, int headerEnd, Chunk chunk) throws Exception {
+        List<InputStream> parts = Arrays.asList(
+                new ByteArrayInputStream(data, 0, headerEnd),
+                new ByteArrayInputStream(CHUNK_PREFIX),
+                new ByteArrayInputStream(data, chunk.start, chunk.end - chunk.start),
+                new ByteArrayInputStream(CHUNK_SUFFIX)
+        );
+        InputStream chunkDocument = new SequenceInputStream(Collections.enumeration(parts));
+        return new TrackColumnsBlock(parser.parseTrackColumns(chunkDocument), chunk.continuesSegment);
+    }
+
+    /**
+     * Splits the content of every {@code <trkseg>} at {@code <trkpt} boundaries.
+     *
+     * @return The chunks in document order, or null if the document cannot be split safely.
+     */
+    static List<Chunk> split(byte[] data, int targetChunkSize) {
+        int headerEnd = rootStartTagEnd(data);
+        if (headerEnd < 0
+                || indexOf(data, COMMENT_START, headerEnd, data.length) >= 0
+                || indexOf(data, CDATA_START, headerEnd, data.length) >= 0) {
+            return null;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int pos = headerEnd;
+        while ((pos = indexOfTag(data, SEGMENT_START, pos, data.length)) >= 0) {
+            int contentStart = tagEnd(data, pos);
+            if (contentStart < 0) {
+                return null;
+            }
+            if (data[contentStart - 2] == '/') {
+                // self closed <trkseg/>, still an (empty) segment
+                chunks.add(new Chunk(contentStart, contentStart, false));
+                pos = contentStart;
+                continue;
+            }
+            int contentEnd = indexOf(data, SEGMENT_END, contentStart, data.length);
+            if (contentEnd < 0 || indexOfTag(data, SEGMENT_START, contentStart, contentEnd) >= 0) {
+                return null;
+            }
+
+            int chunkStart = contentStart;
+            int point = contentStart;
+            boolean continuesSegment = false;
+            while ((point = indexOfTag(data, TRACK_POINT_START, point, contentEnd)) >= 0) {
+                if (point - chunkStart >= targetChunkSize) {
+                    chunks.add(new Chunk(chunkStart, point, continuesSegment));
+                    chunkStart = point;
+                    continuesSegment = true;
+                }
+                point += TRACK_POINT_START.length;
+            }
+            chunks.add(new Chunk(chunkStart, contentEnd, continuesSegment));
+
+            pos = contentEnd + SEGMENT_END.length;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return index just after the root {@code <gpx ...>} start tag, or -1 if not found
+     */
+    private static int rootStartTagEnd(byte[] data) {
+        int gpxStart = indexOfTag(data, GPX_START, 0, data.length);
+        if (gpxStart < 0) {
+            return -1;
+        }
+        int end = tagEnd(data, gpxStart);
+        return end < 0 || data[end - 2] == '/' ? -1 : end;
+    }
+
+    /**
+     * @return index just after the '>' closing the tag starting at {@code tagStart}, honouring quoted attribute values
+     */
+    private static int tagEnd(byte[] data, int tagStart) {
+        byte quote = 0;
+        for (int i = tagStart + 1; i < data.length; i++) {
+            byte b = data[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Like {@link #indexOf(byte[], byte[], int, int)} but only matches a complete tag name,
+     * e.g. {@code <trkseg} does not match {@code <trksegx}.
+     */
+    private static int indexOfTag(byte[] data, byte[] tag, int from, int to) {
+        int pos = from;
+        while ((pos = indexOf(data, tag, pos, to)) >= 0) {
+            int next = pos + tag.length;
+            if (next < to) {
+                byte b = data[next];
+                if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                    return pos;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        int last = to - pattern.length;
+        for (int i = from; i <= last; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int estimatePointCount(List<Chunk> chunks) {
+        // roughly 100 bytes per trkpt is a conservative lower bound for real-world recordings
+        long bytes = 0;
+        for (Chunk chunk : chunks) {
+            bytes += chunk.end - chunk.start;
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, bytes / 100);
+    }
+
+    private static byte[] readAllBytes(File file) throws IOException {
+        long length = file.length();
+        if (length > PARALLEL_PARSE_MAX_FILE_SIZE) {
+            throw new IOException("File too large to read at once: " + file.getName());
+        }
+        byte[] data = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Byte range of segment content, starting at a {@code <trkpt} boundary (or at the segment start).
+     */
+    static final class Chunk {
+        final int start;
+        final int end;
+        /** true if the chunk continues the segment of the previous chunk */
+        final boolean continuesSegment;
+
+        Chunk(int start, int end, boolean continuesSegment) {
+            this.start = start;
+            this.end = end;
+            this.continuesSegment = continuesSegment;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Parts of a GPX document that {@link GPXParser} should read.
+ * <p>
+ * A parse projection is a set of these values. Elements that are not part of the projection
+ * are passed over with {@code skip()} without reading their content, and per-point fields that
+ * are not requested are never allocated. Latitude and longitude of a point are always read.
+ */
+public enum GpxProjection {
+    /**
+     * The {@code <metadata>} element.
+     */
+    METADATA,
+
+    /**
+     * All {@code <wpt>} elements.
+     */
+    WAY_POINTS,
+
+    /**
+     * All {@code <rte>} elements.
+     */
+    ROUTES,
+
+    /**
+     * All {@code <trk>} elements with their segments and track points.
+     */
+    TRACKS,
+
+    /**
+     * The {@code <ele>} element of every point.
+     */
+    POINT_ELEVATION,
+
+    /**
+     * The {@code <time>} element of every point.
+     */
+    POINT_TIME,
+
+    /**
+     * The {@code <extensions>} element of every point.
+     */
+    POINT_EXTENSIONS,
+
+    /**
+     * Descriptive text of tracks, routes and points:
+     * {@code name}, {@code desc}, {@code cmt}, {@code src}, {@code link}, {@code number}, {@code type} and {@code sym}.
+     */
+    TEXT;
+
+    /**
+     * Every part of the document, the default of {@link GPXParser}.
+     */
+    public static final Set<GpxProjection> ALL = Collections.unmodifiableSet(EnumSet.allOf(GpxProjection.class));
+
+    /**
+     * Only what the chart pipeline uses: track point coordinates, elevation and time.
+     */
+    public static final Set<GpxProjection> TRACK_POINTS = Collections.unmodifiableSet(
+            EnumSet.of(TRACKS, POINT_ELEVATION, POINT_TIME));
+}
@@ -0,0 +1,52 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Position in a growing GPX file up to which all track points have been read,
+ * see {@link GpxTrackPointScanner#scanTail}.
+ * <p>
+ * A checkpoint always lies right after the end tag of a track point, inside its track segment.
+ * To notice files that were replaced instead of appended, the CRC32 of the {@value #HASHED_BYTES}
+ * bytes before the checkpoint is kept and compared when the scan resumes.
+ *
+ * @param offset Byte offset after the last read track point, 0 if nothing has been read yet.
+ * @param hash   CRC32 of the bytes before {@code offset}.
+ */
+public record GpxScanCheckpoint(long offset, long hash) {
+
+    /**
+     * Checkpoint of a file from which nothing has been read yet.
+     */
+    public static final GpxScanCheckpoint START = new GpxScanCheckpoint(0, 0);
+
+    static final int HASHED_BYTES = 4 * 1024;
+
+    static GpxScanCheckpoint of(FileChannel channel, long offset) throws IOException {
+        return new GpxScanCheckpoint(offset, hash(channel, offset));
+    }
+
+    /**
+     * @return true if the channel still holds the bytes this checkpoint was taken on
+     */
+    boolean matches(FileChannel channel, long size) throws IOException {
+        return offset == 0 || (offset <= size && hash == hash(channel, offset));
+    }
+
+    private static long hash(FileChannel channel, long offset) throws IOException {
+        int length = (int) Math.min(offset, HASHED_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offset - length;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,16 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
+
+/**
+ * Result of {@link GpxTrackPointScanner#scanTail}.
+ *
+ * @param block      The track points completed since the previous checkpoint. Unless {@code fromStart}
+ *                   is set, it is meant to be appended to the points read before.
+ * @param checkpoint The checkpoint to resume the next scan from.
+ * @param fromStart  True if the file did not continue the previous checkpoint, e.g. because it was
+ *                   replaced, and was read again from its beginning. The block then holds all points
+ *                   of the file and replaces the points read before.
+ */
+public record GpxTailScan(TrackColumnsBlock block, GpxScanCheckpoint checkpoint, boolean fromStart) {
+}
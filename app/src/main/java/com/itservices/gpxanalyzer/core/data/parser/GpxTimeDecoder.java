@@ -0,0 +1,254 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+/**
+ * Allocation-free decoder of GPX ({@code xsd:dateTime}) timestamps into epoch milliseconds.
+ * <p>
+ * Supported forms:
+ * <ul>
+ *     <li>{@code 2025-01-21T09:14:49Z}</li>
+ *     <li>{@code 2025-01-21T09:14:49.123Z} (any number of fraction digits, truncated to milliseconds)</li>
+ *     <li>{@code 2025-01-21T10:14:49+01:00}, {@code +0100}, {@code +01}</li>
+ *     <li>{@code 2025-01-21T09:14:49} (no zone designator, interpreted as UTC as required by the GPX schema)</li>
+ * </ul>
+ * The decoder works directly on a character range (e.g. the buffer returned by
+ * {@code XmlPullParser.getTextCharacters(int[])}), creates no {@code DateTime}, no formatter
+ * and no intermediate {@code String}. It keeps no shared mutable state and is therefore safe to use
+ * from many threads.
+ */
+public final class GpxTimeDecoder {
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_MINUTE = 60L;
+    private static final long SECONDS_PER_HOUR = 3600L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private static final int SCRATCH_LENGTH = 64;
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[SCRATCH_LENGTH]);
+
+    private GpxTimeDecoder() {
+    }
+
+    /**
+     * Decodes a timestamp held in a {@link CharSequence}.
+     *
+     * @param text The timestamp text, leading and trailing whitespace is ignored.
+     * @return Epoch time in milliseconds.
+     * @throws IllegalArgumentException If the text is not a supported timestamp.
+     */
+    public static long parseMillis(CharSequence text) {
+        int length = text.length();
+        char[] buffer = length <= SCRATCH_LENGTH ? SCRATCH.get() : new char[length];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = text.charAt(i);
+        }
+        return parseMillis(buffer, 0, length);
+    }
+
+    /**
+     * Decodes a timestamp held in a range of a character buffer.
+     *
+     * @param buffer The character buffer.
+     * @param start  Index of the first character of the timestamp.
+     * @param length Number of characters in the range, leading and trailing whitespace is ignored.
+     * @return Epoch time in milliseconds.
+     * @throws IllegalArgumentException If the range is not a supported timestamp.
+     */
+    public static long parseMillis(char[] buffer, int start, int length) {
+        int end = start + length;
+        while (start < end && isWhitespace(buffer[start])) start++;
+        while (end > start && isWhitespace(buffer[end - 1])) end--;
+
+        // fixed part: yyyy-MM-ddTHH:mm:ss
+        if (end - start < 19
+                || buffer[start + 4] != '-' || buffer[start + 7] != '-'
+                || (buffer[start + 10] != 'T' && buffer[start + 10] != 't')
+                || buffer[start + 13] != ':' || buffer[start + 16] != ':') {
+            throw invalid(buffer, start, end);
+        }
+
+        int year = digits(buffer, start, 4);
+        int month = digits(buffer, start + 5, 2);
+        int day = digits(buffer, start + 8, 2);
+        int hour = digits(buffer, start + 11, 2);
+        int minute = digits(buffer, start + 14, 2);
+        int second = digits(buffer, start + 17, 2);
+
+        if (!isValid(year, month, day, hour, minute, second)) {
+            throw invalid(buffer, start, end);
+        }
+
+        int pos = start + 19;
+
+        int millis = 0;
+        if (pos < end && buffer[pos] == '.') {
+            pos++;
+            int fractionStart = pos;
+            int scale = 100;
+            while (pos < end && isDigit(buffer[pos])) {
+                millis += (buffer[pos] - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+            if (pos == fractionStart) {
+                throw invalid(buffer, start, end);
+            }
+        }
+
+        long offsetSeconds = 0;
+        if (pos < end) {
+            char zone = buffer[pos];
+            if (zone == 'Z' || zone == 'z') {
+                pos++;
+            } else if (zone == '+' || zone == '-') {
+                int offsetHours;
+                int offsetMinutes;
+                switch (end - pos - 1) {
+                    case 2: // +HH
+                        offsetHours = digits(buffer, pos + 1, 2);
+                        offsetMinutes = 0;
+                        break;
+                    case 4: // +HHmm
+                        offsetHours = digits(buffer, pos + 1, 2);
+                        offsetMinutes = digits(buffer, pos + 3, 2);
+                        break;
+                    case 5: // +HH:mm
+                        offsetHours = buffer[pos + 3] == ':' ? digits(buffer, pos + 1, 2) : -1;
+                        offsetMinutes = digits(buffer, pos + 4, 2);
+                        break;
+                    default:
+                        throw invalid(buffer, start, end);
+                }
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    throw invalid(buffer, start, end);
+                }
+                offsetSeconds = offsetHours * SECONDS_PER_HOUR + offsetMinutes * SECONDS_PER_MINUTE;
+                if (zone == '-') {
+                    offsetSeconds = -offsetSeconds;
+                }
+                pos = end;
+            }
+        }
+        if (pos != end) {
+            throw invalid(buffer, start, end);
+        }
+
+        return toEpochMillis(year, month, day, hour, minute, second, millis, offsetSeconds);
+    }
+
+    /**
+     * Decodes a timestamp held in a range of an ASCII (UTF-8) byte buffer.
+     * The canonical GPX form {@code yyyy-MM-ddTHH:mm:ssZ} is decoded straight from the bytes,
+     * other forms are widened into a per-thread scratch buffer and decoded by
+     * {@link #parseMillis(char[], int, int)}.
+     *
+     * @param buffer The byte buffer.
+     * @param start  Index of the first byte of the timestamp.
+     * @param length Number of bytes in the range.
+     * @return Epoch time in milliseconds.
+     * @throws IllegalArgumentException If the range is not a supported timestamp.
+     */
+    public static long parseMillis(byte[] buffer, int start, int length) {
+        if (length == 20
+                && buffer[start + 4] == '-' && buffer[start + 7] == '-' && buffer[start + 10] == 'T'
+                && buffer[start + 13] == ':' && buffer[start + 16] == ':' && buffer[start + 19] == 'Z') {
+            int year = digits(buffer, start, 4);
+            int month = digits(buffer, start + 5, 2);
+            int day = digits(buffer, start + 8, 2);
+            int hour = digits(buffer, start + 11, 2);
+            int minute = digits(buffer, start + 14, 2);
+            int second = digits(buffer, start + 17, 2);
+            if (isValid(year, month, day, hour, minute, second)) {
+                return toEpochMillis(year, month, day, hour, minute, second, 0, 0);
+            }
+        }
+
+        char[] chars = length <= SCRATCH_LENGTH ? SCRATCH.get() : new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer[start + i] & 0xFF);
+        }
+        return parseMillis(chars, 0, length);
+    }
+
+    private static boolean isValid(int year, int month, int day, int hour, int minute, int second) {
+        return (year | month | day | hour | minute | second) >= 0
+                && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+                && hour <= 23 && minute <= 59 && second <= 59;
+    }
+
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second,
+                                      int millis, long offsetSeconds) {
+        long epochSeconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY
+                + hour * SECONDS_PER_HOUR
+                + minute * SECONDS_PER_MINUTE
+                + second
+                - offsetSeconds;
+
+        return epochSeconds * MILLIS_PER_SECOND + millis;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date.
+     * Based on the well-known "days from civil" algorithm by Howard Hinnant.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return the decimal value of {@code count} digits starting at {@code pos}, or -1 if any is not a digit
+     */
+    private static int digits(char[] buffer, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = buffer[i];
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int digits(byte[] buffer, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static IllegalArgumentException invalid(char[] buffer, int start, int end) {
+        return new IllegalArgumentException("Invalid GPX time format: \"" + new String(buffer, start, end - start) + "\"");
+    }
+}
@@ -0,0 +1,661 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import androidx.annotation.Nullable;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+
+/**
+ * Byte-level scanner of GPX track points, an alternative to {@link GPXParser#parseTrackColumns}
+ * for the track-point-only use case.
+ * <p>
+ * The file is memory-mapped ({@link FileChannel#map}) and scanned as UTF-8 bytes. Element names
+ * ({@code trkseg}, {@code trkpt}, {@code ele}, {@code time}, {@code extensions/speed}) are recognised
+ * by byte matching on their local name, and numbers and timestamps are decoded straight from the
+ * bytes. No {@code Reader}, tag-name {@code String}s or boxed values are created.
+ * <p>
+ * The scanner gives the same result as {@link GPXParser#parseTrackColumns}. Input it does not handle
+ * (UTF-16, comments, CDATA, DOCTYPE, missing coordinates, malformed numbers or structure) makes
+ * the scan methods return null, and callers then fall back to {@link GPXParser}.
+ */
+public final class GpxTrackPointScanner {
+    private static final byte[] NAME_TRACK_SEGMENT = ascii("trkseg");
+    private static final byte[] NAME_TRACK_POINT = ascii("trkpt");
+    private static final byte[] NAME_ELEVATION = ascii("ele");
+    private static final byte[] NAME_TIME = ascii("time");
+    private static final byte[] NAME_EXTENSIONS = ascii("extensions");
+    private static final byte[] NAME_SPEED = ascii("speed");
+    private static final byte[] NAME_LAT = ascii("lat");
+    private static final byte[] NAME_LON = ascii("lon");
+
+    /**
+     * Largest mantissa that is exactly representable as a double (2^53).
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    @Inject
+    GpxTrackPointScanner() {
+    }
+
+    /**
+     * Memory-maps and scans the file.
+     *
+     * @param file The GPX file.
+     * @return Columns holding every track point of every track in document order, or null if the
+     * content needs the {@link GPXParser} fallback.
+     */
+    @Nullable
+    public TrackColumns scan(File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            return scan(inputStream.getChannel(), 0, file.length());
+        }
+    }
+
+    /**
+     * Memory-maps and scans a region of a channel, e.g. an uncompressed raw resource inside the APK.
+     *
+     * @return The track columns, or null if the content needs the {@link GPXParser} fallback.
+     */
+    @Nullable
+    public TrackColumns scan(FileChannel channel, long position, long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            return null;
+        }
+        return scan(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    /**
+     * Scans a complete GPX document.
+     *
+     * @return The track columns, or null if the content needs the {@link GPXParser} fallback.
+     */
+    @Nullable
+    static TrackColumns scan(ByteBuffer buffer) {
+        int capacityEstimate = buffer.remaining() / 120;
+        return new ByteScanner(buffer, new TrackColumns(capacityEstimate), false).scan();
+    }
+
+    /**
+     * Incremental scan of a file that is still being written, e.g. by a recording app.
+     * <p>
+     * Only the bytes after the checkpoint are read, up to the end tag of the last complete track point,
+     * so a partially written point at the end of the file is left for the next scan. A missing end of
+     * the document is fine. If the file does not continue the checkpoint any more, it is read again
+     * from its beginning.
+     *
+     * @param file       The GPX file.
+     * @param checkpoint The checkpoint of the previous scan of the file, or {@link GpxScanCheckpoint#START}.
+     * @return The new track points and the checkpoint to resume from, or null if the content needs
+     * the {@link GPXParser} fallback.
+     */
+    @Nullable
+    public GpxTailScan scanTail(File file, GpxScanCheckpoint checkpoint) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file);
+             FileChannel channel = inputStream.getChannel()) {
+            long size = channel.size();
+            boolean fromStart = !checkpoint.matches(channel, size);
+            long offset = fromStart ? 0 : checkpoint.offset();
+            if (size - offset > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, offset, size - offset);
+            int end = lastTrackPointEnd(tail);
+            if (end < 0) {
+                return new GpxTailScan(new TrackColumnsBlock(new TrackColumns(0), offset > 0),
+                        fromStart ? GpxScanCheckpoint.START : checkpoint, fromStart);
+            }
+
+            tail.limit(end);
+            TrackColumns columns = scanTail(tail, offset > 0);
+            if (columns == null) {
+                return null;
+            }
+            return new GpxTailScan(new TrackColumnsBlock(columns, offset > 0),
+                    GpxScanCheckpoint.of(channel, offset + end), fromStart);
+        }
+    }
+
+    /**
+     * Scans a part of a document that ends right after a track point.
+     *
+     * @param inSegment true if the part starts inside a track segment. The columns then start with
+     *                  a segment continuing it, which stays empty if a new segment opens first.
+     */
+    @Nullable
+    static TrackColumns scanTail(ByteBuffer buffer, boolean inSegment) {
+        int capacityEstimate = buffer.remaining() / 120;
+        return new ByteScanner(buffer, new TrackColumns(capacityEstimate), inSegment).scan();
+    }
+
+    /**
+     * Searches backwards for the last complete track point, i.e. its end tag or self-closed start tag.
+     *
+     * @return the position after the closing {@code >} of the track point, or -1 if there is none
+     */
+    static int lastTrackPointEnd(ByteBuffer buffer) {
+        int close = buffer.limit() - 1;
+        while (close >= 0) {
+            while (close >= 0 && buffer.get(close) != '>') {
+                close--;
+            }
+            int open = close - 1;
+            while (open >= 0 && buffer.get(open) != '<') {
+                open--;
+            }
+            if (open < 0) {
+                return -1;
+            }
+            if (isTrackPointEnd(buffer, open, close)) {
+                return close + 1;
+            }
+            close = open - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the tag between {@code open} ('<') and {@code close} ('>') ends a track point
+     */
+    private static boolean isTrackPointEnd(ByteBuffer buffer, int open, int close) {
+        int nameStart;
+        if (buffer.get(open + 1) == '/') {
+            nameStart = open + 2;
+        } else if (buffer.get(close - 1) == '/') {
+            nameStart = open + 1;
+        } else {
+            return false;
+        }
+
+        int nameEnd = nameStart;
+        while (nameEnd < close) {
+            byte b = buffer.get(nameEnd);
+            if (ByteScanner.isWhitespace(b) || b == '/') {
+                break;
+            }
+            if (b == ':') {
+                nameStart = nameEnd + 1;
+            }
+            nameEnd++;
+        }
+
+        if (nameEnd - nameStart != NAME_TRACK_POINT.length) {
+            return false;
+        }
+        for (int i = 0; i < NAME_TRACK_POINT.length; i++) {
+            if (buffer.get(nameStart + i) != NAME_TRACK_POINT[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Single-use scanning state over one buffer.
+     * <p>
+     * The source buffer is bulk-copied through a small reusable window, since absolute
+     * {@link ByteBuffer#get(int)} on a mapped buffer is several times slower than array access.
+     * The window always holds at least {@link #LOOKAHEAD} bytes after the start of the current tag,
+     * so a single element never crosses the window end. Every method returning boolean returns false
+     * when the input is not supported.
+     */
+    private static final class ByteScanner {
+        private static final int WINDOW_SIZE = 256 * 1024;
+        private static final int LOOKAHEAD = 64 * 1024;
+
+        private final ByteBuffer source;
+        private final byte[] buf = new byte[WINDOW_SIZE];
+        private final TrackColumns columns;
+        private final boolean startsInSegment;
+
+        private int pos;
+        private int limit;
+
+        // bounds of the last read name and whether the last skipped tag was self closed
+        private int nameStart;
+        private int nameEnd;
+        private boolean selfClosed;
+
+        // values of the track point being scanned
+        private double lat;
+        private double lon;
+        private double ele;
+        private long time;
+        private double speed;
+
+        ByteScanner(ByteBuffer buffer, TrackColumns columns, boolean startsInSegment) {
+            this.source = buffer.duplicate();
+            this.columns = columns;
+            this.startsInSegment = startsInSegment;
+        }
+
+        @Nullable
+        TrackColumns scan() {
+            refill();
+            if (limit - pos < 2 || buf[pos] == 0 || buf[pos + 1] == 0
+                    || (buf[pos] & 0xFF) == 0xFE || (buf[pos] & 0xFF) == 0xFF) {
+                // empty or UTF-16 encoded document
+                return null;
+            }
+            boolean inSegment = startsInSegment;
+            if (inSegment) {
+                columns.beginSegment();
+            }
+
+            while (true) {
+                int tagStart = indexOf('<', pos);
+                if (tagStart < 0) {
+                    if (!source.hasRemaining()) {
+                        break;
+                    }
+                    // text longer than the window, drop it and continue with fresh bytes
+                    pos = limit;
+                    refill();
+                    continue;
+                }
+                pos = tagStart;
+                if (limit - pos < LOOKAHEAD) {
+                    refill();
+                }
+
+                pos++;
+                if (pos >= limit) {
+                    return null;
+                }
+                byte b = buf[pos];
+                if (b == '?') {
+                    if (!skipProcessingInstruction()) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (b == '!') {
+                    // comment, CDATA or DOCTYPE
+                    return null;
+                }
+                boolean endTag = b == '/';
+                if (endTag) {
+                    pos++;
+                }
+                readName();
+
+                if (localNameEquals(NAME_TRACK_POINT) && !endTag) {
+                    if (!inSegment || !readTrackPoint()) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (!skipTag()) {
+                    return null;
+                }
+                if (localNameEquals(NAME_TRACK_SEGMENT)) {
+                    if (endTag) {
+                        inSegment = false;
+                    } else {
+                        columns.beginSegment();
+                        inSegment = !selfClosed;
+                    }
+                }
+            }
+
+            columns.trimToSize();
+            return columns;
+        }
+
+        /**
+         * Drops the bytes before {@link #pos} and tops the window up from the source buffer.
+         */
+        private void refill() {
+            int kept = limit - pos;
+            System.arraycopy(buf, pos, buf, 0, kept);
+            pos = 0;
+            limit = kept;
+
+            int count = Math.min(buf.length - limit, source.remaining());
+            source.get(buf, limit, count);
+            limit += count;
+        }
+
+        /**
+         * Reads the {@code trkpt} element whose name was just read, including its end tag.
+         */
+        private boolean readTrackPoint() {
+            lat = Double.NaN;
+            lon = Double.NaN;
+            ele = Double.NaN;
+            time = TrackColumns.NO_TIME;
+            speed = Double.NaN;
+
+            if (!readTrackPointAttributes()) {
+                return false;
+            }
+            if (selfClosed) {
+                columns.addPoint(lat, lon, ele, time, speed);
+                return true;
+            }
+
+            int depth = 0;
+            boolean inExtensions = false;
+            while ((pos = indexOf('<', pos)) >= 0) {
+                pos++;
+                if (pos >= limit) {
+                    return false;
+                }
+                byte b = buf[pos];
+                if (b == '!') {
+                    return false;
+                }
+                if (b == '?') {
+                    if (!skipProcessingInstruction()) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (b == '/') {
+                    pos++;
+                    readName();
+                    if (!skipTag()) {
+                        return false;
+                    }
+                    if (depth == 0) {
+                        if (!localNameEquals(NAME_TRACK_POINT)) {
+                            return false;
+                        }
+                        columns.addPoint(lat, lon, ele, time, speed);
+                        return true;
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        inExtensions = false;
+                    }
+                    continue;
+                }
+
+                readName();
+                if (!skipTag()) {
+                    return false;
+                }
+                if (depth == 0) {
+                    if (localNameEquals(NAME_ELEVATION)) {
+                        if (selfClosed || !readElevation()) {
+                            return false;
+                        }
+                    } else if (localNameEquals(NAME_TIME)) {
+                        if (!selfClosed && !readTime()) {
+                            return false;
+                        }
+                    } else if (localNameEquals(NAME_EXTENSIONS)) {
+                        inExtensions = !selfClosed;
+                    }
+                } else if (depth == 1 && inExtensions && localNameEquals(NAME_SPEED)) {
+                    if (selfClosed) {
+                        speed = 0.0;
+                    } else if (!readSpeed()) {
+                        return false;
+                    }
+                }
+                if (!selfClosed) {
+                    depth++;
+                }
+            }
+            return false;
+        }
+
+        private boolean readTrackPointAttributes() {
+            while (pos < limit) {
+                byte b = buf[pos];
+                if (isWhitespace(b)) {
+                    pos++;
+                } else if (b == '>') {
+                    pos++;
+                    selfClosed = false;
+                    return !Double.isNaN(lat) && !Double.isNaN(lon);
+                } else if (b == '/') {
+                    if (pos + 1 >= limit || buf[pos + 1] != '>') {
+                        return false;
+                    }
+                    pos += 2;
+                    selfClosed = true;
+                    return !Double.isNaN(lat) && !Double.isNaN(lon);
+                } else {
+                    readName();
+                    while (pos < limit && isWhitespace(buf[pos])) pos++;
+                    if (pos >= limit || buf[pos] != '=') {
+                        return false;
+                    }
+                    pos++;
+                    while (pos < limit && isWhitespace(buf[pos])) pos++;
+                    if (pos >= limit) {
+                        return false;
+                    }
+                    byte quote = buf[pos];
+                    if (quote != '"' && quote != '\'') {
+                        return false;
+                    }
+                    int valueStart = pos + 1;
+                    int valueEnd = indexOf(quote, valueStart);
+                    if (valueEnd < 0) {
+                        return false;
+                    }
+                    if (nameEquals(NAME_LAT)) {
+                        lat = parseDouble(valueStart, valueEnd);
+                        if (Double.isNaN(lat)) {
+                            return false;
+                        }
+                    } else if (nameEquals(NAME_LON)) {
+                        lon = parseDouble(valueStart, valueEnd);
+                        if (Double.isNaN(lon)) {
+                            return false;
+                        }
+                    }
+                    pos = valueEnd + 1;
+                }
+            }
+            return false;
+        }
+
+        private boolean readElevation() {
+            int textEnd = indexOf('<', pos);
+            if (textEnd < 0) {
+                return false;
+            }
+            ele = parseDouble(pos, textEnd);
+            pos = textEnd;
+            return !Double.isNaN(ele);
+        }
+
+        private boolean readSpeed() {
+            int textEnd = indexOf('<', pos);
+            if (textEnd < 0) {
+                return false;
+            }
+            speed = parseDouble(pos, textEnd);
+            if (Double.isNaN(speed)) {
+                // same as GPXParser: unparsable speed defaults to 0.0
+                speed = 0.0;
+            }
+            pos = textEnd;
+            return true;
+        }
+
+        private boolean readTime() {
+            int textEnd = indexOf('<', pos);
+            if (textEnd < 0) {
+                return false;
+            }
+            int length = textEnd - pos;
+            if (length == 0) {
+                return true;
+            }
+            try {
+                time = GpxTimeDecoder.parseMillis(buf, pos, length);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            pos = textEnd;
+            return true;
+        }
+
+        /**
+         * Parses a decimal number the way {@link Double#parseDouble(String)} does.
+         * Common GPX values (at most 15-16 significant digits, small exponents) take an exact fast path:
+         * an exactly representable mantissa divided or multiplied by an exactly representable power of ten
+         * is correctly rounded by IEEE 754, hence bit-identical to {@link Double#parseDouble(String)}.
+         *
+         * @return The value or {@link Double#NaN} if the range is not a number.
+         */
+        private double parseDouble(int start, int end) {
+            while (start < end && (buf[start] & 0xFF) <= ' ') start++;
+            while (end > start && (buf[end - 1] & 0xFF) <= ' ') end--;
+            if (start == end) {
+                return Double.NaN;
+            }
+
+            int i = start;
+            boolean negative = false;
+            byte b = buf[i];
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                i++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int dot = -1;
+            for (; i < end; i++) {
+                int digit = buf[i] - '0';
+                if (digit >= 0 && digit <= 9) {
+                    mantissa = mantissa * 10 + digit;
+                    digits++;
+                } else if (buf[i] == '.' && dot < 0) {
+                    dot = i;
+                } else {
+                    return parseDoubleSlow(start, end);
+                }
+            }
+            // up to 18 digits cannot overflow a long
+            int fractionDigits = dot < 0 ? 0 : end - dot - 1;
+            if (digits == 0 || digits > 18 || mantissa > MAX_EXACT_MANTISSA
+                    || fractionDigits >= POWERS_OF_TEN.length) {
+                return parseDoubleSlow(start, end);
+            }
+
+            double value = fractionDigits == 0 ? (double) mantissa : (double) mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        private double parseDoubleSlow(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buf[start + i];
+            }
+            try {
+                return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private void readName() {
+            nameStart = pos;
+            while (pos < limit) {
+                byte b = buf[pos];
+                if ((b & 0xFF) <= ' ' || b == '>' || b == '/' || b == '=') {
+                    break;
+                }
+                pos++;
+            }
+            nameEnd = pos;
+        }
+
+        /**
+         * Moves after the '>' of the current tag, honouring quoted attribute values.
+         */
+        private boolean skipTag() {
+            byte quote = 0;
+            while (pos < limit) {
+                byte b = buf[pos++];
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '>') {
+                    selfClosed = buf[pos - 2] == '/';
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean skipProcessingInstruction() {
+            while ((pos = indexOf('>', pos)) >= 0) {
+                pos++;
+                if (buf[pos - 2] == '?') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean nameEquals(byte[] name) {
+            return regionEquals(nameStart, nameEnd, name);
+        }
+
+        /**
+         * Compares the local part of the last read name, i.e. ignoring any namespace prefix,
+         * as {@link GPXParser} does with namespace processing enabled.
+         */
+        private boolean localNameEquals(byte[] name) {
+            int localStart = nameEnd - name.length;
+            if (localStart < nameStart || (localStart > nameStart && buf[localStart - 1] != ':')) {
+                return false;
+            }
+            return regionEquals(localStart, nameEnd, name);
+        }
+
+        private boolean regionEquals(int start, int end, byte[] name) {
+            if (end - start != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (buf[start + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(int value, int from) {
+            for (int i = from; i < limit; i++) {
+                byte b = buf[i];
+                if (b == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
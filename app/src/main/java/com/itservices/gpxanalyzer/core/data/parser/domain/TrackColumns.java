@@ -0,0 +1,278 @@
+package com.itservices.gpxanalyzer.core.data.parser.domain;
+
+import java.util.Arrays;
+
+/**
+ * Columnar, primitive-only storage of GPX track points.
+ * <p>
+ * Filled directly by the streaming parse mode of the GPX parser, so no intermediate
+ * {@link Gpx} / {@link Track} / {@link TrackSegment} / {@link TrackPoint} tree is created.
+ * Every point occupies one slot in each column; segment boundaries are kept as start
+ * indexes so that consumers can still iterate segment by segment.
+ * <p>
+ * Missing optional values are stored as {@link Double#NaN} (elevation, speed)
+ * or {@link #NO_TIME} (time).
+ * <p>
+ * Thread safety: This class is not thread-safe. It is filled by a single parser thread
+ * and then handed over read-only to consumers.
+ */
+public final class TrackColumns {
+
+    /** Marker stored in the time column when a point has no {@code <time>} element. */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int size = 0;
+    private long[] timeMillis;
+    private double[] latitude;
+    private double[] longitude;
+    private double[] elevation;
+    private double[] speed;
+
+    private int segmentCount = 0;
+    private int[] segmentStart = new int[4];
+
+    public TrackColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity expected number of points, used to pre-size the columns
+     */
+    public TrackColumns(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        timeMillis = new long[capacity];
+        latitude = new double[capacity];
+        longitude = new double[capacity];
+        elevation = new double[capacity];
+        speed = new double[capacity];
+    }
+
+    /**
+     * Creates columns backed by the given arrays, which are used as they are without copying.
+     * All point columns must have the same length and the segment starts must be non-decreasing
+     * indexes within the columns, with the first segment starting at 0.
+     *
+     * @throws IllegalArgumentException if the arrays do not describe valid columns
+     */
+    public static TrackColumns of(long[] timeMillis, double[] latitude, double[] longitude,
+                                  double[] elevation, double[] speed, int[] segmentStarts) {
+        int size = timeMillis.length;
+        if (latitude.length != size || longitude.length != size || elevation.length != size || speed.length != size) {
+            throw new IllegalArgumentException("Column lengths differ");
+        }
+        if (size > 0 && (segmentStarts.length == 0 || segmentStarts[0] != 0)) {
+            throw new IllegalArgumentException("Points outside of a segment");
+        }
+        for (int s = 0; s < segmentStarts.length; s++) {
+            if (segmentStarts[s] < (s == 0 ? 0 : segmentStarts[s - 1]) || segmentStarts[s] > size) {
+                throw new IllegalArgumentException("Invalid segment start at " + s);
+            }
+        }
+
+        TrackColumns columns = new TrackColumns(0);
+        columns.size = size;
+        columns.timeMillis = timeMillis;
+        columns.latitude = latitude;
+        columns.longitude = longitude;
+        columns.elevation = elevation;
+        columns.speed = speed;
+        columns.segmentCount = segmentStarts.length;
+        columns.segmentStart = segmentStarts.length > 0 ? segmentStarts : new int[1];
+        return columns;
+    }
+
+    /**
+     * Opens a new track segment. Points added afterwards belong to this segment.
+     */
+    public void beginSegment() {
+        if (segmentCount == segmentStart.length) {
+            segmentStart = Arrays.copyOf(segmentStart, segmentCount * 2);
+        }
+        segmentStart[segmentCount++] = size;
+    }
+
+    /**
+     * Appends a point to the current segment. A segment is opened implicitly
+     * if none has been started yet.
+     */
+    public void addPoint(double lat, double lon, double ele, long time, double spd) {
+        if (segmentCount == 0) {
+            beginSegment();
+        }
+        ensureCapacity(size + 1);
+
+        latitude[size] = lat;
+        longitude[size] = lon;
+        elevation[size] = ele;
+        timeMillis[size] = time;
+        speed[size] = spd;
+        size++;
+    }
+
+    /**
+     * Appends all points and segments of {@code other} after the points of this instance.
+     *
+     * @param other             columns to append
+     * @param continueSegment   if true, the first segment of {@code other} continues the current
+     *                          last segment of this instance instead of opening a new one
+     */
+    public void append(TrackColumns other, boolean continueSegment) {
+        ensureCapacity(size + other.size);
+
+        for (int s = 0; s < other.segmentCount; s++) {
+            if (s == 0 && continueSegment && segmentCount > 0) {
+                continue;
+            }
+            beginSegment();
+            segmentStart[segmentCount - 1] = size + other.segmentStart[s];
+        }
+
+        System.arraycopy(other.timeMillis, 0, timeMillis, size, other.size);
+        System.arraycopy(other.latitude, 0, latitude, size, other.size);
+        System.arraycopy(other.longitude, 0, longitude, size, other.size);
+        System.arraycopy(other.elevation, 0, elevation, size, other.size);
+        System.arraycopy(other.speed, 0, speed, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Copies the points {@code [from, to)} together with the segments starting inside the range.
+     * Empty segments at the very end of this instance are copied along with the last range.
+     * <p>
+     * If no segment starts at {@code from}, the copy begins with a segment that continues the
+     * segment of point {@code from - 1}; appending it with {@code continueSegment = true}
+     * restores the original layout.
+     *
+     * @return a new instance holding the copied range
+     */
+    public TrackColumns copyOfRange(int from, int to) {
+        TrackColumns range = new TrackColumns(to - from);
+
+        for (int s = 0; s < segmentCount; s++) {
+            int start = segmentStart[s];
+            if (start < from) {
+                continue;
+            }
+            if (start > to || (start == to && to < size)) {
+                break;
+            }
+            if (range.segmentCount == 0 && start > from) {
+                // the range starts inside the segment of point from - 1
+                range.beginSegment();
+            }
+            range.beginSegment();
+            range.segmentStart[range.segmentCount - 1] = start - from;
+        }
+        if (range.segmentCount == 0 && to > from) {
+            range.beginSegment();
+        }
+
+        System.arraycopy(timeMillis, from, range.timeMillis, 0, to - from);
+        System.arraycopy(latitude, from, range.latitude, 0, to - from);
+        System.arraycopy(longitude, from, range.longitude, 0, to - from);
+        System.arraycopy(elevation, from, range.elevation, 0, to - from);
+        System.arraycopy(speed, from, range.speed, 0, to - from);
+        range.size = to - from;
+
+        return range;
+    }
+
+    /**
+     * @return true if a segment starts exactly at point {@code index}
+     */
+    public boolean isSegmentStart(int index) {
+        for (int s = 0; s < segmentCount; s++) {
+            if (segmentStart[s] == index) {
+                return true;
+            }
+            if (segmentStart[s] > index) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the unused tail capacity of every column.
+     */
+    public void trimToSize() {
+        if (timeMillis.length == size) {
+            return;
+        }
+        timeMillis = Arrays.copyOf(timeMillis, size);
+        latitude = Arrays.copyOf(latitude, size);
+        longitude = Arrays.copyOf(longitude, size);
+        elevation = Arrays.copyOf(elevation, size);
+        speed = Arrays.copyOf(speed, size);
+        segmentStart = Arrays.copyOf(segmentStart, Math.max(1, segmentCount));
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= timeMillis.length) {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, timeMillis.length + (timeMillis.length >> 1));
+        timeMillis = Arrays.copyOf(timeMillis, newCapacity);
+        latitude = Arrays.copyOf(latitude, newCapacity);
+        longitude = Arrays.copyOf(longitude, newCapacity);
+        elevation = Arrays.copyOf(elevation, newCapacity);
+        speed = Arrays.copyOf(speed, newCapacity);
+    }
+
+    /**
+     * @return the number of points in all segments
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return index of the first point of the segment (inclusive)
+     */
+    public int getSegmentStartIndex(int segment) {
+        return segmentStart[segment];
+    }
+
+    /**
+     * @return index after the last point of the segment (exclusive)
+     */
+    public int getSegmentEndIndex(int segment) {
+        return segment + 1 < segmentCount ? segmentStart[segment + 1] : size;
+    }
+
+    public long getTimeMillis(int index) {
+        return timeMillis[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    /**
+     * @return elevation in meters or {@link Double#NaN} if the point has none
+     */
+    public double getElevation(int index) {
+        return elevation[index];
+    }
+
+    /**
+     * @return speed from the point extensions or {@link Double#NaN} if the point has none
+     */
+    public double getSpeed(int index) {
+        return speed[index];
+    }
+}
@@ -0,0 +1,14 @@
+package com.itservices.gpxanalyzer.core.data.parser.domain;
+
+/**
+ * A consecutive part of the track points of a document, as emitted by the progressive parse modes.
+ * <p>
+ * Appending the blocks in emission order with {@link TrackColumns#append(TrackColumns, boolean)}
+ * yields the same columns as a complete parse of the document.
+ *
+ * @param columns          the points and segments of this block
+ * @param continuesSegment true if the first segment of {@code columns} continues the last segment
+ *                         of the previous block instead of starting a new one
+ */
+public record TrackColumnsBlock(TrackColumns columns, boolean continuesSegment) {
+}
@@ -2,20 +2,30 @@ package com.itservices.gpxanalyzer.core.data.provider;
 
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.NEW_DATA_LOADING;
 
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
 import com.itservices.gpxanalyzer.feature.gpxchart.data.provider.file.GpxFileDataEntityProvider;
 import com.itservices.gpxanalyzer.core.events.GlobalEventWrapper;
 import com.itservices.gpxanalyzer.core.data.cache.rawdata.DataEntityCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.LoadDataCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.RecentTrackCache;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
 import com.itservices.gpxanalyzer.feature.gpxlist.domain.SelectGpxFileUseCase;
 
 import java.io.File;
-import java.util.Vector;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 
 public final class GpxDataEntityCachedProvider {
+    private static final String TAG = GpxDataEntityCachedProvider.class.getSimpleName();
 
     @Inject
     GpxFileDataEntityProvider dataProvider;
@@ -26,19 +36,136 @@ public final class GpxDataEntityCachedProvider {
     @Inject
     DataEntityCache dataEntityCache;
 
+    @Inject
+    LoadDataCache loadDataCache;
+
     @Inject
     GlobalEventWrapper eventWrapper;
 
+    /**
+     * The last selected file, whose appended points are loaded by {@link #provideAppended()}, with its
+     * length when it was selected and the loader following it once it has grown.
+     */
+    @Nullable
+    private File followedFile = null;
+    private long followedFileLength = 0;
+    @Nullable
+    private GpxFileDataEntityProvider.GrowingFileLoader growingFileLoader = null;
+
     @Inject
     public GpxDataEntityCachedProvider() {
     }
 
-    public Single<Vector<DataEntity>> provide() {
+    public Single<List<DataEntity>> provide() {
         return provideDataEntityVector()
                 .map(this::updateDataCache);
     }
 
-    private Vector<DataEntity> updateDataCache(Vector<DataEntity> dataEntityVector) {
+    /**
+     * Progressive variant of {@link #provide()}. A newly selected or default file is loaded block by
+     * block as described in {@link GpxFileDataEntityProvider#provideProgressive(File)}. Data already
+     * in memory needs no loading, so no block is emitted for it. This includes recently opened files
+     * kept by the {@link RecentTrackCache}, which are restored instead of loaded. If a file cannot be
+     * parsed completely, the blocks loaded before the error are kept and the load completes.
+     *
+     * @return An {@link Observable} emitting deferred appends of consecutive blocks, to be subscribed in order.
+     */
+    public Observable<Single<List<DataEntity>>> provideProgressive() {
+        return provideDataEntityBlocks()
+                .doOnComplete(() -> selectGpxFileUseCase.setSelectedFile(null));
+    }
+
+    /**
+     * Loads the points appended to the last selected file since it was loaded, e.g. by a recording app
+     * that is still writing it. Nothing is read while the file keeps the length it had when it was
+     * selected. Once it has grown, it is followed by a {@link GpxFileDataEntityProvider.GrowingFileLoader},
+     * which loads the file completely once and afterwards only the points appended since the previous call.
+     *
+     * @return A {@link Single} emitting the data of the cache, including the appended points if there are any.
+     * If the file cannot be loaded, the data of the cache is emitted unchanged.
+     */
+    public Single<List<DataEntity>> provideAppended() {
+        return Single.defer(() -> {
+            GpxFileDataEntityProvider.GrowingFileLoader loader = getGrowingFileLoader();
+            if (loader == null) {
+                return Single.just(dataEntityCache.getDataEntitityVector());
+            }
+            return loader.loadAppended()
+                    .onErrorReturn(throwable -> {
+                        Log.e(TAG, "Error loading the points appended to " + followedFile, throwable);
+                        return dataEntityCache.getDataEntitityVector();
+                    });
+        });
+    }
+
+    /**
+     * @return the loader of the followed file, or null if no file is followed or it has not grown yet
+     */
+    @Nullable
+    private synchronized GpxFileDataEntityProvider.GrowingFileLoader getGrowingFileLoader() {
+        if (followedFile == null) {
+            return null;
+        }
+        if (growingFileLoader == null) {
+            if (followedFile.length() == followedFileLength) {
+                return null;
+            }
+            growingFileLoader = dataProvider.provideGrowing(followedFile);
+        }
+        return growingFileLoader;
+    }
+
+    private synchronized void follow(@Nullable File file) {
+        followedFile = file;
+        followedFileLength = file != null ? file.length() : 0;
+        growingFileLoader = null;
+    }
+
+    private Observable<Single<List<DataEntity>>> provideDataEntityBlocks() {
+        File selectedFile = selectGpxFileUseCase.getSelectedFile();
+        if (selectedFile != null) {
+            eventWrapper.onNext(NEW_DATA_LOADING);
+            follow(selectedFile);
+            if (loadDataCache.restoreRecent(selectedFile)) {
+                return Observable.empty();
+            }
+            return rememberWhenLoaded(selectedFile, dataProvider.provideProgressive(selectedFile));
+        }
+        if (!dataEntityCache.getDataEntitityVector().isEmpty()) {
+            return Observable.empty();
+        }
+        eventWrapper.onNext(NEW_DATA_LOADING);
+        follow(null);
+        return dataProvider.provideDefaultProgressive();
+    }
+
+    /**
+     * Remembers the file as a recent track once all blocks are appended. As the consumer appends the
+     * blocks one after another, the last append may happen long after the last block was emitted.
+     * A truncated load, failed while parsing or with an append failed or disposed, is not remembered.
+     */
+    private Observable<Single<List<DataEntity>>> rememberWhenLoaded(File file, Observable<Single<List<DataEntity>>> blocks) {
+        return Observable.defer(() -> {
+            AtomicInteger pending = new AtomicInteger(1);
+            Runnable onDone = () -> {
+                if (pending.decrementAndGet() == 0) {
+                    loadDataCache.rememberLoaded(file);
+                }
+            };
+            return blocks
+                    .map(block -> {
+                        pending.incrementAndGet();
+                        return block.doOnSuccess(data -> onDone.run());
+                    })
+                    .doOnComplete(onDone::run)
+                    .onErrorResumeNext(throwable -> {
+                        Log.e(TAG, "Error loading " + file + ", keeping the points loaded so far", throwable);
+                        return Observable.empty();
+                    });
+        });
+    }
+
+    private List<DataEntity> updateDataCache(List<DataEntity> dataEntityVector) {
 
         /**
          * Use selected file once - next time use cached from memory(dataEntityVector or default from rawResId) - don't load twice!
@@ -48,7 +175,7 @@ public final class GpxDataEntityCachedProvider {
 
         return dataEntityVector;
     }
-    private Single<Vector<DataEntity>> provideDataEntityVector() {
+    private Single<List<DataEntity>> provideDataEntityVector() {
         File selectedFile = selectGpxFileUseCase.getSelectedFile();
         return (selectedFile != null)
                 ? provideFromSelected(selectedFile)
@@ -58,13 +185,23 @@ public final class GpxDataEntityCachedProvider {
                 getProvideDefault();
     }
 
-    private Single<Vector<DataEntity>> getProvideDefault() {
+    private Single<List<DataEntity>> getProvideDefault() {
         eventWrapper.onNext(NEW_DATA_LOADING);
+        follow(null);
         return dataProvider.provideDefault();
     }
 
-    private Single<Vector<DataEntity>> provideFromSelected(File selectedFile) {
+    private Single<List<DataEntity>> provideFromSelected(File selectedFile) {
         eventWrapper.onNext(NEW_DATA_LOADING);
-        return dataProvider.provide(selectedFile);
+        follow(selectedFile);
+        if (loadDataCache.restoreRecent(selectedFile)) {
+            return Single.just(dataEntityCache.getDataEntitityVector());
+        }
+        return dataProvider.provide(selectedFile)
+                .doOnSuccess(data -> loadDataCache.rememberLoaded(selectedFile))
+                .onErrorReturn(throwable -> {
+                    Log.e(TAG, "Error loading " + selectedFile, throwable);
+                    return Collections.emptyList();
+                });
     }
 }
@@ -76,6 +76,12 @@ public enum RequestStatus {
      */
     LOADING,
     NEW_DATA_LOADING,
+
+    /**
+     * State indicating that a first part of the data has been loaded and shown while loading continues.
+     * This is emitted after every partial chart update of a progressive load, before {@link #DATA_LOADED}.
+     */
+    DATA_PARTIALLY_LOADED,
     
     /**
      * State indicating that data has been successfully loaded.
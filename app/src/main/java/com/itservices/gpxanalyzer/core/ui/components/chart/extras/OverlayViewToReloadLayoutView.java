@@ -99,7 +99,7 @@ public class OverlayViewToReloadLayoutView extends LinearLayout {
                  ERROR,
                  LOADING, NEW_DATA_LOADING, DATA_LOADED, PROCESSING, PROCESSED, CHART_UPDATING,
                  CHART_UPDATED, SELECTED_FILE -> View.VISIBLE;
-            case DEFAULT, CHART_INITIALIZED, DONE -> View.GONE;
+            case DEFAULT, CHART_INITIALIZED, DATA_PARTIALLY_LOADED, DONE -> View.GONE;
         };
     }
 
@@ -162,7 +162,7 @@ public class MapViewController implements MapListener, MapReadinessManager.OnMap
         updateInitialBoundingBox();
 
         addOrUpdateFullPolyline();
-        List<GeoPoint> points = geoPointCachedProvider.getGeoPointVector();
+        List<GeoPoint> points = geoPointCachedProvider.getGeoPointList();
         addOrUpdateBoundaryPolyline(points);
 
         createOrUpdateSelectedMarker(currentSelectedPoint.get());
@@ -214,7 +214,16 @@ public class MapViewController implements MapListener, MapReadinessManager.OnMap
 
             switch (requestStatus) {
                 case NEW_DATA_LOADING, SELECTED_FILE -> clearOverlays();
-                case DATA_LOADED, PROCESSING, PROCESSED, CHART_UPDATING,  DONE -> {
+                case DATA_PARTIALLY_LOADED, DATA_LOADED -> {
+                    if (polylineList.isEmpty()) {
+                        loadInitialData();
+                    } else {
+                        // a progressive load keeps extending the track drawn so far
+                        addOrUpdateFullPolyline();
+                        invalidate();
+                    }
+                }
+                case PROCESSING, PROCESSED, CHART_UPDATING,  DONE -> {
                     if (polylineList.isEmpty()) {
                         loadInitialData();
                     } else {
@@ -419,9 +428,10 @@ public class MapViewController implements MapListener, MapReadinessManager.OnMap
     /**
      * Adds or updates the polyline representing the full GPX track.
      * Retrieves points from {@link GeoPointCache} and creates/updates the {@link #fullPolyline}.
+     * The points come from an immutable snapshot, so a progressive load appending to the cache does not affect them.
      */
     private void addOrUpdateFullPolyline() {
-        List<GeoPoint> points = geoPointCachedProvider.getGeoPointVector();
+        List<GeoPoint> points = geoPointCachedProvider.getGeoPointList();
 
         if (points == null || points.isEmpty()) {
             Log.w(TAG, "Cannot add empty or null polyline");
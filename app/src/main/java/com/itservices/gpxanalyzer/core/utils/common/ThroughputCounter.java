@@ -0,0 +1,58 @@
+package com.itservices.gpxanalyzer.core.utils.common;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the items a stage of a processing pipeline handled and the time it was busy with them,
+ * so the throughput of the stages can be compared and the slowest one found.
+ * <p>
+ * Thread safety: Recorded by the thread of the stage and readable from any thread.
+ */
+public final class ThroughputCounter {
+    private final String name;
+    private final AtomicLong itemCount = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /**
+     * @param name The name of the stage, used by {@link #toString()}
+     */
+    public ThroughputCounter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param items The number of items handled
+     * @param nanos The time spent on them, in nanoseconds
+     */
+    public void record(long items, long nanos) {
+        itemCount.addAndGet(items);
+        busyNanos.addAndGet(nanos);
+    }
+
+    public long getItemCount() {
+        return itemCount.get();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+
+    /**
+     * @return The handled items per second of busy time, 0 if nothing was recorded
+     */
+    public double getItemsPerSecond() {
+        long nanos = busyNanos.get();
+        return nanos > 0 ? itemCount.get() * (double) TimeUnit.SECONDS.toNanos(1) / nanos : 0.0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d in %d ms (%.0f/s)",
+                name, getItemCount(), TimeUnit.NANOSECONDS.toMillis(getBusyNanos()), getItemsPerSecond());
+    }
+}
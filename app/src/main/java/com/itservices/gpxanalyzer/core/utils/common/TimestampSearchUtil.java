@@ -0,0 +1,64 @@
+package com.itservices.gpxanalyzer.core.utils.common;
+
+/**
+ * Binary searches over the first {@code size} elements of a timestamp array sorted in ascending order.
+ * Equal timestamps are allowed.
+ */
+public final class TimestampSearchUtil {
+
+    private TimestampSearchUtil() {
+    }
+
+    /**
+     * @return The index of the first timestamp not before {@code timestampMillis}, {@code size} if there is none
+     */
+    public static int lowerBound(long[] timestamps, int size, long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first timestamp after {@code timestampMillis}, {@code size} if there is none
+     */
+    public static int upperBound(long[] timestamps, int size, long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the timestamp closest to {@code timestampMillis}. Of two equally close timestamps the earlier one wins.
+     *
+     * @return The index of the closest timestamp, -1 if {@code size} is 0
+     */
+    public static int nearestIndex(long[] timestamps, int size, long timestampMillis) {
+        if (size == 0) {
+            return -1;
+        }
+        int index = lowerBound(timestamps, size, timestampMillis);
+        if (index == size) {
+            return size - 1;
+        }
+        if (index > 0 && timestampMillis - timestamps[index - 1] <= timestamps[index] - timestampMillis) {
+            return index - 1;
+        }
+        return index;
+    }
+}
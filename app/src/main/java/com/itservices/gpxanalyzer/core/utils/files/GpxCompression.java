@@ -0,0 +1,152 @@
+package com.itservices.gpxanalyzer.core.utils.files;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Utility class for reading GPX files that are stored gzip-compressed ({@code .gpx.gz}) or zipped ({@code .zip}).
+ * <p>
+ * The compression is detected from the leading magic bytes, not from the file name, so renamed files
+ * are read correctly as well. Compressed content is decoded while it is read, without temporary files.
+ */
+public final class GpxCompression {
+
+    /**
+     * File name extensions of all GPX files the application can read, lower case and including the dot.
+     */
+    public static final String[] GPX_FILE_EXTENSIONS = {".gpx", ".gpx.gz", ".zip"};
+
+    private static final String GPX_ENTRY_EXTENSION = ".gpx";
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int ZIP_MAGIC = 0x504b0304;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Compression formats recognised by {@link #detect(File)}.
+     */
+    public enum Format {
+        NONE,
+        GZIP,
+        ZIP
+    }
+
+    private GpxCompression() {
+    }
+
+    /**
+     * Detects the compression of the file from its first bytes.
+     *
+     * @param file The file to check.
+     * @return The detected format, {@link Format#NONE} for plain and unrecognised content.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Format detect(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            if (randomAccessFile.length() < 4) {
+                return Format.NONE;
+            }
+            int magic = randomAccessFile.readInt();
+            if (magic == ZIP_MAGIC) {
+                return Format.ZIP;
+            }
+            if ((magic >>> 16) == GZIP_MAGIC) {
+                return Format.GZIP;
+            }
+            return Format.NONE;
+        }
+    }
+
+    /**
+     * @return true if the file is gzip-compressed or zipped
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isCompressed(File file) throws IOException {
+        return detect(file) != Format.NONE;
+    }
+
+    /**
+     * Opens the GPX document stored in the file, decoding it on the fly if it is compressed.
+     * For a zip archive the first entry with a {@code .gpx} name is read.
+     *
+     * @param file A plain, gzip-compressed or zipped GPX file.
+     * @return A stream of the uncompressed GPX document, to be closed by the caller.
+     * @throws IOException If the file cannot be read or a zip archive holds no GPX entry.
+     */
+    public static InputStream open(File file) throws IOException {
+        switch (detect(file)) {
+            case GZIP:
+                return new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+            case ZIP:
+                return openZipEntry(file);
+            default:
+                return new FileInputStream(file);
+        }
+    }
+
+    /**
+     * Checks whether the file can hold a GPX document. Plain and gzip-compressed files are accepted
+     * as they are, a zip archive only if it has a {@code .gpx} entry. Only the central directory of
+     * an archive is read.
+     *
+     * @param file The file to check.
+     * @return false if the file is a zip archive without a GPX entry or cannot be read
+     */
+    public static boolean containsGpx(File file) {
+        try {
+            if (detect(file) != Format.ZIP) {
+                return true;
+            }
+            try (ZipFile zipFile = new ZipFile(file)) {
+                return findGpxEntry(zipFile) != null;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static InputStream openZipEntry(File file) throws IOException {
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            ZipEntry entry = findGpxEntry(zipFile);
+            if (entry == null) {
+                throw new ZipException("No GPX entry in " + file.getName());
+            }
+            return new FilterInputStream(new BufferedInputStream(zipFile.getInputStream(entry), BUFFER_SIZE)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+    private static ZipEntry findGpxEntry(ZipFile zipFile) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(GPX_ENTRY_EXTENSION)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
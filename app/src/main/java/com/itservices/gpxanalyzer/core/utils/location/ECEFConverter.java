@@ -7,9 +7,9 @@ package com.itservices.gpxanalyzer.core.utils.location;
  */
 public class ECEFConverter {
     // WGS84 ellipsoid constants
-    private static final double a = 6378137.0;            // Semi-major axis [meters]
-    private static final double b = 6356752.314245;       // Semi-minor axis [meters]
-    private static final double eSquared = 1 - (b * b) / (a * a);
+    static final double a = 6378137.0;            // Semi-major axis [meters]
+    static final double b = 6356752.314245;       // Semi-minor axis [meters]
+    static final double eSquared = 1 - (b * b) / (a * a);
     // Second eccentricity squared, e'^2 = (a^2 - b^2) / b^2
     private static final double e2Prime = eSquared / (1 - eSquared);
 
@@ -110,11 +110,21 @@ public class LocationCalculatorUtil {
      * @return The distance in meters.
      */
     public static double calculateDistance(Location gpxPointA, Location gpxPointB) {
-        double lat1 = gpxPointA.getLatitude();
-        double lon1 = gpxPointA.getLongitude();
-        double lat2 = gpxPointB.getLatitude();
-        double lon2 = gpxPointB.getLongitude();
+        return calculateDistance(gpxPointA.getLatitude(), gpxPointA.getLongitude(),
+                gpxPointB.getLatitude(), gpxPointB.getLongitude());
+    }
 
+    /**
+     * Calculates the great-circle (2D) distance between two coordinates using the Haversine formula,
+     * without requiring {@link Location} objects.
+     *
+     * @param lat1 Latitude of the first point in degrees.
+     * @param lon1 Longitude of the first point in degrees.
+     * @param lat2 Latitude of the second point in degrees.
+     * @param lon2 Longitude of the second point in degrees.
+     * @return The distance in meters.
+     */
+    public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
         double R = 6371e3; // Earth's radius in meters
         double φ1 = Math.toRadians(lat1);
         double φ2 = Math.toRadians(lat2);
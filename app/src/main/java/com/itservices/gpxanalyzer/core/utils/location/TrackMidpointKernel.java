@@ -0,0 +1,216 @@
+package com.itservices.gpxanalyzer.core.utils.location;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the points placed between every two neighbouring track points of a segment in one pass
+ * over {@link TrackColumns}: the midpoint, the mean time and the 3D speed of each pair, as
+ * {@link LocationCalculatorUtil#calculateCentroidLocation(Location, Location)} does, but without
+ * creating {@link Location} objects per point.
+ * <p>
+ * The sine, cosine and radius of curvature of a point are computed once and reused by both pairs the
+ * point belongs to. Pairs less than {@link #FAST_PATH_MAX_DEGREES} apart in latitude and longitude,
+ * which are nearly all pairs of a track recorded every few seconds, are computed on the local tangent
+ * plane of the WGS84 ellipsoid without further trigonometry:
+ * <ul>
+ *     <li>the midpoint differs from the ECEF centroid by less than 1 mm,</li>
+ *     <li>the distance differs from the ellipsoidal distance by less than 1e-7 of its length,
+ *     below the float precision of {@link Location#distanceBetween(double, double, double, double, float[])}.</li>
+ * </ul>
+ * Other pairs, and pairs near the poles, take the exact ECEF round trip and
+ * {@link Location#distanceBetween(double, double, double, double, float[])}.
+ * <p>
+ * A point without elevation is placed on the ellipsoid, the midpoint of a pair with such a point has no
+ * altitude ({@link Double#NaN}) and its speed is horizontal only.
+ * <p>
+ * The last point is kept between calls, so a segment processed in several consecutive ranges gives the
+ * same points as processed at once. Call {@link #reset()} before every new segment.
+ * <p>
+ * Thread safety: This class is not thread-safe. The computed points are valid until the next call of
+ * {@link #process(TrackColumns, int, int)}.
+ */
+public final class TrackMidpointKernel {
+    /** Maximal difference of latitude and longitude, in degrees, of a pair computed on the tangent plane (about 1.1 km). */
+    static final double FAST_PATH_MAX_DEGREES = 0.01;
+    private static final double FAST_PATH_MAX_LATITUDE = 89.0;
+    private static final double MERIDIAN_RADIUS_FACTOR = ECEFConverter.a * (1.0 - ECEFConverter.eSquared);
+
+    private boolean hasPrevious = false;
+    private double previousLatitude;
+    private double previousLongitude;
+    private double previousElevation;
+    private long previousTimeMillis;
+    private double previousSinLatitude;
+    private double previousCosLatitude;
+    private double previousRadiusFactor;
+
+    private final float[] distanceResult = new float[1];
+
+    private int count = 0;
+    private double[] latitude = new double[0];
+    private double[] longitude = new double[0];
+    private double[] altitude = new double[0];
+    private long[] timeMillis = new long[0];
+    private float[] speed = new float[0];
+
+    /**
+     * Forgets the last point, so the next processed point starts a new segment.
+     */
+    public void reset() {
+        hasPrevious = false;
+    }
+
+    /**
+     * Computes the points between the neighbouring points {@code [from, to)} of one segment,
+     * starting with the pair of the last point of the previous call unless {@link #reset()} was called.
+     *
+     * @param columns The track points
+     * @param from    Index of the first point (inclusive)
+     * @param to      Index after the last point (exclusive)
+     * @return The number of computed points, readable by index until the next call
+     * @throws IllegalArgumentException if the time of a point is not at least a second after the time of the previous one
+     */
+    public int process(@NonNull TrackColumns columns, int from, int to) {
+        count = 0;
+        ensureCapacity(to - from);
+
+        for (int index = from; index < to; index++) {
+            double lat = columns.getLatitude(index);
+            double lon = columns.getLongitude(index);
+            double ele = columns.getElevation(index);
+            long time = columns.getTimeMillis(index);
+            if (time == TrackColumns.NO_TIME) {
+                time = 0L;
+            }
+
+            double radLat = Math.toRadians(lat);
+            double sinLat = Math.sin(radLat);
+            double cosLat = Math.cos(radLat);
+            // N / a, the radius of curvature in the prime vertical relative to the semi-major axis
+            double radiusFactor = 1.0 / Math.sqrt(1.0 - ECEFConverter.eSquared * sinLat * sinLat);
+
+            if (hasPrevious) {
+                addPair(lat, lon, ele, time, sinLat, cosLat, radiusFactor);
+            }
+
+            hasPrevious = true;
+            previousLatitude = lat;
+            previousLongitude = lon;
+            previousElevation = ele;
+            previousTimeMillis = time;
+            previousSinLatitude = sinLat;
+            previousCosLatitude = cosLat;
+            previousRadiusFactor = radiusFactor;
+        }
+        return count;
+    }
+
+    private void addPair(double lat, double lon, double ele, long time, double sinLat, double cosLat, double radiusFactor) {
+        long timeDifferenceSeconds = TimeUnit.MILLISECONDS.toSeconds(time - previousTimeMillis);
+        if (timeDifferenceSeconds <= 0) {
+            throw new IllegalArgumentException("End time must be after start time.");
+        }
+
+        boolean hasElevation = !Double.isNaN(ele) && !Double.isNaN(previousElevation);
+        double altitudeA = Double.isNaN(previousElevation) ? 0.0 : previousElevation;
+        double altitudeB = Double.isNaN(ele) ? 0.0 : ele;
+
+        double deltaLatitude = lat - previousLatitude;
+        double deltaLongitude = lon - previousLongitude;
+        double midLatitude;
+        double midLongitude;
+        double midAltitude;
+        float distance;
+
+        if (Math.abs(deltaLatitude) <= FAST_PATH_MAX_DEGREES && Math.abs(deltaLongitude) <= FAST_PATH_MAX_DEGREES
+                && Math.abs(lat) <= FAST_PATH_MAX_LATITUDE && Math.abs(previousLatitude) <= FAST_PATH_MAX_LATITUDE) {
+            double meanRadiusFactor = 0.5 * (radiusFactor + previousRadiusFactor);
+            double primeVerticalRadius = ECEFConverter.a * meanRadiusFactor;
+            double meridianRadius = MERIDIAN_RADIUS_FACTOR * meanRadiusFactor * meanRadiusFactor * meanRadiusFactor;
+
+            double meanCosLatitude = 0.5 * (cosLat + previousCosLatitude);
+            double north = Math.toRadians(deltaLatitude) * meridianRadius;
+            double east = Math.toRadians(deltaLongitude) * primeVerticalRadius * meanCosLatitude;
+
+            // the centroid lies on the chord: below the surface by its sagitta, an east-west chord also
+            // turns towards the axis, and each coordinate is weighted by the distance of the points from
+            // the centre of its curvature
+            double axisDistanceA = (ECEFConverter.a * previousRadiusFactor + altitudeA) * previousCosLatitude;
+            double axisDistanceB = (ECEFConverter.a * radiusFactor + altitudeB) * cosLat;
+            double eastSagitta = 0.125 * east * east / (primeVerticalRadius * meanCosLatitude);
+
+            midLatitude = previousLatitude
+                    + deltaLatitude * (meridianRadius + altitudeB) / (2.0 * meridianRadius + altitudeA + altitudeB)
+                    + Math.toDegrees(eastSagitta * 0.5 * (sinLat + previousSinLatitude) / meridianRadius);
+            midLongitude = previousLongitude + deltaLongitude * axisDistanceB / (axisDistanceA + axisDistanceB);
+            midAltitude = 0.5 * (altitudeA + altitudeB)
+                    - 0.125 * north * north / meridianRadius - eastSagitta * meanCosLatitude;
+            distance = (float) Math.sqrt(north * north + east * east);
+        } else {
+            double[] ecefA = ECEFConverter.geodeticToECEF(previousLatitude, previousLongitude, altitudeA);
+            double[] ecefB = ECEFConverter.geodeticToECEF(lat, lon, altitudeB);
+            double[] centroid = ECEFConverter.ecefToGeodetic(
+                    0.5 * (ecefA[0] + ecefB[0]), 0.5 * (ecefA[1] + ecefB[1]), 0.5 * (ecefA[2] + ecefB[2]));
+
+            midLatitude = centroid[0];
+            midLongitude = centroid[1];
+            midAltitude = centroid[2];
+            Location.distanceBetween(previousLatitude, previousLongitude, lat, lon, distanceResult);
+            distance = distanceResult[0];
+        }
+
+        double altitudeDifference = hasElevation ? ele - previousElevation : 0.0;
+        double distance3D = Math.sqrt((double) distance * distance + altitudeDifference * altitudeDifference);
+
+        latitude[count] = midLatitude;
+        longitude[count] = midLongitude;
+        altitude[count] = hasElevation ? midAltitude : Double.NaN;
+        timeMillis[count] = (long) (0.5 * (double) (previousTimeMillis + time));
+        speed[count] = (float) (distance3D / timeDifferenceSeconds);
+        count++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= latitude.length) {
+            return;
+        }
+        latitude = Arrays.copyOf(latitude, capacity);
+        longitude = Arrays.copyOf(longitude, capacity);
+        altitude = Arrays.copyOf(altitude, capacity);
+        timeMillis = Arrays.copyOf(timeMillis, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+    }
+
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    /**
+     * @return altitude in meters or {@link Double#NaN} if a point of the pair has no elevation
+     */
+    public double getAltitude(int index) {
+        return altitude[index];
+    }
+
+    public long getTimeMillis(int index) {
+        return timeMillis[index];
+    }
+
+    /**
+     * @return 3D speed in meters per second
+     */
+    public float getSpeed(int index) {
+        return speed[index];
+    }
+}
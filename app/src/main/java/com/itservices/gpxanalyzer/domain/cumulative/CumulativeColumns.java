@@ -0,0 +1,72 @@
+package com.itservices.gpxanalyzer.domain.cumulative;
+
+/**
+ * Cumulative values of one processed measure, held as one primitive column per
+ * {@link CumulativeProcessedDataType} and indexed like the data entities of the track.
+ * <p>
+ * The columns are filled by {@link TrendBoundaryCumulativeMapper} and belong to the processed
+ * result of a view mode, so they can be cached and shared together with it. Unit and accuracy
+ * are the same for all points and kept once.
+ */
+public final class CumulativeColumns {
+
+    /**
+     * Columns of a track that has not been processed yet.
+     */
+    public static final CumulativeColumns EMPTY = new CumulativeColumns(0, 0.0f, "");
+
+    private final float[][] values;
+    private final float valueAccuracy;
+    private final String unit;
+
+    /**
+     * Creates zero-filled columns.
+     *
+     * @param size          The number of data entities of the track.
+     * @param valueAccuracy The accuracy of the accumulated values.
+     * @param unit          The unit of the accumulated values.
+     */
+    public CumulativeColumns(int size, float valueAccuracy, String unit) {
+        this.values = new float[CumulativeProcessedDataType.values().length][size];
+        this.valueAccuracy = valueAccuracy;
+        this.unit = unit;
+    }
+
+    public int size() {
+        return values[0].length;
+    }
+
+    public float valueAccuracy() {
+        return valueAccuracy;
+    }
+
+    public String unit() {
+        return unit;
+    }
+
+    /**
+     * @return The cumulative value of the data entity at the index, or 0 if the index is outside the columns
+     */
+    public float getValue(CumulativeProcessedDataType type, int index) {
+        float[] column = values[type.ordinal()];
+        return index >= 0 && index < column.length ? column[index] : 0.0f;
+    }
+
+    void setValue(CumulativeProcessedDataType type, int index, float value) {
+        values[type.ordinal()][index] = value;
+    }
+
+    /**
+     * Returns the cumulative value of the data entity at the index together with its unit and accuracy.
+     *
+     * @param type  The type of cumulative value.
+     * @param index The index of the data entity.
+     * @return A new statistics object, with default values if the index is outside the columns
+     */
+    public CumulativeStatistics getStatistics(CumulativeProcessedDataType type, int index) {
+        if (index < 0 || index >= size()) {
+            return new CumulativeStatistics();
+        }
+        return new CumulativeStatistics(getValue(type, index), valueAccuracy, unit);
+    }
+}
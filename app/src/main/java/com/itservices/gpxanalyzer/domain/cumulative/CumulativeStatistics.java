@@ -10,8 +10,8 @@ import java.util.Objects;
  * (such as elevation gain/loss, distance traveled, etc.) across data entities
  * in a GPX track.
  * <p>
- * CumulativeStatistics objects are typically associated with DataEntity
- * instances to provide context about how values have accumulated up to that point in the track.
+ * CumulativeStatistics objects are created on demand from {@link CumulativeColumns}
+ * to provide context about how values have accumulated up to a point in the track.
  */
 public final class CumulativeStatistics {
     /** The accumulated value. */
@@ -3,8 +3,6 @@ package com.itservices.gpxanalyzer.domain.cumulative;
 import static com.itservices.gpxanalyzer.domain.cumulative.CumulativeProcessedDataType.ALL_SUM_REAL_DELTA_CUMULATIVE_VALUE;
 import static com.itservices.gpxanalyzer.domain.cumulative.CumulativeProcessedDataType.FROM_SEGMENT_START_SUM_REAL_DELTA_CUMULATIVE_VALUE;
 
-import android.util.Pair;
-
 import androidx.annotation.NonNull;
 
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
@@ -29,7 +27,8 @@ import javax.annotation.Nullable;
  * <p>
  * The mapper processes extrema segments (identified by change points in the data),
  * converts them to trend boundaries, and calculates both segment-specific and
- * track-wide cumulative statistics.
+ * track-wide cumulative statistics. The cumulative values are written into
+ * {@link CumulativeColumns} attached to the processed {@link DataEntityWrapper}.
  */
 public final class TrendBoundaryCumulativeMapper {
 
@@ -58,11 +57,13 @@ public final class TrendBoundaryCumulativeMapper {
      *
      * @param dataEntityWrapper The wrapper containing the data entities to process
      * @param extremaSegmentList The list of extrema segments to process
-     * @return A list of trend boundary data entities with cumulative statistics
+     * @return A list of trend boundary data entities; the cumulative values are set as
+     * {@link DataEntityWrapper#getCumulativeColumns()} of the wrapper
      */
     public static List<TrendBoundaryDataEntity> mapFrom(DataEntityWrapper dataEntityWrapper, Vector<Segment> extremaSegmentList) {
 
-            Vector<DataEntity> dataEntityVector = dataEntityWrapper.getData();
+            List<DataEntity> dataEntityVector = dataEntityWrapper.getData();
+            CumulativeColumns cumulativeColumns = createCumulativeColumns(dataEntityWrapper, dataEntityVector);
 
             //Log.d("TrendBoundaryDataEntity", "mapFrom() called with: dataEntityVector = [" + dataEntityVector.size() + "]");
 
@@ -71,29 +72,35 @@ public final class TrendBoundaryCumulativeMapper {
             TrendBoundaryDataEntity prevConstantBoundary = null;
             TrendBoundaryDataEntity prevAscendingBoundary = null;
             TrendBoundaryDataEntity prevDescendingBoundary = null;
+            Segment prevConstantSegment = null;
+            Segment prevAscendingSegment = null;
+            Segment prevDescendingSegment = null;
 
             //Log.d(TrendBoundaryMapper.class.getSimpleName(), "dataEntityWrapper.getDataEntityVector().size(): " + dataEntityWrapper.getData().size());
 
-            for (Segment segment : extremaSegmentList) {
-                Pair<Vector<DataEntity>, List<Object>>  segmentDataPair = mapIntoSegmentDataEntityVector(segment, dataEntityVector);
+            for (int index = 0; index < extremaSegmentList.size(); index++) {
+                Segment segment = extremaSegmentList.get(index);
+                List<DataEntity> segmentDataEntityVector = mapIntoSegmentDataEntityVector(segment, dataEntityVector);
 
                 TrendType trendType = TrendTypeMapper.map(segment.type());
 
                 TrendBoundaryDataEntity trendBoundaryDataEntity = null;
-                int index = extremaSegmentList.indexOf(segment);
 
                 switch (trendType) {
                     case UP -> {
-                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segmentDataPair, trendType, prevAscendingBoundary, dataEntityWrapper);
+                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segment, segmentDataEntityVector, trendType, prevAscendingBoundary, prevAscendingSegment, dataEntityWrapper, cumulativeColumns);
                         prevAscendingBoundary = trendBoundaryDataEntity;
+                        prevAscendingSegment = segment;
                     }
                     case CONSTANT -> {
-                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segmentDataPair, trendType, prevConstantBoundary, dataEntityWrapper);
+                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segment, segmentDataEntityVector, trendType, prevConstantBoundary, prevConstantSegment, dataEntityWrapper, cumulativeColumns);
                         prevConstantBoundary = trendBoundaryDataEntity;
+                        prevConstantSegment = segment;
                     }
                     case DOWN -> {
-                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segmentDataPair, trendType, prevDescendingBoundary, dataEntityWrapper);
+                        trendBoundaryDataEntity = getTrendBoundaryDataEntity(index, segment, segmentDataEntityVector, trendType, prevDescendingBoundary, prevDescendingSegment, dataEntityWrapper, cumulativeColumns);
                         prevDescendingBoundary = trendBoundaryDataEntity;
+                        prevDescendingSegment = segment;
                     }
                 }
 
@@ -102,9 +109,29 @@ public final class TrendBoundaryCumulativeMapper {
                 //Log.d(TrendBoundaryMapper.class.getSimpleName(), trendBoundaryDataEntity.toString());
             }
 
+            dataEntityWrapper.setCumulativeColumns(cumulativeColumns);
+
             return trendBoundaryDataEntities;
     }
 
+    /**
+     * Creates empty cumulative columns for all data entities, with the unit and accuracy
+     * of the primary measure.
+     *
+     * @param dataEntityWrapper The wrapper containing the data entities to process
+     * @param dataEntityVector The data entities of the wrapper
+     * @return Zero-filled columns, or {@link CumulativeColumns#EMPTY} if there are no data entities
+     */
+    private static CumulativeColumns createCumulativeColumns(DataEntityWrapper dataEntityWrapper, List<DataEntity> dataEntityVector) {
+        if (dataEntityVector.isEmpty()) {
+            return CumulativeColumns.EMPTY;
+        }
+        DataEntity first = dataEntityVector.get(0);
+
+        return new CumulativeColumns(dataEntityVector.size(),
+                dataEntityWrapper.getAccuracy(first), dataEntityWrapper.getUnit(first));
+    }
+
     /**
      * Calculates the absolute delta value for a segment.
      * <p>
@@ -115,9 +142,9 @@ public final class TrendBoundaryCumulativeMapper {
      * @param segmentDataEntityVector The vector of data entities in the segment
      * @return The absolute difference between first and last values
      */
-    private static float getDeltaValAbs(DataEntityWrapper dataEntityWrapper, Vector<DataEntity> segmentDataEntityVector) {
-        DataEntity dataEntityStart = segmentDataEntityVector.firstElement();
-        DataEntity dataEntityEnd = segmentDataEntityVector.lastElement();
+    private static float getDeltaValAbs(DataEntityWrapper dataEntityWrapper, List<DataEntity> segmentDataEntityVector) {
+        DataEntity dataEntityStart = segmentDataEntityVector.get(0);
+        DataEntity dataEntityEnd = segmentDataEntityVector.get(segmentDataEntityVector.size() - 1);
 
         return Math.abs(
                 dataEntityWrapper.getValue(dataEntityStart)
@@ -133,34 +160,36 @@ public final class TrendBoundaryCumulativeMapper {
      * statistics and processing cumulative statistics for each data entity in the segment.
      *
      * @param id The identifier for the new trend boundary
-     * @param segmentDataPair The pair containing the data entities and extra data for the segment
+     * @param segment The extrema segment of the trend boundary
+     * @param segmentDataEntityVector The data entities of the segment
      * @param trendType The type of trend (UP, DOWN, or CONSTANT)
      * @param prevTrendBoundaryDataEntity The previous trend boundary of the same type, or null if none
+     * @param prevSegment The extrema segment of the previous trend boundary of the same type, or null if none
      * @param dataEntityWrapper The wrapper containing context for the data
+     * @param cumulativeColumns The columns to write the cumulative values of the segment into
      * @return A new trend boundary data entity with appropriate statistics
      */
     private static TrendBoundaryDataEntity getTrendBoundaryDataEntity(
             int id,
-            Pair<Vector<DataEntity>, List<Object>> segmentDataPair,
+            Segment segment,
+            List<DataEntity> segmentDataEntityVector,
             TrendType trendType,
             @Nullable TrendBoundaryDataEntity prevTrendBoundaryDataEntity,
-            DataEntityWrapper dataEntityWrapper) {
-
-        Vector<DataEntity> segmentDataEntityVector = segmentDataPair.first;
-
+            @Nullable Segment prevSegment,
+            DataEntityWrapper dataEntityWrapper,
+            CumulativeColumns cumulativeColumns) {
 
         TrendStatistics trendStatistics
                 = createTrendStatisticsFor(
                         trendType, segmentDataEntityVector, prevTrendBoundaryDataEntity, dataEntityWrapper);
 
-        addEveryDataEntityCumulativeStatistics(trendType, segmentDataEntityVector, prevTrendBoundaryDataEntity, dataEntityWrapper);
+        addEveryDataEntityCumulativeStatistics(segment, prevSegment, dataEntityWrapper, cumulativeColumns);
 
         //Log.d("getTrendBoundaryDataEntity", "id ="+id + ", trendType =" + trendType.name() + ", absDeltaVal="+absDeltaVal + ", sumDeltaVal=" + sumDeltaVal );
 
         return new TrendBoundaryDataEntity(id,
                 trendStatistics,
-                segmentDataEntityVector,
-                segmentDataPair.second
+                segmentDataEntityVector
         );
     }
 
@@ -177,7 +206,7 @@ public final class TrendBoundaryCumulativeMapper {
      * @param dataEntityWrapper The wrapper containing context for the data
      * @return Trend statistics for the segment
      */
-    private static TrendStatistics createTrendStatisticsFor(TrendType trendType, Vector<DataEntity> segmentDataEntityVector, TrendBoundaryDataEntity prevTrendBoundaryDataEntity, DataEntityWrapper dataEntityWrapper) {
+    private static TrendStatistics createTrendStatisticsFor(TrendType trendType, List<DataEntity> segmentDataEntityVector, TrendBoundaryDataEntity prevTrendBoundaryDataEntity, DataEntityWrapper dataEntityWrapper) {
         float deltaValAbs = getDeltaValAbs(dataEntityWrapper, segmentDataEntityVector);
 
         float sumDeltaSegmentsFirstLastVal = 0.0f;
@@ -203,97 +232,46 @@ public final class TrendBoundaryCumulativeMapper {
      * <p>
      * This method calculates and stores both segment-relative and track-wide
      * cumulative statistics for each data entity in the segment, enabling
-     * visualization and analysis of cumulative changes.
+     * visualization and analysis of cumulative changes. The track-wide value continues
+     * from the last data entity of the previous segment of the same trend type.
      *
-     * @param trendType The type of trend (UP, DOWN, or CONSTANT)
-     * @param segmentDataEntityVector The vector of data entities in the segment
-     * @param prevTrendBoundaryDataEntity The previous trend boundary of the same type, or null if none
+     * @param segment The extrema segment to process
+     * @param prevSegment The previous extrema segment of the same trend type, or null if none
      * @param dataEntityWrapper The wrapper containing context for the data
+     * @param cumulativeColumns The columns to write the cumulative values into
      */
-    private static void addEveryDataEntityCumulativeStatistics(TrendType trendType, Vector<DataEntity> segmentDataEntityVector, TrendBoundaryDataEntity prevTrendBoundaryDataEntity, DataEntityWrapper dataEntityWrapper) {
-
-        DataEntity first;
-        CumulativeStatistics cumulativeStatisticsFirst;
-
-        if (prevTrendBoundaryDataEntity!= null ) {
-            first = prevTrendBoundaryDataEntity.dataEntityVector().lastElement();
-            cumulativeStatisticsFirst = dataEntityWrapper.getCumulativeStatistics(first, ALL_SUM_REAL_DELTA_CUMULATIVE_VALUE);
-        } else {
-            cumulativeStatisticsFirst = new CumulativeStatistics();
-            first = segmentDataEntityVector.firstElement();
-        }
-
-        String unit = dataEntityWrapper.getUnit(first);
-        float accuracy = dataEntityWrapper.getAccuracy(first);
+    private static void addEveryDataEntityCumulativeStatistics(Segment segment, @Nullable Segment prevSegment, DataEntityWrapper dataEntityWrapper, CumulativeColumns cumulativeColumns) {
 
         float cumulativeFromSegmentStartValue = 0.0f;
-        float cumulativeAllSumValue = cumulativeStatisticsFirst.value();
-
-        //Log.d(TrendBoundaryCumulativeMapper.class.getSimpleName(),
-        //        trendType.name() +" add called with: cumulativeAllSumValue cumulativeStatisticsFirst.value() = [" + cumulativeAllSumValue + "]");
-
-        for (int i = 1; i < segmentDataEntityVector.size(); i++) {
+        float cumulativeAllSumValue = prevSegment != null
+                ? cumulativeColumns.getValue(ALL_SUM_REAL_DELTA_CUMULATIVE_VALUE, prevSegment.endIndex())
+                : 0.0f;
 
-            DataEntity dataEntityToUpdate = segmentDataEntityVector.get(i);
-            DataEntity prevDataEntity = segmentDataEntityVector.get(i - 1);
+        float prevValue = dataEntityWrapper.getValue(segment.startIndex());
 
-            float delta =
-                    dataEntityWrapper.getValue( dataEntityToUpdate )
-                            -
-                    dataEntityWrapper.getValue( prevDataEntity );
+        for (int i = segment.startIndex() + 1; i <= segment.endIndex(); i++) {
+            float value = dataEntityWrapper.getValue(i);
 
-            cumulativeFromSegmentStartValue += delta;
-            float total = cumulativeAllSumValue + cumulativeFromSegmentStartValue;
+            cumulativeFromSegmentStartValue += value - prevValue;
+            prevValue = value;
 
-            //Log.d(TrendBoundaryCumulativeMapper.class.getSimpleName(),
-            //        trendType.name() +" add called with: total = [" + total + "]");
-
-            dataEntityWrapper.putCumulativeStatistics(dataEntityToUpdate, FROM_SEGMENT_START_SUM_REAL_DELTA_CUMULATIVE_VALUE,
-                    new CumulativeStatistics(cumulativeFromSegmentStartValue, accuracy, unit));
-
-            dataEntityWrapper.putCumulativeStatistics(dataEntityToUpdate, ALL_SUM_REAL_DELTA_CUMULATIVE_VALUE,
-                    new CumulativeStatistics(total, accuracy, unit));
+            cumulativeColumns.setValue(FROM_SEGMENT_START_SUM_REAL_DELTA_CUMULATIVE_VALUE, i, cumulativeFromSegmentStartValue);
+            cumulativeColumns.setValue(ALL_SUM_REAL_DELTA_CUMULATIVE_VALUE, i, cumulativeAllSumValue + cumulativeFromSegmentStartValue);
         }
     }
 
     /**
-     * Maps a segment to a vector of data entities and their extra data.
+     * Maps a segment to the data entities it spans.
      * <p>
-     * This method extracts the data entities within the start and end indices
-     * of a segment from the complete data entity vector.
+     * The entities are not copied: the result is a view of the complete data entities, which are
+     * created from the columns of the processed data on access.
      *
-     * @param segment The segment containing start and end indices
-     * @param dataEntityVector The complete vector of data entities
-     * @return A pair containing the segment's data entities and their extra data
+     * @param segment The segment containing start and end indices, both inclusive
+     * @param dataEntityVector The complete data entities
+     * @return The segment's data entities
      */
     @NonNull
-    private static Pair<Vector<DataEntity>, List<Object>> mapIntoSegmentDataEntityVector(Segment segment, Vector<DataEntity> dataEntityVector) {
-        return getPartial(segment.startIndex(), segment.endIndex(), dataEntityVector);
-    }
-
-    /**
-     * Extracts a partial vector of data entities and their extra data.
-     * <p>
-     * This method creates a new vector containing only the data entities
-     * within the specified index range, along with their extra data.
-     *
-     * @param startIndex The starting index (inclusive)
-     * @param endIndex The ending index (inclusive)
-     * @param allDataEntityVector The complete vector of data entities
-     * @return A pair containing the extracted data entities and their extra data
-     */
-    private static Pair<Vector<DataEntity>, List<Object>> getPartial(int startIndex, int endIndex, Vector<DataEntity> allDataEntityVector) {
-        //Log.d("TrendBoundaryDataEntity", "getPartial() called with: startIndex = [" + startIndex + "], endIndex = [" + endIndex + "]");
-        Vector<DataEntity> entityVector = new Vector<>();
-        List<Object> extraDataList = new ArrayList<>();
-
-        for (int i = startIndex; i <= endIndex; i++) {
-            DataEntity dataEntity = allDataEntityVector.get(i);
-
-            entityVector.add(dataEntity);
-            extraDataList.add(dataEntity.getExtraData());
-        }
-
-        return new Pair<>(entityVector, extraDataList);
+    private static List<DataEntity> mapIntoSegmentDataEntityVector(Segment segment, List<DataEntity> dataEntityVector) {
+        return dataEntityVector.subList(segment.startIndex(), segment.endIndex() + 1);
     }
 }
@@ -5,15 +5,14 @@ import androidx.annotation.NonNull;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
 
 import java.util.List;
-import java.util.Vector;
 
 /**
  * Represents a boundary of data entities that form a single trend segment in GPX data.
  * <p>
  * This record encapsulates a collection of related data entities that form a coherent 
  * trend segment (such as an ascent, descent, or flat section) within a GPX track.
- * Each boundary contains statistics about the trend, the actual data entities that
- * make up the segment, and any extra data associated with those entities.
+ * Each boundary contains statistics about the trend and the data entities that make up
+ * the segment, as a view of the processed data that creates them on access.
  * <p>
  * TrendBoundaryDataEntity objects are typically created by the {@link TrendBoundaryCumulativeMapper}
  * when analyzing GPX tracks to identify meaningful segments based on changes in elevation,
@@ -21,13 +20,11 @@ import java.util.Vector;
  * 
  * @param id A unique identifier for this trend boundary
  * @param trendStatistics Statistics about the trend (type, magnitude, cumulative values)
- * @param dataEntityVector The collection of data entities that form this trend boundary
- * @param extraDataList Additional data associated with the entities in this boundary
+ * @param dataEntityVector The data entities that form this trend boundary, a view of the processed data
  */
 public record TrendBoundaryDataEntity(int id,
                                       TrendStatistics trendStatistics,
-                                      Vector<DataEntity> dataEntityVector,
-                                      List<Object> extraDataList) {
+                                      List<DataEntity> dataEntityVector) {
 
     /**
      * Gets a display label for this trend boundary.
@@ -56,7 +53,7 @@ public record TrendBoundaryDataEntity(int id,
         return "TrendBoundaryDataEntity{" +
                 "id=" + id +
                 ", trendStatistics=" + trendStatistics.toString() +
-                ", beginTimestamp=" + dataEntityVector.firstElement().timestampMillis() +
-                ", endTimestamp=" + dataEntityVector.lastElement().timestampMillis() +"}\n";
+                ", beginTimestamp=" + dataEntityVector.get(0).timestampMillis() +
+                ", endTimestamp=" + dataEntityVector.get(dataEntityVector.size() - 1).timestampMillis() +"}\n";
     }
 }
@@ -7,8 +7,6 @@ import com.itservices.gpxanalyzer.domain.extrema.detector.PrimitiveDataEntity;
 import com.itservices.gpxanalyzer.domain.extrema.detector.Segment;
 import com.itservices.gpxanalyzer.domain.extrema.detector.SegmentThresholds;
 
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
-
 import java.util.Arrays;
 import java.util.Vector;
 
@@ -31,57 +29,40 @@ public class ExtremaSegmentListMapper {
             //Log.i("ExtremaSegmentListProvider", "provide() primitiveVector.firstElement().getTimestamp() = [" + primitiveVector.firstElement().getTimestamp() + "]");
             //Log.i("ExtremaSegmentListProvider", "provide() primitiveVector.lastElement().getTimestamp() = [" + primitiveVector.lastElement().getTimestamp() + "]");
 
-            ExtremaSegmentDetector segmentDetector = new ExtremaSegmentDetector();
-
-            double stdDev = getStandardDeviation(primitiveVector);
-
-            double[] windowFunction = WaveletLagDataSmoother.computeAdaptiveWindowFunction(
-                    primitiveVector, stdDev, ExtremaSegmentDetector.WindowType.GAUSSIAN);
-
-            System.out.println("Optimal Adaptive Window Size (Wavelet-based): windowFunction: " + Arrays.toString(windowFunction));
-            System.out.println("Optimal Adaptive Window Size (Wavelet-based): size: " + windowFunction.length);
-            System.out.println("Optimal Adaptive Window Size (Wavelet-based): data size: " + primitiveVector.size());
-            System.out.println("Optimal Adaptive Window Size (Wavelet-based): stdDev: " + stdDev);
-
-            segmentDetector.preprocessAndFindExtrema(primitiveVector, ExtremaSegmentDetector.DEFAULT_MAX_VALUE_ACCURACY, windowFunction);
-
-            SegmentThresholds segmentThresholds = new SegmentThresholds(stdDev * 0.2);
-
-            Vector<Segment> extremaSegmentList
-                    = segmentDetector.detectSegmentsOneRun(segmentThresholds);
+            double stdDev = dataEntityWrapper.getStandardDeviation();
 
-            //Log.i("ExtremaSegmentListProvider", "provide() detectSegmentsOneRun extremaSegmentList.firstElement().startTime() = [" + extremaSegmentList.firstElement().startTime() + "]" + dataEntityWrapper.getPrimaryDataIndex());
-            //Log.i("ExtremaSegmentListProvider", "provide() detectSegmentsOneRun extremaSegmentList.lastElement().endTime() = [" + extremaSegmentList.lastElement().endTime() + "]" + dataEntityWrapper.getPrimaryDataIndex());
-
-            extremaSegmentList
-                    = segmentDetector.addMissingSegments(extremaSegmentList, segmentThresholds);
-
-            //Log.i("ExtremaSegmentListProvider", "provide() addMissingSegments extremaSegmentList.firstElement().startTime() = [" + extremaSegmentList.firstElement().startTime() + "]" + dataEntityWrapper.getPrimaryDataIndex());
-            //Log.i("ExtremaSegmentListProvider", "provide() addMissingSegments extremaSegmentList.lastElement().endTime() = [" + extremaSegmentList.lastElement().endTime() + "]" + dataEntityWrapper.getPrimaryDataIndex());
-
-            return extremaSegmentList;
+            return mapFrom(primitiveVector, stdDev);
         });
     }
 
     /**
-     * Computes the standard deviation of the values in the list of PrimitiveDataEntity.
-     * Uses Apache Commons Math for high-precision calculations.
+     * Detects the trend segments of the data points.
      *
-     * @return The standard deviation of the values.
+     * @param primitiveVector The data points of the primary measure.
+     * @param stdDev          The standard deviation of their values.
+     * @return The segments covering the data points, ordered by time.
      */
-    private static double getStandardDeviation(Vector<PrimitiveDataEntity> primitiveList) {
-        if (primitiveList == null || primitiveList.isEmpty()) {
-            return 0.0; // Return 0 if there are no values to avoid errors
-        }
+    static Vector<Segment> mapFrom(Vector<PrimitiveDataEntity> primitiveVector, double stdDev) {
+        ExtremaSegmentDetector segmentDetector = new ExtremaSegmentDetector();
+
+        double[] windowFunction = WaveletLagDataSmoother.computeAdaptiveWindowFunction(
+                primitiveVector, stdDev, ExtremaSegmentDetector.WindowType.GAUSSIAN);
+
+        System.out.println("Optimal Adaptive Window Size (Wavelet-based): windowFunction: " + Arrays.toString(windowFunction));
+        System.out.println("Optimal Adaptive Window Size (Wavelet-based): size: " + windowFunction.length);
+        System.out.println("Optimal Adaptive Window Size (Wavelet-based): data size: " + primitiveVector.size());
+        System.out.println("Optimal Adaptive Window Size (Wavelet-based): stdDev: " + stdDev);
+
+        segmentDetector.preprocessAndFindExtrema(primitiveVector, ExtremaSegmentDetector.DEFAULT_MAX_VALUE_ACCURACY, windowFunction);
+
+        SegmentThresholds segmentThresholds = new SegmentThresholds(stdDev * 0.2);
 
-        int size = primitiveList.size();
-        double[] values = new double[size];
+        Vector<Segment> extremaSegmentList
+                = segmentDetector.detectSegmentsOneRun(segmentThresholds);
 
-        // Extract values into an array
-        Arrays.setAll(values, i -> primitiveList.get(i).getValue());
+        extremaSegmentList
+                = segmentDetector.addMissingSegments(extremaSegmentList, segmentThresholds);
 
-        // Use Apache Commons Math StandardDeviation class
-        StandardDeviation stdDev = new StandardDeviation(false); // 'false' means population std dev
-        return stdDev.evaluate(values);
+        return extremaSegmentList;
     }
 }
@@ -0,0 +1,231 @@
+package com.itservices.gpxanalyzer.domain.extrema;
+
+/**
+ * In-place fast Fourier transform of real signals held in primitive arrays, for spectra computed on
+ * every processing run without allocating {@code Complex} objects.
+ * <p>
+ * A real signal of n values, n a power of 2, is transformed as a complex signal of n / 2 values
+ * (even samples real, odd samples imaginary) followed by a split step. The spectrum is packed in the
+ * array of the signal: index 0 holds the real value of frequency 0, index 1 the real value of
+ * frequency n / 2, and indices 2k and 2k + 1 the real and imaginary parts of frequency k,
+ * for 0 &lt; k &lt; n / 2. The forward transform is not scaled, the inverse transform divides by n, so
+ * a forward and an inverse transform restore the signal.
+ * <p>
+ * Thread safety: The transforms are safe to use from many threads. The work buffer and the twiddle
+ * table of the last size are kept per thread and reused by later calls on the same thread. Callers
+ * call {@link #trimScratch()} once done, so that the scratch of a long track does not stay pinned to
+ * a pooled thread.
+ */
+final class RealFourierTransform {
+
+    /**
+     * Largest number of values of the work buffer and of the twiddle table size kept by a thread after
+     * {@link #trimScratch()}, about 1 MB in all.
+     */
+    static final int MAX_KEPT_SIZE = 1 << 16;
+
+    private static final double[] EMPTY = new double[0];
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private RealFourierTransform() {
+    }
+
+    /**
+     * Returns the work buffer of the calling thread, grown to at least {@code size} values. The buffer
+     * is shared by all callers on the thread and its content is undefined; it must not be kept beyond
+     * the current computation.
+     *
+     * @param size The number of values needed.
+     * @return The buffer, at least {@code size} values long.
+     */
+    static double[] getBuffer(int size) {
+        Scratch scratch = SCRATCH.get();
+        if (scratch.buffer.length < size) {
+            scratch.buffer = new double[size];
+        }
+        return scratch.buffer;
+    }
+
+    /**
+     * Releases the work buffer and the twiddle table of the calling thread if they are larger than
+     * {@link #MAX_KEPT_SIZE}; smaller ones are kept for the next computation.
+     */
+    static void trimScratch() {
+        Scratch scratch = SCRATCH.get();
+        if (scratch.buffer.length > MAX_KEPT_SIZE) {
+            scratch.buffer = EMPTY;
+        }
+        if (scratch.tableSize > MAX_KEPT_SIZE) {
+            scratch.cos = EMPTY;
+            scratch.sin = EMPTY;
+            scratch.tableSize = 0;
+        }
+    }
+
+    /**
+     * Transforms the first {@code n} values of {@code data} into their packed spectrum.
+     *
+     * @param data The signal, overwritten by the spectrum.
+     * @param n    The number of values, a power of 2 of at least 2.
+     */
+    static void forward(double[] data, int n) {
+        checkSize(n);
+        Scratch scratch = SCRATCH.get();
+        scratch.prepare(n);
+        int half = n / 2;
+
+        transformComplex(data, half, n, scratch, -1.0);
+
+        double real0 = data[0];
+        double imaginary0 = data[1];
+        data[0] = real0 + imaginary0;
+        data[1] = real0 - imaginary0;
+
+        for (int k = 1, mirror = half - 1; k <= mirror; k++, mirror--) {
+            double realK = data[2 * k];
+            double imaginaryK = data[2 * k + 1];
+            double realMirror = data[2 * mirror];
+            double imaginaryMirror = data[2 * mirror + 1];
+
+            // even = (Z[k] + conj(Z[half - k])) / 2, odd = (Z[k] - conj(Z[half - k])) / 2i
+            double evenReal = 0.5 * (realK + realMirror);
+            double evenImaginary = 0.5 * (imaginaryK - imaginaryMirror);
+            double oddReal = 0.5 * (imaginaryK + imaginaryMirror);
+            double oddImaginary = -0.5 * (realK - realMirror);
+
+            // twiddled = e^(-2 pi i k / n) * odd
+            double cos = scratch.cos[k];
+            double sin = -scratch.sin[k];
+            double twiddledReal = cos * oddReal - sin * oddImaginary;
+            double twiddledImaginary = cos * oddImaginary + sin * oddReal;
+
+            data[2 * k] = evenReal + twiddledReal;
+            data[2 * k + 1] = evenImaginary + twiddledImaginary;
+            data[2 * mirror] = evenReal - twiddledReal;
+            data[2 * mirror + 1] = -(evenImaginary - twiddledImaginary);
+        }
+    }
+
+    /**
+     * Transforms the packed spectrum in the first {@code n} values of {@code data} back into the signal.
+     *
+     * @param data The packed spectrum, overwritten by the signal.
+     * @param n    The number of values, a power of 2 of at least 2.
+     */
+    static void inverse(double[] data, int n) {
+        checkSize(n);
+        Scratch scratch = SCRATCH.get();
+        scratch.prepare(n);
+        int half = n / 2;
+
+        double real0 = data[0];
+        double realHalf = data[1];
+        data[0] = 0.5 * (real0 + realHalf);
+        data[1] = 0.5 * (real0 - realHalf);
+
+        for (int k = 1, mirror = half - 1; k <= mirror; k++, mirror--) {
+            double realK = data[2 * k];
+            double imaginaryK = data[2 * k + 1];
+            double realMirror = data[2 * mirror];
+            double imaginaryMirror = data[2 * mirror + 1];
+
+            // even = (X[k] + conj(X[half - k])) / 2, odd = e^(2 pi i k / n) * (X[k] - conj(X[half - k])) / 2
+            double evenReal = 0.5 * (realK + realMirror);
+            double evenImaginary = 0.5 * (imaginaryK - imaginaryMirror);
+            double differenceReal = 0.5 * (realK - realMirror);
+            double differenceImaginary = 0.5 * (imaginaryK + imaginaryMirror);
+            double cos = scratch.cos[k];
+            double sin = scratch.sin[k];
+            double oddReal = cos * differenceReal - sin * differenceImaginary;
+            double oddImaginary = cos * differenceImaginary + sin * differenceReal;
+
+            // Z[k] = even + i * odd, Z[half - k] = conj(even) + i * conj(odd)
+            data[2 * k] = evenReal - oddImaginary;
+            data[2 * k + 1] = evenImaginary + oddReal;
+            data[2 * mirror] = evenReal + oddImaginary;
+            data[2 * mirror + 1] = -evenImaginary + oddReal;
+        }
+
+        transformComplex(data, half, n, scratch, 1.0);
+
+        double scale = 1.0 / half;
+        for (int i = 0; i < n; i++) {
+            data[i] *= scale;
+        }
+    }
+
+    /**
+     * Radix-2 transform of {@code count} interleaved complex values, with the sign of the exponent given
+     * by {@code sign}. Twiddles of the transform of size {@code count} are every second entry of the
+     * table of size {@code n = 2 * count}.
+     */
+    private static void transformComplex(double[] data, int count, int n, Scratch scratch, double sign) {
+        for (int i = 1, j = 0; i < count; i++) {
+            int bit = count >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j |= bit;
+            if (i < j) {
+                double real = data[2 * i];
+                double imaginary = data[2 * i + 1];
+                data[2 * i] = data[2 * j];
+                data[2 * i + 1] = data[2 * j + 1];
+                data[2 * j] = real;
+                data[2 * j + 1] = imaginary;
+            }
+        }
+
+        for (int length = 2; length <= count; length <<= 1) {
+            int halfLength = length >> 1;
+            int stride = n / length;
+            for (int start = 0; start < count; start += length) {
+                for (int j = 0; j < halfLength; j++) {
+                    double cos = scratch.cos[j * stride];
+                    double sin = sign * scratch.sin[j * stride];
+
+                    int top = 2 * (start + j);
+                    int bottom = top + 2 * halfLength;
+                    double bottomReal = data[bottom] * cos - data[bottom + 1] * sin;
+                    double bottomImaginary = data[bottom] * sin + data[bottom + 1] * cos;
+                    data[bottom] = data[top] - bottomReal;
+                    data[bottom + 1] = data[top + 1] - bottomImaginary;
+                    data[top] += bottomReal;
+                    data[top + 1] += bottomImaginary;
+                }
+            }
+        }
+    }
+
+    private static void checkSize(int n) {
+        if (n < 2 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("Size must be a power of 2 of at least 2: " + n);
+        }
+    }
+
+    private static final class Scratch {
+        private double[] buffer = EMPTY;
+        private double[] cos = EMPTY;
+        private double[] sin = EMPTY;
+        private int tableSize = 0;
+
+        /**
+         * Prepares the twiddle table of {@code cos} and {@code sin} of {@code 2 pi k / n}, for k &lt; n / 2.
+         */
+        private void prepare(int n) {
+            if (tableSize == n) {
+                return;
+            }
+            int half = n / 2;
+            cos = new double[half];
+            sin = new double[half];
+            for (int k = 0; k < half; k++) {
+                double angle = 2.0 * Math.PI * k / n;
+                cos[k] = Math.cos(angle);
+                sin[k] = Math.sin(angle);
+            }
+            tableSize = n;
+        }
+    }
+}
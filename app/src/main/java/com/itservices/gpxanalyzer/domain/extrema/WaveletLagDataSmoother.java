@@ -4,12 +4,27 @@ package com.itservices.gpxanalyzer.domain.extrema;
 import com.itservices.gpxanalyzer.domain.extrema.detector.ExtremaSegmentDetector;
 import com.itservices.gpxanalyzer.domain.extrema.detector.PrimitiveDataEntity;
 
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.*;
+import java.util.Arrays;
 import java.util.Vector;
 
 class WaveletLagDataSmoother {
 
+    /**
+     * Bound of the rounding error of the energies computed by FFT, relative to the energy of the signal.
+     */
+    private static final double ENERGY_RELATIVE_ERROR = 1e-9;
+
+    /**
+     * Largest number of scales whose energy is computed directly to select the largest one.
+     */
+    private static final int MAX_EXACT_SCALES = 32;
+
+    /**
+     * Default largest number of values transformed to estimate the noise threshold, see
+     * {@link #computeNoiseThreshold(double[], double, int)}.
+     */
+    static final int DEFAULT_MAX_NOISE_SAMPLES = 1 << 16;
+
     /**
      * Computes an adaptive window function that highlights amplitude changes
      * while preventing excessive smoothing. Uses FFT for noise reduction.
@@ -23,52 +38,54 @@ class WaveletLagDataSmoother {
             Vector<PrimitiveDataEntity> dataEntities,
             double stdDev,
             ExtremaSegmentDetector.WindowType windowType) {
+        return computeAdaptiveWindowFunction(dataEntities, stdDev, windowType, DEFAULT_MAX_NOISE_SAMPLES);
+    }
+
+    /**
+     * Computes an adaptive window function, estimating the noise on at most {@code maxNoiseSamples}
+     * values of the decimated signal.
+     *
+     * @param dataEntities    The list of data points.
+     * @param stdDev          The standard deviation of the dataset.
+     * @param windowType      The type of window function to apply.
+     * @param maxNoiseSamples The largest number of values transformed to estimate the noise,
+     *                        {@link Integer#MAX_VALUE} to use the full signal.
+     * @return A double array representing the computed noise-filtered window function.
+     */
+    public static double[] computeAdaptiveWindowFunction(
+            Vector<PrimitiveDataEntity> dataEntities,
+            double stdDev,
+            ExtremaSegmentDetector.WindowType windowType,
+            int maxNoiseSamples) {
 
         if (dataEntities == null || dataEntities.isEmpty()) {
             return new double[]{1.0}; // Default window if no data
         }
 
-        int dataSize = dataEntities.size();
+        double[] values = toValues(dataEntities);
 
         // Compute an adaptive lag that prioritizes amplitude preservation
-        int optimalLag = computeAdaptiveLag(dataEntities, dataSize, stdDev);
+        int optimalLag = computeAdaptiveLag(values, stdDev);
 
         // Generate the adaptive window function using the computed lag
-        return generateAdaptiveWindowFunction(optimalLag, windowType, dataSize, stdDev, dataEntities);
+        return generateAdaptiveWindowFunction(optimalLag, windowType, stdDev, values, maxNoiseSamples);
     }
 
     /**
      * Computes an adaptive lag that minimizes smoothing when amplitude changes are high.
      */
-    private static int computeAdaptiveLag(Vector<PrimitiveDataEntity> dataEntities, int dataSize, double stdDev) {
-        int N = dataEntities.size();
+    static int computeAdaptiveLag(double[] values, double stdDev) {
+        int N = values.length;
         if (N < 10) return 3;
 
-        double[] waveletScales = new double[N / 2];
-
-        // Compute wavelet energy
-        for (int scale = 1; scale < N / 2; scale++) {
-            double sumEnergy = 0;
-            for (int i = 0; i < N - scale; i++) {
-                double diff = dataEntities.get(i).getValue() - dataEntities.get(i + scale).getValue();
-                sumEnergy += diff * diff;
-            }
-            waveletScales[scale] = sumEnergy / (N - scale);
-        }
-
-        int optimalLag = 3;
-        for (int i = 2; i < waveletScales.length; i++) {
-            if (waveletScales[i] > waveletScales[optimalLag]) {
-                optimalLag = i;
-            }
-        }
+        int optimalLag = findLargestEnergyScale(values);
 
         // Reduce smoothing when standard deviation is high
         double smoothingFactor = 1.0 - Math.min(0.8, stdDev / (10.0 + stdDev));
         optimalLag = (int) (optimalLag * smoothingFactor);
 
         // Limit window size
-        int maxAllowedLag = Math.max(3, dataSize / 200);
+        int maxAllowedLag = Math.max(3, N / 200);
         if (optimalLag > maxAllowedLag) {
             optimalLag = maxAllowedLag;
         }
@@ -85,57 +102,160 @@ class WaveletLagDataSmoother {
     }
 
     /**
-     * Generates an adaptive window function using FFT to remove high-frequency noise.
+     * Finds the scale with the largest wavelet energy, the mean squared difference of samples
+     * {@code scale} apart, among the scales from 2 to {@code N / 2 - 1}. Scale 3 is kept on ties with it,
+     * otherwise the smallest scale of the largest energy is returned.
+     * <p>
+     * The energies of all scales are computed at once from the autocorrelation of the signal, obtained by
+     * FFT, and the prefix sums of its squares, so the cost is O(N log N) instead of O(N²). The few scales
+     * whose energy is within the rounding error of the largest are then computed exactly, so the
+     * selected scale is the same as with the direct sums.
+     *
+     * @param values The signal, at least 10 values.
+     * @return The scale of the largest energy.
      */
-    private static double[] generateAdaptiveWindowFunction(int size, ExtremaSegmentDetector.WindowType type, int dataSize, double stdDev, Vector<PrimitiveDataEntity> dataEntities) {
-        int maxAllowedWindowSize = Math.max(3, dataSize / 200);
-        if (size > maxAllowedWindowSize) {
-            size = maxAllowedWindowSize;
+    static int findLargestEnergyScale(double[] values) {
+        int N = values.length;
+        int scaleCount = N / 2;
+
+        double mean = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            mean += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (min == max) {
+            // All differences are 0, scale 3 is kept
+            return 3;
+        }
+        mean /= N;
+
+        // Energies do not depend on the mean, removing it keeps the rounding error of the FFT small
+        int fftSize = nextPowerOf2(N + scaleCount);
+        double[] squareSums = new double[N + 1];
+        double[] energies = new double[scaleCount];
+        double[] errors = new double[scaleCount];
+        double largestLowerBound = Double.NEGATIVE_INFINITY;
+        try {
+            double[] autocorrelation = RealFourierTransform.getBuffer(fftSize);
+            for (int i = 0; i < N; i++) {
+                double centered = values[i] - mean;
+                autocorrelation[i] = centered;
+                squareSums[i + 1] = squareSums[i] + centered * centered;
+            }
+            Arrays.fill(autocorrelation, N, fftSize, 0.0);
+            computeAutocorrelation(autocorrelation, fftSize);
+
+            // energy(scale) * (N - scale) = sum of squares of the first N - scale and of the last N - scale
+            // samples minus twice the autocorrelation at the scale
+            for (int scale = 2; scale < scaleCount; scale++) {
+                int pairCount = N - scale;
+                double energySum = squareSums[pairCount] + squareSums[N] - squareSums[scale] - 2.0 * autocorrelation[scale];
+                energies[scale] = Math.max(0.0, energySum) / pairCount;
+                errors[scale] = ENERGY_RELATIVE_ERROR * squareSums[N] / pairCount;
+                largestLowerBound = Math.max(largestLowerBound, energies[scale] - errors[scale]);
+            }
+        } finally {
+            RealFourierTransform.trimScratch();
         }
 
-        // Ensure the window size is odd
-        if (size < 3 || (size % 2 == 0)) {
-            size = (size < 3) ? 3 : size + 1;
+        int candidateCount = 0;
+        int[] candidates = new int[MAX_EXACT_SCALES];
+        for (int scale = 2; scale < scaleCount; scale++) {
+            if (energies[scale] + errors[scale] >= largestLowerBound) {
+                if (candidateCount == MAX_EXACT_SCALES) {
+                    // Energies too close to tell apart, e.g. a periodic signal; the FFT energies decide
+                    return selectLargestEnergyScale(energies, scaleCount);
+                }
+                candidates[candidateCount++] = scale;
+            }
         }
 
-        // Step 1: Perform FFT on the signal
-        double[] signalFFT = applyFFT(dataEntities);
+        int largestScale = 3;
+        double largestEnergy = computeEnergy(values, largestScale);
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            int scale = candidates[candidate];
+            double energy = computeEnergy(values, scale);
+            if (energy > largestEnergy) {
+                largestScale = scale;
+                largestEnergy = energy;
+            }
+        }
+        return largestScale;
+    }
 
-        // Step 2: Compute noise threshold from FFT
-        double noiseThreshold = computeNoiseThreshold(signalFFT, stdDev);
+    private static int selectLargestEnergyScale(double[] energies, int scaleCount) {
+        int largestScale = 3;
+        for (int scale = 2; scale < scaleCount; scale++) {
+            if (energies[scale] > energies[largestScale]) {
+                largestScale = scale;
+            }
+        }
+        return largestScale;
+    }
 
-        // Step 3: Apply window function and remove high-frequency noise
-        return applyFilteredWindowFunction(size, type, signalFFT, noiseThreshold);
+    /**
+     * Computes the wavelet energy of one scale directly, the mean squared difference of samples
+     * {@code scale} apart.
+     */
+    private static double computeEnergy(double[] values, int scale) {
+        int N = values.length;
+        double sumEnergy = 0;
+        for (int i = 0; i < N - scale; i++) {
+            double diff = values[i] - values[i + scale];
+            sumEnergy += diff * diff;
+        }
+        return sumEnergy / (N - scale);
     }
 
     /**
-     * Applies FFT using Apache Commons Math to analyze the frequency spectrum.
-     * Fixes issue with non-power-of-2 input by padding to the next power of 2.
+     * Computes in place the autocorrelation of a zero-padded signal as the inverse FFT of its power
+     * spectrum. The padding must be at least as long as the largest lag needed, so the circular
+     * correlation does not wrap around.
      *
-     * @param dataEntities The input signal as a list of PrimitiveDataEntity.
-     * @return FFT-transformed array of magnitudes.
+     * @param data The signal, overwritten by the autocorrelation by lag.
+     * @param size The number of values of the padded signal, a power of 2.
      */
-    private static double[] applyFFT(Vector<PrimitiveDataEntity> dataEntities) {
-        int N = dataEntities.size();
-        int fftSize = nextPowerOf2(N); // Fix: Pad to next power of 2
-
-        double[] paddedSignal = new double[fftSize];
+    private static void computeAutocorrelation(double[] data, int size) {
+        RealFourierTransform.forward(data, size);
+        data[0] *= data[0];
+        data[1] *= data[1];
+        for (int i = 2; i < size; i += 2) {
+            data[i] = data[i] * data[i] + data[i + 1] * data[i + 1];
+            data[i + 1] = 0.0;
+        }
+        RealFourierTransform.inverse(data, size);
+    }
 
-        // Copy original signal into padded array
-        for (int i = 0; i < N; i++) {
-            paddedSignal[i] = dataEntities.get(i).getValue();
+    private static double[] toValues(Vector<PrimitiveDataEntity> dataEntities) {
+        double[] values = new double[dataEntities.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dataEntities.get(i).getValue();
         }
+        return values;
+    }
 
-        FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
-        Complex[] result = fft.transform(paddedSignal, TransformType.FORWARD);
+    /**
+     * Generates an adaptive window function using FFT to remove high-frequency noise.
+     */
+    private static double[] generateAdaptiveWindowFunction(int size, ExtremaSegmentDetector.WindowType type, double stdDev, double[] values, int maxNoiseSamples) {
+        int maxAllowedWindowSize = Math.max(3, values.length / 200);
+        if (size > maxAllowedWindowSize) {
+            size = maxAllowedWindowSize;
+        }
 
-        // Compute magnitudes of the FFT result
-        double[] magnitudes = new double[result.length];
-        for (int i = 0; i < result.length; i++) {
-            magnitudes[i] = result[i].abs();
+        // Ensure the window size is odd
+        if (size < 3 || (size % 2 == 0)) {
+            size = (size < 3) ? 3 : size + 1;
         }
 
-        return magnitudes;
+        // Step 1 and 2: Compute noise threshold from the FFT of the signal
+        double noiseThreshold = computeNoiseThreshold(values, stdDev, maxNoiseSamples);
+
+        // Step 3: Apply window function and remove high-frequency noise
+        return applyFilteredWindowFunction(size, type, noiseThreshold);
     }
 
     /**
@@ -153,18 +273,50 @@ class WaveletLagDataSmoother {
     }
 
     /**
-     * Computes a noise threshold by analyzing the FFT spectrum.
+     * Computes a noise threshold by analyzing the FFT spectrum: the share of the spectrum magnitudes
+     * above half of the Nyquist frequency, scaled by the standard deviation.
+     * <p>
+     * The signal is padded to the next power of 2 and transformed in place in the buffer of the thread.
+     * Signals longer than {@code maxNoiseSamples} are first decimated by averaging blocks of consecutive
+     * values, which keeps the cost bounded on long tracks; the spectrum then covers the lower frequencies
+     * of the full signal only.
+     *
+     * @param values          The signal.
+     * @param stdDev          The standard deviation of the signal.
+     * @param maxNoiseSamples The largest number of values transformed.
+     * @return The noise threshold.
      */
-    private static double computeNoiseThreshold(double[] fftData, double stdDev) {
-        int N = fftData.length;
+    static double computeNoiseThreshold(double[] values, double stdDev, int maxNoiseSamples) {
+        int decimation = values.length <= maxNoiseSamples
+                ? 1 : (int) Math.ceil(values.length / (double) Math.max(1, maxNoiseSamples));
+        int sampleCount = (values.length + decimation - 1) / decimation;
+        int fftSize = Math.max(2, nextPowerOf2(sampleCount));
+
         double totalEnergy = 0.0;
         double noiseEnergy = 0.0;
-
-        for (int i = 1; i < N / 2; i++) {
-            totalEnergy += fftData[i];
-            if (i > N / 4) {
-                noiseEnergy += fftData[i];
+        try {
+            double[] spectrum = RealFourierTransform.getBuffer(fftSize);
+            for (int sample = 0; sample < sampleCount; sample++) {
+                int start = sample * decimation;
+                int end = Math.min(values.length, start + decimation);
+                double sum = 0.0;
+                for (int i = start; i < end; i++) {
+                    sum += values[i];
+                }
+                spectrum[sample] = sum / (end - start);
+            }
+            Arrays.fill(spectrum, sampleCount, fftSize, 0.0);
+            RealFourierTransform.forward(spectrum, fftSize);
+
+            for (int i = 1; i < fftSize / 2; i++) {
+                double magnitude = Math.sqrt(spectrum[2 * i] * spectrum[2 * i] + spectrum[2 * i + 1] * spectrum[2 * i + 1]);
+                totalEnergy += magnitude;
+                if (i > fftSize / 4) {
+                    noiseEnergy += magnitude;
+                }
             }
+        } finally {
+            RealFourierTransform.trimScratch();
         }
 
         double noiseRatio = noiseEnergy / (totalEnergy + 1e-10);
@@ -174,7 +326,7 @@ class WaveletLagDataSmoother {
     /**
      * Applies a window function while removing high-frequency noise.
      */
-    private static double[] applyFilteredWindowFunction(int size, ExtremaSegmentDetector.WindowType type, double[] fftData, double noiseThreshold) {
+    private static double[] applyFilteredWindowFunction(int size, ExtremaSegmentDetector.WindowType type, double noiseThreshold) {
         double[] window = new double[size];
         int M = size - 1;
         double center = M / 2.0;
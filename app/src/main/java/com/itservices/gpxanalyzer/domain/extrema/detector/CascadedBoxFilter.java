@@ -0,0 +1,199 @@
+package com.itservices.gpxanalyzer.domain.extrema.detector;
+
+/**
+ * Smooths a signal with a cascade of box filters approximating a Gaussian window, at a cost that does not
+ * depend on the width of the window.
+ * <p>
+ * The window given as weights is replaced by {@value #PASSES} box filters of odd widths whose combined
+ * variance is the variance of the weights (Kovesi, "Fast Almost-Gaussian Filtering", 2010). Each box
+ * filter is a running sum over the array, so the cost is O(n) per pass. The approximation is only used
+ * for the windows it is close to, see {@link #approximates(double[])}. Within half a window of the edges
+ * the weighted average is computed exactly, as by {@link ExtremaSegmentDetector#weightedAverage}, since
+ * the one-sided averages there depend on the shape of the window and not only on its variance.
+ * <p>
+ * Running sums are updated by the difference of the entering and leaving sample, so a run of equal
+ * values gives exactly equal results and no false derivative.
+ * <p>
+ * Thread safety: Safe to use from many threads.
+ */
+final class CascadedBoxFilter {
+
+    static final int PASSES = 3;
+
+    // Narrower windows are cheap to apply exactly and too narrow for boxes of distinct widths
+    static final int MIN_WINDOW_LENGTH = 15;
+    // Largest difference between a weight and the Gaussian of the variance of the window, relative to the peak
+    static final double MAX_SHAPE_DEVIATION = 0.01;
+
+    private CascadedBoxFilter() {
+    }
+
+    /**
+     * Tells whether the window is a Gaussian the cascade approximates: at least {@value #MIN_WINDOW_LENGTH}
+     * weights, each within {@value #MAX_SHAPE_DEVIATION} of the peak of the Gaussian of the same variance.
+     * A Gaussian cut off before its tails are negligible has a lower variance than its shape and fails, as
+     * do triangular and Hanning windows.
+     *
+     * @param weights The window, of odd length.
+     * @return True if {@link #apply} approximates the window.
+     */
+    static boolean approximates(double[] weights) {
+        if (weights.length < MIN_WINDOW_LENGTH) {
+            return false;
+        }
+        int half = weights.length / 2;
+        double variance = computeVariance(weights);
+        double peak = weights[half];
+        if (variance <= 0.0 || peak <= 0.0) {
+            return false;
+        }
+        for (int offset = 0; offset < weights.length; offset++) {
+            double distance = offset - half;
+            double gaussian = peak * Math.exp(-0.5 * distance * distance / variance);
+            if (Math.abs(weights[offset] - gaussian) > MAX_SHAPE_DEVIATION * peak) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Smooths the first {@code count} values.
+     *
+     * @param values  The signal.
+     * @param count   The number of values to smooth, more than the length of the window.
+     * @param weights The window to approximate, of odd length.
+     * @param output  The buffer for the result, reused if at least {@code count} long, may be {@code values}
+     *                or {@code null}.
+     * @return The buffer holding the smoothed values, {@code output} or a new array if it was too short.
+     */
+    static double[] apply(double[] values, int count, double[] weights, double[] output) {
+        int half = weights.length / 2;
+        // The exact edges first, output may be values
+        double[] head = new double[half];
+        double[] tail = new double[half];
+        for (int i = 0; i < half; i++) {
+            head[i] = ExtremaSegmentDetector.weightedAverage(values, count, weights, i);
+            tail[i] = ExtremaSegmentDetector.weightedAverage(values, count, weights, count - half + i);
+        }
+
+        if (output == null || output.length < count) {
+            output = new double[count];
+        }
+        System.arraycopy(values, 0, output, 0, count);
+
+        int[] widths = computeBoxWidths(computeVariance(weights));
+        int maxWidth = 1;
+        for (int width : widths) {
+            maxWidth = Math.max(maxWidth, width);
+        }
+        double[] ring = new double[maxWidth];
+        for (int width : widths) {
+            if (width > 1) {
+                applyBox(output, count, width, ring);
+            }
+        }
+
+        // The boxes sum rather than average; divide by the part of the combined kernel inside the array
+        double[] kernelSums = computeKernelPrefixSums(widths);
+        int radius = (kernelSums.length - 1) / 2;
+        double kernelSum = kernelSums[kernelSums.length - 1];
+        for (int i = half; i < count - half; i++) {
+            if (i >= radius && i < count - radius) {
+                output[i] /= kernelSum;
+            } else {
+                int from = Math.max(-radius, -i);
+                int to = Math.min(radius, count - 1 - i);
+                output[i] /= kernelSums[to + radius + 1] - kernelSums[from + radius];
+            }
+        }
+
+        System.arraycopy(head, 0, output, 0, half);
+        System.arraycopy(tail, 0, output, count - half, half);
+        return output;
+    }
+
+    /**
+     * @return The variance of the window around its center, in samples squared.
+     */
+    static double computeVariance(double[] weights) {
+        int half = weights.length / 2;
+        double weightSum = 0.0;
+        double momentSum = 0.0;
+        for (int offset = 0; offset < weights.length; offset++) {
+            double distance = offset - half;
+            weightSum += weights[offset];
+            momentSum += weights[offset] * distance * distance;
+        }
+        return weightSum > 0.0 ? momentSum / weightSum : 0.0;
+    }
+
+    /**
+     * Chooses {@value #PASSES} odd box widths, differing by at most 2, whose combined variance is closest
+     * to {@code variance}. A box of width w has the variance (w² - 1) / 12.
+     */
+    static int[] computeBoxWidths(double variance) {
+        double idealWidth = Math.sqrt(12.0 * variance / PASSES + 1.0);
+        int lowerWidth = (int) Math.floor(idealWidth);
+        if (lowerWidth % 2 == 0) {
+            lowerWidth--;
+        }
+        lowerWidth = Math.max(1, lowerWidth);
+        int upperWidth = lowerWidth + 2;
+
+        long lowerCount = Math.round((12.0 * variance - PASSES * (double) lowerWidth * lowerWidth
+                - 4.0 * PASSES * lowerWidth - 3.0 * PASSES) / (-4.0 * lowerWidth - 4.0));
+        lowerCount = Math.max(0, Math.min(PASSES, lowerCount));
+
+        int[] widths = new int[PASSES];
+        for (int pass = 0; pass < PASSES; pass++) {
+            widths[pass] = pass < lowerCount ? lowerWidth : upperWidth;
+        }
+        return widths;
+    }
+
+    /**
+     * Returns the prefix sums of the kernel of the cascade, the boxes applied to a single 1: entry k is the
+     * sum of the first k weights of the kernel, whose radius is the sum of the radii of the boxes.
+     */
+    static double[] computeKernelPrefixSums(int[] widths) {
+        double[] kernel = {1.0};
+        for (int width : widths) {
+            double[] wider = new double[kernel.length + width - 1];
+            for (int k = 0; k < kernel.length; k++) {
+                for (int j = 0; j < width; j++) {
+                    wider[k + j] += kernel[k];
+                }
+            }
+            kernel = wider;
+        }
+
+        int length = kernel.length;
+        double[] prefixSums = new double[length + 1];
+        for (int k = 0; k < length; k++) {
+            prefixSums[k + 1] = prefixSums[k] + kernel[k];
+        }
+        return prefixSums;
+    }
+
+    /**
+     * Replaces each value by the sum of the {@code width} values centered on it, values outside the
+     * array taken as 0. The replaced values the sum still needs are kept in {@code ring}.
+     */
+    private static void applyBox(double[] data, int count, int width, double[] ring) {
+        int radius = width / 2;
+        double sum = 0.0;
+        for (int j = 0; j <= radius && j < count; j++) {
+            sum += data[j];
+        }
+
+        for (int i = 0; i < count; i++) {
+            ring[i % width] = data[i];
+            data[i] = sum;
+
+            double entering = i + radius + 1 < count ? data[i + radius + 1] : 0.0;
+            double leaving = i - radius >= 0 ? ring[(i - radius) % width] : 0.0;
+            sum += entering - leaving;
+        }
+    }
+}
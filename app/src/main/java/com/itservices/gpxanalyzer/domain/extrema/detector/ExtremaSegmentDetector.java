@@ -1,9 +1,8 @@
 package com.itservices.gpxanalyzer.domain.extrema.detector;
 
-import android.util.Pair;
-
 import androidx.annotation.NonNull;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Vector;
 import java.util.concurrent.TimeUnit;
@@ -14,6 +13,7 @@ public final class ExtremaSegmentDetector {
     private Vector<PrimitiveDataEntity> filtered;
     private Vector<PrimitiveDataEntity> smoothed;
     private Vector<Extremum> extrema;
+    private double[] smoothedValues;
 
     // --------------------------------------------------------------------------
     // 1) PREPROCESS
@@ -42,44 +42,99 @@ public final class ExtremaSegmentDetector {
     public static Vector<PrimitiveDataEntity> applyMovingFilter(
             Vector<PrimitiveDataEntity> data,
             double[] weights
+    ) {
+        return applyMovingFilter(data, weights, null);
+    }
+
+    /**
+     * Smooths the values of the data points with the window, see {@link #applyMovingFilter(double[], int, double[], double[])}.
+     *
+     * @param data     The data points, left unchanged.
+     * @param weights  The window, of odd length of at least 3.
+     * @param buffer   Reusable buffer for the smoothed values, may be {@code null}.
+     * @return Copies of the data points with the smoothed values.
+     */
+    private static Vector<PrimitiveDataEntity> applyMovingFilter(
+            Vector<PrimitiveDataEntity> data,
+            double[] weights,
+            double[] buffer
     ) {
         if (data == null || data.size() < 3) return data;
-        if (weights == null || weights.length < 3 || (weights.length % 2 == 0)) {
-            throw new IllegalArgumentException(
-                    "weights array must be non-null, odd length >= 3"
-            );
-        }
+        checkWeights(weights);
 
         int n = data.size();
-        int windowSize = weights.length;
-        int half = windowSize / 2;
+        PrimitiveDataEntity[] entities = data.toArray(new PrimitiveDataEntity[0]);
+        double[] values = buffer != null && buffer.length >= n ? buffer : new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = entities[i].getValue();
+        }
+
+        applyMovingFilter(values, n, weights, values);
+
         Vector<PrimitiveDataEntity> smoothedList = new Vector<>(n);
+        for (int i = 0; i < n; i++) {
+            PrimitiveDataEntity smoothedEntity = PrimitiveDataEntity.copy(entities[i]);
+            smoothedEntity.setValue(values[i]);
+            smoothedList.add(smoothedEntity);
+        }
+        return smoothedList;
+    }
 
-        // Copy original data
-        for (PrimitiveDataEntity e : data) {
-            smoothedList.add(PrimitiveDataEntity.copy(e));
+    /**
+     * Smooths values with a weighted moving average: every value is replaced by the average of the values
+     * around it, weighted by the window centered on it. Near the edges the missing samples are left out
+     * and the result is renormalized by the weights used.
+     * <p>
+     * Wide Gaussian windows are applied in O(n) whatever their size, by a {@link CascadedBoxFilter}
+     * approximating the window away from the edges; any other window is applied exactly in O(n * w).
+     *
+     * @param values  The values.
+     * @param count   The number of values to smooth.
+     * @param weights The window, of odd length of at least 3.
+     * @param output  Reusable buffer for the result, may be {@code values} or {@code null}.
+     * @return The buffer holding the smoothed values, a new array if {@code output} was too short.
+     */
+    public static double[] applyMovingFilter(double[] values, int count, double[] weights, double[] output) {
+        checkWeights(weights);
+        if (count > weights.length && CascadedBoxFilter.approximates(weights)) {
+            return CascadedBoxFilter.apply(values, count, weights, output);
         }
 
-        // Weighted average
-        for (int i = 0; i < n; i++) {
-            double weightedSum = 0.0;
-            double usedWeightSum = 0.0;
+        double[] input = output == values ? Arrays.copyOf(values, count) : values;
+        if (output == null || output.length < count) {
+            output = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            output[i] = weightedAverage(input, count, weights, i);
+        }
+        return output;
+    }
 
-            for (int j = i - half; j <= i + half; j++) {
-                if (j < 0 || j >= n) {
-                    continue;
-                }
-                int offset = j - i + half;
-                double w = weights[offset];
-                double val = data.get(j).getValue();
+    /**
+     * @return The average of the values around {@code index} weighted by the window centered on it,
+     * renormalized by the weights of the values inside the array.
+     */
+    static double weightedAverage(double[] values, int count, double[] weights, int index) {
+        int half = weights.length / 2;
+        int from = Math.max(0, index - half);
+        int to = Math.min(count - 1, index + half);
+
+        double weightedSum = 0.0;
+        double usedWeightSum = 0.0;
+        for (int j = from; j <= to; j++) {
+            double weight = weights[j - index + half];
+            weightedSum += values[j] * weight;
+            usedWeightSum += weight;
+        }
+        return weightedSum / usedWeightSum;
+    }
 
-                weightedSum += (val * w);
-                usedWeightSum += w;
-            }
-            double smoothedValue = weightedSum / usedWeightSum;
-            smoothedList.get(i).setValue(smoothedValue);
+    private static void checkWeights(double[] weights) {
+        if (weights == null || weights.length < 3 || (weights.length % 2 == 0)) {
+            throw new IllegalArgumentException(
+                    "weights array must be non-null, odd length >= 3"
+            );
         }
-        return smoothedList;
     }
 
     @NonNull
@@ -218,110 +273,21 @@ public final class ExtremaSegmentDetector {
     // SINGLE-PASS DETECTION OF ASC/DESC
     // --------------------------------------------------------------------------
 
-    // --------------------------------------------------------------------------
-    // 4) ASCENDING SEGMENT FORMATION
-    // --------------------------------------------------------------------------
-    private static Vector<Pair<Long, Long>> findAscendingSegmentsFromExtrema(
-            Vector<PrimitiveDataEntity> smoothed,
-            Vector<Extremum> extrema,
-            double minAmp,
-            double minDerivative
-    ) {
-        Vector<Pair<Long, Long>> segments = new Vector<>();
-
-        for (int i = 0; i < extrema.size(); i++) {
-            Extremum minExt = extrema.get(i);
-            if (minExt.type == ExtremaType.MIN) {
-                // Look for *any* subsequent MAX
-                for (int j = i + 1; j < extrema.size(); j++) {
-                    Extremum maxExt = extrema.get(j);
-                    if (maxExt.type == ExtremaType.MAX && maxExt.index > minExt.index) {
-
-                        PrimitiveDataEntity valMin = smoothed.get(minExt.index);
-                        PrimitiveDataEntity valMax = smoothed.get(maxExt.index);
-
-                        double amplitude = valMax.getValue() - valMin.getValue();
-                        if (amplitude <= 0) {
-                            // Not a valid climb; try next max
-                            continue;
-                        }
-
-                        long dtMillis = valMax.getTimestamp() - valMin.getTimestamp();
-                        if (dtMillis <= 0) {
-                            continue;
-                        }
-                        double dtSec = dtMillis / 1000.0;
-                        double avgDerivative = amplitude / dtSec;
-
-                        // If meets thresholds => record it, then move on to the next MIN
-                        if (amplitude >= minAmp && avgDerivative >= minDerivative) {
-                            segments.add(new Pair<>(valMin.getTimestamp(), valMax.getTimestamp()));
-                            // Found a valid segment => stop searching further maxima from this min
-                            break;
-                        }
-                        // Otherwise, keep searching the next MAX
-                    }
-                }
-            }
-        }
-        return segments;
-    }
-
-    // --------------------------------------------------------------------------
-    // 5) DESCENDING SEGMENT FORMATION
-    // --------------------------------------------------------------------------
-    private static Vector<Pair<Long, Long>> findDescendingSegmentsFromExtrema(
-            Vector<PrimitiveDataEntity> smoothed,
-            Vector<Extremum> extrema,
-            double minAmp,
-            double minDerivative
-    ) {
-        Vector<Pair<Long, Long>> segments = new Vector<>();
-
-        for (int i = 0; i < extrema.size(); i++) {
-            Extremum maxExt = extrema.get(i);
-            if (maxExt.type == ExtremaType.MAX) {
-                // Look for *any* subsequent MIN
-                for (int j = i + 1; j < extrema.size(); j++) {
-                    Extremum minExt = extrema.get(j);
-                    if (minExt.type == ExtremaType.MIN && minExt.index > maxExt.index) {
-
-                        PrimitiveDataEntity valMax = smoothed.get(maxExt.index);
-                        PrimitiveDataEntity valMin = smoothed.get(minExt.index);
-
-                        double amplitude = valMax.getValue() - valMin.getValue();
-                        if (amplitude <= 0) {
-                            // No real drop; try next min
-                            continue;
-                        }
-
-                        long dtMillis = valMin.getTimestamp() - valMax.getTimestamp();
-                        if (dtMillis <= 0) {
-                            continue;
-                        }
-                        double dtSec = dtMillis / 1000.0;
-                        double avgDerivative = amplitude / dtSec;
-
-                        // If meets thresholds => record it, then move on to the next MAX
-                        if (amplitude >= minAmp && avgDerivative >= minDerivative) {
-                            segments.add(new Pair<>(valMax.getTimestamp(), valMin.getTimestamp()));
-                            break;
-                        }
-                        // else keep searching next local MIN
-                    }
-                }
-            }
-        }
-        return segments;
-    }
-
+    /**
+     * Fills the gaps between consecutive segments with segments of their own trend, in one pass.
+     *
+     * @param extremumSegmentList The segments, ordered by index.
+     * @param segmentThresholds   The thresholds of the trend of the gap segments.
+     * @return The segments with the gap segments, ordered by start time.
+     */
     public Vector<Segment> addMissingSegments(Vector<Segment> extremumSegmentList, SegmentThresholds segmentThresholds) {
 
-        Vector<Segment> newExtremumSegmentList = new Vector<>();
         if (extremumSegmentList.isEmpty()) {
             return extremumSegmentList;
         }
+        Vector<Segment> newExtremumSegmentList = new Vector<>(2 * extremumSegmentList.size());
         newExtremumSegmentList.add(extremumSegmentList.get(0));
+        boolean orderedByStartTime = true;
 
         for (int i = 1; i < extremumSegmentList.size(); i++) {
 
@@ -332,17 +298,26 @@ public final class ExtremaSegmentDetector {
 
                 Segment missingSegment = getMissingSegment(segment, prevSegment, segmentThresholds);
 
+                orderedByStartTime &= isOrderedByStartTime(newExtremumSegmentList.lastElement(), missingSegment);
                 newExtremumSegmentList.add(missingSegment);
             }
 
+            orderedByStartTime &= isOrderedByStartTime(newExtremumSegmentList.lastElement(), segment);
             newExtremumSegmentList.add(segment);
         }
 
-        newExtremumSegmentList.sort(Comparator.comparingLong(Segment::startTime));
+        // Timestamps only go backwards in broken recordings
+        if (!orderedByStartTime) {
+            newExtremumSegmentList.sort(Comparator.comparingLong(Segment::startTime));
+        }
 
         return newExtremumSegmentList;
     }
 
+    private static boolean isOrderedByStartTime(Segment segment, Segment nextSegment) {
+        return segment.startTime() <= nextSegment.startTime();
+    }
+
 
     public void preprocessAndFindExtrema(
             final Vector<PrimitiveDataEntity> originalData,
@@ -356,7 +331,10 @@ public final class ExtremaSegmentDetector {
 
         //Log.d("Extema", "preprocessAndFindExtrema() originalData.get(0).getTimestamp() = [" + originalData.get(0).getTimestamp() + "]");
         // 2) Smooth
-        smoothed = applyMovingFilter(filtered, windowWeights);
+        if (smoothedValues == null || smoothedValues.length < filtered.size()) {
+            smoothedValues = new double[filtered.size()];
+        }
+        smoothed = applyMovingFilter(filtered, windowWeights, smoothedValues);
 
         //Log.d("Extema", "preprocessAndFindExtrema() smoothed.get(0).getTimestamp() = [" + smoothed.get(0).getTimestamp() + "]");
 
@@ -425,11 +403,9 @@ public final class ExtremaSegmentDetector {
             }
         }
 
+        // Segments are added by increasing start index, no sorting needed
         findAndAddMissingEndingSegment(segments, segmentThresholds);
 
-        segments.sort(Comparator.comparingLong(Segment::startIndex));
-
-
         return segments;
     }
 
@@ -5,15 +5,16 @@ import androidx.annotation.NonNull;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
 
 import java.io.InputStream;
-import java.util.Vector;
+import java.util.Collections;
+import java.util.List;
 
 import io.reactivex.Single;
 
 abstract class FileDataEntityProvider {
 
-    public Single<Vector<DataEntity>> provideDefault() {
-        return Single.just(new Vector<>());
+    public Single<List<DataEntity>> provideDefault() {
+        return Single.just(Collections.emptyList());
     }
 
-    public abstract Single<Vector<DataEntity>> provide(@NonNull InputStream inputStream);
+    public abstract Single<List<DataEntity>> provide(@NonNull InputStream inputStream);
 }
@@ -1,23 +1,34 @@
 package com.itservices.gpxanalyzer.feature.gpxchart.data.provider.file;
 
 import android.content.Context;
-import android.location.Location;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RawRes;
 
 import com.itservices.gpxanalyzer.R;
+import com.itservices.gpxanalyzer.core.data.cache.disk.TrackColumnsDiskCache;
+import com.itservices.gpxanalyzer.core.data.cache.disk.TrackFingerprint;
 import com.itservices.gpxanalyzer.core.data.cache.rawdata.LoadDataCache;
-import com.itservices.gpxanalyzer.core.data.mapper.LocationMapper;
 import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
-import com.itservices.gpxanalyzer.core.data.model.entity.DataMeasure;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackChannel;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackSchema;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
 import com.itservices.gpxanalyzer.core.events.EventProgress;
 import com.itservices.gpxanalyzer.core.events.GlobalEventWrapper;
-import com.itservices.gpxanalyzer.core.utils.location.LocationCalculatorUtil;
+import com.itservices.gpxanalyzer.core.utils.files.GpxCompression;
+import com.itservices.gpxanalyzer.core.utils.location.TrackMidpointKernel;
 import com.itservices.gpxanalyzer.core.data.parser.GPXParser;
-import com.itservices.gpxanalyzer.core.data.parser.domain.Gpx;
-import com.itservices.gpxanalyzer.core.data.parser.domain.TrackSegment;
+import com.itservices.gpxanalyzer.core.data.parser.GpxChunkedParser;
+import com.itservices.gpxanalyzer.core.data.parser.GpxProjection;
+import com.itservices.gpxanalyzer.core.data.parser.GpxScanCheckpoint;
+import com.itservices.gpxanalyzer.core.data.parser.GpxTailScan;
+import com.itservices.gpxanalyzer.core.data.parser.GpxTrackPointScanner;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
 import com.itservices.gpxanalyzer.feature.gpxchart.ui.viewmode.GpxViewModeMapper;
 
 import org.xmlpull.v1.XmlPullParserException;
@@ -27,15 +38,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 
 import javax.inject.Inject;
 
 import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * A provider class that converts GPX data into DataEntity objects.
@@ -53,14 +67,43 @@ public final class GpxFileDataEntityProvider extends FileDataEntityProvider {
     @RawRes
     private static int DEFAULT_RAW_GPX_DATA = R.raw.skiing20250121t091423;
 
+    /**
+     * Number of track points in the first block of a progressive load.
+     */
+    public static final int PROGRESSIVE_FIRST_BLOCK_SIZE = 2000;
+
+    /**
+     * Number of blocks a stage of a progressive load may run ahead of the next stage, see {@link IngestionPipeline}.
+     */
+    static final int PIPELINE_QUEUE_CAPACITY = 2;
+
     private static List<String> NAME_LIST = new ArrayList<>();
     private static List<String> UNIT_LIST = new ArrayList<>();
 
+    /**
+     * Accuracy of the elevation and speed channels.
+     */
+    private static final float CHANNEL_ACCURACY = 0.1f;
+
     private final WeakReference<Context> contextWeakReference;
 
+    /**
+     * The channels of every loaded point: the elevation read from the track and the speed derived from it.
+     */
+    private final TrackSchema trackSchema;
+
     @Inject
     public GPXParser parser;
 
+    @Inject
+    public GpxChunkedParser chunkedParser;
+
+    @Inject
+    public GpxTrackPointScanner trackPointScanner;
+
+    @Inject
+    public TrackColumnsDiskCache trackColumnsDiskCache;
+
     @Inject
     public LoadDataCache dataCachedProvider;
 
@@ -73,12 +116,15 @@ public final class GpxFileDataEntityProvider extends FileDataEntityProvider {
 
         NAME_LIST = Arrays.asList(context.getResources().getStringArray(R.array.gpx_name_unit_array));
         UNIT_LIST = Arrays.asList(context.getResources().getStringArray(R.array.gpx_unit_array));
+        trackSchema = TrackSchema.of(List.of(
+                new TrackChannel(0, NAME_LIST.get(0), UNIT_LIST.get(0), CHANNEL_ACCURACY, TrackChannel.ValueType.MEASURED),
+                new TrackChannel(1, NAME_LIST.get(1), UNIT_LIST.get(1), CHANNEL_ACCURACY, TrackChannel.ValueType.DERIVED)));
 
         viewModeMapper.init(NAME_LIST);
     }
 
     @Override
-    public Single<Vector<DataEntity>> provideDefault() {
+    public Single<List<DataEntity>> provideDefault() {
         return contextWeakReference == null || contextWeakReference.get() == null ?
                 super.provideDefault()
                 :
@@ -86,100 +132,476 @@ public final class GpxFileDataEntityProvider extends FileDataEntityProvider {
     }
 
     @Override
-    public Single<Vector<DataEntity>> provide(@NonNull InputStream inputStream) {
-        return Single.fromCallable(() -> loadDataEntity(inputStream));
+    public Single<List<DataEntity>> provide(@NonNull InputStream inputStream) {
+        return Single.fromCallable(() -> loadDataEntity(inputStream, null, null))
+                .onErrorResumeNext(throwable -> {
+                    throwable.printStackTrace();
+                    return Single.fromCallable(() -> loadDataEntity((TrackColumns) null, null));
+                });
     }
 
-    public Single<Vector<DataEntity>> provide(@NonNull File file) {
-        return Single.fromCallable(() -> {
-            try (InputStream inputStream = new FileInputStream(file)) {
-                return loadDataEntity(inputStream);
+    /**
+     * Loads a GPX file, which may also be gzip-compressed or zipped, see {@link GpxCompression}.
+     * Compressed files are decoded while they are parsed; the byte scanner and the parallel
+     * chunked parse need random access and are used for plain files only.
+     * <p>
+     * If the file cannot be parsed, the cache is initialised for it without any data and the error is
+     * passed on, so the caller can tell a failed load from a complete one.
+     *
+     * @param file The GPX file.
+     * @return A {@link Single} emitting the loaded {@link DataEntity} objects.
+     */
+    public Single<List<DataEntity>> provide(@NonNull File file) {
+        String sourceKey = sourceKey(file);
+        return Single.defer(() -> {
+            TrackFingerprint fingerprint = fingerprint(file);
+            boolean compressed = GpxCompression.isCompressed(file);
+            TrackColumns knownColumns = compressed ?
+                    loadCachedTrackColumns(fingerprint)
+                    :
+                    loadCachedOrScannedTrackColumns(fingerprint, file);
+            if (knownColumns != null) {
+                return Single.just(loadDataEntity(knownColumns, sourceKey));
+            }
+            if (!compressed && file.length() >= GpxChunkedParser.PARALLEL_PARSE_MIN_FILE_SIZE) {
+                return chunkedParser.parseTrackColumns(file)
+                        .map(trackColumns -> loadDataEntity(cacheTrackColumns(fingerprint, trackColumns), sourceKey));
+            }
+            return Single.fromCallable(() -> {
+                try (InputStream inputStream = GpxCompression.open(file)) {
+                    return loadDataEntity(inputStream, fingerprint, sourceKey);
+                }
+            });
+        }).onErrorResumeNext(throwable -> {
+            return Single.fromCallable(() -> loadDataEntity((TrackColumns) null, sourceKey))
+                    .flatMap(data -> Single.error(throwable));
+        });
+    }
+
+    /**
+     * Progressive variant of {@link #provideDefault()}, see {@link #provideProgressive(File)}.
+     */
+    public Observable<Single<List<DataEntity>>> provideDefaultProgressive() {
+        Context context = contextWeakReference == null ? null : contextWeakReference.get();
+        return context == null ?
+                Observable.just(super.provideDefault())
+                :
+                provideProgressive(parseTrackColumnBlocks(context, DEFAULT_RAW_GPX_DATA), sourceKey(context, DEFAULT_RAW_GPX_DATA))
+                        .onErrorResumeNext(throwable -> {
+                            Log.e("GPXDataProvider", "Error parsing gpx track, keeping the points loaded so far", throwable);
+                            return Observable.empty();
+                        });
+    }
+
+    /**
+     * Loads the file block by block, so the beginning of a long track can be shown while the rest
+     * is still being parsed.
+     * <p>
+     * Every emitted {@link Single} appends one block of track points, converted into columns
+     * ahead of time by an {@link IngestionPipeline}, to the {@link LoadDataCache} when subscribed and emits all
+     * entities loaded so far.
+     * The blocks must be subscribed one after another in emission order, e.g. with {@code concatMap},
+     * and the consumer is expected to finish working on the cache before subscribing to the next block.
+     * The file is parsed only as far as the consumer keeps up, see {@link IngestionPipeline}.
+     * The first block holds {@link #PROGRESSIVE_FIRST_BLOCK_SIZE} points, every following block doubles
+     * in size, so the number of blocks grows only logarithmically with the track length.
+     * <p>
+     * If the file cannot be parsed completely, one more append, keeping the blocks appended before, is
+     * emitted and the {@link Observable} then fails with the error, so the caller can tell a truncated
+     * load from a complete one.
+     *
+     * @param file The GPX file, plain or compressed.
+     * @return An {@link Observable} emitting one deferred append per block, at least one.
+     */
+    public Observable<Single<List<DataEntity>>> provideProgressive(@NonNull File file) {
+        return provideProgressive(parseTrackColumnBlocks(file), sourceKey(file));
+    }
+
+    /**
+     * Creates a loader for a GPX file that is still being written, e.g. by a recording app.
+     * See {@link GrowingFileLoader#loadAppended()}.
+     *
+     * @param file The growing GPX file.
+     * @return A loader keeping the read position of the file between loads.
+     */
+    public GrowingFileLoader provideGrowing(@NonNull File file) {
+        return new GrowingFileLoader(file);
+    }
+
+    /**
+     * Loads a growing GPX file incrementally. The byte offset after the last complete track point is
+     * remembered, so every load reads only the bytes appended since the previous one and appends the
+     * derived {@link DataEntity} objects, and with them the statistics, to the {@link LoadDataCache}.
+     * <p>
+     * If the file is replaced instead of appended, it is loaded again from its beginning, and so it is
+     * when the cache has published other data since the previous load, e.g. of another track.
+     * Content the byte scanner does not support, including compressed files, is loaded completely every time.
+     */
+    public final class GrowingFileLoader {
+        private final File file;
+        private GpxScanCheckpoint checkpoint = GpxScanCheckpoint.START;
+        private DataEntityAppender appender = null;
+
+        private GrowingFileLoader(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Reads the track points completed since the previous load, the whole file on the first load.
+         *
+         * @return A {@link Single} emitting all {@link DataEntity} objects loaded so far,
+         * failing as {@link #provide(File)} if a complete load is needed and the file cannot be parsed.
+         */
+        public Single<List<DataEntity>> loadAppended() {
+            return Single.defer(() -> {
+                synchronized (this) {
+                    if (appender != null && !appender.holdsCache()) {
+                        checkpoint = GpxScanCheckpoint.START;
+                        appender = null;
+                    }
+                    GpxTailScan tail = GpxCompression.isCompressed(file) ? null : trackPointScanner.scanTail(file, checkpoint);
+                    if (tail == null) {
+                        checkpoint = GpxScanCheckpoint.START;
+                        appender = null;
+                        return provide(file);
+                    }
+
+                    if (appender == null || tail.fromStart()) {
+                        appender = new DataEntityAppender(sourceKey(file));
+                    }
+                    checkpoint = tail.checkpoint();
+                    return Single.just(appender.append(tail.block()));
+                }
+            });
+        }
+    }
+
+    private Observable<Single<List<DataEntity>>> provideProgressive(Flowable<TrackColumnsBlock> blocks, @Nullable String sourceKey) {
+        return Observable.defer(() -> {
+            DataEntityAppender appender = new DataEntityAppender(sourceKey);
+
+            // The last append initialises the cache even if no block was parsed before the error
+            return new IngestionPipeline(PIPELINE_QUEUE_CAPACITY, appender::convert, appender::fill).run(blocks)
+                    .onErrorResumeNext(throwable -> {
+                        return Observable.just(Single.fromCallable(() -> appender.append(null)))
+                                .concatWith(Observable.error(throwable));
+                    })
+                    .switchIfEmpty(Observable.just(Single.fromCallable(() -> appender.append(null))));
+        });
+    }
+
+    private Flowable<TrackColumnsBlock> parseTrackColumnBlocks(File file) {
+        return Flowable.defer(() -> {
+            TrackFingerprint fingerprint = fingerprint(file);
+            TrackColumns knownColumns = GpxCompression.isCompressed(file) ?
+                    loadCachedTrackColumns(fingerprint)
+                    :
+                    loadCachedOrScannedTrackColumns(fingerprint, file);
+            if (knownColumns != null) {
+                return splitIntoBlocks(knownColumns);
+            }
+            return cacheTrackColumnBlocks(fingerprint,
+                    parser.parseTrackColumnBlocks(GpxCompression.open(file), GpxProjection.TRACK_POINTS, PROGRESSIVE_FIRST_BLOCK_SIZE));
+        });
+    }
+
+    private Flowable<TrackColumnsBlock> parseTrackColumnBlocks(Context context, @RawRes int rawId) {
+        return Flowable.defer(() -> {
+            TrackFingerprint fingerprint = fingerprint(context, rawId);
+            TrackColumns knownColumns = loadCachedOrScannedTrackColumns(fingerprint, context, rawId);
+            if (knownColumns != null) {
+                return splitIntoBlocks(knownColumns);
             }
+            return cacheTrackColumnBlocks(fingerprint,
+                    parser.parseTrackColumnBlocks(context.getResources().openRawResource(rawId), GpxProjection.TRACK_POINTS, PROGRESSIVE_FIRST_BLOCK_SIZE));
         });
     }
 
-    private Single<Vector<DataEntity>> provideInternal(Context context, int rawId) {
+    /**
+     * Splits already scanned columns into blocks of the same doubling sizes the streaming parser emits.
+     * A block is copied only when it is requested.
+     */
+    private static Flowable<TrackColumnsBlock> splitIntoBlocks(TrackColumns trackColumns) {
+        // start and size of the next block
+        return Flowable.generate(() -> new int[]{0, PROGRESSIVE_FIRST_BLOCK_SIZE}, (next, emitter) -> {
+            int from = next[0];
+            int to = (int) Math.min(trackColumns.size(), (long) from + next[1]);
+            emitter.onNext(new TrackColumnsBlock(trackColumns.copyOfRange(from, to), !trackColumns.isSegmentStart(from)));
+            if (to >= trackColumns.size()) {
+                emitter.onComplete();
+            }
+            next[0] = to;
+            next[1] = next[1] <= Integer.MAX_VALUE / 2 ? next[1] * 2 : Integer.MAX_VALUE;
+        });
+    }
+
+    private Single<List<DataEntity>> provideInternal(Context context, int rawId) {
         return Single.fromCallable(() -> {
-            InputStream inputStream = context.getResources().openRawResource(rawId);
-            return loadDataEntity(inputStream);
+            String sourceKey = sourceKey(context, rawId);
+            TrackFingerprint fingerprint = fingerprint(context, rawId);
+            TrackColumns knownColumns = loadCachedOrScannedTrackColumns(fingerprint, context, rawId);
+            if (knownColumns != null) {
+                return loadDataEntity(knownColumns, sourceKey);
+            }
+            try (InputStream inputStream = context.getResources().openRawResource(rawId)) {
+                return loadDataEntity(inputStream, fingerprint, sourceKey);
+            } catch (IOException | XmlPullParserException | IllegalArgumentException e) {
+                e.printStackTrace();
+                return loadDataEntity((TrackColumns) null, sourceKey);
+            }
         });
     }
 
-    @NonNull
-    private Vector<DataEntity> loadDataEntity(InputStream inputStream) {
-        Vector<DataEntity> gpxPointList = new Vector<>();
+    /**
+     * @return the columns from the disk cache, otherwise from the byte scanner (then cached),
+     * or null if the XML parser is needed
+     */
+    @Nullable
+    private TrackColumns loadCachedOrScannedTrackColumns(@Nullable TrackFingerprint fingerprint, File file) {
+        TrackColumns cachedColumns = loadCachedTrackColumns(fingerprint);
+        return cachedColumns != null ? cachedColumns : cacheTrackColumns(fingerprint, scanTrackColumns(file));
+    }
+
+    /**
+     * @see #loadCachedOrScannedTrackColumns(TrackFingerprint, File)
+     */
+    @Nullable
+    private TrackColumns loadCachedOrScannedTrackColumns(@Nullable TrackFingerprint fingerprint, Context context, @RawRes int rawId) {
+        TrackColumns cachedColumns = loadCachedTrackColumns(fingerprint);
+        return cachedColumns != null ? cachedColumns : cacheTrackColumns(fingerprint, scanTrackColumns(context, rawId));
+    }
+
+    @Nullable
+    private TrackColumns loadCachedTrackColumns(@Nullable TrackFingerprint fingerprint) {
+        return fingerprint != null ? trackColumnsDiskCache.load(fingerprint) : null;
+    }
+
+    /**
+     * Stores freshly parsed columns in the disk cache in the background.
+     *
+     * @return the given columns
+     */
+    @Nullable
+    private TrackColumns cacheTrackColumns(@Nullable TrackFingerprint fingerprint, @Nullable TrackColumns trackColumns) {
+        if (fingerprint != null && trackColumns != null) {
+            Schedulers.io().scheduleDirect(() -> trackColumnsDiskCache.store(fingerprint, trackColumns));
+        }
+        return trackColumns;
+    }
 
-        Gpx parsedGpx = null;
+    /**
+     * Collects the parsed blocks and caches the complete columns once the last block is emitted.
+     */
+    private Flowable<TrackColumnsBlock> cacheTrackColumnBlocks(@Nullable TrackFingerprint fingerprint, Flowable<TrackColumnsBlock> blocks) {
+        if (fingerprint == null) {
+            return blocks;
+        }
+        return Flowable.defer(() -> {
+            TrackColumns trackColumns = new TrackColumns();
+            return blocks
+                    .doOnNext(block -> trackColumns.append(block.columns(), block.continuesSegment()))
+                    .doOnComplete(() -> {
+                        trackColumns.trimToSize();
+                        cacheTrackColumns(fingerprint, trackColumns);
+                    });
+        });
+    }
+
+    /**
+     * @return the fingerprint of the file or null if it cannot be read
+     */
+    @Nullable
+    private static TrackFingerprint fingerprint(File file) {
+        try (FileInputStream inputStream = new FileInputStream(file);
+             FileChannel channel = inputStream.getChannel()) {
+            return TrackFingerprint.of(sourceKey(file), channel, 0, channel.size(), file.lastModified());
+        } catch (IOException e) {
+            Log.w("GPXDataProvider", "Cannot fingerprint " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the key identifying the file as a source of data
+     */
+    private static String sourceKey(File file) {
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * @return the key identifying the raw resource as a source of data, or null if it does not exist
+     */
+    @Nullable
+    private static String sourceKey(Context context, @RawRes int rawId) {
         try {
-            parsedGpx = parser.parse(inputStream);
-        } catch (IOException | XmlPullParserException e) {
-            e.printStackTrace();
+            return "raw/" + context.getResources().getResourceEntryName(rawId);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Raw resources change only with the app itself, so the modification time of the installed
+     * package stands in for the one of the resource.
+     *
+     * @return the fingerprint of an uncompressed raw resource or null if it cannot be read in place
+     */
+    @Nullable
+    private static TrackFingerprint fingerprint(Context context, @RawRes int rawId) {
+        try (AssetFileDescriptor descriptor = context.getResources().openRawResourceFd(rawId);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            return TrackFingerprint.of("raw/" + context.getResources().getResourceEntryName(rawId),
+                    inputStream.getChannel(),
+                    descriptor.getStartOffset(),
+                    descriptor.getLength(),
+                    new File(context.getApplicationInfo().sourceDir).lastModified());
+        } catch (Resources.NotFoundException | IOException e) {
+            Log.w("GPXDataProvider", "Cannot fingerprint raw resource", e);
+            return null;
         }
+    }
 
-        dataCachedProvider.init(UNIT_LIST.size());
-
-        if (parsedGpx != null) {
-            parsedGpx.getTracks()
-                    .forEach(track ->
-                            track.getTrackSegments()
-                                    .forEach(segment ->
-                                            addGpxPointsFromSegment(gpxPointList, segment)
-                                    )
-                    );
-        } else {
-            Log.e("GPXDataProvider", "Error parsing gpx track!");
+    /**
+     * Scans the file with the memory-mapped byte scanner.
+     *
+     * @return the track columns or null if the XML parser is needed
+     */
+    @Nullable
+    private TrackColumns scanTrackColumns(File file) {
+        try {
+            return trackPointScanner.scan(file);
+        } catch (IOException e) {
+            Log.w("GPXDataProvider", "Byte scan failed, using XML parser", e);
+            return null;
         }
+    }
 
-        return gpxPointList;
+    /**
+     * Scans an uncompressed raw resource in place with the memory-mapped byte scanner.
+     *
+     * @return the track columns or null if the resource is compressed or the XML parser is needed
+     */
+    @Nullable
+    private TrackColumns scanTrackColumns(Context context, @RawRes int rawId) {
+        try (AssetFileDescriptor descriptor = context.getResources().openRawResourceFd(rawId);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            return trackPointScanner.scan(inputStream.getChannel(), descriptor.getStartOffset(), descriptor.getLength());
+        } catch (Resources.NotFoundException | IOException e) {
+            Log.w("GPXDataProvider", "Byte scan of raw resource failed, using XML parser", e);
+            return null;
+        }
     }
 
-    private void addGpxPointsFromSegment(@NonNull Vector<DataEntity> gpxPointList, @NonNull TrackSegment segment) {
+    @NonNull
+    private List<DataEntity> loadDataEntity(InputStream inputStream, @Nullable TrackFingerprint fingerprint, @Nullable String sourceKey)
+            throws IOException, XmlPullParserException {
+        TrackColumns trackColumns = parser.parseTrackColumns(inputStream, GpxProjection.TRACK_POINTS);
+        return loadDataEntity(cacheTrackColumns(fingerprint, trackColumns), sourceKey);
+    }
 
-        int maxIteration = segment.getTrackPoints().size() - 1;
+    @NonNull
+    private List<DataEntity> loadDataEntity(@Nullable TrackColumns trackColumns, @Nullable String sourceKey) {
+        return new DataEntityAppender(sourceKey)
+                .append(trackColumns != null ? new TrackColumnsBlock(trackColumns, false) : null);
+    }
 
-        EventProgress lastEventProgress = EventProgress.create(GpxFileDataEntityProvider.class, 0, maxIteration);
-        globalEventWrapper.onNext(lastEventProgress);
+    /**
+     * Converts the track points of consecutive blocks into points placed between every two neighbouring
+     * points of a segment. The last point of a block is kept, so a segment continued by the next block is
+     * converted exactly as if it was read at once.
+     * <p>
+     * Appending a block runs two steps, which may run on different threads as stages of an
+     * {@link IngestionPipeline}: {@link #convert(TrackColumnsBlock)} computes the columns of the points
+     * without touching the cache, {@link #fill(TrackStore)} appends them to it. Each step must be run for
+     * one block after another, in the order of the blocks. No {@link DataEntity} is created while loading;
+     * the entities are read from the cache, which creates them from its columns on access.
+     * <p>
+     * The cache is initialised for the given source with the first filled block, and each block becomes visible
+     * to readers of the cache at once when it is fully appended. An empty block publishes nothing.
+     */
+    private final class DataEntityAppender {
+        @Nullable
+        private final String sourceKey;
+        private boolean cacheInitialized = false;
+        // Version of the cache data this appender published last
+        private long publishedVersion = -1;
+        private final TrackMidpointKernel midpointKernel = new TrackMidpointKernel();
+        private final float[] pointValues = new float[2];
+
+        DataEntityAppender(@Nullable String sourceKey) {
+            this.sourceKey = sourceKey;
+        }
 
-        for (int iTrackPoint = 0; iTrackPoint < maxIteration; iTrackPoint++) {
+        @NonNull
+        List<DataEntity> append(@Nullable TrackColumnsBlock block) {
+            return fill(block != null ? convert(block) : null);
+        }
 
-            Location gpxPointA = LocationMapper.mapFrom(
-                    segment.getTrackPoints().get(iTrackPoint)
-            );
-            Location gpxPointB = LocationMapper.mapFrom(
-                    segment.getTrackPoints().get(iTrackPoint + 1)
-            );
+        /**
+         * Computes the midpoints of the block, see {@link TrackMidpointKernel}, with their elevation and speed.
+         */
+        @NonNull
+        TrackStore convert(@NonNull TrackColumnsBlock block) {
+            TrackColumns trackColumns = block.columns();
+            TrackStore.Builder points = new TrackStore.Builder(trackSchema);
+
+            for (int segment = 0; segment < trackColumns.getSegmentCount(); segment++) {
+                if (segment > 0 || !block.continuesSegment()) {
+                    midpointKernel.reset();
+                }
+                int midpointCount = midpointKernel.process(trackColumns,
+                        trackColumns.getSegmentStartIndex(segment),
+                        trackColumns.getSegmentEndIndex(segment));
+
+                for (int iMidpoint = 0; iMidpoint < midpointCount; iMidpoint++) {
+                    pointValues[0] = (float) midpointKernel.getAltitude(iMidpoint);
+                    pointValues[1] = midpointKernel.getSpeed(iMidpoint);
+                    points.append(midpointKernel.getTimeMillis(iMidpoint), pointValues,
+                            midpointKernel.getLatitude(iMidpoint), midpointKernel.getLongitude(iMidpoint));
+                }
+            }
+            return points.build();
+        }
 
-            Location centroidLocation = LocationCalculatorUtil.calculateCentroidLocation(gpxPointA, gpxPointB);
+        /**
+         * Appends converted points to the cache and publishes them.
+         *
+         * @param points The points of a block, or null if the track could not be parsed
+         * @return All entities appended so far, created on access
+         */
+        @NonNull
+        List<DataEntity> fill(@Nullable TrackStore points) {
+            if (!cacheInitialized) {
+                dataCachedProvider.init(trackSchema, sourceKey);
+                cacheInitialized = true;
+                publishedVersion = dataCachedProvider.getVersion();
+            }
 
-            DataEntity dataEntity = createDataEntity(iTrackPoint, centroidLocation);
+            if (points == null) {
+                Log.e("GPXDataProvider", "Error parsing gpx track!");
+                return dataCachedProvider.getDataEntityList();
+            }
+            if (points.isEmpty()) {
+                return dataCachedProvider.getDataEntityList();
+            }
 
-            dataCachedProvider.accept(dataEntity);
+            globalEventWrapper.onNext(EventProgress.create(GpxFileDataEntityProvider.class, 0, points.size()));
 
-            EventProgress currentEventProgress = EventProgress.create(GpxFileDataEntityProvider.class, iTrackPoint + 1, maxIteration);
+            dataCachedProvider.appendAll(points);
+            dataCachedProvider.publish();
+            publishedVersion = dataCachedProvider.getVersion();
 
-            lastEventProgress = globalEventWrapper.onNextChanged(lastEventProgress, currentEventProgress);
+            globalEventWrapper.onNext(EventProgress.create(GpxFileDataEntityProvider.class, points.size(), points.size()));
 
-            gpxPointList.add(dataEntity);
+            return dataCachedProvider.getDataEntityList();
         }
-    }
 
-    @NonNull
-    private static DataEntity createDataEntity(int iTrackPoint, Location location) {
-        return new DataEntity(iTrackPoint, location.getTime(),
-                List.of(
-                        new DataMeasure((float) location.getAltitude(),
-                                0.1f,
-                                NAME_LIST.get(0),
-                                UNIT_LIST.get(0)
-                                ),
-                        new DataMeasure(location.getSpeed(),
-                                0.1f,
-                                NAME_LIST.get(1),
-                                UNIT_LIST.get(1)
-                        )
-
-                ),
-                location
-        );
+        /**
+         * @return true if the data of the cache is still the data this appender published last,
+         * so the next block continues it
+         */
+        boolean holdsCache() {
+            return cacheInitialized && dataCachedProvider.getVersion() == publishedVersion;
+        }
     }
 }
@@ -0,0 +1,161 @@
+package com.itservices.gpxanalyzer.feature.gpxchart.data.provider.file;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
+import com.itservices.gpxanalyzer.core.utils.common.ThroughputCounter;
+
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Runs a progressive load in three pipelined stages connected by queues of at most {@code queueCapacity}
+ * blocks, so the load takes about as long as its slowest stage instead of the sum of all stages:
+ * <ol>
+ *     <li>parse: the source of the {@link TrackColumnsBlock}s, subscribed and requested on an I/O thread,</li>
+ *     <li>geo: the conversion of a block into the columns of a {@link TrackStore}, on a computation thread,</li>
+ *     <li>fill: the append of the columns to the cache, run by the consumer subscribing the emitted {@link Single}s.</li>
+ * </ol>
+ * Every stage runs only on demand of the next one. The parse stage is requested a block only when the
+ * queue of the geo stage has room, and the geo stage only when fewer than {@code queueCapacity}
+ * converted blocks wait for the consumer, a block waiting until its {@link Single} is subscribed, which
+ * must happen once for every block, whether it is filled or disposed then. The
+ * source must honour the requests, as {@link com.itservices.gpxanalyzer.core.data.parser.GPXParser#parseTrackColumnBlocks}
+ * does, so at most {@code 2 * queueCapacity} blocks are held ahead of the consumer.
+ * <p>
+ * The busy time of every stage is counted and logged once all blocks are filled.
+ * <p>
+ * Thread safety: A pipeline runs one load and must not be reused.
+ */
+final class IngestionPipeline {
+    private final int queueCapacity;
+    private final Function<TrackColumnsBlock, TrackStore> converter;
+    private final Function<TrackStore, List<DataEntity>> filler;
+    private final ThroughputCounter parseCounter = new ThroughputCounter("parse");
+    private final ThroughputCounter geoCounter = new ThroughputCounter("geo");
+    private final ThroughputCounter fillCounter = new ThroughputCounter("fill");
+
+    // Parse stage state, only touched on the thread of the parse stage
+    private boolean parsing = false;
+    private long requestedBlocks = 0;
+    private long parseStartNanos;
+
+    /**
+     * @param queueCapacity The number of blocks a stage may run ahead of the next stage, at least 1
+     * @param converter     The geo stage, called for one block after another
+     * @param filler        The fill stage, called for one block after another
+     */
+    IngestionPipeline(int queueCapacity,
+                      Function<TrackColumnsBlock, TrackStore> converter,
+                      Function<TrackStore, List<DataEntity>> filler) {
+        this.queueCapacity = queueCapacity;
+        this.converter = converter;
+        this.filler = filler;
+    }
+
+    /**
+     * @param blocks The parse stage, emitting the blocks on request
+     * @return An {@link Observable} emitting one deferred fill per block, in the order of the blocks
+     */
+    Observable<Single<List<DataEntity>>> run(Flowable<TrackColumnsBlock> blocks) {
+        Flowable<TrackStore> convertedBlocks = Flowable.defer(() -> {
+                    // Preparing the source, e.g. scanning a file before it is split into blocks, is parse work
+                    parsing = true;
+                    parseStartNanos = System.nanoTime();
+                    return blocks;
+                })
+                .doOnRequest(this::onParseRequested)
+                .doOnNext(this::onParsed)
+                .subscribeOn(Schedulers.io())
+                .observeOn(Schedulers.computation(), true, queueCapacity)
+                .map(this::convert);
+
+        return Observable.create(emitter -> convertedBlocks.subscribe(new FlowableSubscriber<TrackStore>() {
+            // the completion and every emitted block not filled yet
+            private final AtomicInteger pending = new AtomicInteger(1);
+            private Subscription upstream;
+
+            @Override
+            public void onSubscribe(@NonNull Subscription subscription) {
+                upstream = subscription;
+                emitter.setCancellable(subscription::cancel);
+                subscription.request(queueCapacity);
+            }
+
+            @Override
+            public void onNext(TrackStore points) {
+                pending.incrementAndGet();
+                emitter.onNext(Single.fromCallable(() -> fill(points))
+                        .doOnSubscribe(disposable -> upstream.request(1))
+                        .doFinally(this::onFilled));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                emitter.tryOnError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                emitter.onComplete();
+                onFilled();
+            }
+
+            private void onFilled() {
+                if (pending.decrementAndGet() == 0) {
+                    Log.d("GPXDataProvider", "Ingestion " + parseCounter + ", " + geoCounter + ", " + fillCounter);
+                }
+            }
+        }));
+    }
+
+    /**
+     * The source parses only while blocks are requested; the counts requested by the queue are small.
+     */
+    private void onParseRequested(long count) {
+        if (!parsing) {
+            parsing = true;
+            parseStartNanos = System.nanoTime();
+        }
+        requestedBlocks += count;
+    }
+
+    /**
+     * Counts the time since the parse stage became busy or, if busy since, since the previous block was parsed.
+     */
+    private void onParsed(TrackColumnsBlock block) {
+        long now = System.nanoTime();
+        parseCounter.record(block.columns().size(), now - parseStartNanos);
+        parseStartNanos = now;
+        if (--requestedBlocks <= 0) {
+            parsing = false;
+        }
+    }
+
+    private TrackStore convert(TrackColumnsBlock block) throws Exception {
+        long start = System.nanoTime();
+        TrackStore points = converter.apply(block);
+        geoCounter.record(points.size(), System.nanoTime() - start);
+        return points;
+    }
+
+    private List<DataEntity> fill(TrackStore points) throws Exception {
+        long start = System.nanoTime();
+        List<DataEntity> data = filler.apply(points);
+        fillCounter.record(points.size(), System.nanoTime() - start);
+        return data;
+    }
+}
@@ -2,6 +2,7 @@ package com.itservices.gpxanalyzer.feature.gpxchart.domain;
 
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.CHART_UPDATING;
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.DATA_LOADED;
+import static com.itservices.gpxanalyzer.core.events.RequestStatus.DATA_PARTIALLY_LOADED;
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.LOADING;
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.PROCESSED;
 import static com.itservices.gpxanalyzer.core.events.RequestStatus.PROCESSING;
@@ -21,6 +22,7 @@ import com.itservices.gpxanalyzer.feature.gpxchart.ui.viewmode.GpxViewModeMapper
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 
@@ -38,6 +40,12 @@ import io.reactivex.schedulers.Schedulers;
 public class LoadChartDataUseCase {
     private static final String TAG = LoadChartDataUseCase.class.getSimpleName();
 
+    /**
+     * How many times the final update of a chart is computed again when the cache published other data
+     * while it was being processed.
+     */
+    static final int MAX_STALE_RETRIES = 3;
+
     /**
      * Mapper to convert {@link GpxViewMode} to data indices.
      */
@@ -84,7 +92,7 @@ public class LoadChartDataUseCase {
      *     <li>Publishes {@link RequestStatus#LOADING} and {@link RequestStatus#DATA_LOADED} events.</li>
      *     <li>Initializes each chart using the provided {@link ChartInitializerUseCase}.</li>
      *     <li>Publishes {@link RequestStatus#PROCESSING} event during initialization.</li>
-     *     <li>Fetches processed data specific to each chart's view mode using {@link #provideDataFor(ChartAreaItem)}.</li>
+     *     <li>Fetches processed data specific to each chart's view mode using {@link #provideDataFor(DataEntityWrapper)}.</li>
      *     <li>Publishes {@link RequestStatus#PROCESSED} and {@link RequestStatus#CHART_UPDATING} events.</li>
      *     <li>Updates each chart with the processed data via {@link ChartAreaItem#updateChart(RawDataProcessed)}.</li>
      *     <li>Collects the final status of each chart update.</li>
@@ -106,9 +114,90 @@ public class LoadChartDataUseCase {
         Log.d(TAG, "Starting data loading for " + chartAreaItemList.size() + " charts");
         eventWrapper.onNext(LOADING);
 
-        return dataEntityCachedProvider.provide()
-                .subscribeOn(Schedulers.io())
-                .observeOn(Schedulers.computation())
+        return loadWithData(
+                dataEntityCachedProvider.provide()
+                        .subscribeOn(Schedulers.io())
+                        .observeOn(Schedulers.computation()),
+                chartAreaItemList, chartInitializer);
+    }
+
+    /**
+     * Progressive variant of {@link #loadData(List, ChartInitializerUseCase)} for long tracks.
+     * <p>
+     * The data is requested with {@link GpxDataEntityCachedProvider#provideProgressive()}. After every
+     * loaded block of points the charts are updated with the data loaded so far, so extrema and trend
+     * segments are computed on the partial track and converge while the rest is still being parsed.
+     * Each partial update is followed by a {@link RequestStatus#DATA_PARTIALLY_LOADED} event, which
+     * lets the map extend the drawn track. Blocks and chart updates are handled strictly one after
+     * another, the next block is appended to the cache only when the previous update has finished.
+     * <p>
+     * Since the blocks double in size, the partial updates together cost at most as much as the final one.
+     * When all blocks are loaded, the regular pipeline of {@link #loadData(List, ChartInitializerUseCase)}
+     * runs once more on the complete data, reusing the processed data of the last partial update,
+     * and emits its events and final status.
+     *
+     * @param chartAreaItemList The list of {@link ChartAreaItem} objects representing the charts to load data into.
+     * @param chartInitializer  The use case responsible for the initial setup of each chart before data is loaded.
+     * @return An {@link Observable} that emits the final overall {@link RequestStatus} of the data loading process.
+     *         Returns {@code Observable.just(RequestStatus.ERROR)} immediately if the input list is null or empty.
+     */
+    public Observable<RequestStatus> loadDataProgressive(List<ChartAreaItem> chartAreaItemList, ChartInitializerUseCase chartInitializer) {
+        if (chartAreaItemList == null || chartAreaItemList.isEmpty()) {
+            Log.w(TAG, "Cannot load data - chart list is null or empty");
+            return Observable.just(RequestStatus.ERROR);
+        }
+
+        Log.d(TAG, "Starting progressive data loading for " + chartAreaItemList.size() + " charts");
+        eventWrapper.onNext(LOADING);
+
+        AtomicBoolean chartsInitialized = new AtomicBoolean(false);
+
+        return loadWithData(
+                dataEntityCachedProvider.provideProgressive()
+                        .subscribeOn(Schedulers.io())
+                        .observeOn(Schedulers.computation())
+                        .concatMap(appendBlock -> appendBlock
+                                .flatMapObservable(data -> updateWithPartialData(chartAreaItemList, chartInitializer, chartsInitialized)))
+                        .toList(),
+                chartAreaItemList, chartInitializer);
+    }
+
+    /**
+     * Updates the charts with the points appended to the loaded file since the previous call, see
+     * {@link GpxDataEntityCachedProvider#provideAppended()}. If points were appended, the charts, which
+     * must have been initialized by a load before, are updated like by a partial update of
+     * {@link #loadDataProgressive(List, ChartInitializerUseCase)}, followed by {@link RequestStatus#DONE}.
+     *
+     * @param chartAreaItemList The list of {@link ChartAreaItem} objects representing the charts to update.
+     * @param chartInitializer  The use case responsible for the initial setup of each chart.
+     * @return An {@link Observable} emitting the {@link RequestStatus} after each chart update, empty if no
+     *         points were appended.
+     */
+    public Observable<RequestStatus> loadAppendedData(List<ChartAreaItem> chartAreaItemList, ChartInitializerUseCase chartInitializer) {
+        return Observable.defer(() -> {
+            long version = dataEntityCache.getVersion();
+
+            return dataEntityCachedProvider.provideAppended()
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(Schedulers.computation())
+                    .flatMapObservable(data -> dataEntityCache.getVersion() == version ?
+                            Observable.<RequestStatus>empty()
+                            :
+                            updateWithPartialData(chartAreaItemList, chartInitializer, new AtomicBoolean(true))
+                                    .doOnComplete(() -> eventWrapper.onNext(RequestStatus.DONE)));
+        });
+    }
+
+    /**
+     * Runs the chart pipeline of {@link #loadData(List, ChartInitializerUseCase)} once the data is available.
+     *
+     * @param dataSingle        Completes when all data has been loaded into the cache.
+     * @param chartAreaItemList List of chart items to initialize and update.
+     * @param chartInitializer  The use case for initializing charts.
+     * @return An Observable emitting the final overall {@link RequestStatus}.
+     */
+    private Observable<RequestStatus> loadWithData(Single<?> dataSingle, List<ChartAreaItem> chartAreaItemList, ChartInitializerUseCase chartInitializer) {
+        return dataSingle
                 .doOnSuccess(data -> {
                     Log.d(TAG, "Data loaded successfully");
                     eventWrapper.onNext(DATA_LOADED);
@@ -166,6 +255,46 @@ public class LoadChartDataUseCase {
                 });
     }
 
+    /**
+     * Updates all charts with the data loaded so far during a progressive load.
+     * The charts are initialized before the first partial update. Unlike the final update no
+     * processing events are published, only {@link RequestStatus#DATA_PARTIALLY_LOADED} when done.
+     * A failing partial update is logged and left to the final update, and so is a partial update
+     * whose data is no longer the current data of the cache, see {@link DataEntityWrapper#isStale()}.
+     *
+     * @param chartAreaItemList List of chart items to update.
+     * @param chartInitializer  The use case for initializing charts.
+     * @param chartsInitialized Set once the charts have been initialized during this load.
+     * @return An Observable emitting the {@link RequestStatus} after each chart update.
+     */
+    private Observable<RequestStatus> updateWithPartialData(List<ChartAreaItem> chartAreaItemList, ChartInitializerUseCase chartInitializer,
+                                                            AtomicBoolean chartsInitialized) {
+        Observable<ChartAreaItem> chartAreaItems = chartsInitialized.getAndSet(true)
+                ? Observable.fromIterable(chartAreaItemList)
+                : Observable.fromIterable(chartAreaItemList)
+                        .concatMapSingle(chartAreaItem -> chartInitializer.initChart(chartAreaItem)
+                                .subscribeOn(Schedulers.computation()));
+
+        return chartAreaItems
+                .concatMapSingle(chartAreaItem -> {
+                    DataEntityWrapper dataEntityWrapper = createWrapperFor(chartAreaItem.getViewMode().getValue());
+                    return rawDataProcessedProvider.provide(dataEntityWrapper)
+                            .observeOn(Schedulers.computation())
+                            .flatMap(rawDataProcessed -> {
+                                if (dataEntityWrapper.isStale()) {
+                                    Log.d(TAG, "Skipping partial chart update of data replaced in the cache");
+                                    return Single.just(CHART_UPDATING);
+                                }
+                                return chartAreaItem.updateChart(rawDataProcessed);
+                            })
+                            .onErrorReturn(throwable -> {
+                                Log.w(TAG, "Partial chart update failed", throwable);
+                                return RequestStatus.ERROR;
+                            });
+                })
+                .doOnComplete(() -> eventWrapper.onNext(DATA_PARTIALLY_LOADED));
+    }
+
     /**
      * Fetches processed data for a specific {@link ChartAreaItem} and triggers its chart update.
      * Helper method used within the {@link #initWithData(List, ChartInitializerUseCase)} chain.
@@ -175,22 +304,48 @@ public class LoadChartDataUseCase {
      *         and emits the resulting {@link RequestStatus}.
      */
     private Single<Single<RequestStatus>> updateWithData(ChartAreaItem chartAreaItem) {
-        return provideDataFor(chartAreaItem)
-                .map(chartAreaItem::updateChart);
+        return updateWithData(chartAreaItem, MAX_STALE_RETRIES);
+    }
+
+    /**
+     * Like {@link #updateWithData(ChartAreaItem)}, but when the cache has published other data by the time
+     * the chart is updated, the processed data is not shown. The update starts over on the current data
+     * instead, at most {@code retriesLeft} more times; after that the chart is left to the update of the
+     * load that published the data, and {@link RequestStatus#CHART_UPDATING} is emitted.
+     *
+     * @param chartAreaItem The chart item to update.
+     * @param retriesLeft   How many more times the update may start over.
+     * @return A {@link Single} emitting another {@link Single} which, upon subscription, updates the chart
+     *         and emits the resulting {@link RequestStatus}.
+     */
+    private Single<Single<RequestStatus>> updateWithData(ChartAreaItem chartAreaItem, int retriesLeft) {
+        DataEntityWrapper dataEntityWrapper = createWrapperFor(chartAreaItem.getViewMode().getValue());
+
+        return provideDataFor(dataEntityWrapper)
+                .map(rawDataProcessed -> Single.defer(() -> {
+                    if (!dataEntityWrapper.isStale()) {
+                        return chartAreaItem.updateChart(rawDataProcessed);
+                    }
+                    if (retriesLeft > 0) {
+                        Log.d(TAG, "Data replaced in the cache while processing, updating chart again");
+                        return updateWithData(chartAreaItem, retriesLeft - 1)
+                                .flatMap(requestStatusSingle -> requestStatusSingle);
+                    }
+                    Log.w(TAG, "Data replaced in the cache while processing, chart update skipped");
+                    return Single.just(CHART_UPDATING);
+                }));
     }
 
     /**
-     * Provides the processed data required for a specific chart based on its view mode.
-     * Uses the {@link RawDataProcessedProvider} and creates a {@link DataEntityWrapper} specific
-     * to the chart's required data columns.
+     * Provides the processed data required for a specific chart.
+     * Uses the {@link RawDataProcessedProvider} with a {@link DataEntityWrapper} specific
+     * to the chart's required data columns, see {@link #createWrapperFor(GpxViewMode)}.
      *
-     * @param chartAreaItem The chart item for which to provide data.
+     * @param dataEntityWrapper The data of the chart.
      * @return A {@link Single} emitting the {@link RawDataProcessed} data for the chart.
      */
-    private Single<RawDataProcessed> provideDataFor(ChartAreaItem chartAreaItem) {
-        return rawDataProcessedProvider.provide(
-                        createWrapperFor(chartAreaItem.getViewMode().getValue())
-                )
+    private Single<RawDataProcessed> provideDataFor(DataEntityWrapper dataEntityWrapper) {
+        return rawDataProcessedProvider.provide(dataEntityWrapper)
                 .observeOn(Schedulers.computation())
                 .doOnError(e -> Log.e(TAG, "Error rawDataProcessedProvider", e))
                 .doOnSuccess(rawDataProcessed -> {
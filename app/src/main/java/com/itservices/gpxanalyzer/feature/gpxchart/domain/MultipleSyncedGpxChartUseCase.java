@@ -2,14 +2,17 @@ package com.itservices.gpxanalyzer.feature.gpxchart.domain;
 
 import android.util.Log;
 
+import com.itservices.gpxanalyzer.core.events.RequestStatus;
 import com.itservices.gpxanalyzer.feature.gpxchart.ui.item.ChartAreaItem;
 import com.itservices.gpxanalyzer.core.utils.common.ConcurrentUtil;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -24,6 +27,11 @@ import io.reactivex.android.schedulers.AndroidSchedulers;
 public class MultipleSyncedGpxChartUseCase {
     private static final String TAG = MultipleSyncedGpxChartUseCase.class.getSimpleName();
 
+    /**
+     * Interval in which a followed file is checked for appended points, see {@link #loadDataProgressiveAndFollow(List)}.
+     */
+    static final long APPENDED_DATA_POLL_INTERVAL_SECONDS = 5;
+
     /**
      * Use case for loading data into individual charts.
      */
@@ -67,10 +75,55 @@ public class MultipleSyncedGpxChartUseCase {
 
         Log.d(TAG, "Loading data for " + chartAreaItemList.size() + " charts");
 
+        subscribeLoading(chartDataLoader.loadData(chartAreaItemList, chartInitializer));
+    }
+
+    /**
+     * Initiates a progressive data loading process for a list of {@link ChartAreaItem}s, showing
+     * the beginning of a long track while the rest is still being loaded.
+     * Like {@link #loadData(List)}, a previous data loading operation is disposed first.
+     * Delegates the actual loading to {@link LoadChartDataUseCase#loadDataProgressive(List, ChartInitializerUseCase)}.
+     *
+     * @param chartAreaItemList The list of chart items to load data for.
+     */
+    public void loadDataProgressive(List<ChartAreaItem> chartAreaItemList) {
+        if (chartAreaItemList == null || chartAreaItemList.isEmpty()) {
+            Log.w(TAG, "Cannot load data - chart list is null or empty");
+            return;
+        }
+
+        Log.d(TAG, "Loading data progressively for " + chartAreaItemList.size() + " charts");
+
+        subscribeLoading(chartDataLoader.loadDataProgressive(chartAreaItemList, chartInitializer));
+    }
+
+    /**
+     * Like {@link #loadDataProgressive(List)}, but once the data is loaded the loaded file is followed:
+     * every {@link #APPENDED_DATA_POLL_INTERVAL_SECONDS} seconds the points appended to it, e.g. by a
+     * recording app, are loaded and the charts are updated with them, see
+     * {@link LoadChartDataUseCase#loadAppendedData(List, ChartInitializerUseCase)}.
+     * The file is followed until the next load or {@link #disposeAll()}.
+     *
+     * @param chartAreaItemList The list of {@link ChartAreaItem} objects to load data into and update.
+     */
+    public void loadDataProgressiveAndFollow(List<ChartAreaItem> chartAreaItemList) {
+        if (chartAreaItemList == null || chartAreaItemList.isEmpty()) {
+            Log.w(TAG, "Cannot load data - chart list is null or empty");
+            return;
+        }
+
+        Log.d(TAG, "Loading data progressively and following the file for " + chartAreaItemList.size() + " charts");
+
+        subscribeLoading(chartDataLoader.loadDataProgressive(chartAreaItemList, chartInitializer)
+                .concatWith(Observable.interval(APPENDED_DATA_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                        .concatMap(tick -> chartDataLoader.loadAppendedData(chartAreaItemList, chartInitializer))));
+    }
+
+    private void subscribeLoading(Observable<RequestStatus> loading) {
         // Dispose existing data loading subscription
         ConcurrentUtil.tryToDispose(loadDataDisposable);
         // Load new data
-        loadDataDisposable = chartDataLoader.loadData(chartAreaItemList, chartInitializer)
+        loadDataDisposable = loading
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread())
             .doOnComplete(() -> {
@@ -301,7 +301,7 @@ public class ChartAreaListViewModel extends ViewModel {
                 .observeOn(Schedulers.newThread())
                 .doOnNext(chartAreaItemsToReload ->
                         multipleSyncedGpxChartUseCase
-                                .loadData(chartAreaItemsToReload)
+                                .loadDataProgressiveAndFollow(chartAreaItemsToReload)
                 )
                 .doOnError(Throwable::printStackTrace)
                 .subscribe();
@@ -346,7 +346,7 @@ public class ChartAreaListViewModel extends ViewModel {
      */
     private static boolean getButtonEnabled(RequestStatus requestStatus) {
         return switch (requireNonNull(requestStatus)) {
-            case LOADING, NEW_DATA_LOADING, DATA_LOADED, PROCESSING, PROCESSED, CHART_INITIALIZED, CHART_UPDATING,
+            case LOADING, NEW_DATA_LOADING, DATA_PARTIALLY_LOADED, DATA_LOADED, PROCESSING, PROCESSED, CHART_INITIALIZED, CHART_UPDATING,
                  CHART_UPDATED -> false;
             case ERROR_DATA_SETS_NULL, ERROR_LINE_DATA_SET_NULL, ERROR_NEW_DATA_SET_NULL,
                  ERROR_INVALID_DATA_SET_AMOUNT_TO_SHOW, CHART_WEAK_REFERENCE_IS_NULL, CHART_IS_NULL,
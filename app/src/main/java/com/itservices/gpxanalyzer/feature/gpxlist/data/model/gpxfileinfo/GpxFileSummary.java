@@ -0,0 +1,107 @@
+package com.itservices.gpxanalyzer.feature.gpxlist.data.model.gpxfileinfo;
+
+import com.itservices.gpxanalyzer.core.utils.location.LocationCalculatorUtil;
+
+/**
+ * Overview of all track points of a GPX file, computed in a single pass without keeping the points.
+ *
+ * @param pointCount      Number of track points in all segments.
+ * @param startTimeMillis Earliest point time, or {@link #NO_TIME} if no point has a time.
+ * @param endTimeMillis   Latest point time, or {@link #NO_TIME} if no point has a time.
+ * @param distanceMeters  Sum of the great-circle distances between neighbouring points of every segment.
+ * @param minLatitude     Southern bound of the points, {@link Double#NaN} if there are none.
+ * @param maxLatitude     Northern bound of the points, {@link Double#NaN} if there are none.
+ * @param minLongitude    Western bound of the points, {@link Double#NaN} if there are none.
+ * @param maxLongitude    Eastern bound of the points, {@link Double#NaN} if there are none.
+ * @param minElevation    Lowest elevation, {@link Double#NaN} if no point has one.
+ * @param maxElevation    Highest elevation, {@link Double#NaN} if no point has one.
+ */
+public record GpxFileSummary(
+        int pointCount,
+        long startTimeMillis,
+        long endTimeMillis,
+        double distanceMeters,
+        double minLatitude,
+        double maxLatitude,
+        double minLongitude,
+        double maxLongitude,
+        double minElevation,
+        double maxElevation
+) {
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * @return time between the earliest and the latest point, 0 if the points have no time
+     */
+    public long durationMillis() {
+        return startTimeMillis == NO_TIME ? 0 : endTimeMillis - startTimeMillis;
+    }
+
+    /**
+     * Collects the summary point by point, in document order.
+     */
+    public static final class Builder {
+        private int pointCount = 0;
+        private long startTimeMillis = NO_TIME;
+        private long endTimeMillis = NO_TIME;
+        private double distanceMeters = 0;
+        private double minLatitude = Double.NaN;
+        private double maxLatitude = Double.NaN;
+        private double minLongitude = Double.NaN;
+        private double maxLongitude = Double.NaN;
+        private double minElevation = Double.NaN;
+        private double maxElevation = Double.NaN;
+
+        private boolean hasPreviousPoint = false;
+        private double previousLatitude;
+        private double previousLongitude;
+
+        /**
+         * Starts a new track segment, the distance to the last point of the previous segment is not counted.
+         */
+        public Builder beginSegment() {
+            hasPreviousPoint = false;
+            return this;
+        }
+
+        /**
+         * @param elevation  elevation in meters or {@link Double#NaN} if the point has none
+         * @param timeMillis point time or {@link #NO_TIME} if the point has none
+         */
+        public Builder addPoint(double latitude, double longitude, double elevation, long timeMillis) {
+            if (pointCount++ == 0) {
+                minLatitude = maxLatitude = latitude;
+                minLongitude = maxLongitude = longitude;
+            } else {
+                minLatitude = Math.min(minLatitude, latitude);
+                maxLatitude = Math.max(maxLatitude, latitude);
+                minLongitude = Math.min(minLongitude, longitude);
+                maxLongitude = Math.max(maxLongitude, longitude);
+            }
+
+            if (!Double.isNaN(elevation)) {
+                minElevation = Double.isNaN(minElevation) ? elevation : Math.min(minElevation, elevation);
+                maxElevation = Double.isNaN(maxElevation) ? elevation : Math.max(maxElevation, elevation);
+            }
+
+            if (timeMillis != NO_TIME) {
+                startTimeMillis = startTimeMillis == NO_TIME ? timeMillis : Math.min(startTimeMillis, timeMillis);
+                endTimeMillis = endTimeMillis == NO_TIME ? timeMillis : Math.max(endTimeMillis, timeMillis);
+            }
+
+            if (hasPreviousPoint) {
+                distanceMeters += LocationCalculatorUtil.calculateDistance(previousLatitude, previousLongitude, latitude, longitude);
+            }
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+            hasPreviousPoint = true;
+            return this;
+        }
+
+        public GpxFileSummary build() {
+            return new GpxFileSummary(pointCount, startTimeMillis, endTimeMillis, distanceMeters,
+                    minLatitude, maxLatitude, minLongitude, maxLongitude, minElevation, maxElevation);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.itservices.gpxanalyzer.feature.gpxlist.data.model.gpxfileinfo.GpxFile
 import com.itservices.gpxanalyzer.feature.gpxlist.data.provider.file.GpxFileInfoParser;
 import com.itservices.gpxanalyzer.core.data.provider.db.gpxfileinfo.GpxFileInfoRepository;
 import com.itservices.gpxanalyzer.core.data.provider.file.GpxFileValidator;
+import com.itservices.gpxanalyzer.core.utils.files.GpxCompression;
 import com.itservices.gpxanalyzer.feature.gpxlist.data.provider.file.DeviceStorageSearchedFileProvider;
 
 import java.util.ArrayList;
@@ -21,7 +22,7 @@ import io.reactivex.schedulers.Schedulers;
 @Singleton
 public class GpxFileInfoProvider {
     public static final String GPX_FILE_EXTENSION = ".gpx";
-    private static final String[] MEDIA_STORE_SELECTION_ARGS = new String[]{"application/gpx+xml", "text/xml", "%.gpx"};
+    private static final String[] MEDIA_STORE_SELECTION_ARGS = new String[]{"application/gpx+xml", "text/xml", "%.gpx", "%.gpx.gz", "%.zip"};
 
     @Inject
     GpxFileInfoParser parser;
@@ -42,8 +43,8 @@ public class GpxFileInfoProvider {
 
     public Single<List<GpxFileInfo>> searchAndParseGpxFilesRecursively(Context context) {
         return deviceStorage.searchAndParseFilesRecursively(
-                        context, file -> parser.parse(file),
-                        GPX_FILE_EXTENSION, MEDIA_STORE_SELECTION_ARGS
+                        context, file -> GpxCompression.containsGpx(file) ? parser.parse(file) : null,
+                        GpxCompression.GPX_FILE_EXTENSIONS, MEDIA_STORE_SELECTION_ARGS
                 )
                 .map(newParsedFileList -> {
                     List<GpxFileInfo> newGpxFileList = new ArrayList<>();
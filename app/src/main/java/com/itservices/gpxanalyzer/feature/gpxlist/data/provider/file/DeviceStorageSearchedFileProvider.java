@@ -44,7 +44,10 @@ public class DeviceStorageSearchedFileProvider {
     private static final String EXTERNAL_STORAGE = "external";
     private static final String INTERNAL_STORAGE = "internal";
     private static final String[] MEDIA_STORE_PROJECTION = {MediaStore.Files.FileColumns._ID, MediaStore.Files.FileColumns.DISPLAY_NAME, MediaStore.Files.FileColumns.DATA, MediaStore.Files.FileColumns.SIZE, MediaStore.Files.FileColumns.MIME_TYPE, MediaStore.Files.FileColumns.RELATIVE_PATH, MediaStore.Files.FileColumns.VOLUME_NAME};
-    private static final String MEDIA_STORE_SELECTION_QUERY = MediaStore.Files.FileColumns.MIME_TYPE + "=? OR " + MediaStore.Files.FileColumns.MIME_TYPE + "=? OR " + MediaStore.Files.FileColumns.DISPLAY_NAME + " LIKE ?";
+    private static final String MEDIA_STORE_MIME_TYPE_SELECTION = MediaStore.Files.FileColumns.MIME_TYPE + "=?";
+    private static final String MEDIA_STORE_DISPLAY_NAME_SELECTION = MediaStore.Files.FileColumns.DISPLAY_NAME + " LIKE ?";
+    private static final String MEDIA_STORE_SELECTION_SEPARATOR = " OR ";
+    private static final String LIKE_WILDCARD = "%";
     private final List<String> KNOWN_DIRECTORIES_LIST = Arrays.asList(
             DIRECTORY_MUSIC, DIRECTORY_PODCASTS, DIRECTORY_RINGTONES,
             DIRECTORY_ALARMS, DIRECTORY_NOTIFICATIONS, DIRECTORY_PICTURES,
@@ -54,8 +57,9 @@ public class DeviceStorageSearchedFileProvider {
     GlobalEventWrapper globalEventWrapper;
 
     private Function<File, Object> parserFunction;
-    private String fileExtension = "";
+    private String[] fileExtensions = new String[]{""};
     private String[] mediaStoreSelectionArgs = new String[]{""};
+    private String mediaStoreSelectionQuery = "";
 
     private final List<Object> parsedFileList = new ArrayList<>();
     private AtomicReference<EventProgress> lastEventProgress = new AtomicReference<>();
@@ -73,14 +77,48 @@ public class DeviceStorageSearchedFileProvider {
         return fileItem.equals(file);
     }
 
-    private boolean isFileWithExtensionName(String displayName, String fileExtension) {
-        return displayName != null && displayName.toLowerCase().endsWith(fileExtension);
+    private boolean isFileWithExtensionName(String displayName, String[] fileExtensions) {
+        if (displayName == null) {
+            return false;
+        }
+        String lowerCaseName = displayName.toLowerCase();
+        for (String fileExtension : fileExtensions) {
+            if (lowerCaseName.endsWith(fileExtension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the MediaStore selection for the given arguments: arguments starting with
+     * {@value #LIKE_WILDCARD} are matched against the display name, all others against the MIME type.
+     */
+    private static String buildMediaStoreSelectionQuery(String[] mediaStoreSelectionArgs) {
+        StringBuilder selection = new StringBuilder();
+        for (String selectionArg : mediaStoreSelectionArgs) {
+            if (selection.length() > 0) {
+                selection.append(MEDIA_STORE_SELECTION_SEPARATOR);
+            }
+            selection.append(selectionArg.startsWith(LIKE_WILDCARD) ?
+                    MEDIA_STORE_DISPLAY_NAME_SELECTION : MEDIA_STORE_MIME_TYPE_SELECTION);
+        }
+        return selection.toString();
     }
 
-    public Single<List<Object>> searchAndParseFilesRecursively(Context context, Function<File, Object> parserFunction, String fileExtension, String[] mediaStoreSelectionArgs) {
+    /**
+     * Searches the MediaStore and the storage directories for files with one of the given extensions
+     * and parses every file found.
+     *
+     * @param parserFunction          Parses a found file. It may return null to leave the file out of the result.
+     * @param fileExtensions          Accepted lower case file name extensions, including the dot.
+     * @param mediaStoreSelectionArgs MIME types and display name patterns starting with {@value #LIKE_WILDCARD}.
+     */
+    public Single<List<Object>> searchAndParseFilesRecursively(Context context, Function<File, Object> parserFunction, String[] fileExtensions, String[] mediaStoreSelectionArgs) {
         this.parserFunction = parserFunction;
-        this.fileExtension = fileExtension;
+        this.fileExtensions = fileExtensions;
         this.mediaStoreSelectionArgs = mediaStoreSelectionArgs;
+        this.mediaStoreSelectionQuery = buildMediaStoreSelectionQuery(mediaStoreSelectionArgs);
         parsedFileList.clear();
 
         return Single.fromCallable(() -> {
@@ -216,7 +254,7 @@ public class DeviceStorageSearchedFileProvider {
 
         for (Uri contentUri : contentUris) {
             searchInContentUri(fileList, contentUri, contentResolver,
-                    MEDIA_STORE_PROJECTION, MEDIA_STORE_SELECTION_QUERY, mediaStoreSelectionArgs
+                    MEDIA_STORE_PROJECTION, mediaStoreSelectionQuery, mediaStoreSelectionArgs
             );
         }
     }
@@ -249,7 +287,7 @@ public class DeviceStorageSearchedFileProvider {
             String relativePath = cursor.getString(relativePathColumn);
             String volumeName = cursor.getString(volumeNameColumn);
 
-            if (filePath != null && isFileWithExtensionName(displayName, fileExtension)) {
+            if (filePath != null && isFileWithExtensionName(displayName, fileExtensions)) {
                 addFileFrom(fileList, filePath);
             }
             ////Log.i(TAG, "MediaStore file exists: " + displayName);
@@ -266,13 +304,20 @@ public class DeviceStorageSearchedFileProvider {
             // Avoid adding duplicates found by direct search later
             if (fileList.stream().noneMatch(fileItem -> isEquals(fileItem, file))) {
                 fileList.add(file);
-                parsedFileList.add(parserFunction.apply(file));
+                addParsedFile(file);
             }
         } else {
             Log.w(TAG, "File from MediaStore does not exist or is inaccessible: " + filePath);
         }
     }
 
+    private void addParsedFile(File file) throws Exception {
+        Object parsedFile = parserFunction.apply(file);
+        if (parsedFile != null) {
+            parsedFileList.add(parsedFile);
+        }
+    }
+
     private void countFilesRecursively(File directory, AtomicInteger counter) {
         if (directory == null || !directory.exists()) {
             //Log.v(TAG, "Skipping count in non-existent directory: " + (directory == null ? "null" : directory.getAbsolutePath()));
@@ -334,13 +379,13 @@ public class DeviceStorageSearchedFileProvider {
     }
 
     private void processFile(List<File> fileList, AtomicInteger totalFiles, AtomicInteger processedFiles, File file) throws Exception {
-        if (file.getName().toLowerCase().endsWith(fileExtension)) {
+        if (isFileWithExtensionName(file.getName(), fileExtensions)) {
             //Log.i(TAG, "Direct search found " + fileExtension + " file: " + file.getAbsolutePath());
 
             // Avoid adding duplicates found by MediaStore
             if (fileList.stream().noneMatch(fileItem -> isEquals(fileItem, file))) {
                 fileList.add(file);
-                parsedFileList.add(parserFunction.apply(file));
+                addParsedFile(file);
             } else {
                 //Log.d(TAG, "Skipping duplicate " + fileExtension + " file found by direct search: " + file.getAbsolutePath());
             }
@@ -2,27 +2,38 @@ package com.itservices.gpxanalyzer.feature.gpxlist.data.provider.file;
 
 import android.location.Location;
 import android.util.Log;
+import android.util.Xml;
 
+import androidx.annotation.Nullable;
+
+import com.itservices.gpxanalyzer.core.data.parser.GpxTimeDecoder;
+import com.itservices.gpxanalyzer.core.utils.files.GpxCompression;
 import com.itservices.gpxanalyzer.feature.gpxlist.data.model.gpxfileinfo.GpxFileInfo;
+import com.itservices.gpxanalyzer.feature.gpxlist.data.model.gpxfileinfo.GpxFileSummary;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Locale;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.InputStream;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
+/**
+ * Reads the overview information of GPX files found on the device, plain or compressed.
+ * <p>
+ * The documents are streamed with an {@link XmlPullParser} instead of being loaded as a DOM:
+ * {@link #parse(File)} stops reading right after the first track point, and
+ * {@link #parseSummary(File)} visits every point once without keeping any of them.
+ * Scanning many files is therefore bound by I/O rather than by allocations.
+ */
 @Singleton
 public class GpxFileInfoParser {
     private static final String TAG = GpxFileInfoParser.class.getSimpleName();
-    
+
     // Default and error values
     private static final String DEFAULT_CREATOR = "Unknown";
     private static final String DEFAULT_AUTHOR = "Unknown";
@@ -31,7 +42,7 @@ public class GpxFileInfoParser {
     private static final String N_A = "N/A";
     private static final String GPX_LOCATION_PROVIDER = "gpx";
     private static final String ELEVATION_DEFAULT = "0";
-    
+
     // XML tags and attributes
     private static final String TAG_CREATOR = "creator";
     private static final String TAG_AUTHOR = "author";
@@ -42,103 +53,214 @@ public class GpxFileInfoParser {
     private static final String ATTR_LONGITUDE = "lon";
     private static final String TAG_ELEVATION = "ele";
     private static final String TAG_TIME = "time";
-    
+
     // Error messages
     private static final String ERROR_PARSING_FILE = "Error parsing GPX file: ";
     private static final String ERROR_PARSING_TIME = "Error parsing time: ";
-    
-    // Date format
-    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
-    private static final SimpleDateFormat GPX_POINT_DATETIME_FORMAT = 
-            new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
 
     @Inject
     public GpxFileInfoParser() {
     }
 
+    /**
+     * Reads the creator, the author name and the first track point of the file.
+     * The rest of the document is not read.
+     */
     public GpxFileInfo parse(File file) {
-        try {
-            Document document = createDocument(file);
-            String creator = extractCreator(document);
-            String authorName = extractAuthorName(document);
-            Location firstPointLocation = extractFirstPointLocation(document);
-            
-            return new GpxFileInfo(0, file, creator, authorName, firstPointLocation, "");
+        try (InputStream inputStream = new BufferedInputStream(GpxCompression.open(file), READ_BUFFER_SIZE)) {
+            Header header = new Header();
+            read(inputStream, header, null);
+
+            return new GpxFileInfo(0, file, header.creator, header.authorName, header.firstPointLocation, "");
         } catch (Exception e) {
             Log.e(TAG, ERROR_PARSING_FILE + file.getName(), e);
             return new GpxFileInfo(0, file, ERROR_CREATOR, ERROR_AUTHOR, null, "");
         }
     }
 
-    private Document createDocument(File file) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(file);
+    /**
+     * Computes the summary of all track points of the file in a single streaming pass.
+     *
+     * @return the summary, or null if the file cannot be read
+     */
+    @Nullable
+    public GpxFileSummary parseSummary(File file) {
+        try (InputStream inputStream = new BufferedInputStream(GpxCompression.open(file), READ_BUFFER_SIZE)) {
+            GpxFileSummary.Builder summary = new GpxFileSummary.Builder();
+            read(inputStream, new Header(), summary);
+
+            return summary.build();
+        } catch (Exception e) {
+            Log.e(TAG, ERROR_PARSING_FILE + file.getName(), e);
+            return null;
+        }
     }
 
-    private String extractCreator(Document document) {
-        String creator = document.getDocumentElement().getAttribute(TAG_CREATOR);
-        return creator.isEmpty() ? DEFAULT_CREATOR : creator;
+    /**
+     * Reads the document up to the first track point, or up to its end when a summary is collected.
+     */
+    private void read(InputStream inputStream, Header header, @Nullable GpxFileSummary.Builder summary)
+            throws XmlPullParserException, IOException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        parser.setInput(inputStream, null);
+        parser.nextTag();
+
+        String creator = parser.getAttributeValue(null, TAG_CREATOR);
+        if (creator != null && !creator.isEmpty()) {
+            header.creator = creator;
+        }
+
+        boolean authorRead = false;
+        boolean inTrackSegment = false;
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.END_TAG) {
+                if (TAG_TRACK_SEGMENT.equals(parser.getName())) {
+                    inTrackSegment = false;
+                }
+                continue;
+            }
+            if (eventType != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            String name = parser.getName();
+            if (TAG_AUTHOR.equals(name) && !authorRead) {
+                authorRead = true;
+                String authorName = readAuthorName(parser);
+                if (authorName != null) {
+                    header.authorName = authorName;
+                }
+            } else if (TAG_TRACK_SEGMENT.equals(name)) {
+                inTrackSegment = true;
+                if (summary != null) {
+                    summary.beginSegment();
+                }
+            } else if (TAG_TRACK_POINT.equals(name) && inTrackSegment) {
+                PointText point = readPoint(parser);
+                if (header.firstPointLocation == null) {
+                    header.firstPointLocation = createLocationFromPoint(point);
+                }
+                if (summary == null) {
+                    return;
+                }
+                addToSummary(summary, point);
+            }
+        }
     }
 
-    private String extractAuthorName(Document document) {
-        NodeList authorNodes = document.getElementsByTagName(TAG_AUTHOR);
-        if (authorNodes.getLength() > 0) {
-            NodeList nameNodes = ((Element) authorNodes.item(0)).getElementsByTagName(TAG_NAME);
-            if (nameNodes.getLength() > 0) {
-                return nameNodes.item(0).getTextContent();
+    /**
+     * @return the text of the first {@code <name>} inside the current {@code <author>} element,
+     * or null if there is none. The parser is left on the end tag of the author.
+     */
+    @Nullable
+    private String readAuthorName(XmlPullParser parser) throws XmlPullParserException, IOException {
+        String authorName = null;
+        int depth = parser.getDepth();
+        while (parser.next() != XmlPullParser.END_TAG || parser.getDepth() > depth) {
+            if (parser.getEventType() == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of document in " + TAG_AUTHOR);
+            }
+            if (authorName == null && parser.getEventType() == XmlPullParser.START_TAG && TAG_NAME.equals(parser.getName())) {
+                authorName = parser.nextText();
             }
         }
-        return DEFAULT_AUTHOR;
+        return authorName;
     }
 
-    private Location extractFirstPointLocation(Document document) {
-        NodeList trksegNodes = document.getElementsByTagName(TAG_TRACK_SEGMENT);
-        if (trksegNodes.getLength() > 0) {
-            NodeList trkptNodes = ((Element) trksegNodes.item(0)).getElementsByTagName(TAG_TRACK_POINT);
-            if (trkptNodes.getLength() > 0) {
-                return createLocationFromPoint((Element) trkptNodes.item(0));
+    /**
+     * Reads the current {@code <trkpt>} element, leaving the parser on its end tag.
+     */
+    private PointText readPoint(XmlPullParser parser) throws XmlPullParserException, IOException {
+        PointText point = new PointText(
+                parser.getAttributeValue(null, ATTR_LATITUDE),
+                parser.getAttributeValue(null, ATTR_LONGITUDE));
+        int depth = parser.getDepth();
+        while (parser.next() != XmlPullParser.END_TAG || parser.getDepth() > depth) {
+            if (parser.getEventType() == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of document in " + TAG_TRACK_POINT);
+            }
+            if (parser.getEventType() != XmlPullParser.START_TAG || parser.getDepth() != depth + 1) {
+                continue;
+            }
+            if (TAG_ELEVATION.equals(parser.getName())) {
+                point.elevation = parser.nextText();
+            } else if (TAG_TIME.equals(parser.getName())) {
+                point.time = parser.nextText();
             }
         }
-        return null;
+        return point;
     }
 
-    private Location createLocationFromPoint(Element point) {
-        String latStr = point.getAttribute(ATTR_LATITUDE);
-        String lonStr = point.getAttribute(ATTR_LONGITUDE);
-        
-        if (N_A.equals(latStr) || N_A.equals(lonStr)) {
+    private Location createLocationFromPoint(PointText point) {
+        if (point.latitude == null || point.longitude == null
+                || N_A.equals(point.latitude) || N_A.equals(point.longitude)) {
             return null;
         }
 
         Location location = new Location(GPX_LOCATION_PROVIDER);
-        location.setLatitude(Double.parseDouble(latStr));
-        location.setLongitude(Double.parseDouble(lonStr));
-        location.setAltitude(Double.parseDouble(extractElevation(point)));
-        
-        String timeStr = extractTime(point);
-        if (!N_A.equals(timeStr)) {
-            setLocationTime(location, timeStr);
+        location.setLatitude(Double.parseDouble(point.latitude));
+        location.setLongitude(Double.parseDouble(point.longitude));
+        location.setAltitude(Double.parseDouble(point.elevation != null ? point.elevation : ELEVATION_DEFAULT));
+
+        if (point.time != null) {
+            setLocationTime(location, point.time);
         }
-        
+
         return location;
     }
 
-    private String extractElevation(Element point) {
-        NodeList eleNodes = point.getElementsByTagName(TAG_ELEVATION);
-        return eleNodes.getLength() > 0 ? eleNodes.item(0).getTextContent() : ELEVATION_DEFAULT;
-    }
+    private void addToSummary(GpxFileSummary.Builder summary, PointText point) {
+        if (point.latitude == null || point.longitude == null
+                || N_A.equals(point.latitude) || N_A.equals(point.longitude)) {
+            return;
+        }
+
+        double elevation = Double.NaN;
+        if (point.elevation != null) {
+            try {
+                elevation = Double.parseDouble(point.elevation);
+            } catch (NumberFormatException ignored) {
+            }
+        }
 
-    private String extractTime(Element point) {
-        NodeList timeNodes = point.getElementsByTagName(TAG_TIME);
-        return timeNodes.getLength() > 0 ? timeNodes.item(0).getTextContent() : N_A;
+        long time = GpxFileSummary.NO_TIME;
+        if (point.time != null) {
+            try {
+                time = GpxTimeDecoder.parseMillis(point.time);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+
+        summary.addPoint(Double.parseDouble(point.latitude), Double.parseDouble(point.longitude), elevation, time);
     }
 
     private void setLocationTime(Location location, String timeStr) {
         try {
-            location.setTime(Objects.requireNonNull(GPX_POINT_DATETIME_FORMAT.parse(timeStr)).getTime());
+            location.setTime(GpxTimeDecoder.parseMillis(timeStr));
         } catch (Exception e) {
             Log.e(TAG, ERROR_PARSING_TIME + timeStr, e);
         }
     }
+
+    private static final class Header {
+        private String creator = DEFAULT_CREATOR;
+        private String authorName = DEFAULT_AUTHOR;
+        private Location firstPointLocation = null;
+    }
+
+    private static final class PointText {
+        private final String latitude;
+        private final String longitude;
+        private String elevation = null;
+        private String time = null;
+
+        private PointText(String latitude, String longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
 }
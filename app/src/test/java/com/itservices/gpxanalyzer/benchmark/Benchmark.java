@@ -0,0 +1,48 @@
+package com.itservices.gpxanalyzer.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Times the manual benchmarks of the test sources. Benchmark classes are {@code @Ignore}d so that unit
+ * test runs stay fast, quiet and independent of the speed of the machine; run one from the IDE to
+ * compare implementations.
+ */
+public final class Benchmark {
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * Runs the task {@code rounds} times and returns the average time of the second half of the rounds,
+     * the first half warming up the JIT compiler.
+     *
+     * @param rounds The number of runs, at least 2.
+     * @param task   The code to time.
+     * @return The average time of a warm run, in nanoseconds.
+     */
+    public static double measureNanos(int rounds, Task task) throws Exception {
+        long measuredNanos = 0;
+        int measuredRounds = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            task.run();
+            long nanos = System.nanoTime() - start;
+            if (round >= rounds / 2) {
+                measuredNanos += nanos;
+                measuredRounds++;
+            }
+        }
+        return (double) measuredNanos / measuredRounds;
+    }
+
+    /**
+     * Prints one line of results.
+     */
+    public static void report(String benchmark, String format, Object... args) {
+        System.out.println(benchmark + ": " + String.format(Locale.US, format, args));
+    }
+}
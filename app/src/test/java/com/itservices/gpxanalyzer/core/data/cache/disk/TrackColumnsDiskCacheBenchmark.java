@@ -0,0 +1,36 @@
+package com.itservices.gpxanalyzer.core.data.cache.disk;
+
+import static org.junit.Assert.assertNotNull;
+
+import com.itservices.gpxanalyzer.benchmark.Benchmark;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Manual benchmark of the track cache, see {@link Benchmark}.
+ */
+@Ignore("Benchmark, run manually")
+public class TrackColumnsDiskCacheBenchmark {
+
+    private static final int ROUNDS = 6;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void storeAndLoad_millionPointTrack() throws Exception {
+        TrackColumns columns = TrackColumnsDiskCacheTest.createTrack(1_000_000, 10_000);
+        TrackFingerprint fingerprint = new TrackFingerprint("/sdcard/million.gpx", 1, 2, 3);
+        TrackColumnsDiskCache cache = new TrackColumnsDiskCache(temporaryFolder.newFolder());
+
+        double storeNanos = Benchmark.measureNanos(ROUNDS, () -> cache.store(fingerprint, columns));
+        double loadNanos = Benchmark.measureNanos(ROUNDS, () -> assertNotNull(cache.load(fingerprint)));
+
+        Benchmark.report("TrackColumnsDiskCache", "%d points, store %.1f ms, load %.1f ms",
+                columns.size(), storeNanos / 1e6, loadNanos / 1e6);
+    }
+}
@@ -0,0 +1,115 @@
+package com.itservices.gpxanalyzer.core.data.cache.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class TrackColumnsDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void storeAndLoad_longTrack_returnsIdenticalColumns() throws IOException {
+        TrackColumns columns = createTrack(100_000, 1000);
+        TrackFingerprint fingerprint = new TrackFingerprint("/sdcard/long.gpx", 1, 2, 3);
+
+        TrackColumnsDiskCache cache = new TrackColumnsDiskCache(temporaryFolder.newFolder());
+        cache.store(fingerprint, columns);
+        TrackColumns loaded = cache.load(fingerprint);
+
+        assertNotNull(loaded);
+        assertColumnsEqual(columns, loaded);
+    }
+
+    @Test
+    public void storeAndLoad_segmentsAndMissingValues_areKept() throws IOException {
+        TrackColumns columns = new TrackColumns();
+        columns.beginSegment();
+        columns.beginSegment();
+        columns.addPoint(49.25, 19.5, Double.NaN, TrackColumns.NO_TIME, Double.NaN);
+        columns.addPoint(49.5, 19.75, 1000.5, 1737450889000L, 3.5);
+        columns.beginSegment();
+        TrackFingerprint fingerprint = new TrackFingerprint("/sdcard/ÿ-track.gpx", 123, 456, 789);
+
+        TrackColumnsDiskCache cache = new TrackColumnsDiskCache(temporaryFolder.newFolder());
+        cache.store(fingerprint, columns);
+        TrackColumns loaded = cache.load(fingerprint);
+
+        assertNotNull(loaded);
+        assertColumnsEqual(columns, loaded);
+    }
+
+    @Test
+    public void load_changedSource_returnsNull() throws IOException {
+        TrackColumns columns = new TrackColumns();
+        columns.addPoint(1, 2, 3, 4, 5);
+        TrackFingerprint fingerprint = new TrackFingerprint("/track.gpx", 100, 200, 300);
+
+        TrackColumnsDiskCache cache = new TrackColumnsDiskCache(temporaryFolder.newFolder());
+        cache.store(fingerprint, columns);
+
+        assertNull(cache.load(new TrackFingerprint("/track.gpx", 101, 200, 300)));
+        assertNull(cache.load(new TrackFingerprint("/track.gpx", 100, 201, 300)));
+        assertNull(cache.load(new TrackFingerprint("/track.gpx", 100, 200, 301)));
+        assertNull(cache.load(new TrackFingerprint("/other.gpx", 100, 200, 300)));
+        assertNotNull(cache.load(fingerprint));
+    }
+
+    @Test
+    public void load_truncatedFile_returnsNullAndDeletesIt() throws IOException {
+        TrackColumns columns = createTrack(100, 100);
+        TrackFingerprint fingerprint = new TrackFingerprint("/track.gpx", 100, 200, 300);
+        File directory = temporaryFolder.newFolder();
+
+        TrackColumnsDiskCache cache = new TrackColumnsDiskCache(directory);
+        cache.store(fingerprint, columns);
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        try (RandomAccessFile file = new RandomAccessFile(files[0], "rw")) {
+            file.setLength(file.length() - 12);
+        }
+
+        assertNull(cache.load(fingerprint));
+        assertFalse(files[0].exists());
+    }
+
+    static TrackColumns createTrack(int points, int pointsPerSegment) {
+        TrackColumns columns = new TrackColumns(points);
+        for (int i = 0; i < points; i++) {
+            if (i % pointsPerSegment == 0) {
+                columns.beginSegment();
+            }
+            columns.addPoint(49.0 + i * 1e-6, 19.0 + i * 2e-6, 800.0 + (i % 500) * 0.1,
+                    1737450889000L + i * 1000L, i % 7 == 0 ? Double.NaN : i % 40);
+        }
+        return columns;
+    }
+
+    private static void assertColumnsEqual(TrackColumns expected, TrackColumns actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getSegmentCount(), actual.getSegmentCount());
+        for (int segment = 0; segment < expected.getSegmentCount(); segment++) {
+            assertEquals(expected.getSegmentStartIndex(segment), actual.getSegmentStartIndex(segment));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimeMillis(i), actual.getTimeMillis(i));
+            assertEquals(expected.getLatitude(i), actual.getLatitude(i), 0.0);
+            assertEquals(expected.getLongitude(i), actual.getLongitude(i), 0.0);
+            assertEquals(expected.getElevation(i), actual.getElevation(i), 0.0);
+            assertEquals(expected.getSpeed(i), actual.getSpeed(i), 0.0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.itservices.gpxanalyzer.core.data.cache.rawdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataMeasure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecentTrackCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final GeoPointCache geoPointCache = new GeoPointCache();
+
+    @Test
+    public void put_moreThanMaxTracks_evictsLeastRecentlyUsed() throws IOException {
+        RecentTrackCache cache = new RecentTrackCache(Long.MAX_VALUE);
+        List<Long> evicted = new ArrayList<>();
+        cache.addEvictionListener(evicted::add);
+
+        File first = temporaryFolder.newFile("first.gpx");
+        DataEntitySnapshot firstSnapshot = snapshot(1, 10);
+        cache.put(first, firstSnapshot, geoPointCache.getSnapshot());
+        File second = temporaryFolder.newFile("second.gpx");
+        cache.put(second, snapshot(2, 10), geoPointCache.getSnapshot());
+        File third = temporaryFolder.newFile("third.gpx");
+        DataEntitySnapshot thirdSnapshot = snapshot(3, 10);
+        cache.put(third, thirdSnapshot, geoPointCache.getSnapshot());
+
+        assertSame(firstSnapshot, cache.get(first).dataEntitySnapshot());
+
+        cache.put(temporaryFolder.newFile("fourth.gpx"), snapshot(4, 10), geoPointCache.getSnapshot());
+
+        assertEquals(RecentTrackCache.MAX_TRACKS, cache.size());
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(first));
+        assertEquals(1, evicted.size());
+        assertFalse(cache.isRetained(evicted.get(0)));
+        assertTrue(cache.isRetained(thirdSnapshot.getDataFingerprint()));
+    }
+
+    @Test
+    public void put_overBudget_keepsOnlyMostRecentTrack() throws IOException {
+        RecentTrackCache cache = new RecentTrackCache(150 * RecentTrackCache.ESTIMATED_BYTES_PER_POINT);
+
+        File small = temporaryFolder.newFile("small.gpx");
+        cache.put(small, snapshot(1, 100), geoPointCache.getSnapshot());
+        File large = temporaryFolder.newFile("large.gpx");
+        cache.put(large, snapshot(2, 200), geoPointCache.getSnapshot());
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(small));
+        assertNotNull(cache.get(large));
+    }
+
+    @Test
+    public void get_changedFile_isNotRestored() throws IOException {
+        RecentTrackCache cache = new RecentTrackCache(Long.MAX_VALUE);
+        List<Long> evicted = new ArrayList<>();
+        cache.addEvictionListener(evicted::add);
+
+        File file = temporaryFolder.newFile("growing.gpx");
+        cache.put(file, snapshot(1, 10), geoPointCache.getSnapshot());
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+
+        assertNull(cache.get(file));
+        assertEquals(1, evicted.size());
+        assertEquals(0, cache.size());
+    }
+
+    private static DataEntitySnapshot snapshot(long version, int size) {
+        DataEntityCache dataEntityCache = new DataEntityCache();
+        dataEntityCache.init(1, "track-" + version);
+        for (int i = 0; i < size; i++) {
+            List<DataMeasure> measures = new ArrayList<>();
+            measures.add(new DataMeasure((float) i, 0.1f, "Elevation", "m"));
+            dataEntityCache.accept(new DataEntity(i, 1000L * i, measures, null));
+        }
+        dataEntityCache.publish();
+        return dataEntityCache.getSnapshot();
+    }
+}
@@ -0,0 +1,89 @@
+package com.itservices.gpxanalyzer.core.data.model.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataMeasure;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class DataEntityStatisticsTest {
+
+    @Test
+    public void accept_manyValues_keepsVarianceAndQuantiles() {
+        Random random = new Random(17);
+        int count = 20_000;
+        double[] elevations = new double[count];
+        List<DataEntity> dataEntityList = new ArrayList<>();
+        DataEntityStatistics statistics = new DataEntityStatistics(2);
+        for (int i = 0; i < count; i++) {
+            elevations[i] = (float) (300.0 + 40.0 * random.nextGaussian());
+            DataEntity dataEntity = dataEntity(i, (float) elevations[i], (float) (10.0 * random.nextDouble()));
+            dataEntityList.add(dataEntity);
+            statistics.accept(dataEntity);
+        }
+
+        double mean = Arrays.stream(elevations).average().orElse(0.0);
+        double variance = Arrays.stream(elevations).map(value -> (value - mean) * (value - mean)).sum() / count;
+        assertEquals(variance, statistics.getVariance(0), variance * 1e-9);
+        assertEquals(Math.sqrt(variance), DataEntityStatistics.getStdDev(0, dataEntityList), 1e-9);
+
+        double[] sorted = elevations.clone();
+        Arrays.sort(sorted);
+        double interquartileRange = sorted[count * 3 / 4] - sorted[count / 4];
+        assertEquals(sorted[count / 2], statistics.getQuantile(0, DataEntityStatistics.MEDIAN), 0.02 * interquartileRange);
+        assertEquals(sorted[count / 20], statistics.getQuantile(0, DataEntityStatistics.LOWER_QUANTILE), 0.05 * interquartileRange);
+        assertEquals(sorted[count * 19 / 20], statistics.getQuantile(0, DataEntityStatistics.UPPER_QUANTILE), 0.05 * interquartileRange);
+        assertEquals(5.0, statistics.getQuantile(1, DataEntityStatistics.MEDIAN), 0.2);
+    }
+
+    @Test
+    public void getQuantile_fiveValues_isExact() {
+        DataEntityStatistics statistics = new DataEntityStatistics(2);
+        float[] elevations = {50.0f, 10.0f, 40.0f, 20.0f, 30.0f};
+        for (int i = 0; i < elevations.length; i++) {
+            statistics.accept(dataEntity(i, elevations[i], 1.0f));
+        }
+
+        assertEquals(10.0, statistics.getQuantile(0, DataEntityStatistics.LOWER_QUANTILE), 0.0);
+        assertEquals(30.0, statistics.getQuantile(0, DataEntityStatistics.MEDIAN), 0.0);
+        assertEquals(50.0, statistics.getQuantile(0, DataEntityStatistics.UPPER_QUANTILE), 0.0);
+    }
+
+    @Test
+    public void copy_laterValues_doNotChangeCopy() {
+        DataEntityStatistics statistics = new DataEntityStatistics(2);
+        for (int i = 0; i < 3; i++) {
+            statistics.accept(dataEntity(i, i, Float.NaN));
+        }
+        DataEntityStatistics copy = statistics.copy();
+        statistics.accept(dataEntity(3, 100.0f, 1.0f));
+
+        assertEquals(1.0, copy.getQuantile(0, DataEntityStatistics.MEDIAN), 0.0);
+        assertEquals(2.0 / 3.0, copy.getVariance(0), 1e-12);
+        assertTrue(Double.isNaN(copy.getQuantile(1, DataEntityStatistics.MEDIAN)));
+        assertEquals(0.0, copy.getStandardDeviation(1), 0.0);
+        assertEquals(2.0, statistics.getQuantile(0, DataEntityStatistics.MEDIAN), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getQuantile_untracked_throws() {
+        DataEntityStatistics statistics = new DataEntityStatistics(2);
+        statistics.accept(dataEntity(0, 1.0f, 1.0f));
+
+        statistics.getQuantile(0, 0.3);
+    }
+
+    private static DataEntity dataEntity(int id, float elevation, float speed) {
+        List<DataMeasure> measures = new ArrayList<>();
+        measures.add(new DataMeasure(elevation, 0.1f, "Elevation", "m"));
+        measures.add(new DataMeasure(speed, 0.1f, "Speed", "km/h"));
+        return new DataEntity(id, 1000L * id, measures, null);
+    }
+}
@@ -0,0 +1,206 @@
+package com.itservices.gpxanalyzer.core.data.model.track;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataMeasure;
+import com.itservices.gpxanalyzer.core.data.model.entity.GeoPointEntity;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrackStoreTest {
+
+    @Test
+    public void append_manyPoints_keepsColumnsAndSchema() {
+        TrackStore.Builder builder = new TrackStore.Builder();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            builder.append(dataEntity(i, 1000L * i, 100.0f + i, 0.5f * i, new GeoPoint(49.0 + i * 1e-5, 19.0)));
+        }
+        TrackStore trackStore = builder.build();
+
+        assertEquals(count, trackStore.size());
+        assertEquals("Elevation", trackStore.getSchema().getName(0));
+        assertEquals("km/h", trackStore.getSchema().getUnit(1));
+        assertEquals(0.1f, trackStore.getSchema().getAccuracy(0), 0.0f);
+
+        assertEquals(1000L * 4321, trackStore.getTimestamp(4321));
+        assertEquals(100.0f + 4321, trackStore.getValue(0, 4321), 0.0f);
+        assertEquals(0.5f * 4321, trackStore.getValue(1, 4321), 0.0f);
+        assertEquals(49.0 + 4321 * 1e-5, trackStore.getLatitude(4321), 0.0);
+        assertEquals(19.0, trackStore.getLongitude(4321), 0.0);
+    }
+
+    @Test
+    public void append_withoutCoordinates_storesNaN() {
+        TrackStore trackStore = new TrackStore.Builder()
+                .append(dataEntity(0, 0L, 1.0f, 2.0f, null))
+                .build();
+
+        assertTrue(Double.isNaN(trackStore.getLatitude(0)));
+        assertTrue(Double.isNaN(trackStore.getLongitude(0)));
+    }
+
+    @Test
+    public void lastIndexOfTimestamp_sortedAndUnsorted_findsLastMatch() {
+        TrackStore.Builder builder = new TrackStore.Builder();
+        List<DataEntity> dataEntityList = new ArrayList<>();
+        long[] timestamps = {10L, 20L, 20L, 30L};
+        for (int i = 0; i < timestamps.length; i++) {
+            dataEntityList.add(dataEntity(i, timestamps[i], i, i, null));
+        }
+        TrackStore trackStore = builder.appendAll(dataEntityList).build();
+
+        assertEquals(0, trackStore.lastIndexOfTimestamp(10L));
+        assertEquals(2, trackStore.lastIndexOfTimestamp(20L));
+        assertEquals(-1, trackStore.lastIndexOfTimestamp(25L));
+        assertEquals(-1, trackStore.lastIndexOfTimestamp(40L));
+
+        trackStore = builder.append(dataEntity(4, 15L, 0, 0, null)).build();
+
+        assertEquals(4, trackStore.lastIndexOfTimestamp(15L));
+        assertEquals(3, trackStore.lastIndexOfTimestamp(30L));
+    }
+
+    @Test
+    public void rangeAndNearest_sorted_useBinarySearch() {
+        TrackStore.Builder builder = new TrackStore.Builder();
+        long[] timestamps = {10L, 20L, 20L, 30L, 50L};
+        for (int i = 0; i < timestamps.length; i++) {
+            builder.append(dataEntity(i, timestamps[i], i, i, null));
+        }
+        TrackStore trackStore = builder.build();
+
+        assertTrue(trackStore.isSortedByTime());
+        assertEquals(1, trackStore.firstIndexNotBefore(15L));
+        assertEquals(1, trackStore.firstIndexNotBefore(20L));
+        assertEquals(3, trackStore.firstIndexAfter(20L));
+        assertEquals(5, trackStore.firstIndexAfter(50L));
+        assertEquals(0, trackStore.firstIndexNotBefore(0L));
+
+        assertEquals(0, trackStore.nearestIndexOf(-5L));
+        assertEquals(0, trackStore.nearestIndexOf(15L));
+        assertEquals(3, trackStore.nearestIndexOf(39L));
+        assertEquals(4, trackStore.nearestIndexOf(41L));
+        assertEquals(4, trackStore.nearestIndexOf(1000L));
+        assertEquals(-1, TrackStore.EMPTY.nearestIndexOf(0L));
+    }
+
+    @Test
+    public void contentHash_sameTimestampSum_differs() {
+        TrackStore first = new TrackStore.Builder()
+                .append(dataEntity(0, 10L, 1.0f, 2.0f, null))
+                .append(dataEntity(1, 20L, 1.0f, 2.0f, null))
+                .build();
+        TrackStore same = new TrackStore.Builder()
+                .append(dataEntity(0, 10L, 1.0f, 2.0f, null))
+                .append(dataEntity(1, 20L, 1.0f, 2.0f, null))
+                .build();
+        TrackStore shifted = new TrackStore.Builder()
+                .append(dataEntity(0, 5L, 1.0f, 2.0f, null))
+                .append(dataEntity(1, 25L, 1.0f, 2.0f, null))
+                .build();
+        TrackStore otherValue = new TrackStore.Builder()
+                .append(dataEntity(0, 10L, 1.0f, 2.0f, null))
+                .append(dataEntity(1, 20L, 1.5f, 2.0f, null))
+                .build();
+
+        assertEquals(first.getContentHash(), same.getContentHash());
+        assertNotEquals(first.getContentHash(), shifted.getContentHash());
+        assertNotEquals(first.getContentHash(), otherValue.getContentHash());
+        assertEquals(TrackStore.Builder.EMPTY_CONTENT_HASH, TrackStore.EMPTY.getContentHash());
+    }
+
+    @Test
+    public void schema_equalMeasures_isSharedByPoints() {
+        DataEntity first = dataEntity(0, 10L, 1.0f, 2.0f, null);
+        DataEntity second = dataEntity(1, 20L, 3.0f, 4.0f, null);
+        TrackSchema schema = TrackSchema.of(List.of(
+                new TrackChannel(0, "Elevation", "m", 0.1f, TrackChannel.ValueType.MEASURED),
+                new TrackChannel(1, "Speed", "km/h", 0.1f, TrackChannel.ValueType.MEASURED)));
+        DataEntity fromValues = new DataEntity(2, 30L, schema, new float[]{5.0f, 6.0f}, null);
+
+        assertSame(first.getSchema(), second.getSchema());
+        assertSame(schema, fromValues.getSchema());
+        assertEquals(3.0f, second.getValue(0), 0.0f);
+        assertEquals("km/h", second.getMeasures().get(1).unit());
+        assertEquals(4.0f, second.getMeasures().get(1).value(), 0.0f);
+
+        TrackStore trackStore = new TrackStore.Builder().append(first).append(fromValues).build();
+        assertSame(schema, trackStore.getSchema());
+        assertEquals(6.0f, trackStore.getValue(1, 1), 0.0f);
+    }
+
+    @Test
+    public void append_values_matchesAppendedEntities() {
+        TrackSchema schema = dataEntity(0, 0L, 0.0f, 0.0f, null).getSchema();
+        float[] pointValues = new float[2];
+        TrackStore.Builder fromValues = new TrackStore.Builder(schema);
+        TrackStore.Builder fromEntities = new TrackStore.Builder();
+        for (int i = 0; i < 10; i++) {
+            pointValues[0] = 100.0f + i;
+            pointValues[1] = 0.5f * i;
+            fromValues.append(1000L * i, pointValues, 49.0 + i * 1e-5, 19.0);
+            fromEntities.append(dataEntity(i, 1000L * i, 100.0f + i, 0.5f * i, new GeoPoint(49.0 + i * 1e-5, 19.0)));
+        }
+        TrackStore firstHalf = new TrackStore.Builder(schema).appendAll(fromValues.build()).build();
+        TrackStore continued = new TrackStore.Builder().appendAll(firstHalf).appendAll(firstHalf).build();
+
+        assertEquals(fromEntities.build().getContentHash(), fromValues.build().getContentHash());
+        assertEquals(fromValues.build().getContentHash(), firstHalf.getContentHash());
+        assertEquals(20, continued.size());
+        assertEquals(109.0f, continued.getValue(0, 19), 0.0f);
+        assertSame(schema, continued.getSchema());
+    }
+
+    @Test
+    public void getDataEntity_createsEntityAndGeoPointFromColumns() {
+        TrackStore trackStore = new TrackStore.Builder()
+                .append(dataEntity(7, 10L, 1.0f, 2.0f, new GeoPoint(49.5, 19.5)))
+                .append(dataEntity(8, 20L, 3.0f, 4.0f, null))
+                .build();
+
+        DataEntity first = trackStore.getDataEntity(0);
+        assertEquals(0, first.id());
+        assertEquals(10L, first.timestampMillis());
+        assertEquals(2.0f, first.getValue(1), 0.0f);
+        GeoPointEntity geoPointEntity = (GeoPointEntity) first.getExtraData();
+        assertEquals(49.5, geoPointEntity.getLatitude(), 0.0);
+        assertSame(first, geoPointEntity.getDataEntity());
+
+        assertEquals(first, trackStore.asDataEntityList().get(0));
+        assertNotSame(first, trackStore.asDataEntityList().get(0));
+        assertEquals(2, trackStore.asDataEntityList().size());
+        assertNull(trackStore.getGeoPointEntity(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void build_laterAppends_doNotChangeBuiltStore() {
+        TrackStore.Builder builder = new TrackStore.Builder()
+                .append(dataEntity(0, 0L, 1.0f, 2.0f, null));
+        TrackStore trackStore = builder.build();
+        for (int i = 1; i < 2000; i++) {
+            builder.append(dataEntity(i, i, 1.0f, 2.0f, null));
+        }
+
+        assertEquals(1, trackStore.size());
+        assertEquals(2000, builder.build().size());
+        trackStore.getTimestamp(1);
+    }
+
+    private static DataEntity dataEntity(int id, long timestampMillis, float elevation, float speed, Object extraData) {
+        List<DataMeasure> measures = new ArrayList<>();
+        measures.add(new DataMeasure(elevation, 0.1f, "Elevation", "m"));
+        measures.add(new DataMeasure(speed, 0.1f, "Speed", "km/h"));
+        return new DataEntity(id, timestampMillis, measures, extraData);
+    }
+}
@@ -0,0 +1,96 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests the pre-scan splitting a document into chunks. Parsing the chunks needs {@code Xml.newPullParser()},
+ * which is not available in local unit tests.
+ */
+public class GpxChunkedParserTest {
+
+    private static final String POINT = "<trkpt lat=\"1\" lon=\"2\"><ele>3</ele></trkpt>";
+
+    @Test
+    public void split_longSegment_continuesAcrossChunks() {
+        String content = POINT + "\n" + POINT + "\n" + POINT + "\n" + POINT;
+        byte[] data = bytes("<?xml version=\"1.0\"?><gpx version=\"1.1\"><trk><trkseg>" + content
+                + "</trkseg></trk></gpx>");
+
+        List<GpxChunkedParser.Chunk> chunks = GpxChunkedParser.split(data, POINT.length() + 1);
+
+        assertNotNull(chunks);
+        assertEquals(4, chunks.size());
+        assertFalse(chunks.get(0).continuesSegment);
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+            GpxChunkedParser.Chunk chunk = chunks.get(i);
+            String text = text(data, chunk);
+            assertTrue(text, text.startsWith("<trkpt "));
+            assertEquals(i > 0, chunk.continuesSegment);
+            joined.append(text);
+        }
+        assertEquals(content, joined.toString());
+    }
+
+    @Test
+    public void split_segmentsBelowChunkSize_giveOneChunkPerSegment() {
+        byte[] data = bytes("<gpx><trk><trkseg>" + POINT + POINT + "</trkseg></trk>"
+                + "<trk><trkseg >" + POINT + "</trkseg></trk></gpx>");
+
+        List<GpxChunkedParser.Chunk> chunks = GpxChunkedParser.split(data, 1024);
+
+        assertNotNull(chunks);
+        assertEquals(2, chunks.size());
+        assertEquals(POINT + POINT, text(data, chunks.get(0)));
+        assertEquals(POINT, text(data, chunks.get(1)));
+        assertFalse(chunks.get(0).continuesSegment);
+        assertFalse(chunks.get(1).continuesSegment);
+    }
+
+    @Test
+    public void split_selfClosedSegment_givesEmptyChunk() {
+        byte[] data = bytes("<gpx><trk><trkseg/><trkseg>" + POINT + "</trkseg><trkseg /></trk></gpx>");
+
+        List<GpxChunkedParser.Chunk> chunks = GpxChunkedParser.split(data, 1024);
+
+        assertNotNull(chunks);
+        assertEquals(3, chunks.size());
+        assertEquals("", text(data, chunks.get(0)));
+        assertEquals(POINT, text(data, chunks.get(1)));
+        assertEquals("", text(data, chunks.get(2)));
+        for (GpxChunkedParser.Chunk chunk : chunks) {
+            assertFalse(chunk.continuesSegment);
+        }
+    }
+
+    @Test
+    public void split_unsupportedContent_returnsNullForFallback() {
+        assertNull(split("<gpx><!-- recorded by x --><trk><trkseg>" + POINT + "</trkseg></trk></gpx>"));
+        assertNull(split("<gpx><trk><name><![CDATA[<trkseg>]]></name><trkseg>" + POINT + "</trkseg></trk></gpx>"));
+        assertNull(split("<gpx><trk><trkseg>" + POINT + "<trkseg>" + POINT + "</trkseg></trk></gpx>"));
+        assertNull(split("<gpx><trk><trkseg>" + POINT + "</trk></gpx>"));
+        assertNull(split("<g:gpx xmlns:g=\"http://www.topografix.com/GPX/1/1\"><g:trk/></g:gpx>"));
+        assertNull(split("<gpx/>"));
+    }
+
+    private static List<GpxChunkedParser.Chunk> split(String gpx) {
+        return GpxChunkedParser.split(bytes(gpx), 1024);
+    }
+
+    private static String text(byte[] data, GpxChunkedParser.Chunk chunk) {
+        return new String(data, chunk.start, chunk.end - chunk.start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import com.itservices.gpxanalyzer.benchmark.Benchmark;
+
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Manual benchmarks of the GPX parsing on the bundled tracks, see {@link Benchmark}.
+ */
+@Ignore("Benchmark, run manually")
+public class GpxParserBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Decodes every timestamp of the skiing recording with the Joda path previously used by
+     * {@link GPXParser} and with {@link GpxTimeDecoder}.
+     */
+    @Test
+    public void timeDecoder_againstJoda() throws Exception {
+        List<String> times = GpxTimeDecoderTest.readTimes(RawTracks.SKIING);
+        char[][] buffers = new char[times.size()][];
+        for (int i = 0; i < times.size(); i++) {
+            buffers[i] = times.get(i).toCharArray();
+        }
+        long[] checksums = new long[2];
+
+        double jodaNanos = Benchmark.measureNanos(ROUNDS, () -> {
+            for (String time : times) {
+                checksums[0] += ISODateTimeFormat.dateTimeParser().parseDateTime(time).getMillis();
+            }
+        });
+        double decoderNanos = Benchmark.measureNanos(ROUNDS, () -> {
+            for (char[] buffer : buffers) {
+                checksums[1] += GpxTimeDecoder.parseMillis(buffer, 0, buffer.length);
+            }
+        });
+        assertEquals(checksums[0], checksums[1]);
+
+        Benchmark.report("GpxTimeDecoder", "%d timestamps, joda %.1f ns/op, decoder %.1f ns/op",
+                times.size(), jodaNanos / times.size(), decoderNanos / times.size());
+    }
+
+    /**
+     * Reads the track points of the bundled tracks with the byte scanner and with the DOM parse the
+     * scanner is tested against.
+     */
+    @Test
+    public void scanner_againstDom() throws Exception {
+        for (String name : RawTracks.ALL) {
+            byte[] content = RawTracks.read(name);
+            File file = temporaryFolder.newFile(name);
+            Files.write(file.toPath(), content);
+
+            double domNanos = Benchmark.measureNanos(ROUNDS, () -> GpxTrackPointScannerTest.parseReference(content));
+            double scanNanos = Benchmark.measureNanos(ROUNDS, () -> new GpxTrackPointScanner().scan(file));
+
+            double megabytes = content.length / (1024.0 * 1024.0);
+            Benchmark.report("GpxTrackPointScanner", "%s, DOM %.1f MB/s, scanner %.1f MB/s",
+                    name, megabytes / (domNanos / 1e9), megabytes / (scanNanos / 1e9));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class GpxTimeDecoderTest {
+
+    private static final Pattern TIME_PATTERN = Pattern.compile("<time>([^<]+)</time>");
+
+    private final DateTimeFormatter jodaParser = ISODateTimeFormat.dateTimeParser().withOffsetParsed();
+
+    @Test
+    public void parseMillis_utcDesignator_matchesJoda() {
+        assertMatchesJoda("2025-01-21T09:14:49Z");
+        assertMatchesJoda("1970-01-01T00:00:00Z");
+        assertMatchesJoda("2024-02-29T23:59:59Z");
+        assertMatchesJoda("1969-12-31T23:59:59Z");
+    }
+
+    @Test
+    public void parseMillis_fractionalSeconds_matchesJoda() {
+        assertMatchesJoda("2025-01-21T09:14:49.1Z");
+        assertMatchesJoda("2025-01-21T09:14:49.12Z");
+        assertMatchesJoda("2025-01-21T09:14:49.123Z");
+        assertEquals(
+                jodaParser.parseMillis("2025-01-21T09:14:49.123Z"),
+                GpxTimeDecoder.parseMillis("2025-01-21T09:14:49.123456Z"));
+    }
+
+    @Test
+    public void parseMillis_offsetForms_matchesJoda() {
+        assertMatchesJoda("2025-01-21T10:14:49+01:00");
+        assertMatchesJoda("2025-01-21T04:44:49.500-04:30");
+        assertMatchesJoda("2025-01-21T10:14:49+0100");
+        assertMatchesJoda("2025-01-21T10:14:49+01");
+    }
+
+    @Test
+    public void parseMillis_noZoneDesignator_isUtc() {
+        assertEquals(
+                GpxTimeDecoder.parseMillis("2025-01-21T09:14:49Z"),
+                GpxTimeDecoder.parseMillis("2025-01-21T09:14:49"));
+    }
+
+    @Test
+    public void parseMillis_charBufferRange_ignoresSurroundingText() {
+        char[] buffer = "<time>\n  2025-01-21T09:14:49Z\n</time>".toCharArray();
+        assertEquals(
+                jodaParser.parseMillis("2025-01-21T09:14:49Z"),
+                GpxTimeDecoder.parseMillis(buffer, 6, buffer.length - 6 - 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseMillis_invalidDate_throws() {
+        GpxTimeDecoder.parseMillis("2025-02-30T09:14:49Z");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseMillis_invalidZone_throws() {
+        GpxTimeDecoder.parseMillis("2025-01-21T09:14:49Q");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseMillis_emptyText_throws() {
+        GpxTimeDecoder.parseMillis("");
+    }
+
+    @Test
+    public void parseMillis_skiingFile_matchesJoda() throws IOException {
+        List<String> times = readTimes(RawTracks.SKIING);
+
+        assertTrue(times.size() > 1000);
+        for (String time : times) {
+            char[] buffer = time.toCharArray();
+            assertEquals(time, jodaParser.parseMillis(time), GpxTimeDecoder.parseMillis(buffer, 0, buffer.length));
+        }
+    }
+
+    /**
+     * @return The text of every time element of the bundled track.
+     */
+    static List<String> readTimes(String rawTrack) throws IOException {
+        List<String> times = new ArrayList<>();
+        Matcher matcher = TIME_PATTERN.matcher(new String(RawTracks.read(rawTrack), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            times.add(matcher.group(1));
+        }
+        return times;
+    }
+
+    private void assertMatchesJoda(String text) {
+        assertEquals(text, jodaParser.parseMillis(text), GpxTimeDecoder.parseMillis(text));
+    }
+}
@@ -0,0 +1,244 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Compares the byte scanner against a namespace-aware DOM parse of the bundled raw GPX files.
+ * {@code Xml.newPullParser()} is not available in local unit tests, so the JDK DOM parser
+ * serves as the reference, following the same element rules as {@link GPXParser}.
+ */
+public class GpxTrackPointScannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void scan_rawFiles_matchReferenceParse() throws Exception {
+        for (String name : RawTracks.ALL) {
+            byte[] content = RawTracks.read(name);
+            File file = temporaryFolder.newFile(name);
+            Files.write(file.toPath(), content);
+
+            TrackColumns expected = parseReference(content);
+            TrackColumns actual = new GpxTrackPointScanner().scan(file);
+
+            assertNotNull(name, actual);
+            assertColumnsEqual(name, expected, actual);
+        }
+    }
+
+    @Test
+    public void scan_prefixedElementsAndExtensionSpeed_matchesParserRules() {
+        String gpx = "<?xml version=\"1.0\"?>\n"
+                + "<g:gpx xmlns:g=\"http://www.topografix.com/GPX/1/1\" xmlns:x=\"urn:x\">"
+                + "<g:trk><g:trkseg>"
+                + "<g:trkpt lon='19.5' lat='49.25'><g:ele> 100.5 </g:ele><g:time>2025-01-21T09:14:49Z</g:time>"
+                + "<g:extensions><x:speed>3.5</x:speed><x:ext><x:speed>9</x:speed></x:ext></g:extensions></g:trkpt>"
+                + "<g:trkpt lat=\"49.5\" lon=\"19.75\"/>"
+                + "</g:trkseg><g:trkseg/></g:trk></g:gpx>";
+
+        TrackColumns columns = GpxTrackPointScanner.scan(ByteBuffer.wrap(gpx.getBytes(StandardCharsets.UTF_8)));
+
+        assertNotNull(columns);
+        assertEquals(2, columns.size());
+        assertEquals(2, columns.getSegmentCount());
+        assertEquals(49.25, columns.getLatitude(0), 0.0);
+        assertEquals(19.5, columns.getLongitude(0), 0.0);
+        assertEquals(100.5, columns.getElevation(0), 0.0);
+        assertEquals(GpxTimeDecoder.parseMillis("2025-01-21T09:14:49Z"), columns.getTimeMillis(0));
+        assertEquals(3.5, columns.getSpeed(0), 0.0);
+        assertEquals(Double.NaN, columns.getElevation(1), 0.0);
+        assertEquals(TrackColumns.NO_TIME, columns.getTimeMillis(1));
+    }
+
+    @Test
+    public void scan_unsupportedContent_returnsNullForFallback() {
+        assertNull(scan("<gpx><!-- comment --><trk><trkseg><trkpt lat=\"1\" lon=\"2\"/></trkseg></trk></gpx>"));
+        assertNull(scan("<gpx><trk><trkseg><trkpt lat=\"1\"/></trkseg></trk></gpx>"));
+        assertNull(scan("<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"><ele>1&#48;</ele></trkpt></trkseg></trk></gpx>"));
+        assertNull(scan("<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"><ele>"));
+    }
+
+    @Test
+    public void scanTail_growingRawFile_matchesFullScan() throws Exception {
+        assertGrowingFileScanMatchesFullScan(RawTracks.read(RawTracks.ALL[1]), 7919);
+    }
+
+    @Test
+    public void scanTail_growingFileCutAtEveryByte_matchesFullScan() throws Exception {
+        String gpx = "<?xml version=\"1.0\"?>\n<gpx xmlns:x=\"urn:x\"><trk><trkseg>"
+                + "<trkpt lat=\"1\" lon=\"2\"><ele>3</ele><time>2025-01-21T09:14:49Z</time></trkpt>"
+                + "<trkpt lat=\"1.5\" lon=\"2.5\"/>"
+                + "</trkseg><trkseg/><trkseg>"
+                + "<x:trkpt lat=\"4\" lon=\"5\"><extensions><x:speed>6</x:speed></extensions></x:trkpt>"
+                + "</trkseg></trk><trk><trkseg>"
+                + "<trkpt lat=\"7\" lon=\"8\"><ele>9</ele></trkpt>"
+                + "<trkpt lat=\"10\" lon=\"11\"></trkpt>"
+                + "</trkseg></trk></gpx>";
+
+        assertGrowingFileScanMatchesFullScan(gpx.getBytes(StandardCharsets.UTF_8), 1);
+    }
+
+    @Test
+    public void scanTail_replacedFile_readsFromStart() throws Exception {
+        File file = temporaryFolder.newFile("live.gpx");
+        GpxTrackPointScanner scanner = new GpxTrackPointScanner();
+        Files.write(file.toPath(), ("<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"/>"
+                + "<trkpt lat=\"3\" lon=\"4\"/>").getBytes(StandardCharsets.UTF_8));
+        GpxTailScan first = scanner.scanTail(file, GpxScanCheckpoint.START);
+
+        Files.write(file.toPath(), ("<gpx><trk><trkseg><trkpt lat=\"5\" lon=\"6\"/>"
+                + "<trkpt lat=\"7\" lon=\"8\"/><trkpt lat=\"9\" lon=\"10\"/>").getBytes(StandardCharsets.UTF_8));
+        GpxTailScan second = scanner.scanTail(file, first.checkpoint());
+
+        assertNotNull(second);
+        assertTrue(second.fromStart());
+        assertFalse(second.block().continuesSegment());
+        assertEquals(3, second.block().columns().size());
+        assertEquals(5.0, second.block().columns().getLatitude(0), 0.0);
+    }
+
+    /**
+     * Writes growing prefixes of the content to a file, scanning the tail after every write,
+     * and compares the appended blocks with a full scan of the content.
+     */
+    private void assertGrowingFileScanMatchesFullScan(byte[] content, int step) throws Exception {
+        File file = temporaryFolder.newFile();
+        GpxTrackPointScanner scanner = new GpxTrackPointScanner();
+        TrackColumns appended = new TrackColumns();
+        GpxScanCheckpoint checkpoint = GpxScanCheckpoint.START;
+
+        for (int length = 0; ; length = Math.min(content.length, length + step)) {
+            Files.write(file.toPath(), Arrays.copyOf(content, length));
+            GpxTailScan tail = scanner.scanTail(file, checkpoint);
+
+            assertNotNull("length " + length, tail);
+            assertFalse("length " + length, tail.fromStart());
+            appended.append(tail.block().columns(), tail.block().continuesSegment());
+            checkpoint = tail.checkpoint();
+
+            if (length == content.length) {
+                break;
+            }
+        }
+
+        TrackColumns expected = GpxTrackPointScanner.scan(ByteBuffer.wrap(content));
+        assertNotNull(expected);
+        assertColumnsEqual("growing file", withoutTrailingEmptySegments(expected), appended);
+    }
+
+    /**
+     * Empty segments after the last point are not reported before a following point completes.
+     */
+    private static TrackColumns withoutTrailingEmptySegments(TrackColumns columns) {
+        int segmentCount = columns.getSegmentCount();
+        while (segmentCount > 1 && columns.getSegmentStartIndex(segmentCount - 1) == columns.size()) {
+            segmentCount--;
+        }
+        TrackColumns trimmed = new TrackColumns(columns.size());
+        for (int segment = 0; segment < segmentCount; segment++) {
+            trimmed.beginSegment();
+            int end = segment + 1 < segmentCount ? columns.getSegmentStartIndex(segment + 1) : columns.size();
+            for (int i = columns.getSegmentStartIndex(segment); i < end; i++) {
+                trimmed.addPoint(columns.getLatitude(i), columns.getLongitude(i), columns.getElevation(i),
+                        columns.getTimeMillis(i), columns.getSpeed(i));
+            }
+        }
+        return trimmed;
+    }
+
+    private static TrackColumns scan(String gpx) {
+        return GpxTrackPointScanner.scan(ByteBuffer.wrap(gpx.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertColumnsEqual(String name, TrackColumns expected, TrackColumns actual) {
+        assertEquals(name, expected.size(), actual.size());
+        assertEquals(name, expected.getSegmentCount(), actual.getSegmentCount());
+        for (int segment = 0; segment < expected.getSegmentCount(); segment++) {
+            assertEquals(name, expected.getSegmentStartIndex(segment), actual.getSegmentStartIndex(segment));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            String point = name + " point " + i;
+            assertEquals(point, expected.getLatitude(i), actual.getLatitude(i), 0.0);
+            assertEquals(point, expected.getLongitude(i), actual.getLongitude(i), 0.0);
+            assertEquals(point, expected.getElevation(i), actual.getElevation(i), 0.0);
+            assertEquals(point, expected.getTimeMillis(i), actual.getTimeMillis(i));
+            assertEquals(point, expected.getSpeed(i), actual.getSpeed(i), 0.0);
+        }
+    }
+
+    static TrackColumns parseReference(byte[] content) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(content));
+
+        TrackColumns columns = new TrackColumns();
+        NodeList segments = document.getElementsByTagNameNS("*", "trkseg");
+        for (int s = 0; s < segments.getLength(); s++) {
+            columns.beginSegment();
+            for (Node point = segments.item(s).getFirstChild(); point != null; point = point.getNextSibling()) {
+                if (point instanceof Element && "trkpt".equals(point.getLocalName())) {
+                    addReferencePoint(columns, (Element) point);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static void addReferencePoint(TrackColumns columns, Element point) {
+        double ele = Double.NaN;
+        long time = TrackColumns.NO_TIME;
+        double speed = Double.NaN;
+        for (Node child = point.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!(child instanceof Element)) {
+                continue;
+            }
+            switch (child.getLocalName()) {
+                case "ele":
+                    ele = Double.parseDouble(child.getTextContent());
+                    break;
+                case "time":
+                    time = GpxTimeDecoder.parseMillis(child.getTextContent());
+                    break;
+                case "extensions":
+                    for (Node extension = child.getFirstChild(); extension != null; extension = extension.getNextSibling()) {
+                        if (extension instanceof Element && "speed".equals(extension.getLocalName())) {
+                            speed = Double.parseDouble(extension.getTextContent());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        columns.addPoint(
+                Double.parseDouble(point.getAttribute("lat")),
+                Double.parseDouble(point.getAttribute("lon")),
+                ele, time, speed);
+    }
+}
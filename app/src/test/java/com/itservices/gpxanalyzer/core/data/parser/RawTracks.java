@@ -0,0 +1,32 @@
+package com.itservices.gpxanalyzer.core.data.parser;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The tracks bundled in {@code res/raw}, which are resources of the unit tests too.
+ */
+final class RawTracks {
+
+    static final String SKIING = "skiing20250121t091423.gpx";
+    static final String[] ALL = {
+            SKIING,
+            "test20230719.gpx",
+            "test20230729.gpx"
+    };
+
+    private RawTracks() {
+    }
+
+    /**
+     * @throws AssertionError If the track is not on the classpath.
+     */
+    static byte[] read(String name) throws IOException {
+        try (InputStream in = RawTracks.class.getResourceAsStream("/" + name)) {
+            assertNotNull("Missing test resource " + name, in);
+            return in.readAllBytes();
+        }
+    }
+}
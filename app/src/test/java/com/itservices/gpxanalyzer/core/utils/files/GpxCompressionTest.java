@@ -0,0 +1,103 @@
+package com.itservices.gpxanalyzer.core.utils.files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class GpxCompressionTest {
+
+    private static final byte[] GPX = ("<?xml version=\"1.0\"?><gpx creator=\"test\"><trk><trkseg>"
+            + "<trkpt lat=\"49.1\" lon=\"19.2\"><ele>500</ele></trkpt>"
+            + "</trkseg></trk></gpx>").getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void open_plainFile_returnsContent() throws IOException {
+        File file = temporaryFolder.newFile("track.gpx");
+        Files.write(file.toPath(), GPX);
+
+        assertEquals(GpxCompression.Format.NONE, GpxCompression.detect(file));
+        assertArrayEquals(GPX, readAll(file));
+    }
+
+    @Test
+    public void open_gzipFile_returnsDecompressedContent() throws IOException {
+        File file = temporaryFolder.newFile("track.gpx.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file))) {
+            outputStream.write(GPX);
+        }
+
+        assertEquals(GpxCompression.Format.GZIP, GpxCompression.detect(file));
+        assertTrue(GpxCompression.containsGpx(file));
+        assertArrayEquals(GPX, readAll(file));
+    }
+
+    @Test
+    public void open_zipFile_returnsFirstGpxEntry() throws IOException {
+        File file = temporaryFolder.newFile("archive.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file))) {
+            outputStream.putNextEntry(new ZipEntry("readme.txt"));
+            outputStream.write("not a track".getBytes(StandardCharsets.UTF_8));
+            outputStream.putNextEntry(new ZipEntry("tracks/"));
+            outputStream.putNextEntry(new ZipEntry("tracks/Morning.GPX"));
+            outputStream.write(GPX);
+        }
+
+        assertEquals(GpxCompression.Format.ZIP, GpxCompression.detect(file));
+        assertTrue(GpxCompression.containsGpx(file));
+        assertArrayEquals(GPX, readAll(file));
+    }
+
+    @Test
+    public void containsGpx_zipWithoutGpxEntry_returnsFalse() throws IOException {
+        File file = temporaryFolder.newFile("photos.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file))) {
+            outputStream.putNextEntry(new ZipEntry("photo.jpg"));
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+
+        assertFalse(GpxCompression.containsGpx(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void open_zipWithoutGpxEntry_throws() throws IOException {
+        File file = temporaryFolder.newFile("photos.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file))) {
+            outputStream.putNextEntry(new ZipEntry("photo.jpg"));
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+
+        GpxCompression.open(file).close();
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        try (InputStream inputStream = GpxCompression.open(file)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+}
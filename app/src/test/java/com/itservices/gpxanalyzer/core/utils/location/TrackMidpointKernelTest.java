@@ -0,0 +1,89 @@
+package com.itservices.gpxanalyzer.core.utils.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+
+import org.junit.Test;
+
+public class TrackMidpointKernelTest {
+
+    @Test
+    public void process_shortPairs_matchEcefCentroid() {
+        double[] latitudes = {-60.0, -12.5, 0.0, 33.3, 49.8, 78.0};
+        for (double latitude : latitudes) {
+            TrackColumns columns = new TrackColumns();
+            columns.addPoint(latitude, 19.9, 350.0, 0L, Double.NaN);
+            columns.addPoint(latitude + 0.0093, 19.9 - 0.0087, 420.0, 60_000L, Double.NaN);
+
+            TrackMidpointKernel kernel = new TrackMidpointKernel();
+            assertEquals(1, kernel.process(columns, 0, columns.size()));
+
+            double[] a = ECEFConverter.geodeticToECEF(latitude, 19.9, 350.0);
+            double[] b = ECEFConverter.geodeticToECEF(latitude + 0.0093, 19.9 - 0.0087, 420.0);
+            double[] centroid = ECEFConverter.ecefToGeodetic(0.5 * (a[0] + b[0]), 0.5 * (a[1] + b[1]), 0.5 * (a[2] + b[2]));
+
+            assertEquals(centroid[0], kernel.getLatitude(0), 1e-8);
+            assertEquals(centroid[1], kernel.getLongitude(0), 1e-8);
+            assertEquals(centroid[2], kernel.getAltitude(0), 1e-3);
+            assertEquals(30_000L, kernel.getTimeMillis(0));
+        }
+    }
+
+    @Test
+    public void process_equatorAndMeridian_matchEllipsoidDistance() {
+        TrackColumns columns = new TrackColumns();
+        columns.addPoint(0.0, 10.0, 0.0, 0L, Double.NaN);
+        columns.addPoint(0.0, 10.005, 0.0, 2_000L, Double.NaN);
+        columns.addPoint(0.005, 10.005, 30.0, 4_999L, Double.NaN);
+
+        TrackMidpointKernel kernel = new TrackMidpointKernel();
+        assertEquals(2, kernel.process(columns, 0, columns.size()));
+
+        double alongEquator = ECEFConverter.a * Math.toRadians(0.005);
+        assertEquals(alongEquator / 2.0, kernel.getSpeed(0), 1e-4);
+
+        double alongMeridian = ECEFConverter.a * (1.0 - ECEFConverter.eSquared) * Math.toRadians(0.005);
+        double distance3D = Math.sqrt(alongMeridian * alongMeridian + 30.0 * 30.0);
+        // the time difference is truncated to whole seconds
+        assertEquals(distance3D / 2.0, kernel.getSpeed(1), 1e-3);
+    }
+
+    @Test
+    public void process_segmentInRanges_equalsSegmentAtOnce() {
+        TrackColumns columns = new TrackColumns();
+        for (int i = 0; i < 50; i++) {
+            columns.addPoint(49.0 + 1e-4 * i, 20.0 - 5e-5 * i, i % 2 == 0 ? Double.NaN : 500.0 + i, 1_000L * i, Double.NaN);
+        }
+        TrackMidpointKernel atOnce = new TrackMidpointKernel();
+        int count = atOnce.process(columns, 0, columns.size());
+
+        TrackMidpointKernel inRanges = new TrackMidpointKernel();
+        int firstCount = inRanges.process(columns, 0, 20);
+        double[] firstLatitudes = new double[firstCount];
+        for (int i = 0; i < firstCount; i++) {
+            firstLatitudes[i] = inRanges.getLatitude(i);
+        }
+        int secondCount = inRanges.process(columns, 20, columns.size());
+
+        assertEquals(count, firstCount + secondCount);
+        for (int i = 0; i < firstCount; i++) {
+            assertEquals(atOnce.getLatitude(i), firstLatitudes[i], 0.0);
+        }
+        for (int i = 0; i < secondCount; i++) {
+            assertEquals(atOnce.getLatitude(firstCount + i), inRanges.getLatitude(i), 0.0);
+            assertEquals(atOnce.getSpeed(firstCount + i), inRanges.getSpeed(i), 0.0f);
+            assertTrue(Double.isNaN(inRanges.getAltitude(i)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void process_timeNotIncreasing_throws() {
+        TrackColumns columns = new TrackColumns();
+        columns.addPoint(49.0, 20.0, 100.0, 5_000L, Double.NaN);
+        columns.addPoint(49.0001, 20.0, 100.0, 5_500L, Double.NaN);
+
+        new TrackMidpointKernel().process(columns, 0, columns.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.itservices.gpxanalyzer.domain.extrema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.itservices.gpxanalyzer.core.data.parser.GpxTimeDecoder;
+import com.itservices.gpxanalyzer.domain.extrema.detector.PrimitiveDataEntity;
+import com.itservices.gpxanalyzer.domain.extrema.detector.Segment;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Vector;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Compares the trend segments of the elevation of the bundled raw GPX files with golden files, one line
+ * per segment. The goldens are the output of the mapper with the Gaussian windows of these tracks
+ * smoothed by the box cascade, so they change with the smoothing as well as with the segment formation.
+ */
+public class ExtremaSegmentListMapperTest {
+    private static final String[] RAW_FILES = {
+            "skiing20250121t091423.gpx",
+            "test20230719.gpx",
+            "test20230729.gpx"
+    };
+
+    @Test
+    public void mapFrom_rawFiles_matchGoldenSegments() throws Exception {
+        for (String name : RAW_FILES) {
+            Vector<PrimitiveDataEntity> elevations;
+            try (InputStream in = openResource("/" + name)) {
+                elevations = readElevations(in);
+            }
+            Vector<Segment> segments = ExtremaSegmentListMapper.mapFrom(elevations, getStdDev(elevations));
+
+            List<String> expected;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(openResource(name + ".segments"), StandardCharsets.UTF_8))) {
+                expected = reader.lines().collect(Collectors.toList());
+            }
+            assertEquals(name, expected, format(segments));
+        }
+    }
+
+    static List<String> format(List<Segment> segments) {
+        List<String> lines = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            lines.add(String.format(Locale.US, "%d %d %d %d %s %s %s",
+                    segment.startIndex(), segment.endIndex(), segment.startTime(), segment.endTime(),
+                    segment.startVal(), segment.endVal(), segment.type()));
+        }
+        return lines;
+    }
+
+    private static InputStream openResource(String name) {
+        InputStream in = ExtremaSegmentListMapperTest.class.getResourceAsStream(name);
+        assertNotNull("Missing test resource " + name, in);
+        return in;
+    }
+
+    static Vector<PrimitiveDataEntity> readElevations(InputStream in) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(in);
+
+        Vector<PrimitiveDataEntity> elevations = new Vector<>();
+        NodeList points = document.getElementsByTagNameNS("*", "trkpt");
+        for (int i = 0; i < points.getLength(); i++) {
+            Element point = (Element) points.item(i);
+            float elevation = Float.NaN;
+            long time = 0L;
+            for (Node child = point.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if ("ele".equals(child.getLocalName())) {
+                    elevation = Float.parseFloat(child.getTextContent().trim());
+                } else if ("time".equals(child.getLocalName())) {
+                    time = GpxTimeDecoder.parseMillis(child.getTextContent());
+                }
+            }
+            elevations.add(new PrimitiveDataEntity(elevations.size(), time, elevation, 0.1f));
+        }
+        return elevations;
+    }
+
+    private static double getStdDev(List<PrimitiveDataEntity> values) {
+        double mean = 0.0;
+        double squaredDeviationSum = 0.0;
+        for (int i = 0; i < values.size(); i++) {
+            double value = values.get(i).getValue();
+            double delta = value - mean;
+            mean += delta / (i + 1);
+            squaredDeviationSum += delta * (value - mean);
+        }
+        return Math.sqrt(squaredDeviationSum / values.size());
+    }
+}
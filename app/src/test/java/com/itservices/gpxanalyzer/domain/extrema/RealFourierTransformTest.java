@@ -0,0 +1,85 @@
+package com.itservices.gpxanalyzer.domain.extrema;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RealFourierTransformTest {
+
+    @Test
+    public void forward_matchesDirectTransform() {
+        Random random = new Random(22);
+        for (int n = 2; n <= 256; n <<= 1) {
+            double[] signal = new double[n];
+            for (int i = 0; i < n; i++) {
+                signal[i] = random.nextGaussian();
+            }
+            double[] spectrum = signal.clone();
+            RealFourierTransform.forward(spectrum, n);
+
+            for (int k = 0; k <= n / 2; k++) {
+                double real = 0.0;
+                double imaginary = 0.0;
+                for (int i = 0; i < n; i++) {
+                    double angle = -2.0 * Math.PI * k * i / n;
+                    real += signal[i] * Math.cos(angle);
+                    imaginary += signal[i] * Math.sin(angle);
+                }
+                if (k == 0) {
+                    assertEquals("n = " + n, real, spectrum[0], 1e-9);
+                } else if (k == n / 2) {
+                    assertEquals("n = " + n, real, spectrum[1], 1e-9);
+                } else {
+                    assertEquals("n = " + n + ", k = " + k, real, spectrum[2 * k], 1e-9);
+                    assertEquals("n = " + n + ", k = " + k, imaginary, spectrum[2 * k + 1], 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void inverse_restoresSignal() {
+        Random random = new Random(23);
+        int n = 1 << 12;
+        double[] signal = new double[n];
+        for (int i = 0; i < n; i++) {
+            signal[i] = 300.0 + 40.0 * random.nextGaussian();
+        }
+        double[] data = signal.clone();
+
+        RealFourierTransform.forward(data, n);
+        RealFourierTransform.inverse(data, n);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(signal[i], data[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void trimScratch_afterLargeTransform_releasesBufferAndKeepsWorking() {
+        int n = RealFourierTransform.MAX_KEPT_SIZE * 4;
+        double[] data = RealFourierTransform.getBuffer(n);
+        for (int i = 0; i < n; i++) {
+            data[i] = Math.sin(i * 2.0 * Math.PI / 1000.0);
+        }
+        RealFourierTransform.forward(data, n);
+
+        RealFourierTransform.trimScratch();
+
+        assertTrue(RealFourierTransform.getBuffer(1).length <= RealFourierTransform.MAX_KEPT_SIZE);
+        double[] signal = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0};
+        double[] restored = signal.clone();
+        RealFourierTransform.forward(restored, signal.length);
+        RealFourierTransform.inverse(restored, signal.length);
+        assertArrayEquals(signal, restored, 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void forward_sizeNotPowerOf2_throws() {
+        RealFourierTransform.forward(new double[12], 12);
+    }
+}
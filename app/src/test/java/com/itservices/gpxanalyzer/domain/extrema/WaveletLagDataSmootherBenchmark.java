@@ -0,0 +1,35 @@
+package com.itservices.gpxanalyzer.domain.extrema;
+
+import com.itservices.gpxanalyzer.benchmark.Benchmark;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Manual benchmark of the adaptive lag, see {@link Benchmark}.
+ */
+@Ignore("Benchmark, run manually")
+public class WaveletLagDataSmootherBenchmark {
+
+    private static final int ROUNDS = 4;
+
+    /**
+     * Times the adaptive lag against the number of points; the direct sums it replaced grow
+     * quadratically and take minutes for the longest track.
+     */
+    @Test
+    public void computeAdaptiveLag_growingTracks() throws Exception {
+        Random random = new Random(7);
+        for (int size = 1 << 14; size <= 1 << 19; size <<= 1) {
+            double[] values = WaveletLagDataSmootherTest.elevationProfile(size, random);
+            int[] lag = new int[1];
+
+            double nanos = Benchmark.measureNanos(ROUNDS,
+                    () -> lag[0] = WaveletLagDataSmoother.computeAdaptiveLag(values, 10.0));
+
+            Benchmark.report("WaveletLagDataSmoother", "N = %7d, lag = %4d, %6.1f ms", size, lag[0], nanos / 1e6);
+        }
+    }
+}
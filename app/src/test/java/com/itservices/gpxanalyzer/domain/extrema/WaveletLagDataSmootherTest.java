@@ -0,0 +1,112 @@
+package com.itservices.gpxanalyzer.domain.extrema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class WaveletLagDataSmootherTest {
+
+    @Test
+    public void findLargestEnergyScale_matchesDirectSums() {
+        Random random = new Random(21);
+        for (int size : new int[]{10, 11, 64, 257, 1000, 4096, 6001}) {
+            double[] values = elevationProfile(size, random);
+            assertEquals("elevation, size " + size,
+                    findLargestEnergyScaleDirectly(values), WaveletLagDataSmoother.findLargestEnergyScale(values));
+
+            double[] noise = new double[size];
+            for (int i = 0; i < size; i++) {
+                noise[i] = 20.0 * random.nextGaussian();
+            }
+            assertEquals("noise, size " + size,
+                    findLargestEnergyScaleDirectly(noise), WaveletLagDataSmoother.findLargestEnergyScale(noise));
+        }
+    }
+
+    @Test
+    public void findLargestEnergyScale_constantOrRepeatedValues_matchesDirectSums() {
+        double[] constant = new double[500];
+        Arrays.fill(constant, 0.1);
+        assertEquals(3, WaveletLagDataSmoother.findLargestEnergyScale(constant));
+
+        double[] steps = new double[500];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = (i / 50) % 2 == 0 ? 100.0 : 120.0;
+        }
+        assertEquals(findLargestEnergyScaleDirectly(steps), WaveletLagDataSmoother.findLargestEnergyScale(steps));
+    }
+
+    @Test
+    public void computeNoiseThreshold_matchesComplexTransform() {
+        Random random = new Random(22);
+        double[] values = elevationProfile(3000, random);
+        double stdDev = 5.0;
+
+        double[] padded = Arrays.copyOf(values, 4096);
+        Complex[] spectrum = new FastFourierTransformer(DftNormalization.STANDARD).transform(padded, TransformType.FORWARD);
+        double totalEnergy = 0.0;
+        double noiseEnergy = 0.0;
+        for (int i = 1; i < spectrum.length / 2; i++) {
+            totalEnergy += spectrum[i].abs();
+            if (i > spectrum.length / 4) {
+                noiseEnergy += spectrum[i].abs();
+            }
+        }
+        double expected = Math.min(noiseEnergy / (totalEnergy + 1e-10) * stdDev, stdDev * 0.1);
+
+        assertEquals(expected, WaveletLagDataSmoother.computeNoiseThreshold(values, stdDev, Integer.MAX_VALUE), 1e-12);
+        double decimated = WaveletLagDataSmoother.computeNoiseThreshold(values, stdDev, 1000);
+        assertTrue(decimated >= 0.0 && decimated <= stdDev * 0.1);
+    }
+
+    @Test
+    public void computeAdaptiveLag_longTrack_returnsOddLagOfAtLeast3() {
+        Random random = new Random(7);
+        for (int size = 1 << 10; size <= 1 << 16; size <<= 2) {
+            int lag = WaveletLagDataSmoother.computeAdaptiveLag(elevationProfile(size, random), 10.0);
+            assertTrue("size " + size + ", lag " + lag, lag >= 3 && lag % 2 == 1);
+        }
+    }
+
+    static double[] elevationProfile(int size, Random random) {
+        double[] values = new double[size];
+        double elevation = 300.0;
+        for (int i = 0; i < size; i++) {
+            elevation += 0.5 * random.nextGaussian();
+            values[i] = (float) (elevation + 40.0 * Math.sin(i * 2.0 * Math.PI / (size / 3.7)) + random.nextGaussian());
+        }
+        return values;
+    }
+
+    /**
+     * The direct O(N²) computation the adaptive lag was based on.
+     */
+    private static int findLargestEnergyScaleDirectly(double[] values) {
+        int N = values.length;
+        double[] waveletScales = new double[N / 2];
+        for (int scale = 1; scale < N / 2; scale++) {
+            double sumEnergy = 0;
+            for (int i = 0; i < N - scale; i++) {
+                double diff = values[i] - values[i + scale];
+                sumEnergy += diff * diff;
+            }
+            waveletScales[scale] = sumEnergy / (N - scale);
+        }
+
+        int optimalLag = 3;
+        for (int i = 2; i < waveletScales.length; i++) {
+            if (waveletScales[i] > waveletScales[optimalLag]) {
+                optimalLag = i;
+            }
+        }
+        return optimalLag;
+    }
+}
@@ -0,0 +1,124 @@
+package com.itservices.gpxanalyzer.domain.extrema.detector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class CascadedBoxFilterTest {
+
+    @Test
+    public void apply_gaussianWindow_matchesDirectWeightedAverage() {
+        double[] weights = ExtremaSegmentDetector.generateWindowFunction(61, ExtremaSegmentDetector.WindowType.GAUSSIAN, 0.25);
+        assertTrue(CascadedBoxFilter.approximates(weights));
+        double[] values = sampleValues(2000);
+
+        double[] output = new double[values.length];
+        assertSame(output, ExtremaSegmentDetector.applyMovingFilter(values, values.length, weights, output));
+
+        double[] expected = applyDirectly(values, weights);
+        int half = weights.length / 2;
+        for (int i = 0; i < values.length; i++) {
+            boolean edge = i < half || i >= values.length - half;
+            assertEquals("index " + i, expected[i], output[i], edge ? 1e-9 : 0.01);
+        }
+    }
+
+    @Test
+    public void apply_otherWindows_matchDirectWeightedAverageExactly() {
+        double[][] windows = {
+                ExtremaSegmentDetector.generateWindowFunction(61, ExtremaSegmentDetector.WindowType.TRIANGULAR, 0.0),
+                ExtremaSegmentDetector.generateWindowFunction(61, ExtremaSegmentDetector.WindowType.HANNING, 0.0),
+                // Cut off at 1.25 standard deviations
+                ExtremaSegmentDetector.generateWindowFunction(101, ExtremaSegmentDetector.WindowType.GAUSSIAN, 0.0),
+                ExtremaSegmentDetector.generateWindowFunction(7, ExtremaSegmentDetector.WindowType.GAUSSIAN, 0.25)
+        };
+        for (double[] weights : windows) {
+            assertFalse(CascadedBoxFilter.approximates(weights));
+            double[] values = sampleValues(500);
+            double[] expected = applyDirectly(values, weights);
+
+            double[] output = ExtremaSegmentDetector.applyMovingFilter(values, values.length, weights, values);
+
+            assertSame(values, output);
+            assertArrayEquals(expected, output, 0.0);
+        }
+    }
+
+    @Test
+    public void apply_constantValues_keepsValuesAtEdges() {
+        double[] weights = ExtremaSegmentDetector.generateWindowFunction(61, ExtremaSegmentDetector.WindowType.GAUSSIAN, 0.25);
+        double[] values = new double[300];
+        Arrays.fill(values, 123.25);
+
+        double[] output = ExtremaSegmentDetector.applyMovingFilter(values, values.length, weights, null);
+
+        for (double value : output) {
+            assertEquals(123.25, value, 1e-9);
+        }
+    }
+
+    @Test
+    public void apply_plateau_givesEqualValues() {
+        double[] weights = ExtremaSegmentDetector.generateWindowFunction(61, ExtremaSegmentDetector.WindowType.GAUSSIAN, 0.25);
+        Random random = new Random(23);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i >= 300 && i < 700 ? 250.0 : 250.0 + 30.0 * random.nextGaussian();
+        }
+
+        double[] output = ExtremaSegmentDetector.applyMovingFilter(values, values.length, weights, values);
+
+        int[] widths = CascadedBoxFilter.computeBoxWidths(CascadedBoxFilter.computeVariance(weights));
+        int radius = (CascadedBoxFilter.computeKernelPrefixSums(widths).length - 2) / 2;
+        for (int i = 300 + radius; i < 700 - radius - 1; i++) {
+            assertEquals(0.0, output[i + 1] - output[i], 0.0);
+        }
+    }
+
+    @Test
+    public void computeBoxWidths_matchesVariance() {
+        for (double variance : new double[]{0.0, 0.5, 4.0, 36.0, 1000.0, 90000.0}) {
+            int[] widths = CascadedBoxFilter.computeBoxWidths(variance);
+            double boxVariance = 0.0;
+            for (int width : widths) {
+                assertTrue(width % 2 == 1);
+                boxVariance += (width * (double) width - 1.0) / 12.0;
+            }
+            double step = ((widths[0] + 2.0) * (widths[0] + 2.0) - widths[0] * (double) widths[0]) / 12.0;
+            assertEquals("variance " + variance, variance, boxVariance, step);
+        }
+    }
+
+    private static double[] sampleValues(int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = 300.0 + 40.0 * Math.sin(i * 2.0 * Math.PI / 400.0) + 10.0 * Math.sin(i * 2.0 * Math.PI / 90.0);
+        }
+        return values;
+    }
+
+    /**
+     * The weighted average as computed before the cascade, one window at a time.
+     */
+    private static double[] applyDirectly(double[] values, double[] weights) {
+        int half = weights.length / 2;
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            double weightedSum = 0.0;
+            double usedWeightSum = 0.0;
+            for (int j = Math.max(0, i - half); j <= Math.min(values.length - 1, i + half); j++) {
+                weightedSum += values[j] * weights[j - i + half];
+                usedWeightSum += weights[j - i + half];
+            }
+            result[i] = weightedSum / usedWeightSum;
+        }
+        return result;
+    }
+}
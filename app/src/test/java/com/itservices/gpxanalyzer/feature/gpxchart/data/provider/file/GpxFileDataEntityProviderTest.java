@@ -0,0 +1,137 @@
+package com.itservices.gpxanalyzer.feature.gpxchart.data.provider.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.itservices.gpxanalyzer.core.data.cache.disk.TrackColumnsDiskCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.DataEntityCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.GeoPointCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.LoadDataCache;
+import com.itservices.gpxanalyzer.core.data.cache.rawdata.RecentTrackCache;
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.parser.GpxTrackPointScanner;
+import com.itservices.gpxanalyzer.core.events.GlobalEventWrapper;
+import com.itservices.gpxanalyzer.feature.gpxchart.ui.viewmode.GpxViewModeMapper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public class GpxFileDataEntityProviderTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\"?>\n<gpx><trk><trkseg>";
+    private static final String FOOTER = "</trkseg></trk></gpx>";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock private Context context;
+    @Mock private Resources resources;
+    @Mock private GpxViewModeMapper viewModeMapper;
+    @Mock private TrackColumnsDiskCache trackColumnsDiskCache;
+    @Mock private GlobalEventWrapper globalEventWrapper;
+    @Mock private RecentTrackCache recentTrackCache;
+    @Spy private GpxTrackPointScanner trackPointScanner;
+    @Spy private DataEntityCache dataEntityCache = new DataEntityCache();
+    @Spy private GeoPointCache geoPointCache = new GeoPointCache();
+
+    @InjectMocks private LoadDataCache loadDataCache;
+
+    private GpxFileDataEntityProvider provider;
+
+    @Before
+    public void setUp() {
+        when(context.getResources()).thenReturn(resources);
+        when(resources.getStringArray(anyInt())).thenReturn(new String[]{"Elevation", "Speed"});
+
+        provider = new GpxFileDataEntityProvider(context, viewModeMapper);
+        provider.trackPointScanner = trackPointScanner;
+        provider.trackColumnsDiskCache = trackColumnsDiskCache;
+        provider.dataCachedProvider = loadDataCache;
+        provider.globalEventWrapper = globalEventWrapper;
+    }
+
+    @Test
+    public void loadAppended_appendedPoints_matchCompleteLoad() throws IOException {
+        File file = temporaryFolder.newFile("live.gpx");
+        write(file, HEADER + trackPoints(0, 10));
+        GpxFileDataEntityProvider.GrowingFileLoader loader = provider.provideGrowing(file);
+
+        List<DataEntity> loaded = loader.loadAppended().blockingGet();
+        append(file, trackPoints(10, 20));
+        List<Long> appended = timestampsOf(loader.loadAppended().blockingGet());
+
+        assertTrue(appended.size() > loaded.size());
+        append(file, FOOTER);
+        assertEquals(timestampsOf(provider.provide(file).blockingGet()), appended);
+    }
+
+    @Test
+    public void loadAppended_otherTrackLoadedInBetween_loadsFileFromStart() throws IOException {
+        File growingFile = temporaryFolder.newFile("live.gpx");
+        File otherFile = temporaryFolder.newFile("other.gpx");
+        write(growingFile, HEADER + trackPoints(0, 10));
+        write(otherFile, HEADER + trackPoints(30, 50) + FOOTER);
+        GpxFileDataEntityProvider.GrowingFileLoader loader = provider.provideGrowing(growingFile);
+
+        loader.loadAppended().blockingGet();
+        append(growingFile, trackPoints(10, 20));
+        loader.loadAppended().blockingGet();
+
+        provider.provide(otherFile).blockingGet();
+        append(growingFile, trackPoints(20, 25));
+        List<Long> appended = timestampsOf(loader.loadAppended().blockingGet());
+
+        // The points of the other track are replaced, not continued
+        append(growingFile, FOOTER);
+        assertEquals(timestampsOf(provider.provide(growingFile).blockingGet()), appended);
+    }
+
+    /**
+     * @return track points one second apart, climbing one metre per point
+     */
+    private static String trackPoints(int from, int to) {
+        StringBuilder points = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            points.append(String.format(Locale.ROOT,
+                    "<trkpt lat=\"%.4f\" lon=\"20.0\"><ele>%d</ele><time>2025-01-21T09:%02d:%02dZ</time></trkpt>\n",
+                    50.0 + i * 0.0001, 100 + i, i / 60, i % 60));
+        }
+        return points.toString();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static List<Long> timestampsOf(List<DataEntity> dataEntityList) {
+        return dataEntityList.stream().map(DataEntity::timestampMillis).collect(Collectors.toList());
+    }
+}
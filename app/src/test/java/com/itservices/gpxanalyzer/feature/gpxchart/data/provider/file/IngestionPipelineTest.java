@@ -0,0 +1,171 @@
+package com.itservices.gpxanalyzer.feature.gpxchart.data.provider.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.data.model.entity.DataEntity;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackChannel;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackSchema;
+import com.itservices.gpxanalyzer.core.data.model.track.TrackStore;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumns;
+import com.itservices.gpxanalyzer.core.data.parser.domain.TrackColumnsBlock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+
+public class IngestionPipelineTest {
+
+    private static final int QUEUE_CAPACITY = 2;
+    private static final int BLOCK_COUNT = 50;
+    // time given to the stages to run ahead before checking they did not
+    private static final long SETTLE_MILLIS = 200;
+
+    private static final TrackSchema SCHEMA = TrackSchema.of(List.of(
+            new TrackChannel(0, "Elevation", "m", 0.1f, TrackChannel.ValueType.MEASURED)));
+
+    private final AtomicInteger parsedCount = new AtomicInteger();
+    private final TrackStore.Builder filled = new TrackStore.Builder(SCHEMA);
+
+    @Test
+    public void run_fillsBlocksInOrder() {
+        List<Integer> convertedOrder = Collections.synchronizedList(new ArrayList<>());
+        IngestionPipeline pipeline = new IngestionPipeline(QUEUE_CAPACITY,
+                block -> {
+                    convertedOrder.add(block.columns().size());
+                    return convert(block);
+                },
+                this::fill);
+
+        List<Integer> filledSizes = pipeline.run(blocks())
+                .concatMapSingle(appendBlock -> appendBlock.map(List::size))
+                .toList()
+                .blockingGet();
+
+        List<Integer> expectedSizes = new ArrayList<>();
+        List<Integer> expectedOrder = new ArrayList<>();
+        for (int block = 0, size = 0; block < BLOCK_COUNT; block++) {
+            size += blockSize(block);
+            expectedSizes.add(size);
+            expectedOrder.add(blockSize(block));
+        }
+        assertEquals(expectedOrder, convertedOrder);
+        assertEquals(expectedSizes, filledSizes);
+    }
+
+    @Test
+    public void run_consumerNotFilling_boundsBlocksInFlight() throws InterruptedException {
+        IngestionPipeline pipeline = newPipeline();
+
+        TestObserver<Single<List<DataEntity>>> observer = pipeline.run(blocks()).test();
+        await(() -> observer.valueCount() == QUEUE_CAPACITY);
+        Thread.sleep(SETTLE_MILLIS);
+
+        assertEquals(QUEUE_CAPACITY, observer.valueCount());
+        assertTrue(parsedCount.get() <= 2 * QUEUE_CAPACITY);
+
+        assertEquals(blockSize(0), observer.values().get(0).blockingGet().size());
+        await(() -> observer.valueCount() == QUEUE_CAPACITY + 1);
+        Thread.sleep(SETTLE_MILLIS);
+
+        assertEquals(QUEUE_CAPACITY + 1, observer.valueCount());
+        assertTrue(parsedCount.get() <= 2 * QUEUE_CAPACITY + 1);
+        observer.dispose();
+    }
+
+    @Test
+    public void run_fillDisposed_releasesItsSlot() throws InterruptedException {
+        CountDownLatch fillStarted = new CountDownLatch(1);
+        CountDownLatch releaseFill = new CountDownLatch(1);
+        IngestionPipeline pipeline = new IngestionPipeline(QUEUE_CAPACITY,
+                IngestionPipelineTest::convert,
+                points -> {
+                    fillStarted.countDown();
+                    releaseFill.await();
+                    return fill(points);
+                });
+
+        TestObserver<Single<List<DataEntity>>> observer = pipeline.run(blocks()).test();
+        await(() -> observer.valueCount() == QUEUE_CAPACITY);
+        Disposable firstFill = observer.values().get(0).subscribeOn(Schedulers.newThread()).subscribe();
+        assertTrue(fillStarted.await(5, TimeUnit.SECONDS));
+        firstFill.dispose();
+        releaseFill.countDown();
+
+        await(() -> observer.valueCount() == QUEUE_CAPACITY + 1);
+        observer.dispose();
+    }
+
+    @Test
+    public void run_disposed_cancelsParse() throws InterruptedException {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        IngestionPipeline pipeline = newPipeline();
+
+        TestObserver<Single<List<DataEntity>>> observer = pipeline.run(blocks().doOnCancel(() -> cancelled.set(true))).test();
+        await(() -> observer.valueCount() == QUEUE_CAPACITY);
+        observer.values().get(0).blockingGet();
+        observer.dispose();
+
+        await(cancelled::get);
+        int parsedWhenCancelled = parsedCount.get();
+        Thread.sleep(SETTLE_MILLIS);
+        assertEquals(parsedWhenCancelled, parsedCount.get());
+        assertTrue(parsedWhenCancelled < BLOCK_COUNT);
+    }
+
+    private IngestionPipeline newPipeline() {
+        return new IngestionPipeline(QUEUE_CAPACITY, IngestionPipelineTest::convert, this::fill);
+    }
+
+    /**
+     * Blocks of growing sizes, emitted on request.
+     */
+    private Flowable<TrackColumnsBlock> blocks() {
+        return Flowable.range(0, BLOCK_COUNT)
+                .map(block -> {
+                    TrackColumns columns = new TrackColumns();
+                    for (int point = 0; point < blockSize(block); point++) {
+                        columns.addPoint(block, point, 0.0, point, Double.NaN);
+                    }
+                    return new TrackColumnsBlock(columns, block > 0);
+                })
+                .doOnNext(block -> parsedCount.incrementAndGet());
+    }
+
+    private static int blockSize(int block) {
+        return block + 1;
+    }
+
+    private static TrackStore convert(TrackColumnsBlock block) {
+        TrackStore.Builder points = new TrackStore.Builder(SCHEMA);
+        for (int point = 0; point < block.columns().size(); point++) {
+            points.append(point, new float[]{0.0f}, Double.NaN, Double.NaN);
+        }
+        return points.build();
+    }
+
+    private synchronized List<DataEntity> fill(TrackStore points) {
+        return filled.appendAll(points).build().asDataEntityList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
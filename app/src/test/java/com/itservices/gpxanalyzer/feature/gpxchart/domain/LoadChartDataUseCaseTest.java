@@ -13,10 +13,12 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.plugins.RxJavaPlugins;
@@ -25,6 +27,7 @@ import io.reactivex.schedulers.TestScheduler;
 
 import io.reactivex.android.plugins.RxAndroidPlugins;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -181,6 +184,97 @@ public class LoadChartDataUseCaseTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void loadDataProgressive_twoBlocks_updatesChartsPerBlockThenEmitsDone() {
+        when(mockDataEntityCachedProvider.provideProgressive())
+                .thenReturn(Observable.just(Single.just(new Vector<>()), Single.just(new Vector<>())));
+        when(mockRawDataProcessedProvider.provide(any(DataEntityWrapper.class)))
+                .thenReturn(Single.just(mockRawDataProcessed1), Single.just(mockRawDataProcessed2),
+                        Single.just(mockRawDataProcessed1), Single.just(mockRawDataProcessed2),
+                        Single.just(mockRawDataProcessed1), Single.just(mockRawDataProcessed2));
+
+        TestObserver<RequestStatus> testObserver = loadChartDataUseCase.loadDataProgressive(chartAreaItems, mockChartInitializer).test();
+
+        testObserver.awaitTerminalEvent();
+        testObserver.assertValue(RequestStatus.DONE);
+        testObserver.assertComplete();
+        testObserver.assertNoErrors();
+
+        // One partial update per block, then the regular pipeline on the complete data
+        InOrder inOrder = inOrder(mockEventWrapper, mockDataEntityCachedProvider);
+        inOrder.verify(mockEventWrapper).onNext(RequestStatus.LOADING);
+        inOrder.verify(mockDataEntityCachedProvider).provideProgressive();
+        inOrder.verify(mockEventWrapper, times(2)).onNext(RequestStatus.DATA_PARTIALLY_LOADED);
+        inOrder.verify(mockEventWrapper).onNext(RequestStatus.DATA_LOADED);
+        inOrder.verify(mockEventWrapper, times(2)).onNext(RequestStatus.DONE);
+
+        // Charts are initialized before the first partial update and again by the final update
+        verify(mockChartInitializer, times(2)).initChart(mockChartAreaItem1);
+        verify(mockChartInitializer, times(2)).initChart(mockChartAreaItem2);
+        verify(mockChartAreaItem1, times(3)).updateChart(mockRawDataProcessed1);
+        verify(mockChartAreaItem2, times(3)).updateChart(mockRawDataProcessed2);
+        verify(mockDataEntityCachedProvider, never()).provide();
+    }
+
+    @Test
+    public void loadData_cacheReplacedWhileProcessing_updatesChartWithCurrentData() {
+        DataEntityCache dataEntityCache = new DataEntityCache();
+        dataEntityCache.init(2, "first.gpx");
+        loadChartDataUseCase.dataEntityCache = dataEntityCache;
+        RawDataProcessed staleRawDataProcessed = mock(RawDataProcessed.class);
+        List<Long> processedVersions = new ArrayList<>();
+        when(mockRawDataProcessedProvider.provide(any(DataEntityWrapper.class))).thenAnswer(invocation -> {
+            DataEntityWrapper dataEntityWrapper = invocation.getArgument(0);
+            processedVersions.add(dataEntityWrapper.getSnapshotVersion());
+            switch (processedVersions.size()) {
+                case 1:
+                    // Another load publishes its data while the first chart is being processed
+                    dataEntityCache.init(2, "second.gpx");
+                    return Single.just(staleRawDataProcessed);
+                case 2:
+                    return Single.just(mockRawDataProcessed1);
+                default:
+                    return Single.just(mockRawDataProcessed2);
+            }
+        });
+
+        TestObserver<RequestStatus> testObserver = loadChartDataUseCase.loadData(chartAreaItems, mockChartInitializer).test();
+
+        testObserver.awaitTerminalEvent();
+        testObserver.assertValue(RequestStatus.DONE);
+        testObserver.assertNoErrors();
+
+        // The first chart is processed again on the current data, the stale result is never shown
+        long currentVersion = dataEntityCache.getVersion();
+        assertEquals(List.of(currentVersion - 1, currentVersion, currentVersion), processedVersions);
+        verify(mockChartAreaItem1, never()).updateChart(staleRawDataProcessed);
+        verify(mockChartAreaItem1).updateChart(mockRawDataProcessed1);
+        verify(mockChartAreaItem2).updateChart(mockRawDataProcessed2);
+    }
+
+    @Test
+    public void loadData_cacheReplacedOnEveryUpdate_skipsChartUpdate() {
+        DataEntityCache dataEntityCache = new DataEntityCache();
+        dataEntityCache.init(2);
+        loadChartDataUseCase.dataEntityCache = dataEntityCache;
+        when(mockRawDataProcessedProvider.provide(any(DataEntityWrapper.class))).thenAnswer(invocation -> {
+            dataEntityCache.publish();
+            return Single.just(mockRawDataProcessed1);
+        });
+
+        TestObserver<RequestStatus> testObserver = loadChartDataUseCase.loadData(chartAreaItems, mockChartInitializer).test();
+
+        testObserver.awaitTerminalEvent();
+        testObserver.assertValue(RequestStatus.CHART_UPDATING);
+        testObserver.assertNoErrors();
+
+        // Each chart is tried once and retried MAX_STALE_RETRIES times, none of the results is shown
+        verify(mockRawDataProcessedProvider, times(2 * (LoadChartDataUseCase.MAX_STALE_RETRIES + 1)))
+                .provide(any(DataEntityWrapper.class));
+        verify(mockChartAreaItem1, never()).updateChart(any());
+        verify(mockChartAreaItem2, never()).updateChart(any());
+    }
+
     @Test
     public void loadData_dataEntityProviderError_emitsErrorAndEvents() {
         Throwable error = new RuntimeException("Data provider failed");
@@ -0,0 +1,50 @@
+package com.itservices.gpxanalyzer.feature.gpxlist.data.model.gpxfileinfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.itservices.gpxanalyzer.core.utils.location.LocationCalculatorUtil;
+
+import org.junit.Test;
+
+public class GpxFileSummaryTest {
+
+    @Test
+    public void build_withoutPoints_returnsEmptySummary() {
+        GpxFileSummary summary = new GpxFileSummary.Builder().build();
+
+        assertEquals(0, summary.pointCount());
+        assertEquals(GpxFileSummary.NO_TIME, summary.startTimeMillis());
+        assertEquals(0, summary.durationMillis());
+        assertEquals(0.0, summary.distanceMeters(), 0.0);
+        assertTrue(Double.isNaN(summary.minLatitude()));
+        assertTrue(Double.isNaN(summary.maxElevation()));
+    }
+
+    @Test
+    public void build_twoSegments_sumsDistanceWithinSegmentsOnly() {
+        GpxFileSummary summary = new GpxFileSummary.Builder()
+                .beginSegment()
+                .addPoint(49.0, 19.0, 500.0, 1000L)
+                .addPoint(49.1, 19.0, Double.NaN, GpxFileSummary.NO_TIME)
+                .beginSegment()
+                .addPoint(50.0, 18.5, 300.0, 5000L)
+                .addPoint(50.0, 18.6, 700.0, 3000L)
+                .build();
+
+        double expectedDistance = LocationCalculatorUtil.calculateDistance(49.0, 19.0, 49.1, 19.0)
+                + LocationCalculatorUtil.calculateDistance(50.0, 18.5, 50.0, 18.6);
+
+        assertEquals(4, summary.pointCount());
+        assertEquals(expectedDistance, summary.distanceMeters(), 1e-9);
+        assertEquals(1000L, summary.startTimeMillis());
+        assertEquals(5000L, summary.endTimeMillis());
+        assertEquals(4000L, summary.durationMillis());
+        assertEquals(49.0, summary.minLatitude(), 0.0);
+        assertEquals(50.0, summary.maxLatitude(), 0.0);
+        assertEquals(18.5, summary.minLongitude(), 0.0);
+        assertEquals(19.0, summary.maxLongitude(), 0.0);
+        assertEquals(300.0, summary.minElevation(), 0.0);
+        assertEquals(700.0, summary.maxElevation(), 0.0);
+    }
+}